@@ -1,12 +1,17 @@
 package com.appvet.horas;
 
+import com.appvet.horas.controller.HoraAgendadaController;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling
 public class HorasAgendadasApplication {
 
     public static void main(String[] args) {
@@ -27,7 +32,8 @@ public class HorasAgendadasApplication {
                 registry.addMapping("/api/**")
                         .allowedOrigins("*")
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS")
-                        .allowedHeaders("*");
+                        .allowedHeaders("*")
+                        .exposedHeaders(HoraAgendadaController.HEADER_SIGUIENTE_CURSOR);
             }
         };
     }
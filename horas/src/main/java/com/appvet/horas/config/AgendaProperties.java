@@ -0,0 +1,83 @@
+package com.appvet.horas.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+
+// Parámetros de la agenda de la clínica (prefijo appvet.horas)
+@ConfigurationProperties(prefix = "appvet.horas")
+public record AgendaProperties(
+        @DefaultValue("America/Santiago") ZoneId zonaHoraria,
+        @DefaultValue("30") int duracionCitaMinutos,
+        @DefaultValue Jornada jornada,
+        @DefaultValue Ocupacion ocupacion,
+        @DefaultValue Recordatorios recordatorios,
+        @DefaultValue Eventos eventos,
+        @DefaultValue Archivo archivo) {
+
+    // Horario de atención en que se ofrecen horas libres
+    public record Jornada(
+            @DefaultValue("08:00") LocalTime apertura,
+            @DefaultValue("20:00") LocalTime cierre,
+            @DefaultValue("15") int intervaloMinutos) {
+    }
+
+    // porMascota: los choques se evalúan por mascota en vez de para toda la clínica
+    public record Ocupacion(
+            @DefaultValue("false") boolean porMascota,
+            @DefaultValue("365") int diasHorizonte) {
+    }
+
+    // minutosAntes: anticipación del aviso; horasHorizonte: cuánto hacia adelante se mantiene
+    // cargado en memoria (lo que queda más lejos entra con la recarga periódica)
+    public record Recordatorios(
+            @DefaultValue("60") int minutosAntes,
+            @DefaultValue("48") int horasHorizonte) {
+    }
+
+    // Canal SSE de cambios por usuario. bufferPorSuscriptor: eventos sin enviar que se le
+    // aguantan a una conexión lenta antes de cortarla; historialPorUsuario y retencion: cuántos
+    // eventos y por cuánto tiempo se guardan para reanudar con Last-Event-ID; tiempoMaximoEnvio:
+    // lo que puede tardar una escritura antes de dar la conexión por trabada y soltarla
+    public record Eventos(
+            @DefaultValue("64") int bufferPorSuscriptor,
+            @DefaultValue("100") int historialPorUsuario,
+            @DefaultValue("5m") Duration retencion,
+            @DefaultValue("30m") Duration duracionConexion,
+            @DefaultValue("4") int hilosDespacho,
+            @DefaultValue("5s") Duration tiempoMaximoEnvio) {
+    }
+
+    // Archivado: las horas en estos estados con más de diasAntiguedad días pasan al histórico en
+    // lotes de filasPorLote, con una pausa entre lote y lote para no acaparar la base
+    public record Archivo(
+            @DefaultValue("365") int diasAntiguedad,
+            @DefaultValue("500") int filasPorLote,
+            @DefaultValue("200ms") Duration pausaEntreLotes,
+            @DefaultValue({"Completada", "Cancelada"}) List<String> estados) {
+    }
+
+    // Día de la agenda al que pertenece un timestamp "fecha" (milisegundos, como en Kotlin)
+    public LocalDate diaDe(long fecha) {
+        return Instant.ofEpochMilli(fecha).atZone(zonaHoraria).toLocalDate();
+    }
+
+    public long inicioDe(LocalDate dia) {
+        return dia.atStartOfDay(zonaHoraria).toInstant().toEpochMilli();
+    }
+
+    // Instante de la cita: el día de "fecha" a la hora y minuto indicados, en la zona de la clínica
+    public Instant instanteDe(long fecha, int hora, int minuto) {
+        return diaDe(fecha).atTime(hora, minuto).atZone(zonaHoraria).toInstant();
+    }
+
+    public LocalDate hoy() {
+        return LocalDate.now(zonaHoraria);
+    }
+}
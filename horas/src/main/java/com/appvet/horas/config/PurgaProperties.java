@@ -0,0 +1,24 @@
+package com.appvet.horas.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Limpieza en cascada de las horas de usuarios y mascotas eliminados (prefijo appvet.horas.purga).
+// filasPorLote y pausaEntreLotes: lo que se borra por transacción y la espera entre una y otra.
+// eventosPorPasada: eliminaciones que se leen en cada pasada.
+// clavesPorTramo y antiguedadMinima: la reconciliación revisa usuarios y mascotas de a tramos y
+// solo toca horas creadas hace más de antiguedadMinima, para no adelantarse a un alta en curso.
+// duracionMaximaPasada y duracionMaximaReconciliacion: tope de cada pasada; lo que no alcanza
+// queda para la siguiente
+@ConfigurationProperties(prefix = "appvet.horas.purga")
+public record PurgaProperties(
+        @DefaultValue("500") int filasPorLote,
+        @DefaultValue("200ms") Duration pausaEntreLotes,
+        @DefaultValue("100") int eventosPorPasada,
+        @DefaultValue("1000") int clavesPorTramo,
+        @DefaultValue("1d") Duration antiguedadMinima,
+        @DefaultValue("20s") Duration duracionMaximaPasada,
+        @DefaultValue("30m") Duration duracionMaximaReconciliacion) {
+}
@@ -0,0 +1,24 @@
+package com.appvet.horas.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.Map;
+
+// Tokens de acceso emitidos por usuarios al hacer login (prefijo appvet.tokens).
+// claves: identificador -> secreto HMAC en base64, las mismas que usa usuarios para firmar. Para
+// rotar se agrega la nueva aquí, luego usuarios empieza a firmar con ella, y la vieja se quita
+// cuando ya vencieron los tokens que firmó. obligatorio: sin token se responde 401; mientras la
+// app no los mande va en false y solo se rechazan los tokens inválidos. maximoCache: tokens ya
+// verificados que se recuerdan.
+// Las claves no tienen valor por defecto: sin ninguna, o con una vacía, el servicio no arranca
+@ConfigurationProperties(prefix = "appvet.tokens")
+@Validated
+public record TokensProperties(
+        @DefaultValue("false") boolean obligatorio,
+        @NotEmpty(message = "Falta configurar appvet.tokens.claves") Map<String, @NotBlank(message = "Hay una clave de appvet.tokens.claves vacía") String> claves,
+        @DefaultValue("100000") int maximoCache) {
+}
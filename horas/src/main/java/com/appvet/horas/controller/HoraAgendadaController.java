@@ -1,16 +1,34 @@
 package com.appvet.horas.controller;
 
+import com.appvet.horas.dto.CalendarioMes;
+import com.appvet.horas.dto.CambioEstadoMasivo;
+import com.appvet.horas.dto.HoraResumen;
+import com.appvet.horas.dto.HorarioLibre;
+import com.appvet.horas.dto.Pagina;
+import com.appvet.horas.dto.PorIds;
+import com.appvet.horas.dto.ResultadoLote;
+import com.appvet.horas.exception.HorarioNoDisponibleException;
+import com.appvet.horas.exception.VersionNoCoincideException;
 import com.appvet.horas.model.HoraAgendada;
 import com.appvet.horas.service.HoraAgendadaService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/horas-agendadas")
@@ -19,84 +37,312 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class HoraAgendadaController {
     
+    // El cuerpo sigue siendo un arreglo JSON; el cursor de la siguiente página va en este header
+    public static final String HEADER_SIGUIENTE_CURSOR = "X-Siguiente-Cursor";
+    
+    // Máximo de horas por carga masiva (una semana de vacunaciones de una clínica cabe holgada);
+    // también de ids por cambio de estado o búsqueda por ids
+    private static final int LIMITE_LOTE = 5000;
+    
     private final HoraAgendadaService horaAgendadaService;
     
     @GetMapping
-    public ResponseEntity<List<HoraAgendada>> obtenerTodas() {
-        log.info("GET /api/horas-agendadas - Obteniendo todas las horas");
-        return ResponseEntity.ok(horaAgendadaService.obtenerTodas());
+    public ResponseEntity<List<HoraResumen>> obtenerTodas(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(defaultValue = "false") boolean incluirHistorico) {
+        log.info("GET /api/horas-agendadas - Obteniendo página de horas");
+        try {
+            return responderPagina(horaAgendadaService.obtenerTodas(cursor, limite, incluirHistorico));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    // Exporta en NDJSON (una hora por línea) sin cargar el rango en memoria; gzip si el cliente lo acepta
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportar(
+            @RequestParam Long desde,
+            @RequestParam Long hasta,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.info("GET /api/horas-agendadas/export - Desde {} hasta {}", desde, hasta);
+        if (desde > hasta) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        StreamingResponseBody cuerpo = salida -> {
+            if (gzip) {
+                GZIPOutputStream comprimido = new GZIPOutputStream(salida, 8192);
+                horaAgendadaService.exportar(desde, hasta, comprimido);
+                comprimido.finish();
+            } else {
+                horaAgendadaService.exportar(desde, hasta, salida);
+            }
+        };
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return respuesta.body(cuerpo);
+    }
+    
+    // Conteos por día, estado y tipo de un mes (de un usuario o de toda la clínica) para el calendario
+    @GetMapping("/calendario")
+    public ResponseEntity<CalendarioMes> obtenerCalendario(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth mes,
+            @RequestParam(required = false) String usuarioId) {
+        log.info("GET /api/horas-agendadas/calendario - Mes {} (usuario: {})", mes, usuarioId);
+        return ResponseEntity.ok(horaAgendadaService.obtenerCalendario(mes, usuarioId));
+    }
+    
+    // Próximos horarios libres de un día, calculados desde el índice de ocupación en memoria
+    @GetMapping("/disponibilidad")
+    public ResponseEntity<List<HorarioLibre>> obtenerDisponibilidad(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dia,
+            @RequestParam(defaultValue = "30") int duracion,
+            @RequestParam(defaultValue = "10") int cantidad,
+            @RequestParam(required = false) String mascotaId) {
+        log.info("GET /api/horas-agendadas/disponibilidad - Día {} ({} min)", dia, duracion);
+        if (duracion <= 0 || duracion > 24 * 60 || cantidad <= 0 || cantidad > 100) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(horaAgendadaService.obtenerHorariosLibres(dia, duracion, cantidad, mascotaId));
     }
     
+    // Única lectura que devuelve la hora completa, con notas; los listados devuelven HoraResumen.
+    // Por defecto las lecturas solo miran la tabla de trabajo; las horas Completadas y Canceladas
+    // antiguas se archivan y aparecen solo con ?incluirHistorico=true
     @GetMapping("/{id}")
-    public ResponseEntity<HoraAgendada> obtenerPorId(@PathVariable String id) {
+    public ResponseEntity<HoraAgendada> obtenerPorId(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "false") boolean incluirHistorico) {
         log.info("GET /api/horas-agendadas/{}", id);
-        return horaAgendadaService.obtenerPorId(id)
-            .map(ResponseEntity::ok)
+        return horaAgendadaService.obtenerPorId(id, incluirHistorico)
+            .map(hora -> ResponseEntity.ok().eTag(Etags.de(hora.getVersion())).body(hora))
             .orElse(ResponseEntity.notFound().build());
     }
     
+    // Varias horas completas en una sola petición: en el orden pedido y con los ids que no
+    // existen en "faltantes". Acepta hasta LIMITE_LOTE ids
+    @PostMapping("/by-ids")
+    public ResponseEntity<PorIds<HoraAgendada>> obtenerPorIds(
+            @RequestBody List<String> ids,
+            @RequestParam(defaultValue = "false") boolean incluirHistorico) {
+        log.info("POST /api/horas-agendadas/by-ids - {} ids", ids.size());
+        if (ids.isEmpty() || ids.size() > LIMITE_LOTE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(horaAgendadaService.obtenerPorIds(ids, incluirHistorico));
+    }
+    
     @GetMapping("/usuario/{usuarioId}")
-    public ResponseEntity<List<HoraAgendada>> obtenerPorUsuario(@PathVariable String usuarioId) {
+    public ResponseEntity<List<HoraResumen>> obtenerPorUsuario(
+            @PathVariable String usuarioId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(defaultValue = "false") boolean incluirHistorico) {
         log.info("GET /api/horas-agendadas/usuario/{}", usuarioId);
-        return ResponseEntity.ok(horaAgendadaService.obtenerPorUsuario(usuarioId));
+        try {
+            return responderPagina(horaAgendadaService.obtenerPorUsuario(usuarioId, cursor, limite, incluirHistorico));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    // Cambios de las horas del usuario en vivo (Server-Sent Events), en lugar de consultar la
+    // lista cada pocos segundos. Al reconectar se manda Last-Event-ID y llega lo que faltó; si
+    // eso ya no está disponible llega un evento "reinicio" y hay que volver a pedir la lista
+    @GetMapping(value = "/usuario/{usuarioId}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter eventosPorUsuario(
+            @PathVariable String usuarioId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String ultimoEventoId) {
+        log.info("GET /api/horas-agendadas/usuario/{}/eventos", usuarioId);
+        return horaAgendadaService.suscribirEventos(usuarioId, ultimoEventoId);
+    }
+    
+    // Conteos servidos desde memoria (ContadorHoras), pensados para los badges de la app
+    @GetMapping("/usuario/{usuarioId}/count")
+    public ResponseEntity<Map<String, Long>> contarPorUsuario(@PathVariable String usuarioId) {
+        log.info("GET /api/horas-agendadas/usuario/{}/count", usuarioId);
+        return ResponseEntity.ok(Map.of("count", horaAgendadaService.contarPorUsuario(usuarioId)));
+    }
+    
+    @GetMapping("/estado/{estado}/count")
+    public ResponseEntity<Map<String, Long>> contarPorEstado(@PathVariable String estado) {
+        log.info("GET /api/horas-agendadas/estado/{}/count", estado);
+        return ResponseEntity.ok(Map.of("count", horaAgendadaService.contarPorEstado(estado)));
     }
     
     @GetMapping("/mascota/{mascotaId}")
-    public ResponseEntity<List<HoraAgendada>> obtenerPorMascota(@PathVariable String mascotaId) {
+    public ResponseEntity<List<HoraResumen>> obtenerPorMascota(
+            @PathVariable String mascotaId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(defaultValue = "false") boolean incluirHistorico) {
         log.info("GET /api/horas-agendadas/mascota/{}", mascotaId);
-        return ResponseEntity.ok(horaAgendadaService.obtenerPorMascota(mascotaId));
+        try {
+            return responderPagina(horaAgendadaService.obtenerPorMascota(mascotaId, cursor, limite, incluirHistorico));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @GetMapping("/estado/{estado}")
-    public ResponseEntity<List<HoraAgendada>> obtenerPorEstado(@PathVariable String estado) {
+    public ResponseEntity<List<HoraResumen>> obtenerPorEstado(
+            @PathVariable String estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(defaultValue = "false") boolean incluirHistorico) {
         log.info("GET /api/horas-agendadas/estado/{}", estado);
-        return ResponseEntity.ok(horaAgendadaService.obtenerPorEstado(estado));
+        try {
+            return responderPagina(horaAgendadaService.obtenerPorEstado(estado, cursor, limite, incluirHistorico));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @GetMapping("/tipo/{tipo}")
-    public ResponseEntity<List<HoraAgendada>> obtenerPorTipo(@PathVariable String tipo) {
+    public ResponseEntity<List<HoraResumen>> obtenerPorTipo(
+            @PathVariable String tipo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            @RequestParam(defaultValue = "false") boolean incluirHistorico) {
         log.info("GET /api/horas-agendadas/tipo/{}", tipo);
-        return ResponseEntity.ok(horaAgendadaService.obtenerPorTipo(tipo));
+        try {
+            return responderPagina(horaAgendadaService.obtenerPorTipo(tipo, cursor, limite, incluirHistorico));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @PostMapping
-    public ResponseEntity<HoraAgendada> crear(@Valid @RequestBody HoraAgendada horaAgendada) {
+    public ResponseEntity<?> crear(@Valid @RequestBody HoraAgendada horaAgendada) {
         log.info("POST /api/horas-agendadas - Creando: {}", horaAgendada.getTipo());
-        HoraAgendada nueva = horaAgendadaService.guardar(horaAgendada);
-        return ResponseEntity.status(HttpStatus.CREATED).body(nueva);
+        try {
+            HoraAgendada nueva = horaAgendadaService.guardar(horaAgendada);
+            return ResponseEntity.status(HttpStatus.CREATED).body(nueva);
+        } catch (HorarioNoDisponibleException e) {
+            log.warn("Horario no disponible: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", e.getMessage()));
+        } catch (DataIntegrityViolationException e) {
+            // Otra petición creó a la vez una hora con el mismo id
+            log.warn("Alta concurrente con el mismo ID de hora: {}", horaAgendada.getId());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Ya existe una hora con ID " + horaAgendada.getId()));
+        }
+    }
+    
+    // Carga masiva: las horas válidas se insertan en batch y se informa el resultado de cada una
+    @PostMapping("/batch")
+    public ResponseEntity<ResultadoLote> crearLote(@RequestBody List<HoraAgendada> horas) {
+        log.info("POST /api/horas-agendadas/batch - {} horas", horas.size());
+        if (horas.isEmpty() || horas.size() > LIMITE_LOTE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(horaAgendadaService.guardarLote(horas));
     }
     
+    // Con If-Match (PUT, PATCH y DELETE) la escritura es condicional: 412 si la versión ya
+    // cambió. PUT y PATCH responden 204 con el ETag nuevo
     @PutMapping("/{id}")
-    public ResponseEntity<HoraAgendada> actualizar(
+    public ResponseEntity<?> actualizar(
             @PathVariable String id,
-            @Valid @RequestBody HoraAgendada horaAgendada) {
+            @Valid @RequestBody HoraAgendada horaAgendada,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("PUT /api/horas-agendadas/{}", id);
         try {
+            Long version = Etags.versionDe(ifMatch);
+            if (version != null) {
+                long nueva = horaAgendadaService.actualizar(id, horaAgendada, version);
+                return ResponseEntity.noContent().eTag(Etags.de(nueva)).build();
+            }
             return ResponseEntity.ok(horaAgendadaService.actualizar(id, horaAgendada));
+        } catch (VersionNoCoincideException e) {
+            log.warn("Conflicto de versión: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        } catch (HorarioNoDisponibleException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
     
     @PatchMapping("/{id}/estado")
-    public ResponseEntity<HoraAgendada> cambiarEstado(
+    public ResponseEntity<?> cambiarEstado(
             @PathVariable String id,
-            @RequestBody Map<String, String> body) {
+            @RequestBody Map<String, String> body,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
         log.info("PATCH /api/horas-agendadas/{}/estado", id);
         try {
             String nuevoEstado = body.get("estado");
-            return ResponseEntity.ok(horaAgendadaService.cambiarEstado(id, nuevoEstado));
-        } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
+            Long version = Etags.versionDe(ifMatch);
+            int cambiadas = version == null
+                ? horaAgendadaService.cambiarEstado(id, nuevoEstado)
+                : horaAgendadaService.cambiarEstado(id, nuevoEstado, version);
+            if (cambiadas == 0) {
+                return ResponseEntity.notFound().build();
+            }
+            // Contrato: 204 sin cuerpo; el cambio no vuelve a leer la hora. Quien necesite la hora
+            // actualizada la pide con "Prefer: return=representation" y recibe 200 con ella
+            if (prefer != null && prefer.contains("return=representation")) {
+                return horaAgendadaService.obtenerPorId(id)
+                    .<ResponseEntity<?>>map(hora -> ResponseEntity.ok().eTag(Etags.de(hora.getVersion())).body(hora))
+                    .orElse(ResponseEntity.notFound().build());
+            }
+            // Con la versión verificada en el mismo UPDATE, el cambio la sube exactamente en uno
+            if (version != null) {
+                return ResponseEntity.noContent().eTag(Etags.de(version + 1)).build();
+            }
+            return ResponseEntity.noContent().build();
+        } catch (VersionNoCoincideException e) {
+            log.warn("Conflicto de versión: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        } catch (HorarioNoDisponibleException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // Cambio de estado en bloque (p. ej. confirmar una lista de horas); responde cuántas cambiaron
+    @PatchMapping("/estado")
+    public ResponseEntity<Map<String, Integer>> cambiarEstadoMasivo(@RequestBody CambioEstadoMasivo cambio) {
+        log.info("PATCH /api/horas-agendadas/estado - A {}", cambio.estado());
+        boolean porIds = cambio.ids() != null && !cambio.ids().isEmpty();
+        boolean porFecha = cambio.estadoActual() != null && cambio.antesDe() != null;
+        if (cambio.estado() == null || porIds == porFecha || (porIds && cambio.ids().size() > LIMITE_LOTE)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            int actualizadas = porIds
+                ? horaAgendadaService.cambiarEstado(cambio.ids(), cambio.estado())
+                : horaAgendadaService.cambiarEstadoAnteriorA(cambio.estadoActual(), cambio.estado(), cambio.antesDe());
+            return ResponseEntity.ok(Map.of("actualizadas", actualizadas));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
     }
     
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> eliminar(@PathVariable String id) {
+    public ResponseEntity<Void> eliminar(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("DELETE /api/horas-agendadas/{}", id);
         try {
-            horaAgendadaService.eliminar(id);
+            Long version = Etags.versionDe(ifMatch);
+            if (version != null) {
+                horaAgendadaService.eliminar(id, version);
+            } else {
+                horaAgendadaService.eliminar(id);
+            }
             return ResponseEntity.noContent().build();
+        } catch (VersionNoCoincideException e) {
+            log.warn("Conflicto de versión: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -110,4 +356,12 @@ public class HoraAgendadaController {
             "port", "8082"
         ));
     }
+    
+    private ResponseEntity<List<HoraResumen>> responderPagina(Pagina<HoraResumen> pagina) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.tieneSiguiente()) {
+            respuesta.header(HEADER_SIGUIENTE_CURSOR, pagina.siguienteCursor());
+        }
+        return respuesta.body(pagina.items());
+    }
 }
\ No newline at end of file
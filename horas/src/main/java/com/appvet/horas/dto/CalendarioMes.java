@@ -0,0 +1,8 @@
+package com.appvet.horas.dto;
+
+import java.time.YearMonth;
+import java.util.List;
+
+// Conteos por día de un mes para la vista de calendario; solo trae los días con horas
+public record CalendarioMes(YearMonth mes, List<DiaCalendario> dias) {
+}
@@ -0,0 +1,8 @@
+package com.appvet.horas.dto;
+
+import java.util.List;
+
+// Cambio de estado en bloque: por lista de ids, o para todas las horas en estadoActual
+// con fecha anterior a antesDe (timestamp en milisegundos)
+public record CambioEstadoMasivo(List<String> ids, String estadoActual, Long antesDe, String estado) {
+}
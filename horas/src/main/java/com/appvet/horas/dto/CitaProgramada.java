@@ -0,0 +1,5 @@
+package com.appvet.horas.dto;
+
+// Columnas mínimas para programar el recordatorio de una hora sin cargar la entidad
+public record CitaProgramada(String id, Long fecha, Integer hora, Integer minuto) {
+}
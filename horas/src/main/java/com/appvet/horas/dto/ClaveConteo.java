@@ -0,0 +1,5 @@
+package com.appvet.horas.dto;
+
+// Columnas de una hora que determinan en qué contadores suma, más su versión para If-Match
+public record ClaveConteo(String usuarioId, String estado, Long version) {
+}
@@ -0,0 +1,5 @@
+package com.appvet.horas.dto;
+
+// Fila de la consulta agregada del calendario: cuántas horas hay por fecha, estado y tipo
+public record ConteoAgenda(Long fecha, String estado, String tipo, long cantidad) {
+}
@@ -0,0 +1,5 @@
+package com.appvet.horas.dto;
+
+// Resultado de un COUNT agrupado por una sola columna (usuario o estado)
+public record ConteoPorClave(String clave, long cantidad) {
+}
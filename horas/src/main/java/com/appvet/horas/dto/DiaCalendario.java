@@ -0,0 +1,7 @@
+package com.appvet.horas.dto;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public record DiaCalendario(LocalDate dia, long total, Map<String, Long> porEstado, Map<String, Long> porTipo) {
+}
@@ -0,0 +1,6 @@
+package com.appvet.horas.dto;
+
+// Lo justo de una hora por archivar, purgar o cambiar de estado en bloque: su id para moverla,
+// borrarla o avisar, y usuario y estado para los contadores
+public record HoraArchivable(String id, String usuarioId, String estado) {
+}
@@ -0,0 +1,5 @@
+package com.appvet.horas.dto;
+
+// Id de una hora y su dueño, para avisar por el canal de eventos de los cambios masivos
+public record HoraDeUsuario(String id, String usuarioId) {
+}
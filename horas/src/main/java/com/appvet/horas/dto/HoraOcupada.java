@@ -0,0 +1,5 @@
+package com.appvet.horas.dto;
+
+// Columnas que necesita el índice de ocupación para marcar el horario de una hora activa
+public record HoraOcupada(String id, Long fecha, Integer hora, Integer minuto, String mascotaId) {
+}
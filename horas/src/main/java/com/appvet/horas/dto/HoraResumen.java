@@ -0,0 +1,9 @@
+package com.appvet.horas.dto;
+
+import java.time.LocalDateTime;
+
+// Una hora en los listados: todo menos las notas (TEXT), que solo vienen en GET /{id}
+public record HoraResumen(String id, Long fecha, Integer hora, Integer minuto, String tipo, String usuarioId,
+                          String mascotaId, String estado, LocalDateTime fechaCreacion,
+                          LocalDateTime fechaActualizacion) {
+}
@@ -0,0 +1,4 @@
+package com.appvet.horas.dto;
+
+public record HorarioLibre(int hora, int minuto) {
+}
@@ -0,0 +1,11 @@
+package com.appvet.horas.dto;
+
+import java.util.List;
+
+// Página de resultados con el cursor opaco para pedir la siguiente (null si no hay más)
+public record Pagina<T>(List<T> items, String siguienteCursor) {
+
+    public boolean tieneSiguiente() {
+        return siguienteCursor != null;
+    }
+}
@@ -0,0 +1,10 @@
+package com.appvet.horas.dto;
+
+import java.util.List;
+
+// Resultado de una carga por lote: una entrada por hora recibida, en el mismo orden del lote
+public record ResultadoLote(int creadas, int rechazadas, List<Item> items) {
+
+    public record Item(int indice, String id, boolean creada, List<String> errores) {
+    }
+}
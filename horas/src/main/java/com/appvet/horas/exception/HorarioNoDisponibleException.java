@@ -0,0 +1,9 @@
+package com.appvet.horas.exception;
+
+// El horario pedido se cruza con otra hora agendada
+public class HorarioNoDisponibleException extends RuntimeException {
+
+    public HorarioNoDisponibleException(String message) {
+        super(message);
+    }
+}
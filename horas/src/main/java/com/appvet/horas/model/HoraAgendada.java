@@ -1,5 +1,6 @@
 package com.appvet.horas.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
@@ -62,6 +63,12 @@ public class HoraAgendada {
     @Column(name = "fecha_actualizacion")
     private LocalDateTime fechaActualizacion;
     
+    // Control optimista: viaja como ETag, no en el cuerpo
+    @Version
+    @JsonIgnore
+    @Column(name = "version", nullable = false)
+    private Long version;
+    
     // Constructor sin timestamps (para crear desde Android)
     public HoraAgendada(String id, Long fecha, Integer hora, Integer minuto, String tipo, String usuarioId) {
         this.id = id;
@@ -0,0 +1,75 @@
+package com.appvet.horas.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+// Hora agendada ya archivada (horas_agendadas_historico). Solo se lee, y hacia afuera se
+// entrega como una HoraAgendada más
+@Entity
+@Immutable
+@Table(name = "horas_agendadas_historico")
+@Data
+@NoArgsConstructor
+public class HoraAgendadaHistorica {
+    
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+    
+    @Column(name = "fecha")
+    private Long fecha;
+    
+    @Column(name = "hora", nullable = false)
+    private Integer hora;
+    
+    @Column(name = "minuto", nullable = false)
+    private Integer minuto;
+    
+    @Column(name = "tipo", nullable = false, length = 100)
+    private String tipo;
+    
+    @Column(name = "usuario_id", nullable = false, length = 36)
+    private String usuarioId;
+    
+    @Column(name = "mascota_id", length = 36)
+    private String mascotaId;
+    
+    @Column(name = "estado", length = 50)
+    private String estado;
+    
+    @Column(name = "notas", columnDefinition = "TEXT")
+    private String notas;
+    
+    @Column(name = "fecha_creacion")
+    private LocalDateTime fechaCreacion;
+    
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+    
+    @Column(name = "version", nullable = false)
+    private Long version;
+    
+    @Column(name = "fecha_archivado", nullable = false)
+    private LocalDateTime fechaArchivado;
+    
+    public HoraAgendada aHoraAgendada() {
+        HoraAgendada hora = new HoraAgendada();
+        hora.setId(id);
+        hora.setFecha(fecha);
+        hora.setHora(this.hora);
+        hora.setMinuto(minuto);
+        hora.setTipo(tipo);
+        hora.setUsuarioId(usuarioId);
+        hora.setMascotaId(mascotaId);
+        hora.setEstado(estado);
+        hora.setNotas(notas);
+        hora.setFechaCreacion(fechaCreacion);
+        hora.setFechaActualizacion(fechaActualizacion);
+        hora.setVersion(version);
+        return hora;
+    }
+}
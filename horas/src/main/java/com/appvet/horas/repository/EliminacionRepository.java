@@ -0,0 +1,24 @@
+package com.appvet.horas.repository;
+
+import com.appvet.horas.model.Eliminacion;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EliminacionRepository extends JpaRepository<Eliminacion, Long> {
+    
+    // Los que horas aún no purga, del más antiguo al más nuevo (idx_eliminaciones_horas)
+    @Query("SELECT e FROM Eliminacion e WHERE e.purgadaHoras IS NULL ORDER BY e.id")
+    List<Eliminacion> findPendientesParaHoras(Limit limite);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Eliminacion e SET e.purgadaHoras = :ahora WHERE e.id = :id")
+    int marcarPurgadaEnHoras(@Param("id") Long id, @Param("ahora") LocalDateTime ahora);
+}
@@ -0,0 +1,38 @@
+package com.appvet.horas.repository;
+
+import com.appvet.horas.model.HoraAgendadaHistorica;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface HoraAgendadaHistoricoRepository extends JpaRepository<HoraAgendadaHistorica, String>,
+        JpaSpecificationExecutor<HoraAgendadaHistorica> {
+    
+    // Copia las filas tal cual desde horas_agendadas, sin pasar por entidades
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO horas_agendadas_historico (id, fecha, hora, minuto, tipo, usuario_id, mascota_id, "
+        + "estado, notas, fecha_creacion, fecha_actualizacion, version, fecha_archivado) "
+        + "SELECT id, fecha, hora, minuto, tipo, usuario_id, mascota_id, estado, notas, fecha_creacion, "
+        + "fecha_actualizacion, version, :ahora FROM horas_agendadas WHERE id IN (:ids)", nativeQuery = true)
+    int copiarDesdeAgenda(@Param("ids") Collection<String> ids, @Param("ahora") LocalDateTime ahora);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM HoraAgendadaHistorica h WHERE h.id IN :ids")
+    int eliminarPorIds(@Param("ids") Collection<String> ids);
+    
+    // Purga de un usuario o una mascota eliminados (idx_historico_usuario_agenda, idx_historico_mascota_agenda)
+    @Query("SELECT h.id FROM HoraAgendadaHistorica h WHERE h.usuarioId = :usuarioId")
+    List<String> findIdsPorUsuario(@Param("usuarioId") String usuarioId, Limit limite);
+    
+    @Query("SELECT h.id FROM HoraAgendadaHistorica h WHERE h.mascotaId = :mascotaId")
+    List<String> findIdsPorMascota(@Param("mascotaId") String mascotaId, Limit limite);
+}
@@ -1,15 +1,36 @@
 package com.appvet.horas.repository;
 
+import com.appvet.horas.dto.CitaProgramada;
+import com.appvet.horas.dto.ClaveConteo;
+import com.appvet.horas.dto.ConteoAgenda;
+import com.appvet.horas.dto.ConteoPorClave;
+import com.appvet.horas.dto.HoraArchivable;
+import com.appvet.horas.dto.HoraDeUsuario;
+import com.appvet.horas.dto.HoraOcupada;
 import com.appvet.horas.model.HoraAgendada;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
-public interface HoraAgendadaRepository extends JpaRepository<HoraAgendada, String> {
+public interface HoraAgendadaRepository extends JpaRepository<HoraAgendada, String>,
+        JpaSpecificationExecutor<HoraAgendada> {
     
     List<HoraAgendada> findByUsuarioId(String usuarioId);
     List<HoraAgendada> findByMascotaId(String mascotaId);
@@ -20,6 +41,192 @@ public interface HoraAgendadaRepository extends JpaRepository<HoraAgendada, Stri
     @Query("SELECT h FROM HoraAgendada h WHERE h.fecha >= :fechaDesde AND h.fecha <= :fechaHasta")
     List<HoraAgendada> findByFechaBetween(@Param("fechaDesde") Long fechaDesde, @Param("fechaHasta") Long fechaHasta);
     
+    // Carga de RecordatorioHoras: solo las columnas que usa la rueda, cubiertas por idx_horas_estado_agenda
+    @Query("SELECT new com.appvet.horas.dto.CitaProgramada(h.id, h.fecha, h.hora, h.minuto) FROM HoraAgendada h "
+         + "WHERE h.estado = :estado AND h.fecha >= :fechaDesde AND h.fecha < :fechaHasta")
+    List<CitaProgramada> findCitasPorEstadoEntre(@Param("estado") String estado,
+                                                @Param("fechaDesde") Long fechaDesde,
+                                                @Param("fechaHasta") Long fechaHasta);
+    
+    // Misma consulta que findByFechaBetween pero recorrida con un cursor JDBC: las filas llegan
+    // de a FETCH_SIZE (requiere useCursorFetch=true en MySQL) y nunca se materializa la lista
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT h FROM HoraAgendada h WHERE h.fecha >= :fechaDesde AND h.fecha <= :fechaHasta "
+        + "ORDER BY h.fecha, h.hora, h.minuto, h.id")
+    Stream<HoraAgendada> streamByFechaBetween(@Param("fechaDesde") Long fechaDesde, @Param("fechaHasta") Long fechaHasta);
+    
+    // Carga de OcupacionIndex: las horas activas del horizonte, solo con las columnas que marcan
+    // el horario y recorridas con cursor (idx_horas_agenda)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.appvet.horas.dto.HoraOcupada(h.id, h.fecha, h.hora, h.minuto, h.mascotaId) "
+        + "FROM HoraAgendada h WHERE h.fecha >= :fechaDesde AND h.fecha < :fechaHasta "
+        + "AND h.hora IS NOT NULL AND h.minuto IS NOT NULL AND (h.estado IS NULL OR UPPER(h.estado) <> 'CANCELADA')")
+    Stream<HoraOcupada> streamOcupadasEntre(@Param("fechaDesde") Long fechaDesde, @Param("fechaHasta") Long fechaHasta);
+    
+    // La misma consulta para un solo día fuera del horizonte, que se carga al reservar en él
+    @Query("SELECT new com.appvet.horas.dto.HoraOcupada(h.id, h.fecha, h.hora, h.minuto, h.mascotaId) "
+        + "FROM HoraAgendada h WHERE h.fecha >= :fechaDesde AND h.fecha < :fechaHasta "
+        + "AND h.hora IS NOT NULL AND h.minuto IS NOT NULL AND (h.estado IS NULL OR UPPER(h.estado) <> 'CANCELADA')")
+    List<HoraOcupada> findOcupadasEntre(@Param("fechaDesde") Long fechaDesde, @Param("fechaHasta") Long fechaHasta);
+    
+    // Solo los ids, para descartar duplicados de un lote con una consulta en vez de una por fila
+    @Query("SELECT h.id FROM HoraAgendada h WHERE h.id IN :ids")
+    Set<String> findIdsExistentes(@Param("ids") Collection<String> ids);
+    
+    // Cambios de estado en una sola sentencia, sin cargar entidades. @UpdateTimestamp no
+    // aplica a UPDATE masivos, por eso fechaActualizacion va explícita
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE HoraAgendada h SET h.estado = :estado, h.fechaActualizacion = :ahora, h.version = h.version + 1 "
+        + "WHERE h.id = :id")
+    int actualizarEstado(@Param("id") String id, @Param("estado") String estado, @Param("ahora") LocalDateTime ahora);
+    
+    // Cambio de estado sin bloqueo: escribe solo si la fila sigue en la versión leída, así el
+    // usuario y el estado de esa lectura son exactamente los que deja atrás el UPDATE
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE HoraAgendada h SET h.estado = :estado, h.fechaActualizacion = :ahora, h.version = h.version + 1 "
+        + "WHERE h.id = :id AND h.version = :version")
+    int actualizarEstadoSiVersion(@Param("id") String id, @Param("estado") String estado,
+                                  @Param("version") long version, @Param("ahora") LocalDateTime ahora);
+    
+    // Igual que actualizarEstado pero sin tocar horas canceladas, que al reactivarse deben
+    // volver a reservar su horario
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE HoraAgendada h SET h.estado = :estado, h.fechaActualizacion = :ahora, h.version = h.version + 1 "
+        + "WHERE h.id IN :ids AND (h.estado IS NULL OR UPPER(h.estado) <> 'CANCELADA')")
+    int actualizarEstadoActivas(@Param("ids") Collection<String> ids, @Param("estado") String estado,
+                                @Param("ahora") LocalDateTime ahora);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE HoraAgendada h SET h.estado = :estado, h.fechaActualizacion = :ahora, h.version = h.version + 1 "
+        + "WHERE h.id IN :ids")
+    int actualizarEstadoPorIds(@Param("ids") Collection<String> ids, @Param("estado") String estado,
+                               @Param("ahora") LocalDateTime ahora);
+    
+    // Transición masiva por fecha, p. ej. Pendiente -> Vencida para todo lo anterior a hoy
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE HoraAgendada h SET h.estado = :estadoNuevo, h.fechaActualizacion = :ahora, h.version = h.version + 1 "
+        + "WHERE h.estado = :estadoActual AND h.fecha < :antesDe")
+    int actualizarEstadoAnteriorA(@Param("estadoActual") String estadoActual, @Param("estadoNuevo") String estadoNuevo,
+                                  @Param("antesDe") Long antesDe, @Param("ahora") LocalDateTime ahora);
+    
+    // Cambio de estado en bloque: usuario y estado previos de cada hora, bloqueadas hasta el
+    // UPDATE, para ajustar los contadores fila por fila sin reconciliar
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.appvet.horas.dto.HoraArchivable(h.id, h.usuarioId, h.estado) FROM HoraAgendada h "
+        + "WHERE h.id IN :ids ORDER BY h.id")
+    List<HoraArchivable> findClavesConteoParaActualizar(@Param("ids") Collection<String> ids);
+    
+    @Query("SELECT h.id FROM HoraAgendada h WHERE h.estado = :estado AND h.fecha < :antesDe")
+    List<String> findIdsPorEstadoAnteriorA(@Param("estado") String estado, @Param("antesDe") Long antesDe);
+    
+    @Query("SELECT new com.appvet.horas.dto.HoraDeUsuario(h.id, h.usuarioId) FROM HoraAgendada h "
+        + "WHERE h.estado = :estado AND h.fecha < :antesDe")
+    List<HoraDeUsuario> findHorasDeUsuarioPorEstadoAnteriorA(@Param("estado") String estado, @Param("antesDe") Long antesDe);
+    
+    // Calendario: se agrupa por el timestamp crudo y el paso a día (según la zona de la clínica)
+    // se hace en Java; son pocas filas porque las horas de un mismo día comparten fecha
+    @Query("SELECT new com.appvet.horas.dto.ConteoAgenda(h.fecha, h.estado, h.tipo, COUNT(h)) "
+        + "FROM HoraAgendada h WHERE h.fecha >= :fechaDesde AND h.fecha < :fechaHasta "
+        + "GROUP BY h.fecha, h.estado, h.tipo")
+    List<ConteoAgenda> contarAgenda(@Param("fechaDesde") Long fechaDesde, @Param("fechaHasta") Long fechaHasta);
+    
+    @Query("SELECT new com.appvet.horas.dto.ConteoAgenda(h.fecha, h.estado, h.tipo, COUNT(h)) "
+        + "FROM HoraAgendada h WHERE h.usuarioId = :usuarioId AND h.fecha >= :fechaDesde AND h.fecha < :fechaHasta "
+        + "GROUP BY h.fecha, h.estado, h.tipo")
+    List<ConteoAgenda> contarAgendaDeUsuario(@Param("usuarioId") String usuarioId,
+                                            @Param("fechaDesde") Long fechaDesde, @Param("fechaHasta") Long fechaHasta);
+    
+    // Lecturas con bloqueo de fila (SELECT ... FOR UPDATE) previas a una escritura: dos cambios
+    // sobre la misma hora no se cruzan y los contadores saben exactamente qué ajustar
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<HoraAgendada> findParaActualizarById(String id);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.appvet.horas.dto.ClaveConteo(h.usuarioId, h.estado, h.version) FROM HoraAgendada h WHERE h.id = :id")
+    Optional<ClaveConteo> findClaveConteoParaActualizar(@Param("id") String id);
+    
+    @Query("SELECT new com.appvet.horas.dto.ClaveConteo(h.usuarioId, h.estado, h.version) FROM HoraAgendada h WHERE h.id = :id")
+    Optional<ClaveConteo> findClaveConteoById(@Param("id") String id);
+    
+    // PUT con If-Match: escribe solo si la versión coincide y el estado no cambia, así los
+    // contadores por estado no necesitan leer la fila. 0 filas: no existe, cambió o cambia de estado
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE HoraAgendada h SET h.fecha = :fecha, h.hora = :hora, h.minuto = :minuto, h.tipo = :tipo, "
+        + "h.mascotaId = :mascotaId, h.notas = :notas, h.fechaActualizacion = :ahora, h.version = h.version + 1 "
+        + "WHERE h.id = :id AND h.version = :version AND h.usuarioId = :usuarioId "
+        + "AND (h.estado = :estado OR (h.estado IS NULL AND :estado IS NULL))")
+    int actualizarSiVersion(@Param("id") String id,
+                            @Param("version") long version,
+                            @Param("usuarioId") String usuarioId,
+                            @Param("estado") String estado,
+                            @Param("fecha") Long fecha,
+                            @Param("hora") Integer hora,
+                            @Param("minuto") Integer minuto,
+                            @Param("tipo") String tipo,
+                            @Param("mascotaId") String mascotaId,
+                            @Param("notas") String notas,
+                            @Param("ahora") LocalDateTime ahora);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM HoraAgendada h WHERE h.id = :id")
+    int eliminarPorId(@Param("id") String id);
+    
+    // Un lote del archivado, bloqueado hasta que se copie y se borre (idx_horas_estado_agenda)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.appvet.horas.dto.HoraArchivable(h.id, h.usuarioId, h.estado) FROM HoraAgendada h "
+        + "WHERE h.estado IN :estados AND h.fecha < :antesDe")
+    List<HoraArchivable> findParaArchivar(@Param("estados") Collection<String> estados, @Param("antesDe") Long antesDe,
+                                         Limit limite);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM HoraAgendada h WHERE h.id IN :ids")
+    int eliminarPorIds(@Param("ids") Collection<String> ids);
+    
+    // Un lote de la purga de un usuario o una mascota eliminados, bloqueado hasta que se borre
+    // (idx_horas_usuario_agenda, idx_horas_mascota_agenda)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.appvet.horas.dto.HoraArchivable(h.id, h.usuarioId, h.estado) FROM HoraAgendada h "
+        + "WHERE h.usuarioId = :usuarioId")
+    List<HoraArchivable> findParaPurgarPorUsuario(@Param("usuarioId") String usuarioId, Limit limite);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.appvet.horas.dto.HoraArchivable(h.id, h.usuarioId, h.estado) FROM HoraAgendada h "
+        + "WHERE h.mascotaId = :mascotaId")
+    List<HoraArchivable> findParaPurgarPorMascota(@Param("mascotaId") String mascotaId, Limit limite);
+    
+    // Reconciliación de huérfanas: usuarios y mascotas se recorren por tramos en orden, solo por el índice
+    @Query("SELECT DISTINCT h.usuarioId FROM HoraAgendada h WHERE h.usuarioId > :desde ORDER BY h.usuarioId")
+    List<String> findUsuarioIdsDesde(@Param("desde") String desde, Limit limite);
+    
+    @Query("SELECT DISTINCT h.mascotaId FROM HoraAgendada h WHERE h.mascotaId > :desde ORDER BY h.mascotaId")
+    List<String> findMascotaIdsDesde(@Param("desde") String desde, Limit limite);
+    
+    // De un tramo, los que ya no están en usuarios o en mascotas (tablas de los otros
+    // microservicios en la misma appvet_db) y tienen alguna hora creada antes de "antesDe"
+    @Query(value = "SELECT DISTINCT h.usuario_id FROM horas_agendadas h LEFT JOIN usuarios u ON u.id = h.usuario_id "
+        + "WHERE h.usuario_id IN (:usuarioIds) AND u.id IS NULL AND h.fecha_creacion < :antesDe", nativeQuery = true)
+    List<String> findUsuariosInexistentes(@Param("usuarioIds") Collection<String> usuarioIds,
+                                          @Param("antesDe") LocalDateTime antesDe);
+    
+    @Query(value = "SELECT DISTINCT h.mascota_id FROM horas_agendadas h LEFT JOIN mascotas m ON m.id = h.mascota_id "
+        + "WHERE h.mascota_id IN (:mascotaIds) AND m.id IS NULL AND h.fecha_creacion < :antesDe", nativeQuery = true)
+    List<String> findMascotasInexistentes(@Param("mascotaIds") Collection<String> mascotaIds,
+                                          @Param("antesDe") LocalDateTime antesDe);
+    
+    // Carga y reconciliación de ContadorHoras
+    @Query("SELECT new com.appvet.horas.dto.ConteoPorClave(h.usuarioId, COUNT(h)) FROM HoraAgendada h GROUP BY h.usuarioId")
+    List<ConteoPorClave> contarPorUsuarioAgrupado();
+    
+    @Query("SELECT new com.appvet.horas.dto.ConteoPorClave(h.estado, COUNT(h)) FROM HoraAgendada h GROUP BY h.estado")
+    List<ConteoPorClave> contarPorEstadoAgrupado();
+    
     long countByUsuarioId(String usuarioId);
     long countByEstado(String estado);
+
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.appvet.horas.seguridad;
+
+import com.appvet.horas.config.TokensProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Lee "Authorization: Bearer <token>" y deja el TokenAcceso en el atributo ACCESO de la
+// petición, para los controladores que necesiten saber quién llama
+// (@RequestAttribute(FiltroTokens.ACCESO)). Un token inválido o vencido es 401; sin token
+// también, salvo que appvet.tokens.obligatorio esté en false. Health y preflight CORS pasan
+@Component
+@RequiredArgsConstructor
+public class FiltroTokens extends OncePerRequestFilter {
+
+    public static final String ACCESO = "appvet.acceso";
+
+    private static final String BEARER = "Bearer ";
+
+    private final VerificadorTokens verificadorTokens;
+    private final TokensProperties config;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return HttpMethod.OPTIONS.matches(request.getMethod()) || request.getRequestURI().endsWith("/health");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String autorizacion = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (autorizacion == null || !autorizacion.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            if (config.obligatorio()) {
+                rechazar(response);
+                return;
+            }
+            chain.doFilter(request, response);
+            return;
+        }
+        TokenAcceso acceso = verificadorTokens.verificar(autorizacion, BEARER.length());
+        if (acceso == null) {
+            rechazar(response);
+            return;
+        }
+        request.setAttribute(ACCESO, acceso);
+        chain.doFilter(request, response);
+    }
+
+    private static void rechazar(HttpServletResponse response) {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+    }
+}
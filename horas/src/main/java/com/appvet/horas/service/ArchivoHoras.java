@@ -0,0 +1,118 @@
+package com.appvet.horas.service;
+
+import com.appvet.horas.config.AgendaProperties;
+import com.appvet.horas.dto.HoraArchivable;
+import com.appvet.horas.repository.HoraAgendadaHistoricoRepository;
+import com.appvet.horas.repository.HoraAgendadaRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Archivado nocturno: las horas Completadas y Canceladas de hace más de diasAntiguedad días
+// pasan de horas_agendadas a horas_agendadas_historico, para que las lecturas de todos los días
+// y sus índices no arrastren años de filas que nadie mira.
+// Va en lotes chicos, cada uno en su propia transacción: se bloquean solo las filas del lote y
+// solo mientras se copian y se borran. Como cada lote queda confirmado, si el proceso se corta
+// la próxima pasada sigue con lo que falta; y dos instancias a la vez no se pisan, porque la
+// segunda espera el bloqueo y luego ya no encuentra esas filas.
+// La pasada corre en un hilo propio: con sus pausas entre lotes puede durar minutos y no debe
+// ocupar el hilo del scheduler, que también mueve la rueda de recordatorios y los latidos SSE
+@Component
+@Slf4j
+public class ArchivoHoras {
+
+    private final HoraAgendadaRepository horaAgendadaRepository;
+    private final HoraAgendadaHistoricoRepository horaAgendadaHistoricoRepository;
+    private final ContadorHoras contadorHoras;
+    private final AgendaProperties agenda;
+    private final TransactionTemplate transaccion;
+    private final ExecutorService ejecutor = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "archivo-horas");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+
+    public ArchivoHoras(HoraAgendadaRepository horaAgendadaRepository,
+                        HoraAgendadaHistoricoRepository horaAgendadaHistoricoRepository,
+                        ContadorHoras contadorHoras, AgendaProperties agenda,
+                        PlatformTransactionManager transactionManager) {
+        this.horaAgendadaRepository = horaAgendadaRepository;
+        this.horaAgendadaHistoricoRepository = horaAgendadaHistoricoRepository;
+        this.contadorHoras = contadorHoras;
+        this.agenda = agenda;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Scheduled(cron = "${appvet.horas.archivo.cron:0 30 3 * * *}", zone = "${appvet.horas.zona-horaria:America/Santiago}")
+    public void archivarAntiguas() {
+        if (!enCurso.compareAndSet(false, true)) {
+            log.warn("Archivado: la pasada anterior sigue en curso, se omite esta");
+            return;
+        }
+        ejecutor.execute(() -> {
+            try {
+                int archivadas = archivarAnterioresA(agenda.inicioDe(agenda.hoy().minusDays(agenda.archivo().diasAntiguedad())));
+                log.info("Archivado: {} horas pasaron al histórico", archivadas);
+            } catch (RuntimeException e) {
+                log.error("Archivado interrumpido por un error; la próxima pasada sigue con lo que falta", e);
+            } finally {
+                enCurso.set(false);
+            }
+        });
+    }
+
+    // Interrumpe la pausa entre lotes; el lote en curso termina o se revierte entero
+    @PreDestroy
+    void cerrar() {
+        ejecutor.shutdownNow();
+    }
+
+    // Archiva lote a lote hasta que no quede nada anterior a "antesDe"; devuelve cuántas movió
+    public int archivarAnterioresA(long antesDe) {
+        AgendaProperties.Archivo config = agenda.archivo();
+        int total = 0;
+        while (true) {
+            Integer movidas = transaccion.execute(estado -> archivarLote(config, antesDe));
+            total += movidas;
+            if (movidas < config.filasPorLote()) {
+                return total;
+            }
+            try {
+                Thread.sleep(config.pausaEntreLotes().toMillis());
+            } catch (InterruptedException e) {
+                // Lo ya archivado queda; el resto sigue en la próxima pasada
+                Thread.currentThread().interrupt();
+                return total;
+            }
+        }
+    }
+
+    // Si una hora con el mismo id ya estaba archivada se reemplaza: la que sale ahora es más reciente
+    private int archivarLote(AgendaProperties.Archivo config, long antesDe) {
+        List<HoraArchivable> lote = horaAgendadaRepository.findParaArchivar(
+            config.estados(), antesDe, Limit.of(config.filasPorLote()));
+        if (lote.isEmpty()) {
+            return 0;
+        }
+        List<String> ids = lote.stream().map(HoraArchivable::id).toList();
+        horaAgendadaHistoricoRepository.eliminarPorIds(ids);
+        horaAgendadaHistoricoRepository.copiarDesdeAgenda(ids, LocalDateTime.now());
+        horaAgendadaRepository.eliminarPorIds(ids);
+        // Los contadores cuentan la tabla de trabajo, igual que las lecturas
+        lote.forEach(hora -> contadorHoras.baja(hora.usuarioId(), hora.estado()));
+        return lote.size();
+    }
+}
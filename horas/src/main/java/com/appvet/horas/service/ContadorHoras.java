@@ -0,0 +1,231 @@
+package com.appvet.horas.service;
+
+import com.appvet.horas.dto.ConteoPorClave;
+import com.appvet.horas.repository.HoraAgendadaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Conteos de horas por usuario y por estado en memoria, para los badges que la app consulta
+// todo el tiempo. Se cargan con un GROUP BY al iniciar, se ajustan con cada escritura
+// confirmada y se reconcilian periódicamente contra la base.
+// Los ajustes de una transacción se aplican tras el commit, con el cerrojo de lectura tomado
+// desde beforeCommit. La reconciliación toma el de escritura solo un instante, para fijar la
+// foto de su transacción (REPEATABLE READ) y copiar los contadores en un punto en que ninguna
+// transacción confirmada tiene ajustes pendientes. Los GROUP BY leen esa foto sin cerrojo y al
+// final se suma a cada contador la diferencia entre la foto y la copia: lo confirmado mientras
+// tanto ya está en los contadores y no se pisa. Es local a cada instancia.
+// La reconciliación abre su transacción (y con ella su conexión) antes de pedir el cerrojo:
+// si lo pidiera primero, las transacciones detenidas en beforeCommit retendrían todas las
+// conexiones del pool mientras ella espera una.
+@Component
+@Slf4j
+public class ContadorHoras {
+
+    // ConcurrentHashMap no admite claves null: las horas sin estado cuentan bajo ""
+    private static final String SIN_ESTADO = "";
+
+    private final HoraAgendadaRepository horaAgendadaRepository;
+    private final TransactionTemplate lectura;
+
+    private final ConcurrentHashMap<String, LongAdder> porUsuario = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> porEstado = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private volatile boolean cargado;
+
+    public ContadorHoras(HoraAgendadaRepository horaAgendadaRepository, PlatformTransactionManager transactionManager) {
+        this.horaAgendadaRepository = horaAgendadaRepository;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.lectura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        // Siempre en una transacción propia, para que la foto sea la del momento del cerrojo
+        this.lectura.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Vacío mientras no se haya hecho la carga inicial: el llamador cae al COUNT de siempre
+    public OptionalLong contarPorUsuario(String usuarioId) {
+        return contar(porUsuario, usuarioId);
+    }
+
+    public OptionalLong contarPorEstado(String estado) {
+        return contar(porEstado, estado == null ? SIN_ESTADO : estado);
+    }
+
+    public void alta(String usuarioId, String estado) {
+        ajustes().sumar(usuarioId, estado, 1);
+    }
+
+    public void baja(String usuarioId, String estado) {
+        ajustes().sumar(usuarioId, estado, -1);
+    }
+
+    public void cambioEstado(String estadoAnterior, String estadoNuevo, long cantidad) {
+        Ajustes ajustes = ajustes();
+        ajustes.sumarEstado(estadoAnterior, -cantidad);
+        ajustes.sumarEstado(estadoNuevo, cantidad);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${appvet.horas.contadores.reconciliacion:PT15M}",
+               initialDelayString = "${appvet.horas.contadores.reconciliacion:PT15M}")
+    public void reconciliar() {
+        lectura.executeWithoutResult(estado -> {
+            Map<String, Long> usuariosEnLaFoto;
+            Map<String, Long> estadosEnLaFoto;
+            cerrojo.writeLock().lock();
+            try {
+                // La primera lectura fija la foto que verán los GROUP BY
+                horaAgendadaRepository.existsById("");
+                usuariosEnLaFoto = copiar(porUsuario);
+                estadosEnLaFoto = copiar(porEstado);
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+            Map<String, Long> usuarios = agrupar(horaAgendadaRepository.contarPorUsuarioAgrupado());
+            Map<String, Long> estados = agrupar(horaAgendadaRepository.contarPorEstadoAgrupado());
+            cerrojo.writeLock().lock();
+            try {
+                int diferencias = corregir(porUsuario, usuariosEnLaFoto, usuarios)
+                    + corregir(porEstado, estadosEnLaFoto, estados);
+                if (cargado && diferencias > 0) {
+                    log.warn("Contadores de horas reconciliados: {} claves corregidas", diferencias);
+                }
+                cargado = true;
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+        });
+    }
+
+    private OptionalLong contar(Map<String, LongAdder> contadores, String clave) {
+        if (!cargado) {
+            return OptionalLong.empty();
+        }
+        LongAdder contador = contadores.get(clave);
+        return OptionalLong.of(contador == null ? 0 : contador.sum());
+    }
+
+    private static Map<String, Long> copiar(Map<String, LongAdder> contadores) {
+        Map<String, Long> copia = new HashMap<>(contadores.size() * 2);
+        contadores.forEach((clave, contador) -> copia.put(clave, contador.sum()));
+        return copia;
+    }
+
+    private static Map<String, Long> agrupar(List<ConteoPorClave> conteos) {
+        Map<String, Long> reales = new HashMap<>();
+        for (ConteoPorClave conteo : conteos) {
+            reales.merge(conteo.clave() == null ? SIN_ESTADO : conteo.clave(), conteo.cantidad(), Long::sum);
+        }
+        return reales;
+    }
+
+    // Suma a cada contador lo que le faltaba en la foto, para que una lectura concurrente nunca
+    // vea un valor intermedio; lo sumado después de la foto se conserva
+    private static int corregir(Map<String, LongAdder> contadores, Map<String, Long> enLaFoto, Map<String, Long> reales) {
+        int diferencias = 0;
+        Set<String> claves = new HashSet<>(enLaFoto.keySet());
+        claves.addAll(reales.keySet());
+        for (String clave : claves) {
+            long diferencia = reales.getOrDefault(clave, 0L) - enLaFoto.getOrDefault(clave, 0L);
+            if (diferencia != 0) {
+                contadores.computeIfAbsent(clave, k -> new LongAdder()).add(diferencia);
+                diferencias++;
+            }
+        }
+        return diferencias;
+    }
+
+    // Un acumulador por transacción, registrado como recurso de la transacción en curso
+    private Ajustes ajustes() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Ajustes(false);
+        }
+        Ajustes ajustes = (Ajustes) TransactionSynchronizationManager.getResource(this);
+        if (ajustes == null) {
+            ajustes = new Ajustes(true);
+            TransactionSynchronizationManager.bindResource(this, ajustes);
+            TransactionSynchronizationManager.registerSynchronization(ajustes);
+        }
+        return ajustes;
+    }
+
+    private final class Ajustes implements TransactionSynchronization {
+
+        private final boolean diferido;
+        private final Map<String, Long> usuarios = new HashMap<>();
+        private final Map<String, Long> estados = new HashMap<>();
+        private boolean bloqueado;
+
+        private Ajustes(boolean diferido) {
+            this.diferido = diferido;
+        }
+
+        void sumar(String usuarioId, String estado, long cantidad) {
+            if (!diferido) {
+                aplicarBloqueado(() -> {
+                    porUsuario.computeIfAbsent(usuarioId, clave -> new LongAdder()).add(cantidad);
+                    porEstado.computeIfAbsent(estado == null ? SIN_ESTADO : estado, clave -> new LongAdder()).add(cantidad);
+                });
+                return;
+            }
+            usuarios.merge(usuarioId, cantidad, Long::sum);
+            estados.merge(estado == null ? SIN_ESTADO : estado, cantidad, Long::sum);
+        }
+
+        void sumarEstado(String estado, long cantidad) {
+            if (!diferido) {
+                aplicarBloqueado(() -> porEstado.computeIfAbsent(estado == null ? SIN_ESTADO : estado,
+                    clave -> new LongAdder()).add(cantidad));
+                return;
+            }
+            estados.merge(estado == null ? SIN_ESTADO : estado, cantidad, Long::sum);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            cerrojo.readLock().lock();
+            bloqueado = true;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ContadorHoras.this);
+            try {
+                if (status == STATUS_COMMITTED) {
+                    usuarios.forEach((clave, cantidad) -> porUsuario.computeIfAbsent(clave, k -> new LongAdder()).add(cantidad));
+                    estados.forEach((clave, cantidad) -> porEstado.computeIfAbsent(clave, k -> new LongAdder()).add(cantidad));
+                }
+            } finally {
+                if (bloqueado) {
+                    cerrojo.readLock().unlock();
+                }
+            }
+        }
+
+        private void aplicarBloqueado(Runnable ajuste) {
+            cerrojo.readLock().lock();
+            try {
+                ajuste.run();
+            } finally {
+                cerrojo.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.appvet.horas.service;
+
+import com.appvet.horas.dto.HoraResumen;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+// Paginación por cursor (keyset) de horas agendadas: el token opaco codifica la
+// última fila entregada (fecha, hora, minuto, id) y la siguiente página continúa
+// justo después, sin OFFSET
+final class CursorPaginacion {
+
+    // Orden estable de la agenda; el id desempata horas en el mismo minuto.
+    // MySQL ordena los NULL primero en ASC, así que las horas sin fecha encabezan el listado
+    static final Sort ORDEN_AGENDA = Sort.by("fecha", "hora", "minuto", "id");
+
+    static final int LIMITE_POR_DEFECTO = 50;
+    static final int LIMITE_MAXIMO = 200;
+
+    private static final String SEPARADOR = ":";
+    private static final String SIN_FECHA = "null";
+
+    private CursorPaginacion() {
+    }
+
+    record Posicion(Long fecha, int hora, int minuto, String id) {
+    }
+
+    static Posicion decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] partes = texto.split(SEPARADOR, 4);
+            if (partes.length != 4) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            Long fecha = SIN_FECHA.equals(partes[0]) ? null : Long.valueOf(partes[0]);
+            return new Posicion(fecha, Integer.parseInt(partes[1]), Integer.parseInt(partes[2]), partes[3]);
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException y errores de Base64 incluidos
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    static String codificar(HoraResumen ultima) {
+        String texto = (ultima.fecha() == null ? SIN_FECHA : ultima.fecha()) + SEPARADOR
+            + ultima.hora() + SEPARADOR
+            + ultima.minuto() + SEPARADOR
+            + ultima.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static int acotarLimite(Integer limite) {
+        if (limite == null || limite <= 0) {
+            return LIMITE_POR_DEFECTO;
+        }
+        return Math.min(limite, LIMITE_MAXIMO);
+    }
+
+    // ORDEN_AGENDA en Java, para mezclar páginas de la tabla de trabajo y del histórico
+    static final Comparator<HoraResumen> COMPARADOR_AGENDA = Comparator
+        .comparing(HoraResumen::fecha, Comparator.nullsFirst(Comparator.<Long>naturalOrder()))
+        .thenComparing(HoraResumen::hora)
+        .thenComparing(HoraResumen::minuto)
+        .thenComparing(HoraResumen::id);
+
+    // Sirve igual para HoraAgendada y HoraAgendadaHistorica, que tienen los mismos campos
+    static <T> Specification<T> filtro(String campo, String valor, Posicion posicion) {
+        Specification<T> despues = despuesDe(posicion);
+        return campo == null ? despues : CursorPaginacion.<T>igual(campo, valor).and(despues);
+    }
+
+    // Mezcla dos listas ya ordenadas por ORDEN_AGENDA y se queda con las primeras "limite"
+    static List<HoraResumen> mezclar(List<HoraResumen> unas, List<HoraResumen> otras, int limite) {
+        List<HoraResumen> mezcla = new ArrayList<>(Math.min(limite, unas.size() + otras.size()));
+        int i = 0;
+        int j = 0;
+        while (mezcla.size() < limite && (i < unas.size() || j < otras.size())) {
+            if (j == otras.size() || (i < unas.size() && COMPARADOR_AGENDA.compare(unas.get(i), otras.get(j)) <= 0)) {
+                mezcla.add(unas.get(i++));
+            } else {
+                mezcla.add(otras.get(j++));
+            }
+        }
+        return mezcla;
+    }
+
+    // Filas estrictamente posteriores a la posición, en ORDEN_AGENDA
+    static <T> Specification<T> despuesDe(Posicion posicion) {
+        return (root, query, cb) -> {
+            if (posicion == null) {
+                return null;
+            }
+            Predicate mismoDiaDespues = despuesEnElDia(root, cb, posicion);
+            if (posicion.fecha() == null) {
+                // Quedan las demás horas sin fecha y luego todas las que sí tienen
+                return cb.or(
+                    cb.and(cb.isNull(root.get("fecha")), mismoDiaDespues),
+                    cb.isNotNull(root.get("fecha")));
+            }
+            // El rango redundante sobre fecha permite al optimizador posicionarse en el índice
+            return cb.and(
+                cb.greaterThanOrEqualTo(root.get("fecha"), posicion.fecha()),
+                cb.or(
+                    cb.greaterThan(root.get("fecha"), posicion.fecha()),
+                    cb.and(cb.equal(root.get("fecha"), posicion.fecha()), mismoDiaDespues)));
+        };
+    }
+
+    static <T> Specification<T> igual(String campo, String valor) {
+        return (root, query, cb) -> cb.equal(root.get(campo), valor);
+    }
+
+    private static Predicate despuesEnElDia(Root<?> root, CriteriaBuilder cb, Posicion posicion) {
+        return cb.or(
+            cb.greaterThan(root.get("hora"), posicion.hora()),
+            cb.and(cb.equal(root.get("hora"), posicion.hora()), cb.or(
+                cb.greaterThan(root.get("minuto"), posicion.minuto()),
+                cb.and(cb.equal(root.get("minuto"), posicion.minuto()),
+                    cb.greaterThan(root.get("id"), posicion.id())))));
+    }
+}
@@ -0,0 +1,12 @@
+package com.appvet.horas.service;
+
+import com.appvet.horas.model.HoraAgendada;
+
+import java.time.Instant;
+
+// Adónde van los recordatorios que vence RecordatorioHoras (log, push, correo...). Cada bean
+// que implemente esta interfaz recibe todos los avisos
+public interface DestinoRecordatorios {
+
+    void enviar(HoraAgendada hora, Instant cita);
+}
@@ -0,0 +1,455 @@
+package com.appvet.horas.service;
+
+import com.appvet.horas.config.AgendaProperties;
+import com.appvet.horas.model.HoraAgendada;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+// Cambios de las horas de cada usuario por Server-Sent Events, para que la app no tenga que
+// consultar la lista cada pocos segundos. El servicio publica tras cada commit; cada evento se
+// serializa una sola vez y se encola en las conexiones abiertas de ese usuario.
+// Una conexión inactiva no ocupa hilos: es una petición asíncrona cuya cola se crea recién
+// cuando hay algo que enviar, y unos pocos hilos de despacho compartidos vacían las colas. Si a
+// una conexión lenta se le llena la cola se corta, y el cliente reconecta con Last-Event-ID.
+// Una escritura que pasa de tiempoMaximoEnvio (cliente que no lee, red trabada) también corta
+// la conexión, y mientras ese hilo siga atascado el despacho suma uno para que el resto no espere.
+// Cada usuario con conexiones guarda sus últimos eventos para reanudar; si lo pedido ya no está
+// (o el id es de otra instancia o de antes de un reinicio) llega "reinicio" y la app vuelve a
+// pedir la lista. Es local a cada instancia, como los contadores y el índice de ocupación.
+@Component
+@Slf4j
+public class EventosHoras {
+
+    public static final String CREADA = "creada";
+    public static final String ACTUALIZADA = "actualizada";
+    public static final String ESTADO = "estado";
+    public static final String ELIMINADA = "eliminada";
+    public static final String REINICIO = "reinicio";
+
+    private static final Set<DataWithMediaType> LATIDO = SseEmitter.event().comment("latido").build();
+
+    // Tope de hilos extra del despacho mientras hay escrituras trabadas; pasado eso, otra conexión
+    // trabada sí demora a las demás hasta que el contenedor corte la escritura
+    private static final int MAXIMO_RELEVOS = 32;
+
+    record CambioEstado(String id, String estado) {
+    }
+
+    record Eliminada(String id) {
+    }
+
+    private record Evento(long secuencia, Set<DataWithMediaType> datos) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final AgendaProperties.Eventos config;
+    private final Executor despacho;
+    private final LongFunction<SseEmitter> emisores;
+    private final ScheduledExecutorService vigia;
+
+    // Los ids de evento llevan el arranque de la instancia, así uno de otra vida no se confunde
+    private final String arranque = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong secuencia = new AtomicLong();
+    private final ConcurrentHashMap<String, Canal> canales = new ConcurrentHashMap<>();
+    private final AtomicInteger conexiones = new AtomicInteger();
+
+    @Autowired
+    public EventosHoras(ObjectMapper objectMapper, AgendaProperties agenda) {
+        this(objectMapper, agenda, poolDespacho(agenda.eventos().hilosDespacho()), SseEmitter::new);
+    }
+
+    EventosHoras(ObjectMapper objectMapper, AgendaProperties agenda, Executor despacho,
+                 LongFunction<SseEmitter> emisores) {
+        this.objectMapper = objectMapper;
+        this.config = agenda.eventos();
+        this.despacho = despacho;
+        this.emisores = emisores;
+        ScheduledThreadPoolExecutor vigia = new ScheduledThreadPoolExecutor(1, hilo("eventos-horas-vigia"));
+        // Casi todas las escrituras terminan a tiempo: su aviso se cancela y no debe quedar encolado
+        vigia.setRemoveOnCancelPolicy(true);
+        this.vigia = vigia;
+    }
+
+    // hilosDespacho fijos, que pueden crecer hasta MAXIMO_RELEVOS mientras haya escrituras trabadas
+    static ThreadPoolExecutor poolDespacho(int hilos) {
+        return new ThreadPoolExecutor(hilos, hilos + MAXIMO_RELEVOS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), hilo("eventos-horas"));
+    }
+
+    private static ThreadFactory hilo(String nombre) {
+        return tarea -> {
+            Thread hilo = new Thread(tarea, nombre);
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+
+    @PreDestroy
+    void cerrar() {
+        vigia.shutdownNow();
+        if (despacho instanceof ThreadPoolExecutor pool) {
+            pool.shutdownNow();
+        }
+    }
+
+    public SseEmitter suscribir(String usuarioId, String ultimoEventoId) {
+        SseEmitter emisor = emisores.apply(config.duracionConexion().toMillis());
+        Suscriptor suscriptor = new Suscriptor(emisor);
+        emisor.onCompletion(() -> quitar(usuarioId, suscriptor));
+        emisor.onError(error -> quitar(usuarioId, suscriptor));
+        // Al vencer se cierra sin error: el cliente reconecta solo y retoma desde su último evento
+        emisor.onTimeout(emisor::complete);
+        canales.compute(usuarioId, (clave, canal) -> {
+            Canal actual = canal == null || canal.cerrado ? new Canal(secuencia.get()) : canal;
+            synchronized (actual) {
+                actual.agregar(suscriptor, ultimoEventoId);
+            }
+            return actual;
+        });
+        conexiones.incrementAndGet();
+        return emisor;
+    }
+
+    public void creada(HoraAgendada hora) {
+        publicar(hora.getUsuarioId(), CREADA, hora);
+    }
+
+    public void actualizada(HoraAgendada hora) {
+        publicar(hora.getUsuarioId(), ACTUALIZADA, hora);
+    }
+
+    public void estadoCambiado(String usuarioId, String id, String estado) {
+        publicar(usuarioId, ESTADO, new CambioEstado(id, estado));
+    }
+
+    public void eliminada(String usuarioId, String id) {
+        publicar(usuarioId, ELIMINADA, new Eliminada(id));
+    }
+
+    // Para no buscar los dueños de un cambio masivo cuando nadie está escuchando
+    public boolean escuchando(String usuarioId) {
+        return canales.containsKey(usuarioId);
+    }
+
+    public boolean hayCanales() {
+        return !canales.isEmpty();
+    }
+
+    int conexiones() {
+        return conexiones.get();
+    }
+
+    // Un comentario a cada conexión sin envíos pendientes, para que proxies y balanceadores no
+    // la den por muerta (y para notar las que el cliente ya cerró). De paso suelta el historial
+    // de los usuarios que llevan más de "retencion" sin conexiones
+    @Scheduled(fixedRateString = "${appvet.horas.eventos.latido:PT25S}")
+    public void latir() {
+        long limite = System.currentTimeMillis() - config.retencion().toMillis();
+        for (String usuarioId : canales.keySet()) {
+            canales.computeIfPresent(usuarioId, (clave, canal) -> {
+                synchronized (canal) {
+                    if (canal.suscriptores.isEmpty() && canal.ultimoUso < limite) {
+                        canal.cerrado = true;
+                        return null;
+                    }
+                    canal.suscriptores.forEach(Suscriptor::latir);
+                    return canal;
+                }
+            });
+        }
+    }
+
+    private void publicar(String usuarioId, String tipo, Object contenido) {
+        if (usuarioId == null || !canales.containsKey(usuarioId)) {
+            return;
+        }
+        String datos;
+        try {
+            datos = objectMapper.writeValueAsString(contenido);
+        } catch (JsonProcessingException e) {
+            log.error("No se pudo serializar el evento {} del usuario {}", tipo, usuarioId, e);
+            return;
+        }
+        // Si el canal se acaba de descartar se vuelve a buscar. Uno nuevo arranca sin historial y a
+        // quien reanude le manda reinicio, así que ningún evento se pierde sin aviso
+        while (true) {
+            Canal canal = canales.get(usuarioId);
+            if (canal == null) {
+                return;
+            }
+            synchronized (canal) {
+                if (!canal.cerrado) {
+                    canal.publicar(tipo, datos);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void quitar(String usuarioId, Suscriptor suscriptor) {
+        if (!suscriptor.cerrar()) {
+            return;
+        }
+        conexiones.decrementAndGet();
+        Canal canal = canales.get(usuarioId);
+        if (canal != null) {
+            synchronized (canal) {
+                canal.suscriptores.remove(suscriptor);
+                canal.ultimoUso = System.currentTimeMillis();
+            }
+        }
+    }
+
+    // Suma (o devuelve) un hilo al despacho. Solo el pool propio puede crecer; false si no se pudo
+    private boolean relevar(int hilos) {
+        if (!(despacho instanceof ThreadPoolExecutor pool)) {
+            return false;
+        }
+        synchronized (pool) {
+            int nuevo = pool.getCorePoolSize() + hilos;
+            if (nuevo > pool.getMaximumPoolSize()) {
+                return false;
+            }
+            pool.setCorePoolSize(nuevo);
+            return true;
+        }
+    }
+
+    private long secuenciaDe(String eventoId) {
+        int separador = eventoId.lastIndexOf('-');
+        if (separador < 0 || !eventoId.substring(0, separador).equals(arranque)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventoId.substring(separador + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String idDe(long numero) {
+        return arranque + "-" + numero;
+    }
+
+    // Conexiones e historial de un usuario; se accede sincronizado sobre el propio canal
+    private final class Canal {
+
+        private final List<Suscriptor> suscriptores = new ArrayList<>(1);
+        private final ArrayDeque<Evento> historial = new ArrayDeque<>();
+        // Hasta esta secuencia no hay historial: es anterior al canal o ya se descartó
+        private long sinHistorialHasta;
+        private long ultimoUso = System.currentTimeMillis();
+        private boolean cerrado;
+
+        private Canal(long desde) {
+            this.sinHistorialHasta = desde;
+        }
+
+        void agregar(Suscriptor suscriptor, String ultimoEventoId) {
+            suscriptores.add(suscriptor);
+            if (ultimoEventoId == null || ultimoEventoId.isBlank()) {
+                return;
+            }
+            long ultimo = secuenciaDe(ultimoEventoId.trim());
+            List<Evento> faltantes = new ArrayList<>();
+            for (Evento evento : historial) {
+                if (evento.secuencia() > ultimo) {
+                    faltantes.add(evento);
+                }
+            }
+            // Tampoco se reenvía más de lo que cabe en la cola: sería cortarla de inmediato
+            if (ultimo < sinHistorialHasta || faltantes.size() > config.bufferPorSuscriptor()) {
+                suscriptor.encolar(SseEmitter.event().id(idDe(secuencia.get())).name(REINICIO).data("{}").build());
+                return;
+            }
+            faltantes.forEach(evento -> suscriptor.encolar(evento.datos()));
+        }
+
+        void publicar(String tipo, String datos) {
+            long numero = secuencia.incrementAndGet();
+            Evento evento = new Evento(numero, SseEmitter.event().id(idDe(numero)).name(tipo).data(datos).build());
+            historial.addLast(evento);
+            if (historial.size() > config.historialPorUsuario()) {
+                sinHistorialHasta = historial.removeFirst().secuencia();
+            }
+            ultimoUso = System.currentTimeMillis();
+            for (Suscriptor suscriptor : suscriptores) {
+                suscriptor.encolar(evento.datos());
+            }
+        }
+    }
+
+    // Una conexión abierta. La cola se vacía en un hilo de despacho, nunca en el que publica,
+    // así una conexión lenta no frena el commit de nadie
+    private final class Suscriptor implements Runnable {
+
+        private final SseEmitter emisor;
+        private ArrayDeque<Set<DataWithMediaType>> cola;
+        private boolean programado;
+        private boolean cerrado;
+        private boolean quitado;
+        // Cortada por lenta: la completa el hilo de despacho cuando su escritura termine, porque
+        // completarla desde otro hilo esperaría a que suelte el emisor
+        private boolean cortada;
+        // Hilo que está escribiendo ahora, y si el despacho sumó otro para reemplazarlo
+        private Thread enviando;
+        private boolean relevado;
+
+        private Suscriptor(SseEmitter emisor) {
+            this.emisor = emisor;
+        }
+
+        void encolar(Set<DataWithMediaType> datos) {
+            synchronized (this) {
+                if (cerrado) {
+                    return;
+                }
+                if (cola != null && cola.size() >= config.bufferPorSuscriptor()) {
+                    // Con la cola llena hay un despacho programado o en curso, que la completa
+                    cortar();
+                    log.debug("Conexión de eventos cortada por no dar abasto");
+                    return;
+                }
+                if (cola == null) {
+                    cola = new ArrayDeque<>();
+                }
+                cola.addLast(datos);
+                if (programado) {
+                    return;
+                }
+                programado = true;
+            }
+            despacho.execute(this);
+        }
+
+        // Con envíos pendientes no hace falta: esos mismos mantienen viva la conexión
+        void latir() {
+            synchronized (this) {
+                if (cola != null && !cola.isEmpty()) {
+                    return;
+                }
+            }
+            encolar(LATIDO);
+        }
+
+        // true solo la primera vez, para sacarlo del canal una sola vez
+        synchronized boolean cerrar() {
+            cerrado = true;
+            cola = null;
+            if (quitado) {
+                return false;
+            }
+            quitado = true;
+            return true;
+        }
+
+        private void cortar() {
+            cerrado = true;
+            cortada = true;
+            cola = null;
+        }
+
+        // Lo llama el vigía si la escritura en curso pasó de tiempoMaximoEnvio. La conexión se da
+        // por perdida y, mientras ese hilo siga atascado, el despacho cuenta con uno más
+        private void vencerEnvio(Thread hilo) {
+            synchronized (this) {
+                if (enviando != hilo) {
+                    return;
+                }
+                cortar();
+                relevado = relevar(1);
+            }
+            log.debug("Conexión de eventos cortada por una escritura de más de {}", config.tiempoMaximoEnvio());
+            // Por si la escritura responde a la interrupción; si no, la termina el contenedor
+            hilo.interrupt();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Set<DataWithMediaType> datos;
+                boolean completar = false;
+                synchronized (this) {
+                    datos = cerrado || cola == null ? null : cola.pollFirst();
+                    if (datos == null) {
+                        programado = false;
+                        // Una conexión ociosa no retiene su cola
+                        cola = null;
+                        completar = cortada;
+                        cortada = false;
+                    }
+                }
+                if (datos == null) {
+                    if (completar) {
+                        emisor.complete();
+                    }
+                    return;
+                }
+                try {
+                    enviar(datos);
+                } catch (IOException | IllegalStateException e) {
+                    // Un cliente que se fue solo se nota al escribirle
+                    synchronized (this) {
+                        cerrado = true;
+                        cortada = false;
+                        cola = null;
+                    }
+                    emisor.completeWithError(e);
+                    return;
+                }
+            }
+        }
+
+        private void enviar(Set<DataWithMediaType> datos) throws IOException {
+            Thread hilo = Thread.currentThread();
+            ScheduledFuture<?> aviso;
+            synchronized (this) {
+                enviando = hilo;
+                aviso = vigia.schedule(() -> vencerEnvio(hilo), config.tiempoMaximoEnvio().toMillis(),
+                    TimeUnit.MILLISECONDS);
+            }
+            try {
+                emisor.send(datos);
+            } finally {
+                boolean devolver;
+                synchronized (this) {
+                    enviando = null;
+                    devolver = relevado;
+                    relevado = false;
+                }
+                aviso.cancel(false);
+                // Pasado este punto el vigía ya no interrumpe; se limpia una interrupción que
+                // haya llegado justo al terminar, para no arrastrarla a la próxima conexión
+                Thread.interrupted();
+                if (devolver) {
+                    relevar(-1);
+                }
+            }
+        }
+    }
+}
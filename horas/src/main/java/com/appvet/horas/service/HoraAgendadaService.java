@@ -1,19 +1,53 @@
 package com.appvet.horas.service;
 
+import com.appvet.horas.dto.CalendarioMes;
+import com.appvet.horas.dto.HorarioLibre;
+import com.appvet.horas.dto.HoraResumen;
+import com.appvet.horas.dto.Pagina;
+import com.appvet.horas.dto.PorIds;
+import com.appvet.horas.dto.ResultadoLote;
 import com.appvet.horas.model.HoraAgendada;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 
 public interface HoraAgendadaService {
     List<HoraAgendada> obtenerTodas();
     Optional<HoraAgendada> obtenerPorId(String id);
+    Optional<HoraAgendada> obtenerPorId(String id, boolean incluirHistorico);
+    PorIds<HoraAgendada> obtenerPorIds(List<String> ids, boolean incluirHistorico);
     List<HoraAgendada> obtenerPorUsuario(String usuarioId);
     List<HoraAgendada> obtenerPorMascota(String mascotaId);
     List<HoraAgendada> obtenerPorEstado(String estado);
     List<HoraAgendada> obtenerPorTipo(String tipo);
+    Pagina<HoraResumen> obtenerTodas(String cursor, Integer limite);
+    Pagina<HoraResumen> obtenerPorUsuario(String usuarioId, String cursor, Integer limite);
+    Pagina<HoraResumen> obtenerPorMascota(String mascotaId, String cursor, Integer limite);
+    Pagina<HoraResumen> obtenerPorEstado(String estado, String cursor, Integer limite);
+    Pagina<HoraResumen> obtenerPorTipo(String tipo, String cursor, Integer limite);
+    Pagina<HoraResumen> obtenerTodas(String cursor, Integer limite, boolean incluirHistorico);
+    Pagina<HoraResumen> obtenerPorUsuario(String usuarioId, String cursor, Integer limite, boolean incluirHistorico);
+    Pagina<HoraResumen> obtenerPorMascota(String mascotaId, String cursor, Integer limite, boolean incluirHistorico);
+    Pagina<HoraResumen> obtenerPorEstado(String estado, String cursor, Integer limite, boolean incluirHistorico);
+    Pagina<HoraResumen> obtenerPorTipo(String tipo, String cursor, Integer limite, boolean incluirHistorico);
     HoraAgendada guardar(HoraAgendada horaAgendada);
+    ResultadoLote guardarLote(List<HoraAgendada> horas);
     HoraAgendada actualizar(String id, HoraAgendada horaAgendada);
-    HoraAgendada cambiarEstado(String id, String nuevoEstado);
+    long actualizar(String id, HoraAgendada horaAgendada, long versionEsperada);
+    int cambiarEstado(String id, String nuevoEstado);
+    int cambiarEstado(String id, String nuevoEstado, long versionEsperada);
+    int cambiarEstado(List<String> ids, String nuevoEstado);
+    int cambiarEstadoAnteriorA(String estadoActual, String nuevoEstado, Long antesDe);
     void eliminar(String id);
+    void eliminar(String id, long versionEsperada);
     long contarPorUsuario(String usuarioId);
+    long contarPorEstado(String estado);
+    CalendarioMes obtenerCalendario(YearMonth mes, String usuarioId);
+    List<HorarioLibre> obtenerHorariosLibres(LocalDate dia, int duracion, int cantidad, String mascotaId);
+    long exportar(Long fechaDesde, Long fechaHasta, OutputStream salida) throws IOException;
+    SseEmitter suscribirEventos(String usuarioId, String ultimoEventoId);
 }
\ No newline at end of file
@@ -1,14 +1,57 @@
 package com.appvet.horas.service;
 
+import com.appvet.horas.config.AgendaProperties;
+import com.appvet.horas.dto.CalendarioMes;
+import com.appvet.horas.dto.ClaveConteo;
+import com.appvet.horas.dto.ConteoAgenda;
+import com.appvet.horas.dto.DiaCalendario;
+import com.appvet.horas.dto.HoraArchivable;
+import com.appvet.horas.dto.HoraDeUsuario;
+import com.appvet.horas.dto.HorarioLibre;
+import com.appvet.horas.dto.HoraResumen;
+import com.appvet.horas.dto.Pagina;
+import com.appvet.horas.dto.PorIds;
+import com.appvet.horas.dto.ResultadoLote;
+import com.appvet.horas.exception.HorarioNoDisponibleException;
+import com.appvet.horas.exception.VersionNoCoincideException;
 import com.appvet.horas.model.HoraAgendada;
+import com.appvet.horas.model.HoraAgendadaHistorica;
+import com.appvet.horas.model.UuidV7;
+import com.appvet.horas.repository.HoraAgendadaHistoricoRepository;
 import com.appvet.horas.repository.HoraAgendadaRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -16,7 +59,25 @@ import java.util.Optional;
 @Transactional
 public class HoraAgendadaServiceImpl implements HoraAgendadaService {
     
+    // Cada cuántas filas se empuja lo escrito hacia el cliente durante una exportación
+    private static final int FILAS_POR_FLUSH = 500;
+    // Igual a hibernate.jdbc.batch_size: cada flush de un lote sale como un solo batch JDBC
+    private static final int FILAS_POR_LOTE = 500;
+    // Tope de parámetros por IN al buscar ids existentes
+    private static final int IDS_POR_CONSULTA = 1000;
+    // Clave del calendario para horas antiguas guardadas sin estado
+    private static final String SIN_ESTADO = "Sin estado";
+    
     private final HoraAgendadaRepository horaAgendadaRepository;
+    private final HoraAgendadaHistoricoRepository horaAgendadaHistoricoRepository;
+    private final OcupacionIndex ocupacionIndex;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final AgendaProperties agenda;
+    private final ContadorHoras contadorHoras;
+    private final RecordatorioHoras recordatorioHoras;
+    private final EventosHoras eventosHoras;
     
     @Override
     @Transactional(readOnly = true)
@@ -32,6 +93,40 @@ public class HoraAgendadaServiceImpl implements HoraAgendadaService {
         return horaAgendadaRepository.findById(id);
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<HoraAgendada> obtenerPorId(String id, boolean incluirHistorico) {
+        if (!incluirHistorico) {
+            return obtenerPorId(id);
+        }
+        log.info("Buscando hora agendada con ID: {} (incluye histórico)", id);
+        return horaAgendadaRepository.findById(id)
+            .or(() -> horaAgendadaHistoricoRepository.findById(id).map(HoraAgendadaHistorica::aHoraAgendada));
+    }
+    
+    // Un IN por cada IDS_POR_CONSULTA ids en vez de una consulta por id. Con histórico, solo los
+    // que no estaban en la tabla de trabajo se buscan en la archivada
+    @Override
+    @Transactional(readOnly = true)
+    public PorIds<HoraAgendada> obtenerPorIds(List<String> ids, boolean incluirHistorico) {
+        List<String> unicos = ids.stream().filter(Objects::nonNull).distinct().toList();
+        log.info("Buscando {} horas agendadas por ID", unicos.size());
+        Map<String, HoraAgendada> porId = new HashMap<>();
+        for (int desde = 0; desde < unicos.size(); desde += IDS_POR_CONSULTA) {
+            horaAgendadaRepository.findAllById(unicos.subList(desde, Math.min(desde + IDS_POR_CONSULTA, unicos.size())))
+                .forEach(hora -> porId.put(hora.getId(), hora));
+        }
+        if (incluirHistorico && porId.size() < unicos.size()) {
+            List<String> faltantes = unicos.stream().filter(id -> !porId.containsKey(id)).toList();
+            for (int desde = 0; desde < faltantes.size(); desde += IDS_POR_CONSULTA) {
+                horaAgendadaHistoricoRepository.findAllById(
+                        faltantes.subList(desde, Math.min(desde + IDS_POR_CONSULTA, faltantes.size())))
+                    .forEach(archivada -> porId.put(archivada.getId(), archivada.aHoraAgendada()));
+            }
+        }
+        return PorIds.ordenar(unicos, porId);
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public List<HoraAgendada> obtenerPorUsuario(String usuarioId) {
@@ -60,53 +155,580 @@ public class HoraAgendadaServiceImpl implements HoraAgendadaService {
         return horaAgendadaRepository.findByTipo(tipo);
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public Pagina<HoraResumen> obtenerTodas(String cursor, Integer limite) {
+        return obtenerTodas(cursor, limite, false);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Pagina<HoraResumen> obtenerTodas(String cursor, Integer limite, boolean incluirHistorico) {
+        log.info("Obteniendo página de horas agendadas");
+        return paginar(null, null, cursor, limite, incluirHistorico);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Pagina<HoraResumen> obtenerPorUsuario(String usuarioId, String cursor, Integer limite) {
+        return obtenerPorUsuario(usuarioId, cursor, limite, false);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Pagina<HoraResumen> obtenerPorUsuario(String usuarioId, String cursor, Integer limite, boolean incluirHistorico) {
+        log.info("Obteniendo página de horas agendadas del usuario: {}", usuarioId);
+        return paginar("usuarioId", usuarioId, cursor, limite, incluirHistorico);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Pagina<HoraResumen> obtenerPorMascota(String mascotaId, String cursor, Integer limite) {
+        return obtenerPorMascota(mascotaId, cursor, limite, false);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Pagina<HoraResumen> obtenerPorMascota(String mascotaId, String cursor, Integer limite, boolean incluirHistorico) {
+        log.info("Obteniendo página de horas agendadas de la mascota: {}", mascotaId);
+        return paginar("mascotaId", mascotaId, cursor, limite, incluirHistorico);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Pagina<HoraResumen> obtenerPorEstado(String estado, String cursor, Integer limite) {
+        return obtenerPorEstado(estado, cursor, limite, false);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Pagina<HoraResumen> obtenerPorEstado(String estado, String cursor, Integer limite, boolean incluirHistorico) {
+        log.info("Obteniendo página de horas agendadas con estado: {}", estado);
+        return paginar("estado", estado, cursor, limite, incluirHistorico);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Pagina<HoraResumen> obtenerPorTipo(String tipo, String cursor, Integer limite) {
+        return obtenerPorTipo(tipo, cursor, limite, false);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Pagina<HoraResumen> obtenerPorTipo(String tipo, String cursor, Integer limite, boolean incluirHistorico) {
+        log.info("Obteniendo página de horas agendadas de tipo: {}", tipo);
+        return paginar("tipo", tipo, cursor, limite, incluirHistorico);
+    }
+    
     @Override
     public HoraAgendada guardar(HoraAgendada horaAgendada) {
         log.info("Guardando hora agendada: {} - {}", horaAgendada.getTipo(), horaAgendada.getFecha());
-        return horaAgendadaRepository.save(horaAgendada);
+        // Sin id del cliente se genera uno ordenado por tiempo, que no puede existir todavía.
+        // Si el id ya existe, save() la sobrescribe: se carga bloqueada (el merge la reutiliza
+        // sin otro SELECT) para descontarla de sus contadores anteriores y tomar su versión.
+        // El id del cliente se busca primero sin bloqueo y solo una fila existente se lee con
+        // FOR UPDATE: sobre un id que no existe, InnoDB bloquearía el hueco del índice y dos altas
+        // concurrentes en el mismo hueco se trabarían al insertar. Si otra petición inserta el
+        // mismo id entretanto, el INSERT falla por clave duplicada al confirmar
+        boolean idGenerado = asignarIdSiFalta(horaAgendada);
+        Optional<HoraAgendada> existente = idGenerado || !horaAgendadaRepository.existsById(horaAgendada.getId())
+            ? Optional.empty()
+            : horaAgendadaRepository.findParaActualizarById(horaAgendada.getId());
+        Optional<ClaveConteo> previa = existente
+            .map(hora -> new ClaveConteo(hora.getUsuarioId(), hora.getEstado(), hora.getVersion()));
+        previa.ifPresent(clave -> horaAgendada.setVersion(clave.version()));
+        sincronizarOcupacion(horaAgendada);
+        HoraAgendada guardada = horaAgendadaRepository.save(horaAgendada);
+        previa.ifPresent(clave -> contadorHoras.baja(clave.usuarioId(), clave.estado()));
+        contadorHoras.alta(guardada.getUsuarioId(), guardada.getEstado());
+        sincronizarRecordatorio(guardada);
+        despuesDeCommit(() -> {
+            if (previa.isEmpty()) {
+                eventosHoras.creada(guardada);
+                return;
+            }
+            // Si la sobrescritura cambió de dueño, para el anterior la hora desaparece
+            if (!Objects.equals(previa.get().usuarioId(), guardada.getUsuarioId())) {
+                eventosHoras.eliminada(previa.get().usuarioId(), guardada.getId());
+            }
+            eventosHoras.actualizada(guardada);
+        });
+        return guardada;
+    }
+    
+    @Override
+    public ResultadoLote guardarLote(List<HoraAgendada> horas) {
+        log.info("Guardando lote de {} horas agendadas", horas.size());
+        Set<String> existentes = buscarIdsExistentes(horas);
+        Set<String> vistos = new HashSet<>();
+        List<ResultadoLote.Item> items = new ArrayList<>(horas.size());
+        int creadas = 0;
+        List<HoraAgendada> conRecordatorio = new ArrayList<>();
+        for (int i = 0; i < horas.size(); i++) {
+            HoraAgendada hora = horas.get(i);
+            if (hora != null) {
+                asignarIdSiFalta(hora);
+            }
+            List<String> errores = validarParaLote(hora, existentes, vistos);
+            if (errores.isEmpty()) {
+                try {
+                    sincronizarOcupacion(hora);
+                } catch (HorarioNoDisponibleException e) {
+                    errores = List.of(e.getMessage());
+                }
+            }
+            String id = hora == null ? null : hora.getId();
+            if (!errores.isEmpty()) {
+                items.add(new ResultadoLote.Item(i, id, false, errores));
+                continue;
+            }
+            // persist y no save: el id ya viene asignado y save() haría merge con un SELECT por fila
+            entityManager.persist(hora);
+            contadorHoras.alta(hora.getUsuarioId(), hora.getEstado());
+            conRecordatorio.add(hora);
+            items.add(new ResultadoLote.Item(i, id, true, List.of()));
+            if (++creadas % FILAS_POR_LOTE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        despuesDeCommit(() -> {
+            conRecordatorio.forEach(recordatorioHoras::programar);
+            conRecordatorio.forEach(eventosHoras::creada);
+        });
+        log.info("Lote guardado: {} creadas, {} rechazadas", creadas, horas.size() - creadas);
+        return new ResultadoLote(creadas, horas.size() - creadas, items);
     }
     
     @Override
     public HoraAgendada actualizar(String id, HoraAgendada horaActualizada) {
         log.info("Actualizando hora agendada con ID: {}", id);
-        return horaAgendadaRepository.findById(id)
-            .map(horaExistente -> {
-                horaExistente.setFecha(horaActualizada.getFecha());
-                horaExistente.setHora(horaActualizada.getHora());
-                horaExistente.setMinuto(horaActualizada.getMinuto());
-                horaExistente.setTipo(horaActualizada.getTipo());
-                horaExistente.setEstado(horaActualizada.getEstado());
-                horaExistente.setMascotaId(horaActualizada.getMascotaId());
-                horaExistente.setNotas(horaActualizada.getNotas());
-                return horaAgendadaRepository.save(horaExistente);
-            })
+        return horaAgendadaRepository.findParaActualizarById(id)
+            .map(horaExistente -> aplicarCambios(horaExistente, horaActualizada))
+            .orElseThrow(() -> new RuntimeException("Hora agendada no encontrada con ID: " + id));
+    }
+    
+    // If-Match: si el estado no cambia basta un UPDATE condicionado a la versión, sin leer la
+    // fila. Si no afecta filas, la lectura bloqueada de siempre decide entre 404, 412 o un
+    // cambio de estado (que sí necesita saber de qué estado venía, por los contadores).
+    // Devuelve la versión nueva, para el ETag de la respuesta
+    @Override
+    public long actualizar(String id, HoraAgendada horaActualizada, long versionEsperada) {
+        log.info("Actualizando hora agendada con ID: {} (versión {})", id, versionEsperada);
+        horaActualizada.setId(id);
+        int filas = horaAgendadaRepository.actualizarSiVersion(id, versionEsperada, horaActualizada.getUsuarioId(),
+            horaActualizada.getEstado(),
+            horaActualizada.getFecha(), horaActualizada.getHora(), horaActualizada.getMinuto(),
+            horaActualizada.getTipo(), horaActualizada.getMascotaId(), horaActualizada.getNotas(), LocalDateTime.now());
+        if (filas == 1) {
+            // Si el horario nuevo choca, la excepción deshace también el UPDATE
+            sincronizarOcupacion(horaActualizada);
+            sincronizarRecordatorio(horaActualizada);
+            // El UPDATE exige el mismo dueño, así que el evento va al canal correcto
+            despuesDeCommit(() -> eventosHoras.actualizada(horaActualizada));
+            return versionEsperada + 1;
+        }
+        HoraAgendada horaExistente = horaAgendadaRepository.findParaActualizarById(id)
             .orElseThrow(() -> new RuntimeException("Hora agendada no encontrada con ID: " + id));
+        verificarVersion(id, versionEsperada, horaExistente.getVersion());
+        aplicarCambios(horaExistente, horaActualizada);
+        horaAgendadaRepository.flush();
+        return horaExistente.getVersion();
     }
     
+    // En vez de findById + save: una lectura sin bloqueo de tres columnas (para los contadores y
+    // el If-Match) y un UPDATE condicionado a esa versión. Si otra escritura se adelanta entre
+    // ambas, o la hora está cancelada y se reactiva (hay que volver a reservar su horario), se
+    // repite con la fila bloqueada
     @Override
-    public HoraAgendada cambiarEstado(String id, String nuevoEstado) {
+    public int cambiarEstado(String id, String nuevoEstado) {
+        return cambiarEstadoSiCoincide(id, nuevoEstado, null);
+    }
+    
+    @Override
+    public int cambiarEstado(String id, String nuevoEstado, long versionEsperada) {
+        return cambiarEstadoSiCoincide(id, nuevoEstado, versionEsperada);
+    }
+    
+    private int cambiarEstadoSiCoincide(String id, String nuevoEstado, Long versionEsperada) {
         log.info("Cambiando estado de hora agendada {} a {}", id, nuevoEstado);
-        return horaAgendadaRepository.findById(id)
-            .map(hora -> {
+        Optional<ClaveConteo> leida = horaAgendadaRepository.findClaveConteoById(id);
+        if (leida.isEmpty()) {
+            return 0;
+        }
+        ClaveConteo actual = leida.get();
+        if (versionEsperada != null) {
+            verificarVersion(id, versionEsperada, actual.version());
+        }
+        boolean reactiva = cancela(actual.estado()) && !cancela(nuevoEstado);
+        if (reactiva || horaAgendadaRepository.actualizarEstadoSiVersion(
+                id, nuevoEstado, actual.version(), LocalDateTime.now()) == 0) {
+            // La lectura sin bloqueo puede venir de la foto de la transacción: la bloqueada ve la
+            // fila vigente
+            Optional<ClaveConteo> bloqueada = horaAgendadaRepository.findClaveConteoParaActualizar(id);
+            if (bloqueada.isEmpty()) {
+                return 0;
+            }
+            actual = bloqueada.get();
+            if (versionEsperada != null) {
+                verificarVersion(id, versionEsperada, actual.version());
+            }
+            reactiva = cancela(actual.estado()) && !cancela(nuevoEstado);
+            if (reactiva) {
+                HoraAgendada hora = horaAgendadaRepository.findById(id).orElseThrow();
                 hora.setEstado(nuevoEstado);
-                return horaAgendadaRepository.save(hora);
-            })
-            .orElseThrow(() -> new RuntimeException("Hora agendada no encontrada con ID: " + id));
+                sincronizarOcupacion(hora);
+                horaAgendadaRepository.save(hora);
+                sincronizarRecordatorio(hora);
+            } else {
+                horaAgendadaRepository.actualizarEstado(id, nuevoEstado, LocalDateTime.now());
+            }
+        }
+        String estadoAnterior = actual.estado();
+        if (!reactiva) {
+            if (cancela(nuevoEstado)) {
+                despuesDeCommit(() -> ocupacionIndex.liberar(id));
+            }
+            if (!pendiente(nuevoEstado)) {
+                despuesDeCommit(() -> recordatorioHoras.cancelar(id));
+            } else if (!pendiente(estadoAnterior)) {
+                // Vuelve a Pendiente: el UPDATE no trae el horario, que sí hace falta para el aviso
+                horaAgendadaRepository.findById(id).ifPresent(this::sincronizarRecordatorio);
+            }
+        }
+        contadorHoras.cambioEstado(estadoAnterior, nuevoEstado, 1);
+        String usuarioId = actual.usuarioId();
+        despuesDeCommit(() -> eventosHoras.estadoCambiado(usuarioId, id, nuevoEstado));
+        return 1;
+    }
+    
+    // Las horas canceladas de la lista no se reactivan en bloque: quedan fuera del conteo.
+    // Cada tramo lee bloqueados el usuario y el estado previo de sus horas, así los contadores se
+    // ajustan fila por fila y los avisos no necesitan otra consulta
+    @Override
+    public int cambiarEstado(List<String> ids, String nuevoEstado) {
+        log.info("Cambiando estado de {} horas agendadas a {}", ids.size(), nuevoEstado);
+        LocalDateTime ahora = LocalDateTime.now();
+        boolean cancela = cancela(nuevoEstado);
+        int filas = 0;
+        for (int desde = 0; desde < ids.size(); desde += IDS_POR_CONSULTA) {
+            List<String> tramo = ids.subList(desde, Math.min(desde + IDS_POR_CONSULTA, ids.size()));
+            List<HoraArchivable> cambian = horaAgendadaRepository.findClavesConteoParaActualizar(tramo).stream()
+                .filter(hora -> cancela || !cancela(hora.estado()))
+                .toList();
+            if (cancela) {
+                filas += horaAgendadaRepository.actualizarEstadoPorIds(tramo, nuevoEstado, ahora);
+                List<String> liberadas = List.copyOf(tramo);
+                despuesDeCommit(() -> liberadas.forEach(ocupacionIndex::liberar));
+            } else {
+                filas += horaAgendadaRepository.actualizarEstadoActivas(tramo, nuevoEstado, ahora);
+            }
+            Map<String, Long> porEstadoAnterior = new HashMap<>();
+            cambian.forEach(hora -> porEstadoAnterior.merge(hora.estado(), 1L, Long::sum));
+            porEstadoAnterior.forEach((estado, cantidad) -> contadorHoras.cambioEstado(estado, nuevoEstado, cantidad));
+            // Se avisa también a las que ya estaban en ese estado: el UPDATE las cuenta igual
+            if (eventosHoras.hayCanales()) {
+                avisarEstado(cambian.stream().map(hora -> new HoraDeUsuario(hora.id(), hora.usuarioId())).toList(),
+                    nuevoEstado);
+            }
+        }
+        // Las que vuelven a Pendiente en bloque se suman a la rueda en la próxima recarga
+        if (!pendiente(nuevoEstado)) {
+            List<String> sinRecordatorio = List.copyOf(ids);
+            despuesDeCommit(() -> sinRecordatorio.forEach(recordatorioHoras::cancelar));
+        }
+        log.info("{} horas agendadas pasaron a {}", filas, nuevoEstado);
+        return filas;
+    }
+    
+    @Override
+    public int cambiarEstadoAnteriorA(String estadoActual, String nuevoEstado, Long antesDe) {
+        log.info("Cambiando a {} las horas {} anteriores a {}", nuevoEstado, estadoActual, antesDe);
+        if (cancela(estadoActual) && !cancela(nuevoEstado)) {
+            throw new IllegalArgumentException("Las horas canceladas se reactivan de a una");
+        }
+        if (cancela(nuevoEstado)) {
+            // Solo en este caso hace falta saber qué ids liberar del índice de ocupación
+            List<String> ids = horaAgendadaRepository.findIdsPorEstadoAnteriorA(estadoActual, antesDe);
+            despuesDeCommit(() -> ids.forEach(ocupacionIndex::liberar));
+        }
+        if (eventosHoras.hayCanales()) {
+            avisarEstado(horaAgendadaRepository.findHorasDeUsuarioPorEstadoAnteriorA(estadoActual, antesDe), nuevoEstado);
+        }
+        int filas = horaAgendadaRepository.actualizarEstadoAnteriorA(estadoActual, nuevoEstado, antesDe, LocalDateTime.now());
+        contadorHoras.cambioEstado(estadoActual, nuevoEstado, filas);
+        log.info("{} horas agendadas pasaron de {} a {}", filas, estadoActual, nuevoEstado);
+        return filas;
     }
     
     @Override
     public void eliminar(String id) {
+        eliminarSiCoincide(id, null);
+    }
+    
+    @Override
+    public void eliminar(String id, long versionEsperada) {
+        eliminarSiCoincide(id, versionEsperada);
+    }
+    
+    private void eliminarSiCoincide(String id, Long versionEsperada) {
         log.info("Eliminando hora agendada con ID: {}", id);
-        if (!horaAgendadaRepository.existsById(id)) {
-            throw new RuntimeException("Hora agendada no encontrada con ID: " + id);
+        ClaveConteo actual = horaAgendadaRepository.findClaveConteoParaActualizar(id)
+            .orElseThrow(() -> new RuntimeException("Hora agendada no encontrada con ID: " + id));
+        if (versionEsperada != null) {
+            verificarVersion(id, versionEsperada, actual.version());
         }
-        horaAgendadaRepository.deleteById(id);
+        horaAgendadaRepository.eliminarPorId(id);
+        contadorHoras.baja(actual.usuarioId(), actual.estado());
+        despuesDeCommit(() -> {
+            ocupacionIndex.liberar(id);
+            recordatorioHoras.cancelar(id);
+            eventosHoras.eliminada(actual.usuarioId(), id);
+        });
     }
     
     @Override
     @Transactional(readOnly = true)
     public long contarPorUsuario(String usuarioId) {
         log.info("Contando horas agendadas del usuario: {}", usuarioId);
-        return horaAgendadaRepository.countByUsuarioId(usuarioId);
+        return contadorHoras.contarPorUsuario(usuarioId)
+            .orElseGet(() -> horaAgendadaRepository.countByUsuarioId(usuarioId));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public long contarPorEstado(String estado) {
+        log.info("Contando horas agendadas con estado: {}", estado);
+        return contadorHoras.contarPorEstado(estado)
+            .orElseGet(() -> horaAgendadaRepository.countByEstado(estado));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public CalendarioMes obtenerCalendario(YearMonth mes, String usuarioId) {
+        log.info("Obteniendo calendario de {} (usuario: {})", mes, usuarioId);
+        long desde = agenda.inicioDe(mes.atDay(1));
+        long hasta = agenda.inicioDe(mes.plusMonths(1).atDay(1));
+        List<ConteoAgenda> conteos = usuarioId == null
+            ? horaAgendadaRepository.contarAgenda(desde, hasta)
+            : horaAgendadaRepository.contarAgendaDeUsuario(usuarioId, desde, hasta);
+        // Varias fechas pueden caer en el mismo día; se suman al pasarlas a LocalDate
+        Map<LocalDate, DiaAcumulado> dias = new TreeMap<>();
+        for (ConteoAgenda conteo : conteos) {
+            dias.computeIfAbsent(agenda.diaDe(conteo.fecha()), dia -> new DiaAcumulado())
+                .sumar(conteo);
+        }
+        List<DiaCalendario> resultado = new ArrayList<>(dias.size());
+        dias.forEach((dia, acumulado) -> resultado.add(
+            new DiaCalendario(dia, acumulado.total, acumulado.porEstado, acumulado.porTipo)));
+        return new CalendarioMes(mes, resultado);
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<HorarioLibre> obtenerHorariosLibres(LocalDate dia, int duracion, int cantidad, String mascotaId) {
+        log.info("Buscando {} horarios libres de {} minutos el {}", cantidad, duracion, dia);
+        return ocupacionIndex.horariosLibres(dia, duracion, cantidad, mascotaId);
+    }
+    
+    // La conexión queda abierta sin transacción ni conexión a la base
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SseEmitter suscribirEventos(String usuarioId, String ultimoEventoId) {
+        log.info("Suscribiendo a eventos de horas del usuario: {}", usuarioId);
+        return eventosHoras.suscribir(usuarioId, ultimoEventoId);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public long exportar(Long fechaDesde, Long fechaHasta, OutputStream salida) throws IOException {
+        log.info("Exportando horas agendadas entre {} y {}", fechaDesde, fechaHasta);
+        // NDJSON: un objeto por línea; cada entidad se desprende del contexto apenas se escribe
+        ObjectWriter escritor = objectMapper.writer()
+            .withRootValueSeparator("\n")
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long filas = 0;
+        try (Stream<HoraAgendada> horas = horaAgendadaRepository.streamByFechaBetween(fechaDesde, fechaHasta);
+             JsonGenerator generador = escritor.createGenerator(salida)) {
+            generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Iterator<HoraAgendada> iterador = horas.iterator();
+            while (iterador.hasNext()) {
+                HoraAgendada hora = iterador.next();
+                escritor.writeValue(generador, hora);
+                entityManager.detach(hora);
+                if (++filas % FILAS_POR_FLUSH == 0) {
+                    generador.flush();
+                }
+            }
+            if (filas > 0) {
+                generador.writeRaw('\n');
+            }
+        }
+        log.info("Exportación terminada: {} horas agendadas", filas);
+        return filas;
+    }
+    
+    private Set<String> buscarIdsExistentes(List<HoraAgendada> horas) {
+        List<String> ids = horas.stream()
+            .filter(Objects::nonNull)
+            .map(HoraAgendada::getId)
+            .filter(Objects::nonNull)
+            .distinct()
+            .toList();
+        Set<String> existentes = new HashSet<>();
+        for (int desde = 0; desde < ids.size(); desde += IDS_POR_CONSULTA) {
+            existentes.addAll(horaAgendadaRepository.findIdsExistentes(
+                ids.subList(desde, Math.min(desde + IDS_POR_CONSULTA, ids.size()))));
+        }
+        return existentes;
+    }
+    
+    private static boolean asignarIdSiFalta(HoraAgendada hora) {
+        if (hora.getId() != null && !hora.getId().isBlank()) {
+            return false;
+        }
+        hora.setId(UuidV7.generar());
+        return true;
+    }
+    
+    // Mismas reglas que @Valid en POST, más id no repetido en la tabla ni en el lote
+    private List<String> validarParaLote(HoraAgendada hora, Set<String> existentes, Set<String> vistos) {
+        if (hora == null) {
+            return List.of("La hora agendada es obligatoria");
+        }
+        List<String> errores = new ArrayList<>();
+        for (ConstraintViolation<HoraAgendada> violacion : validator.validate(hora)) {
+            errores.add(violacion.getMessage());
+        }
+        errores.sort(null);
+        String id = hora.getId();
+        if (existentes.contains(id)) {
+            errores.add("Ya existe una hora agendada con ID: " + id);
+        } else if (errores.isEmpty() && !vistos.add(id)) {
+            errores.add("El ID está repetido dentro del lote: " + id);
+        }
+        return errores;
+    }
+    
+    // Pide una fila extra para saber si existe una página siguiente sin hacer COUNT. Con el
+    // histórico se pide la misma página a las dos tablas y se mezclan: el cursor sirve para ambas.
+    // Se leen solo las columnas del resumen, nunca las notas
+    private Pagina<HoraResumen> paginar(String campo, String valor, String cursor, Integer limite,
+                                        boolean incluirHistorico) {
+        int tamano = CursorPaginacion.acotarLimite(limite);
+        CursorPaginacion.Posicion posicion = CursorPaginacion.decodificar(cursor);
+        List<HoraResumen> filas = horaAgendadaRepository.findBy(CursorPaginacion.filtro(campo, valor, posicion),
+            q -> q.as(HoraResumen.class).sortBy(CursorPaginacion.ORDEN_AGENDA).limit(tamano + 1).all());
+        if (incluirHistorico) {
+            List<HoraResumen> archivadas = horaAgendadaHistoricoRepository
+                .findBy(CursorPaginacion.<HoraAgendadaHistorica>filtro(campo, valor, posicion),
+                    q -> q.as(HoraResumen.class).sortBy(CursorPaginacion.ORDEN_AGENDA).limit(tamano + 1).all());
+            filas = CursorPaginacion.mezclar(filas, archivadas, tamano + 1);
+        }
+        if (filas.size() <= tamano) {
+            return new Pagina<>(filas, null);
+        }
+        List<HoraResumen> items = filas.subList(0, tamano);
+        return new Pagina<>(items, CursorPaginacion.codificar(items.get(tamano - 1)));
+    }
+    
+    private static final class DiaAcumulado {
+        private long total;
+        private final Map<String, Long> porEstado = new TreeMap<>();
+        private final Map<String, Long> porTipo = new TreeMap<>();
+        
+        void sumar(ConteoAgenda conteo) {
+            total += conteo.cantidad();
+            porEstado.merge(conteo.estado() == null ? SIN_ESTADO : conteo.estado(), conteo.cantidad(), Long::sum);
+            porTipo.merge(conteo.tipo(), conteo.cantidad(), Long::sum);
+        }
+    }
+    
+    private static boolean cancela(String estado) {
+        return OcupacionIndex.ESTADO_CANCELADA.equalsIgnoreCase(estado);
+    }
+    
+    private static void verificarVersion(String id, long versionEsperada, Long versionActual) {
+        if (versionActual == null || versionActual != versionEsperada) {
+            throw new VersionNoCoincideException("La hora agendada " + id + " fue modificada por otra petición");
+        }
+    }
+    
+    private HoraAgendada aplicarCambios(HoraAgendada horaExistente, HoraAgendada horaActualizada) {
+        String estadoAnterior = horaExistente.getEstado();
+        horaExistente.setFecha(horaActualizada.getFecha());
+        horaExistente.setHora(horaActualizada.getHora());
+        horaExistente.setMinuto(horaActualizada.getMinuto());
+        horaExistente.setTipo(horaActualizada.getTipo());
+        horaExistente.setEstado(horaActualizada.getEstado());
+        horaExistente.setMascotaId(horaActualizada.getMascotaId());
+        horaExistente.setNotas(horaActualizada.getNotas());
+        sincronizarOcupacion(horaExistente);
+        HoraAgendada guardada = horaAgendadaRepository.save(horaExistente);
+        contadorHoras.cambioEstado(estadoAnterior, guardada.getEstado(), 1);
+        sincronizarRecordatorio(guardada);
+        despuesDeCommit(() -> eventosHoras.actualizada(guardada));
+        return guardada;
+    }
+    
+    private void avisarEstado(List<HoraDeUsuario> horas, String nuevoEstado) {
+        List<HoraDeUsuario> escuchadas = horas.stream()
+            .filter(hora -> eventosHoras.escuchando(hora.usuarioId()))
+            .toList();
+        if (!escuchadas.isEmpty()) {
+            despuesDeCommit(() -> escuchadas.forEach(
+                hora -> eventosHoras.estadoCambiado(hora.usuarioId(), hora.id(), nuevoEstado)));
+        }
+    }
+    
+    private static boolean pendiente(String estado) {
+        return VencimientoHoras.ESTADO_PENDIENTE.equalsIgnoreCase(estado);
+    }
+    
+    // La rueda de recordatorios solo se toca tras el commit, con la hora tal como quedó
+    private void sincronizarRecordatorio(HoraAgendada hora) {
+        despuesDeCommit(() -> recordatorioHoras.programar(hora));
+    }
+    
+    // Reserva antes de escribir (y se deshace si la transacción no confirma); liberar el
+    // horario, o la parte que una hora movida deja, se hace recién tras el commit para que
+    // nadie lo tome mientras aún está ocupado
+    private void sincronizarOcupacion(HoraAgendada hora) {
+        if (ocupacionIndex.ocupaHorario(hora)) {
+            String id = hora.getId();
+            OcupacionIndex.Reserva previa = ocupacionIndex.reservar(hora);
+            despuesDeCommit(() -> ocupacionIndex.confirmarCambio(id, previa));
+            alNoConfirmar(() -> ocupacionIndex.deshacer(id, previa));
+        } else {
+            String id = hora.getId();
+            despuesDeCommit(() -> ocupacionIndex.liberar(id));
+        }
+    }
+    
+    private void despuesDeCommit(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+    
+    private void alNoConfirmar(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    accion.run();
+                }
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,304 @@
+package com.appvet.horas.service;
+
+import com.appvet.horas.config.AgendaProperties;
+import com.appvet.horas.dto.HoraOcupada;
+import com.appvet.horas.dto.HorarioLibre;
+import com.appvet.horas.exception.HorarioNoDisponibleException;
+import com.appvet.horas.model.HoraAgendada;
+import com.appvet.horas.repository.HoraAgendadaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+// Índice en memoria de los minutos ocupados de la agenda: un bitmap de 1440 bits (un bit
+// por minuto) por día, y opcionalmente por mascota. Permite detectar choques y buscar
+// horarios libres sin consultar la base de datos.
+// Las reservas son sin bloqueos: cada palabra de 64 minutos se toma con compareAndSet, en
+// orden ascendente y deshaciendo lo tomado si aparece un choque. Dos reservas del mismo
+// horario nunca ganan ambas y reservas de horarios distintos no se esperan entre sí.
+// Es local a cada instancia: se reconstruye desde la tabla al arrancar, desde hoy hasta
+// diasHorizonte días. Un día fuera de ese rango (más lejano, o que entró al horizonte después
+// del arranque) se carga desde la tabla la primera vez que se reserva o se consulta.
+@Component
+@Slf4j
+public class OcupacionIndex {
+
+    public static final String ESTADO_CANCELADA = "Cancelada";
+
+    static final int MINUTOS_POR_DIA = 24 * 60;
+    private static final int PALABRAS_POR_DIA = (MINUTOS_POR_DIA + Long.SIZE - 1) / Long.SIZE;
+
+    record Clave(long dia, String mascotaId) {
+    }
+
+    // Minutos [desde, hasta) que ocupa una hora agendada dentro de su día
+    public record Reserva(Clave clave, int desde, int hasta) {
+    }
+
+    private final HoraAgendadaRepository horaAgendadaRepository;
+    private final AgendaProperties agenda;
+
+    private final ConcurrentHashMap<Clave, AtomicLongArray> dias = new ConcurrentHashMap<>();
+    // compute() sobre el id serializa los cambios de una misma hora sin afectar a las demás
+    private final ConcurrentHashMap<String, Reserva> reservasPorHora = new ConcurrentHashMap<>();
+    // Días [cargadoDesde, cargadoHasta) que cargó reconstruir, y los de fuera ya cargados de a uno
+    private volatile long cargadoDesde;
+    private volatile long cargadoHasta;
+    private final Set<Long> diasCargados = ConcurrentHashMap.newKeySet();
+
+    public OcupacionIndex(HoraAgendadaRepository horaAgendadaRepository, AgendaProperties agenda) {
+        this.horaAgendadaRepository = horaAgendadaRepository;
+        this.agenda = agenda;
+    }
+
+    // Las horas canceladas o sin fecha no bloquean la agenda; sin id no hay cómo seguirlas
+    public boolean ocupaHorario(HoraAgendada hora) {
+        return hora.getId() != null
+            && hora.getFecha() != null
+            && hora.getHora() != null
+            && hora.getMinuto() != null
+            && !ESTADO_CANCELADA.equalsIgnoreCase(hora.getEstado());
+    }
+
+    // Toma los minutos de la hora. Si la hora ya tenía una reserva (se está moviendo) esa
+    // reserva se conserva hasta confirmarCambio o deshacer, y se devuelve
+    public Reserva reservar(HoraAgendada hora) {
+        Reserva nueva = reservaDe(hora);
+        cargarSiFalta(nueva.clave().dia());
+        Reserva[] previa = new Reserva[1];
+        reservasPorHora.compute(hora.getId(), (id, actual) -> {
+            if (!tomar(nueva, actual)) {
+                throw new HorarioNoDisponibleException(String.format(
+                    "El horario %02d:%02d del %s ya está ocupado",
+                    hora.getHora(), hora.getMinuto(), LocalDate.ofEpochDay(nueva.clave().dia())));
+            }
+            previa[0] = actual;
+            return nueva;
+        });
+        return previa[0];
+    }
+
+    // Tras el commit: suelta los minutos de la reserva anterior que la nueva ya no usa
+    public void confirmarCambio(String horaId, Reserva previa) {
+        if (previa == null) {
+            return;
+        }
+        reservasPorHora.computeIfPresent(horaId, (id, actual) -> {
+            soltar(previa, actual);
+            return actual;
+        });
+    }
+
+    // Si la transacción no confirma: suelta lo tomado y vuelve a la reserva anterior
+    public void deshacer(String horaId, Reserva previa) {
+        reservasPorHora.compute(horaId, (id, actual) -> {
+            if (actual != null) {
+                soltar(actual, previa);
+            }
+            return previa;
+        });
+    }
+
+    public void liberar(String horaId) {
+        if (horaId == null) {
+            return;
+        }
+        reservasPorHora.computeIfPresent(horaId, (id, actual) -> {
+            soltar(actual, null);
+            return null;
+        });
+    }
+
+    public boolean estaLibre(LocalDate dia, int hora, int minuto, String mascotaId) {
+        cargarSiFalta(dia.toEpochDay());
+        AtomicLongArray mapa = dias.get(claveDe(dia, mascotaId));
+        int desde = hora * 60 + minuto;
+        return mapa == null || libre(mapa, desde, Math.min(desde + agenda.duracionCitaMinutos(), MINUTOS_POR_DIA));
+    }
+
+    // Próximos horarios de la jornada en que caben "duracion" minutos seguidos sin choques
+    public List<HorarioLibre> horariosLibres(LocalDate dia, int duracion, int cantidad, String mascotaId) {
+        List<HorarioLibre> libres = new ArrayList<>();
+        cargarSiFalta(dia.toEpochDay());
+        AtomicLongArray mapa = dias.get(claveDe(dia, mascotaId));
+        int intervalo = agenda.jornada().intervaloMinutos();
+        int cierre = minutoDelDia(agenda.jornada().cierre());
+        int inicio = minutoDelDia(agenda.jornada().apertura());
+        if (dia.equals(agenda.hoy())) {
+            // Hoy solo se ofrecen horarios que aún no pasan, alineados al intervalo
+            int ahora = minutoDelDia(LocalTime.now(agenda.zonaHoraria())) + 1;
+            if (ahora > inicio) {
+                inicio += ((ahora - inicio + intervalo - 1) / intervalo) * intervalo;
+            }
+        }
+        for (int minuto = inicio; minuto + duracion <= cierre && libres.size() < cantidad; minuto += intervalo) {
+            if (mapa == null || libre(mapa, minuto, minuto + duracion)) {
+                libres.add(new HorarioLibre(minuto / 60, minuto % 60));
+            }
+        }
+        return libres;
+    }
+
+    // Carga las horas activas desde hoy hasta el horizonte configurado, solo con las columnas
+    // del horario y sin materializar la lista. Solo agrega bits, así que puede convivir con
+    // reservas que lleguen mientras arranca el servicio
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void reconstruir() {
+        LocalDate hoy = agenda.hoy();
+        LocalDate hasta = hoy.plusDays(agenda.ocupacion().diasHorizonte());
+        try (Stream<HoraOcupada> horas = horaAgendadaRepository.streamOcupadasEntre(
+                agenda.inicioDe(hoy), agenda.inicioDe(hasta))) {
+            horas.forEach(this::cargar);
+        }
+        cargadoDesde = hoy.toEpochDay();
+        cargadoHasta = hasta.toEpochDay();
+        log.info("Índice de ocupación reconstruido: {} horas en {} días", reservasPorHora.size(), dias.size());
+    }
+
+    @Scheduled(cron = "${appvet.horas.ocupacion.limpieza-cron:0 5 0 * * *}", zone = "${appvet.horas.zona-horaria:America/Santiago}")
+    public void descartarDiasPasados() {
+        long hoy = agenda.hoy().toEpochDay();
+        // Un día descartado deja de contar como cargado: si se vuelve a pedir, se lee de la tabla
+        cargadoDesde = Math.max(cargadoDesde, hoy);
+        diasCargados.removeIf(dia -> dia < hoy);
+        reservasPorHora.values().removeIf(reserva -> reserva.clave().dia() < hoy);
+        dias.keySet().removeIf(clave -> clave.dia() < hoy);
+    }
+
+    // Un día que reconstruir no cubrió se lee de la tabla antes de usarlo, así una hora más allá
+    // del horizonte también choca con las que ya existen. Cargar dos veces el mismo día solo
+    // repite bits, así que dos reservas que llegan juntas no necesitan esperarse
+    private void cargarSiFalta(long dia) {
+        if ((dia >= cargadoDesde && dia < cargadoHasta) || diasCargados.contains(dia)) {
+            return;
+        }
+        LocalDate fecha = LocalDate.ofEpochDay(dia);
+        List<HoraOcupada> horas = horaAgendadaRepository.findOcupadasEntre(
+            agenda.inicioDe(fecha), agenda.inicioDe(fecha.plusDays(1)));
+        horas.forEach(this::cargar);
+        diasCargados.add(dia);
+        log.debug("Día {} cargado en el índice de ocupación: {} horas", fecha, horas.size());
+    }
+
+    // Sin validar choques: los datos históricos pueden traer horas superpuestas
+    private void cargar(HoraOcupada hora) {
+        Reserva reserva = reservaDe(hora.fecha(), hora.hora(), hora.minuto(), hora.mascotaId());
+        AtomicLongArray mapa = mapaDe(reserva.clave());
+        recorrer(reserva, null, (palabra, mascara) -> mapa.accumulateAndGet(palabra, mascara, (a, b) -> a | b));
+        reservasPorHora.putIfAbsent(hora.id(), reserva);
+    }
+
+    // Toma con CAS los minutos de "nueva" que no estén ya en "propia"; ante un choque
+    // devuelve las palabras tomadas y responde false
+    private boolean tomar(Reserva nueva, Reserva propia) {
+        AtomicLongArray mapa = mapaDe(nueva.clave());
+        int primera = nueva.desde() >>> 6;
+        int ultima = (nueva.hasta() - 1) >>> 6;
+        for (int palabra = primera; palabra <= ultima; palabra++) {
+            long mascara = mascaraPropia(nueva, propia, palabra);
+            if (mascara == 0) {
+                continue;
+            }
+            long actual;
+            do {
+                actual = mapa.get(palabra);
+                if ((actual & mascara) != 0) {
+                    for (int tomada = primera; tomada < palabra; tomada++) {
+                        long devolver = mascaraPropia(nueva, propia, tomada);
+                        mapa.accumulateAndGet(tomada, ~devolver, (a, b) -> a & b);
+                    }
+                    return false;
+                }
+            } while (!mapa.compareAndSet(palabra, actual, actual | mascara));
+        }
+        return true;
+    }
+
+    // Suelta los minutos de "reserva" que no pertenezcan también a "conservar"
+    private void soltar(Reserva reserva, Reserva conservar) {
+        AtomicLongArray mapa = dias.get(reserva.clave());
+        if (mapa == null) {
+            return;
+        }
+        recorrer(reserva, conservar, (palabra, mascara) -> mapa.accumulateAndGet(palabra, ~mascara, (a, b) -> a & b));
+    }
+
+    private void recorrer(Reserva reserva, Reserva excluida, OperacionPalabra operacion) {
+        for (int palabra = reserva.desde() >>> 6; palabra <= (reserva.hasta() - 1) >>> 6; palabra++) {
+            long mascara = mascaraPropia(reserva, excluida, palabra);
+            if (mascara != 0) {
+                operacion.aplicar(palabra, mascara);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface OperacionPalabra {
+        void aplicar(int palabra, long mascara);
+    }
+
+    // Bits de "reserva" en la palabra, descontando los de "excluida" si es del mismo día
+    private static long mascaraPropia(Reserva reserva, Reserva excluida, int palabra) {
+        long mascara = mascara(palabra, reserva.desde(), reserva.hasta());
+        if (excluida != null && excluida.clave().equals(reserva.clave())) {
+            mascara &= ~mascara(palabra, excluida.desde(), excluida.hasta());
+        }
+        return mascara;
+    }
+
+    private AtomicLongArray mapaDe(Clave clave) {
+        return dias.computeIfAbsent(clave, k -> new AtomicLongArray(PALABRAS_POR_DIA));
+    }
+
+    private Reserva reservaDe(HoraAgendada hora) {
+        return reservaDe(hora.getFecha(), hora.getHora(), hora.getMinuto(), hora.getMascotaId());
+    }
+
+    private Reserva reservaDe(long fecha, int hora, int minuto, String mascotaId) {
+        int desde = hora * 60 + minuto;
+        int hasta = Math.min(desde + agenda.duracionCitaMinutos(), MINUTOS_POR_DIA);
+        return new Reserva(claveDe(agenda.diaDe(fecha), mascotaId), desde, hasta);
+    }
+
+    private Clave claveDe(LocalDate dia, String mascotaId) {
+        return new Clave(dia.toEpochDay(), agenda.ocupacion().porMascota() ? mascotaId : null);
+    }
+
+    private static boolean libre(AtomicLongArray mapa, int desde, int hasta) {
+        for (int palabra = desde >>> 6; palabra <= (hasta - 1) >>> 6; palabra++) {
+            if ((mapa.get(palabra) & mascara(palabra, desde, hasta)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Bits de la palabra que caen dentro de [desde, hasta)
+    static long mascara(int palabra, int desde, int hasta) {
+        int base = palabra << 6;
+        if (hasta <= base || desde >= base + Long.SIZE) {
+            return 0;
+        }
+        int inicio = Math.max(desde, base) - base;
+        int fin = Math.min(hasta, base + Long.SIZE) - base;
+        long hastaFin = fin == Long.SIZE ? -1L : (1L << fin) - 1;
+        return hastaFin & (-1L << inicio);
+    }
+
+    private static int minutoDelDia(LocalTime hora) {
+        return hora.getHour() * 60 + hora.getMinute();
+    }
+}
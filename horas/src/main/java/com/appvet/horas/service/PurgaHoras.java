@@ -0,0 +1,268 @@
+package com.appvet.horas.service;
+
+import com.appvet.horas.config.PurgaProperties;
+import com.appvet.horas.dto.HoraArchivable;
+import com.appvet.horas.model.Eliminacion;
+import com.appvet.horas.repository.EliminacionRepository;
+import com.appvet.horas.repository.HoraAgendadaHistoricoRepository;
+import com.appvet.horas.repository.HoraAgendadaRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
+
+// Limpieza en cascada de las horas de usuarios y mascotas eliminados. Usuarios y mascotas dejan
+// cada borrado en la tabla común eliminaciones, en la misma transacción que lo confirma; aquí se
+// leen los que horas aún no purga y se borran sus horas, de la agenda y del histórico, en lotes
+// chicos con su propia transacción, como el archivado. El evento se marca purgado recién cuando
+// no le queda nada: si algo falla sigue pendiente y la próxima pasada lo reintenta desde lo que
+// falte. Dos instancias a la vez no se pisan, porque la segunda espera el bloqueo del lote y
+// luego ya no encuentra esas filas.
+// La reconciliación nocturna recoge las huérfanas de la agenda que no tienen evento: las de
+// borrados anteriores a esta tabla o hechos directo en la base.
+// Las pasadas corren en un hilo propio, una a la vez, y cada una tiene un tope de duración: lo
+// que no alcanza queda para la siguiente. El scheduler solo las lanza
+@Component
+@Slf4j
+public class PurgaHoras {
+
+    private final HoraAgendadaRepository horaAgendadaRepository;
+    private final HoraAgendadaHistoricoRepository horaAgendadaHistoricoRepository;
+    private final EliminacionRepository eliminacionRepository;
+    private final ContadorHoras contadorHoras;
+    private final OcupacionIndex ocupacionIndex;
+    private final RecordatorioHoras recordatorioHoras;
+    private final EventosHoras eventosHoras;
+    private final PurgaProperties config;
+    private final TransactionTemplate transaccion;
+    private final ExecutorService ejecutor = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "purga-horas");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+    private final AtomicBoolean purgaEnCurso = new AtomicBoolean();
+    private final AtomicBoolean reconciliacionEnCurso = new AtomicBoolean();
+
+    public PurgaHoras(HoraAgendadaRepository horaAgendadaRepository,
+                      HoraAgendadaHistoricoRepository horaAgendadaHistoricoRepository,
+                      EliminacionRepository eliminacionRepository, ContadorHoras contadorHoras,
+                      OcupacionIndex ocupacionIndex, RecordatorioHoras recordatorioHoras, EventosHoras eventosHoras,
+                      PurgaProperties config, PlatformTransactionManager transactionManager) {
+        this.horaAgendadaRepository = horaAgendadaRepository;
+        this.horaAgendadaHistoricoRepository = horaAgendadaHistoricoRepository;
+        this.eliminacionRepository = eliminacionRepository;
+        this.contadorHoras = contadorHoras;
+        this.ocupacionIndex = ocupacionIndex;
+        this.recordatorioHoras = recordatorioHoras;
+        this.eventosHoras = eventosHoras;
+        this.config = config;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Scheduled(fixedDelayString = "${appvet.horas.purga.intervalo:PT30S}",
+               initialDelayString = "${appvet.horas.purga.intervalo:PT30S}")
+    public void purgarPendientes() {
+        lanzar(purgaEnCurso, () -> {
+            int procesadas = procesarPendientes();
+            if (procesadas > 0) {
+                log.info("Purga: {} eliminaciones procesadas", procesadas);
+            }
+        });
+    }
+
+    @Scheduled(cron = "${appvet.horas.purga.reconciliacion:0 0 4 * * *}", zone = "${appvet.horas.zona-horaria:America/Santiago}")
+    public void reconciliar() {
+        lanzar(reconciliacionEnCurso, () -> {
+            int purgadas = reconciliarAnterioresA(LocalDateTime.now().minus(config.antiguedadMinima()));
+            log.info("Reconciliación de huérfanas: {} horas de usuarios o mascotas inexistentes purgadas", purgadas);
+        });
+    }
+
+    // Una pasada por hasta eventosPorPasada eliminaciones, dentro de duracionMaximaPasada;
+    // devuelve cuántas quedaron purgadas
+    public int procesarPendientes() {
+        return procesarPendientes(Plazo.de(config.duracionMaximaPasada()));
+    }
+
+    int procesarPendientes(Plazo plazo) {
+        List<Eliminacion> pendientes = transaccion.execute(estado ->
+            eliminacionRepository.findPendientesParaHoras(Limit.of(config.eventosPorPasada())));
+        int procesadas = 0;
+        for (Eliminacion eliminacion : pendientes) {
+            try {
+                if (Eliminacion.USUARIO.equals(eliminacion.getTipo())) {
+                    purgarUsuario(eliminacion.getEntidadId(), plazo);
+                } else if (Eliminacion.MASCOTA.equals(eliminacion.getTipo())) {
+                    purgarMascota(eliminacion.getEntidadId(), plazo);
+                }
+                // Cortada a la mitad: sigue pendiente y la próxima pasada termina
+                if (plazo.vencido()) {
+                    return procesadas;
+                }
+                transaccion.executeWithoutResult(estado ->
+                    eliminacionRepository.marcarPurgadaEnHoras(eliminacion.getId(), LocalDateTime.now()));
+                procesadas++;
+            } catch (RuntimeException e) {
+                log.warn("No se pudo purgar la eliminación {} ({} {}); se reintenta en la próxima pasada",
+                    eliminacion.getId(), eliminacion.getTipo(), eliminacion.getEntidadId(), e);
+            }
+        }
+        return procesadas;
+    }
+
+    // Recorre usuarios y luego mascotas de a clavesPorTramo y purga los que ya no existen, dentro
+    // de duracionMaximaReconciliacion; devuelve cuántas horas borró. Cada tramo es una consulta
+    // corta por el índice, no un JOIN de toda la tabla
+    public int reconciliarAnterioresA(LocalDateTime antesDe) {
+        Plazo plazo = Plazo.de(config.duracionMaximaReconciliacion());
+        return reconciliar(horaAgendadaRepository::findUsuarioIdsDesde,
+                horaAgendadaRepository::findUsuariosInexistentes, antesDe,
+                usuarioId -> purgarUsuario(usuarioId, plazo), plazo)
+            + reconciliar(horaAgendadaRepository::findMascotaIdsDesde,
+                horaAgendadaRepository::findMascotasInexistentes, antesDe,
+                mascotaId -> purgarMascota(mascotaId, plazo), plazo);
+    }
+
+    int purgarUsuario(String usuarioId, Plazo plazo) {
+        return purgar(usuarioId, horaAgendadaRepository::findParaPurgarPorUsuario,
+            horaAgendadaHistoricoRepository::findIdsPorUsuario, plazo);
+    }
+
+    int purgarMascota(String mascotaId, Plazo plazo) {
+        return purgar(mascotaId, horaAgendadaRepository::findParaPurgarPorMascota,
+            horaAgendadaHistoricoRepository::findIdsPorMascota, plazo);
+    }
+
+    @PreDestroy
+    void cerrar() {
+        ejecutor.shutdownNow();
+    }
+
+    // Si la pasada anterior del mismo tipo sigue corriendo, esta se omite
+    private void lanzar(AtomicBoolean enCurso, Runnable pasada) {
+        if (!enCurso.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ejecutor.execute(() -> {
+                try {
+                    pasada.run();
+                } catch (RuntimeException e) {
+                    log.error("Pasada de purga interrumpida por un error; la próxima sigue con lo que falta", e);
+                } finally {
+                    enCurso.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            enCurso.set(false);
+            throw e;
+        }
+    }
+
+    private int reconciliar(BiFunction<String, Limit, List<String>> tramos,
+                            BiFunction<Collection<String>, LocalDateTime, List<String>> inexistentes,
+                            LocalDateTime antesDe, ToIntFunction<String> purgar, Plazo plazo) {
+        int total = 0;
+        String desde = "";
+        while (!plazo.vencido()) {
+            String cursor = desde;
+            List<String> tramo = transaccion.execute(estado -> tramos.apply(cursor, Limit.of(config.clavesPorTramo())));
+            if (tramo.isEmpty()) {
+                break;
+            }
+            List<String> huerfanas = transaccion.execute(estado -> inexistentes.apply(tramo, antesDe));
+            for (String clave : huerfanas) {
+                total += purgar.applyAsInt(clave);
+            }
+            if (tramo.size() < config.clavesPorTramo()) {
+                break;
+            }
+            desde = tramo.get(tramo.size() - 1);
+        }
+        return total;
+    }
+
+    // Primero la agenda y después el histórico, lote a lote hasta que no quede nada o se acabe el
+    // plazo; devuelve cuántas borró
+    private int purgar(String clave, BiFunction<String, Limit, List<HoraArchivable>> agenda,
+                       BiFunction<String, Limit, List<String>> historico, Plazo plazo) {
+        int total = enLotes(() -> {
+            List<HoraArchivable> lote = transaccion.execute(estado ->
+                borrarDeAgenda(agenda.apply(clave, Limit.of(config.filasPorLote()))));
+            // Ya confirmado: lo mismo que tras un DELETE de la API
+            for (HoraArchivable hora : lote) {
+                ocupacionIndex.liberar(hora.id());
+                recordatorioHoras.cancelar(hora.id());
+                eventosHoras.eliminada(hora.usuarioId(), hora.id());
+            }
+            return lote.size();
+        }, plazo);
+        if (plazo.vencido()) {
+            return total;
+        }
+        return total + enLotes(() -> transaccion.execute(estado ->
+            borrarDelHistorico(historico.apply(clave, Limit.of(config.filasPorLote())))), plazo);
+    }
+
+    private List<HoraArchivable> borrarDeAgenda(List<HoraArchivable> lote) {
+        if (!lote.isEmpty()) {
+            horaAgendadaRepository.eliminarPorIds(lote.stream().map(HoraArchivable::id).toList());
+            lote.forEach(hora -> contadorHoras.baja(hora.usuarioId(), hora.estado()));
+        }
+        return lote;
+    }
+
+    private int borrarDelHistorico(List<String> ids) {
+        if (!ids.isEmpty()) {
+            horaAgendadaHistoricoRepository.eliminarPorIds(ids);
+        }
+        return ids.size();
+    }
+
+    // Siempre hace al menos un lote, así cada pasada avanza aunque el plazo sea muy corto
+    private int enLotes(IntSupplier lote, Plazo plazo) {
+        int total = 0;
+        while (true) {
+            int borradas = lote.getAsInt();
+            total += borradas;
+            if (borradas < config.filasPorLote() || plazo.vencido()) {
+                return total;
+            }
+            try {
+                Thread.sleep(config.pausaEntreLotes().toMillis());
+            } catch (InterruptedException e) {
+                // Lo ya borrado queda; el evento sigue pendiente y la próxima pasada termina
+                Thread.currentThread().interrupt();
+                return total;
+            }
+        }
+    }
+
+    // Momento en que una pasada debe soltar; una interrupción (al apagar) también la corta
+    record Plazo(long hastaNanos) {
+
+        static Plazo de(Duration duracion) {
+            return new Plazo(System.nanoTime() + duracion.toNanos());
+        }
+
+        boolean vencido() {
+            return System.nanoTime() - hastaNanos >= 0 || Thread.currentThread().isInterrupted();
+        }
+    }
+}
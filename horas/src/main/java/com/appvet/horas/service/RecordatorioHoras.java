@@ -0,0 +1,156 @@
+package com.appvet.horas.service;
+
+import com.appvet.horas.config.AgendaProperties;
+import com.appvet.horas.dto.CitaProgramada;
+import com.appvet.horas.model.HoraAgendada;
+import com.appvet.horas.repository.HoraAgendadaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Recordatorios "N minutos antes" de cada hora Pendiente, sin consultar la base cada minuto:
+// las horas de las próximas horasHorizonte horas viven en una RuedaTemporal que avanza cada
+// segundo, y el servicio la actualiza tras cada commit. Solo se va a la base al cargar, en la
+// recarga periódica y cuando algo vence.
+// Al vencer se relee la hora: si ya no está Pendiente o se movió (cambios masivos, otra
+// instancia) el aviso se descarta o se reprograma, así que la rueda puede quedar algo atrasada
+// respecto de la tabla sin que salgan avisos equivocados.
+@Component
+@Slf4j
+public class RecordatorioHoras {
+
+    private static final long RESOLUCION_MILLIS = 1000;
+
+    private final HoraAgendadaRepository horaAgendadaRepository;
+    private final AgendaProperties agenda;
+    private final List<DestinoRecordatorios> destinos;
+    private final Clock reloj;
+    private final RuedaTemporal rueda;
+
+    @Autowired
+    public RecordatorioHoras(HoraAgendadaRepository horaAgendadaRepository, AgendaProperties agenda,
+                             List<DestinoRecordatorios> destinos) {
+        this(horaAgendadaRepository, agenda, destinos, Clock.systemUTC());
+    }
+
+    RecordatorioHoras(HoraAgendadaRepository horaAgendadaRepository, AgendaProperties agenda,
+                      List<DestinoRecordatorios> destinos, Clock reloj) {
+        this.horaAgendadaRepository = horaAgendadaRepository;
+        this.agenda = agenda;
+        this.destinos = destinos;
+        this.reloj = reloj;
+        this.rueda = new RuedaTemporal(RESOLUCION_MILLIS, reloj.millis(), 1024);
+    }
+
+    // Programa, mueve o quita el recordatorio según el estado y horario actuales de la hora
+    public void programar(HoraAgendada hora) {
+        if (!VencimientoHoras.ESTADO_PENDIENTE.equalsIgnoreCase(hora.getEstado())) {
+            cancelar(hora.getId());
+            return;
+        }
+        programar(hora.getId(), hora.getFecha(), hora.getHora(), hora.getMinuto());
+    }
+
+    public void cancelar(String horaId) {
+        if (horaId == null) {
+            return;
+        }
+        synchronized (rueda) {
+            rueda.cancelar(horaId);
+        }
+    }
+
+    public int pendientes() {
+        synchronized (rueda) {
+            return rueda.tamano();
+        }
+    }
+
+    // Vuelve a cargar el horizonte completo: suma lo que fue entrando al horizonte y lo que se
+    // haya cambiado sin pasar por este servicio. Reprogramar una hora que ya estaba es O(1)
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${appvet.horas.recordatorios.recarga:PT1H}",
+               initialDelayString = "${appvet.horas.recordatorios.recarga:PT1H}")
+    public void recargar() {
+        Instant ahora = Instant.ofEpochMilli(reloj.millis());
+        Instant limite = ahora.plus(horizonte());
+        LocalDate hoy = agenda.diaDe(ahora.toEpochMilli());
+        LocalDate ultimoDia = agenda.diaDe(limite.toEpochMilli());
+        List<CitaProgramada> citas = horaAgendadaRepository.findCitasPorEstadoEntre(
+            VencimientoHoras.ESTADO_PENDIENTE, agenda.inicioDe(hoy), agenda.inicioDe(ultimoDia.plusDays(1)));
+        for (CitaProgramada cita : citas) {
+            programar(cita.id(), cita.fecha(), cita.hora(), cita.minuto());
+        }
+        log.info("Recordatorios recargados: {} horas pendientes, {} en la rueda", citas.size(), pendientes());
+    }
+
+    @Scheduled(fixedRateString = "${appvet.horas.recordatorios.tick:PT1S}")
+    public void avanzar() {
+        Map<String, Long> vencidos = new LinkedHashMap<>();
+        synchronized (rueda) {
+            rueda.avanzarHasta(reloj.millis(), vencidos::put);
+        }
+        if (vencidos.isEmpty()) {
+            return;
+        }
+        for (HoraAgendada hora : horaAgendadaRepository.findAllById(vencidos.keySet())) {
+            if (!VencimientoHoras.ESTADO_PENDIENTE.equalsIgnoreCase(hora.getEstado()) || hora.getFecha() == null) {
+                continue;
+            }
+            Instant cita = agenda.instanteDe(hora.getFecha(), hora.getHora(), hora.getMinuto());
+            if (aviso(cita) > vencidos.get(hora.getId()) + RESOLUCION_MILLIS) {
+                // Se movió a más tarde sin que la rueda se enterara
+                programar(hora);
+                continue;
+            }
+            enviar(hora, cita);
+        }
+    }
+
+    private void programar(String id, Long fecha, Integer hora, Integer minuto) {
+        if (id == null || fecha == null || hora == null || minuto == null) {
+            cancelar(id);
+            return;
+        }
+        Instant cita = agenda.instanteDe(fecha, hora, minuto);
+        long ahora = reloj.millis();
+        // Si el momento del aviso ya pasó, o ya se avisó o la hora se agendó dentro del plazo:
+        // reprogramarla la avisaría dos veces
+        if (aviso(cita) <= ahora || cita.toEpochMilli() > ahora + horizonte().toMillis()) {
+            cancelar(id);
+            return;
+        }
+        synchronized (rueda) {
+            rueda.programar(id, aviso(cita));
+        }
+    }
+
+    private void enviar(HoraAgendada hora, Instant cita) {
+        for (DestinoRecordatorios destino : destinos) {
+            try {
+                destino.enviar(hora, cita);
+            } catch (RuntimeException e) {
+                log.error("No se pudo enviar el recordatorio de la hora {}", hora.getId(), e);
+            }
+        }
+    }
+
+    private long aviso(Instant cita) {
+        return cita.toEpochMilli() - Duration.ofMinutes(agenda.recordatorios().minutosAntes()).toMillis();
+    }
+
+    private Duration horizonte() {
+        return Duration.ofHours(agenda.recordatorios().horasHorizonte());
+    }
+}
@@ -0,0 +1,19 @@
+package com.appvet.horas.service;
+
+import com.appvet.horas.model.HoraAgendada;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+// Destino por defecto: deja cada recordatorio en el log
+@Component
+@Slf4j
+public class RegistroRecordatorios implements DestinoRecordatorios {
+
+    @Override
+    public void enviar(HoraAgendada hora, Instant cita) {
+        log.info("Recordatorio: hora {} ({}) del usuario {} a las {}",
+            hora.getId(), hora.getTipo(), hora.getUsuarioId(), cita);
+    }
+}
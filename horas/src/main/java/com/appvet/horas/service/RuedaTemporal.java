@@ -0,0 +1,259 @@
+package com.appvet.horas.service;
+
+import java.util.Arrays;
+
+// Rueda de temporizadores jerárquica (Varghese y Lauck): NIVELES ruedas de 64 ranuras, donde
+// cada ranura del nivel n cubre 64^n ticks. Programar y cancelar son O(1); avanzar un tick
+// dispara la ranura del nivel 0 y, cada 64^n ticks, reparte una ranura del nivel n hacia abajo.
+// Para que un millón de temporizadores quepa en pocos MB no hay un objeto por temporizador:
+// todo vive en arreglos paralelos indexados por número de temporizador, con listas doblemente
+// enlazadas de índices por ranura y una tabla hash abierta de id a índice.
+// No es thread-safe: quien la usa debe sincronizar el acceso.
+class RuedaTemporal {
+
+    static final int NIVELES = 4;
+    private static final int BITS = 6;
+    private static final int RANURAS = 1 << BITS;
+    private static final int MASCARA = RANURAS - 1;
+    // Ranura extra para lo que cae más allá de 64^NIVELES ticks; se revisa cada vuelta completa
+    private static final int DESBORDE = NIVELES * RANURAS;
+    private static final int NADA = -1;
+
+    @FunctionalInterface
+    interface AlVencer {
+        void vencio(String id, long venceMillis);
+    }
+
+    private final long resolucionMillis;
+    private long actual;
+
+    private final int[] cabezas = new int[DESBORDE + 1];
+
+    // Un temporizador por índice; los índices libres se encadenan por "siguiente"
+    private String[] ids;
+    private long[] vence;
+    private int[] siguiente;
+    private int[] anterior;
+    private short[] ranura;
+    private int libre = NADA;
+    private int usados;
+    private int tamano;
+
+    // Tabla hash abierta (sondeo lineal) de id a índice + 1; 0 es una celda vacía
+    private int[] tabla;
+
+    RuedaTemporal(long resolucionMillis, long inicioMillis, int capacidadInicial) {
+        this.resolucionMillis = resolucionMillis;
+        this.actual = inicioMillis / resolucionMillis;
+        int capacidad = Math.max(capacidadInicial, 16);
+        ids = new String[capacidad];
+        vence = new long[capacidad];
+        siguiente = new int[capacidad];
+        anterior = new int[capacidad];
+        ranura = new short[capacidad];
+        tabla = new int[Integer.highestOneBit(capacidad - 1) << 2];
+        Arrays.fill(cabezas, NADA);
+    }
+
+    int tamano() {
+        return tamano;
+    }
+
+    // Programa (o reprograma, si el id ya estaba) el temporizador. Si la hora ya pasó vence en
+    // el próximo tick
+    void programar(String id, long venceMillis) {
+        int indice = buscar(id);
+        if (indice == NADA) {
+            indice = nuevo(id);
+        } else {
+            desenlazar(indice);
+        }
+        vence[indice] = Math.max(venceMillis / resolucionMillis, actual + 1);
+        ubicar(indice);
+    }
+
+    boolean cancelar(String id) {
+        int indice = buscar(id);
+        if (indice == NADA) {
+            return false;
+        }
+        desenlazar(indice);
+        liberar(indice);
+        return true;
+    }
+
+    boolean contiene(String id) {
+        return buscar(id) != NADA;
+    }
+
+    // Avanza tick a tick hasta "ahoraMillis" entregando los temporizadores vencidos, ya quitados
+    // de la rueda. Los ticks sin nada que repartir cuestan un par de comparaciones
+    void avanzarHasta(long ahoraMillis, AlVencer alVencer) {
+        long destino = ahoraMillis / resolucionMillis;
+        while (actual < destino) {
+            actual++;
+            repartir();
+            // Se sacan de a uno para que alVencer pueda programar o cancelar otros sin problema
+            int numero = (int) (actual & MASCARA);
+            while (cabezas[numero] != NADA) {
+                int indice = cabezas[numero];
+                desenlazar(indice);
+                String id = ids[indice];
+                long venceMillis = vence[indice] * resolucionMillis;
+                liberar(indice);
+                alVencer.vencio(id, venceMillis);
+            }
+        }
+    }
+
+    // En el tick actual, las ranuras cuyo dígito acaba de llegar bajan un nivel, empezando por
+    // el más alto porque lo que baja de ahí puede caer en una ranura que también toca repartir
+    private void repartir() {
+        int nivel = 0;
+        while (nivel < NIVELES && (actual & ((1L << (BITS * (nivel + 1))) - 1)) == 0) {
+            nivel++;
+        }
+        if (nivel == NIVELES) {
+            reubicar(DESBORDE);
+            nivel--;
+        }
+        for (; nivel >= 1; nivel--) {
+            reubicar(nivel * RANURAS + (int) ((actual >>> (BITS * nivel)) & MASCARA));
+        }
+    }
+
+    private void reubicar(int numero) {
+        int indice = cabezas[numero];
+        cabezas[numero] = NADA;
+        while (indice != NADA) {
+            int proximo = siguiente[indice];
+            ubicar(indice);
+            indice = proximo;
+        }
+    }
+
+    // El nivel es el del dígito base 64 más alto en que el vencimiento difiere del tick actual;
+    // la ranura, ese dígito del vencimiento
+    private void ubicar(int indice) {
+        long tick = vence[indice];
+        int numero = DESBORDE;
+        for (int nivel = 0; nivel < NIVELES; nivel++) {
+            if ((tick >>> (BITS * (nivel + 1))) == (actual >>> (BITS * (nivel + 1)))) {
+                numero = nivel * RANURAS + (int) ((tick >>> (BITS * nivel)) & MASCARA);
+                break;
+            }
+        }
+        ranura[indice] = (short) numero;
+        anterior[indice] = NADA;
+        siguiente[indice] = cabezas[numero];
+        if (cabezas[numero] != NADA) {
+            anterior[cabezas[numero]] = indice;
+        }
+        cabezas[numero] = indice;
+    }
+
+    private void desenlazar(int indice) {
+        int previo = anterior[indice];
+        int proximo = siguiente[indice];
+        if (previo == NADA) {
+            cabezas[ranura[indice]] = proximo;
+        } else {
+            siguiente[previo] = proximo;
+        }
+        if (proximo != NADA) {
+            anterior[proximo] = previo;
+        }
+    }
+
+    private int nuevo(String id) {
+        if (libre == NADA && usados == ids.length) {
+            crecer();
+        }
+        if ((tamano + 1) * 2 > tabla.length) {
+            rehacerTabla(tabla.length * 2);
+        }
+        int indice;
+        if (libre != NADA) {
+            indice = libre;
+            libre = siguiente[indice];
+        } else {
+            indice = usados++;
+        }
+        ids[indice] = id;
+        tamano++;
+        int celda = celdaDe(id);
+        while (tabla[celda] != 0) {
+            celda = (celda + 1) & (tabla.length - 1);
+        }
+        tabla[celda] = indice + 1;
+        return indice;
+    }
+
+    private void liberar(int indice) {
+        quitarDeTabla(indice);
+        ids[indice] = null;
+        siguiente[indice] = libre;
+        libre = indice;
+        tamano--;
+    }
+
+    private int buscar(String id) {
+        int celda = celdaDe(id);
+        while (tabla[celda] != 0) {
+            int indice = tabla[celda] - 1;
+            if (ids[indice].equals(id)) {
+                return indice;
+            }
+            celda = (celda + 1) & (tabla.length - 1);
+        }
+        return NADA;
+    }
+
+    // Borrado con corrimiento hacia atrás: no deja marcas de borrado que alarguen los sondeos
+    private void quitarDeTabla(int indice) {
+        int mascara = tabla.length - 1;
+        int celda = celdaDe(ids[indice]);
+        while (tabla[celda] != indice + 1) {
+            celda = (celda + 1) & mascara;
+        }
+        int hueco = celda;
+        int otra = (hueco + 1) & mascara;
+        while (tabla[otra] != 0) {
+            int ideal = celdaDe(ids[tabla[otra] - 1]);
+            // Se mueve al hueco si su celda ideal no queda entre el hueco y su posición actual
+            if (((otra - ideal) & mascara) >= ((otra - hueco) & mascara)) {
+                tabla[hueco] = tabla[otra];
+                hueco = otra;
+            }
+            otra = (otra + 1) & mascara;
+        }
+        tabla[hueco] = 0;
+    }
+
+    private int celdaDe(String id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (tabla.length - 1);
+    }
+
+    private void crecer() {
+        int capacidad = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacidad);
+        vence = Arrays.copyOf(vence, capacidad);
+        siguiente = Arrays.copyOf(siguiente, capacidad);
+        anterior = Arrays.copyOf(anterior, capacidad);
+        ranura = Arrays.copyOf(ranura, capacidad);
+    }
+
+    private void rehacerTabla(int largo) {
+        tabla = new int[largo];
+        for (int indice = 0; indice < usados; indice++) {
+            if (ids[indice] != null) {
+                int celda = celdaDe(ids[indice]);
+                while (tabla[celda] != 0) {
+                    celda = (celda + 1) & (largo - 1);
+                }
+                tabla[celda] = indice + 1;
+            }
+        }
+    }
+}
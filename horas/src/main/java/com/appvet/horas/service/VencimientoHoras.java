@@ -0,0 +1,28 @@
+package com.appvet.horas.service;
+
+import com.appvet.horas.config.AgendaProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Barrido nocturno: las horas que siguen Pendiente después de su día pasan a Vencida con un
+// solo UPDATE, sin cargar entidades. Es idempotente, así que puede correr en varias instancias
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class VencimientoHoras {
+
+    public static final String ESTADO_PENDIENTE = "Pendiente";
+    public static final String ESTADO_VENCIDA = "Vencida";
+
+    private final HoraAgendadaService horaAgendadaService;
+    private final AgendaProperties agenda;
+
+    @Scheduled(cron = "${appvet.horas.vencimiento.cron:0 15 0 * * *}", zone = "${appvet.horas.zona-horaria:America/Santiago}")
+    public void vencerPendientes() {
+        int vencidas = horaAgendadaService.cambiarEstadoAnteriorA(
+            ESTADO_PENDIENTE, ESTADO_VENCIDA, agenda.inicioDe(agenda.hoy()));
+        log.info("Barrido de vencimiento: {} horas pasaron a {}", vencidas, ESTADO_VENCIDA);
+    }
+}
@@ -0,0 +1,16 @@
+-- Esquema de horas_agendadas tal como lo creaba ddl-auto=update.
+-- IF NOT EXISTS porque en appvet_db la tabla ya existe: ahí esta versión solo queda registrada.
+CREATE TABLE IF NOT EXISTS horas_agendadas (
+    id VARCHAR(36) NOT NULL,
+    fecha BIGINT,
+    hora INT NOT NULL,
+    minuto INT NOT NULL,
+    tipo VARCHAR(100) NOT NULL,
+    usuario_id VARCHAR(36) NOT NULL,
+    mascota_id VARCHAR(36),
+    estado VARCHAR(50),
+    notas TEXT,
+    fecha_creacion DATETIME(6),
+    fecha_actualizacion DATETIME(6),
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,20 @@
+-- Índices para las consultas de HoraAgendadaRepository. Todos terminan en (fecha, hora, minuto)
+-- para que los filtros por columna también sirvan al orden de la paginación por cursor.
+
+-- findByFechaBetween, streamByFechaBetween, paginación sin filtro
+CREATE INDEX idx_horas_agenda ON horas_agendadas (fecha, hora, minuto);
+
+-- findByUsuarioId, countByUsuarioId, paginación por usuario
+CREATE INDEX idx_horas_usuario_agenda ON horas_agendadas (usuario_id, fecha, hora, minuto);
+
+-- findByUsuarioIdAndEstado
+CREATE INDEX idx_horas_usuario_estado ON horas_agendadas (usuario_id, estado);
+
+-- findByMascotaId, paginación por mascota
+CREATE INDEX idx_horas_mascota_agenda ON horas_agendadas (mascota_id, fecha, hora, minuto);
+
+-- findByEstado, countByEstado, barrido de vencimiento (estado + fecha)
+CREATE INDEX idx_horas_estado_agenda ON horas_agendadas (estado, fecha, hora, minuto);
+
+-- findByTipo, paginación por tipo
+CREATE INDEX idx_horas_tipo_agenda ON horas_agendadas (tipo, fecha, hora, minuto);
@@ -0,0 +1,8 @@
+-- Índices que cubren la consulta agregada del calendario (fecha, estado, tipo): el GROUP BY se
+-- resuelve solo con el índice, sin leer las filas de la tabla
+
+-- contarAgendaDeUsuario
+CREATE INDEX idx_horas_usuario_calendario ON horas_agendadas (usuario_id, fecha, estado, tipo);
+
+-- contarAgenda (toda la clínica)
+CREATE INDEX idx_horas_calendario ON horas_agendadas (fecha, estado, tipo);
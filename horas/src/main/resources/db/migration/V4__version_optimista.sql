@@ -0,0 +1,3 @@
+-- Versión para control de concurrencia optimista (@Version): cada escritura la incrementa y
+-- se expone como ETag; PUT, PATCH y DELETE con If-Match solo escriben si la versión coincide
+ALTER TABLE horas_agendadas ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
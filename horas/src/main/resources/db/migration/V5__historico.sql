@@ -0,0 +1,27 @@
+-- Horas Completadas y Canceladas antiguas que el archivado (ArchivoHoras) saca de
+-- horas_agendadas, para que la tabla de trabajo y sus índices no crezcan sin fin. Mismas
+-- columnas, más el momento en que se archivó cada fila.
+CREATE TABLE horas_agendadas_historico (
+    id VARCHAR(36) NOT NULL,
+    fecha BIGINT,
+    hora INT NOT NULL,
+    minuto INT NOT NULL,
+    tipo VARCHAR(100) NOT NULL,
+    usuario_id VARCHAR(36) NOT NULL,
+    mascota_id VARCHAR(36),
+    estado VARCHAR(50),
+    notas TEXT,
+    fecha_creacion DATETIME(6),
+    fecha_actualizacion DATETIME(6),
+    version BIGINT NOT NULL DEFAULT 0,
+    fecha_archivado DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Solo se lee con ?incluirHistorico=true, con la misma paginación por cursor que la tabla de
+-- trabajo: los mismos índices terminados en (fecha, hora, minuto) que V2
+CREATE INDEX idx_historico_agenda ON horas_agendadas_historico (fecha, hora, minuto);
+CREATE INDEX idx_historico_usuario_agenda ON horas_agendadas_historico (usuario_id, fecha, hora, minuto);
+CREATE INDEX idx_historico_mascota_agenda ON horas_agendadas_historico (mascota_id, fecha, hora, minuto);
+CREATE INDEX idx_historico_estado_agenda ON horas_agendadas_historico (estado, fecha, hora, minuto);
+CREATE INDEX idx_historico_tipo_agenda ON horas_agendadas_historico (tipo, fecha, hora, minuto);
@@ -0,0 +1,55 @@
+package com.appvet.horas.model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Tests para UuidV7")
+class UuidV7Test {
+
+    @Test
+    @DisplayName("Debe generar UUID versión 7 con el instante en los primeros 48 bits")
+    void debeGenerarVersionSieteConElInstante() {
+        // When
+        UUID id = UuidV7.generar(1_767_225_600_000L + 1_000_000);
+
+        // Then
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertTrue((id.getMostSignificantBits() >>> 16) >= 1_767_225_600_000L + 1_000_000);
+    }
+
+    @Test
+    @DisplayName("Debe generar ids crecientes como texto y como bytes, aun en el mismo milisegundo")
+    void debeGenerarIdsCrecientes() {
+        // Given
+        List<String> ids = new ArrayList<>();
+
+        // When: más ids que los que caben en un milisegundo, con el reloj detenido y luego atrasado
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(UuidV7.generar(i < 9_000 ? 2_000_000_000_000L : 1_999_999_999_000L).toString());
+        }
+
+        // Then
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, "No crece en la posición " + i);
+            assertTrue(Arrays.compareUnsigned(bytes(ids.get(i - 1)), bytes(ids.get(i))) < 0);
+        }
+    }
+
+    // Los 16 bytes en el orden en que los guardaría una columna BINARY(16)
+    private static byte[] bytes(String id) {
+        UUID valor = UUID.fromString(id);
+        return ByteBuffer.allocate(16)
+            .putLong(valor.getMostSignificantBits())
+            .putLong(valor.getLeastSignificantBits())
+            .array();
+    }
+}
@@ -0,0 +1,255 @@
+package com.appvet.horas.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.appvet.horas.service.HoraAgendadaService;
+
+// Corre cada consulta del repositorio sobre H2 (modo MySQL, con las migraciones de Flyway),
+// captura el SQL que genera Hibernate y revisa su EXPLAIN. Cada acceso a una tabla tiene que
+// buscar por un índice (en el plan: "/* public.indice: condiciones */") y alguno tiene que ser
+// el esperado para esa consulta. Un recorrido completo, de la tabla o de un índice entero
+// ("/* public.indice */" sin condiciones), falla salvo en AGREGADOS_COMPLETOS
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+@DisplayName("Planes de ejecución de HoraAgendadaRepository")
+class HoraAgendadaRepositoryPlanesTest {
+
+    @TestConfiguration
+    static class RegistroConfig {
+
+        @Bean
+        RegistroSql registroSql() {
+            return new RegistroSql();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer registrarSql(RegistroSql registroSql) {
+            return propiedades -> propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, registroSql);
+        }
+    }
+
+    static class RegistroSql implements StatementInspector {
+
+        private final List<String> sentencias = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            sentencias.add(sql);
+            return sql;
+        }
+    }
+
+    // Conteos de ContadorHoras al arrancar y al reconciliar: leen todas las filas a propósito.
+    // Se aceptan si recorren entero un índice angosto (alcanza para agrupar), nunca la tabla
+    private static final Set<String> AGREGADOS_COMPLETOS = Set.of("contarPorUsuarioAgrupado", "contarPorEstadoAgrupado");
+
+    // Las claves primarias de H2 tienen nombre generado (PRIMARY_KEY_F...): se compara por prefijo
+    private static final String CLAVE_PRIMARIA = "PRIMARY_KEY";
+
+    private static final Pattern ACCESO = Pattern.compile("/\\* public\\.(\\w+)(:?)");
+
+    @Autowired
+    private HoraAgendadaRepository horaAgendadaRepository;
+
+    @Autowired
+    private HoraAgendadaService horaAgendadaService;
+
+    @Autowired
+    private RegistroSql registroSql;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void crearTablasAjenas() {
+        // En appvet_db son tablas de los otros microservicios; aquí basta con su id
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS usuarios (id VARCHAR(36) NOT NULL, PRIMARY KEY (id))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS mascotas (id VARCHAR(36) NOT NULL, PRIMARY KEY (id))");
+    }
+
+    static Stream<Arguments> consultas() {
+        LocalDateTime ahora = LocalDateTime.now();
+        return Stream.of(
+            consulta("findAllById", r -> r.findAllById(List.of("a", "b")), CLAVE_PRIMARIA),
+            consulta("findByUsuarioId", r -> r.findByUsuarioId("u"), "idx_horas_usuario_"),
+            consulta("findByMascotaId", r -> r.findByMascotaId("m"), "idx_horas_mascota_agenda"),
+            consulta("findByEstado", r -> r.findByEstado("Pendiente"), "idx_horas_estado_agenda"),
+            consulta("findByTipo", r -> r.findByTipo("Control"), "idx_horas_tipo_agenda"),
+            consulta("findByUsuarioIdAndEstado", r -> r.findByUsuarioIdAndEstado("u", "Pendiente"),
+                "idx_horas_usuario_estado"),
+            consulta("findByFechaBetween", r -> r.findByFechaBetween(0L, 1L), "idx_horas_agenda"),
+            consulta("findCitasPorEstadoEntre", r -> r.findCitasPorEstadoEntre("Pendiente", 0L, 1L),
+                "idx_horas_estado_agenda"),
+            consulta("streamByFechaBetween", r -> {
+                try (Stream<?> horas = r.streamByFechaBetween(0L, 1L)) {
+                    horas.count();
+                }
+            }, "idx_horas_agenda"),
+            consulta("streamOcupadasEntre", r -> {
+                try (Stream<?> horas = r.streamOcupadasEntre(0L, 1L)) {
+                    horas.count();
+                }
+            }, "idx_horas_agenda"),
+            consulta("findOcupadasEntre", r -> r.findOcupadasEntre(0L, 1L), "idx_horas_agenda"),
+            consulta("findIdsExistentes", r -> r.findIdsExistentes(List.of("a", "b")), CLAVE_PRIMARIA),
+            consulta("findIdsPorEstadoAnteriorA", r -> r.findIdsPorEstadoAnteriorA("Pendiente", 1L),
+                "idx_horas_estado_agenda"),
+            consulta("actualizarEstado", r -> r.actualizarEstado("a", "Confirmada", ahora), CLAVE_PRIMARIA),
+            consulta("actualizarEstadoSiVersion", r -> r.actualizarEstadoSiVersion("a", "Confirmada", 0L, ahora),
+                CLAVE_PRIMARIA),
+            consulta("actualizarEstadoActivas", r -> r.actualizarEstadoActivas(List.of("a", "b"), "Confirmada", ahora),
+                CLAVE_PRIMARIA),
+            consulta("actualizarEstadoPorIds", r -> r.actualizarEstadoPorIds(List.of("a", "b"), "Cancelada", ahora),
+                CLAVE_PRIMARIA),
+            consulta("actualizarEstadoAnteriorA", r -> r.actualizarEstadoAnteriorA("Pendiente", "Vencida", 1L, ahora),
+                "idx_horas_estado_agenda"),
+            // En MySQL la cubre idx_horas_calendario; H2 prefiere el índice más corto con la misma fecha
+            consulta("contarAgenda", r -> r.contarAgenda(0L, 1L), "idx_horas_agenda", "idx_horas_calendario"),
+            consulta("contarAgendaDeUsuario", r -> r.contarAgendaDeUsuario("u", 0L, 1L),
+                "idx_horas_usuario_agenda", "idx_horas_usuario_calendario"),
+            consulta("findParaActualizarById", r -> r.findParaActualizarById("a"), CLAVE_PRIMARIA),
+            consulta("findClaveConteoParaActualizar", r -> r.findClaveConteoParaActualizar("a"), CLAVE_PRIMARIA),
+            consulta("findClaveConteoById", r -> r.findClaveConteoById("a"), CLAVE_PRIMARIA),
+            consulta("eliminarPorId", r -> r.eliminarPorId("a"), CLAVE_PRIMARIA),
+            consulta("contarPorUsuarioAgrupado", r -> r.contarPorUsuarioAgrupado(), "idx_horas_usuario_"),
+            consulta("contarPorEstadoAgrupado", r -> r.contarPorEstadoAgrupado(), "idx_horas_estado_agenda"),
+            consulta("countByUsuarioId", r -> r.countByUsuarioId("u"), "idx_horas_usuario_"),
+            consulta("countByEstado", r -> r.countByEstado("Pendiente"), "idx_horas_estado_agenda"),
+            consulta("actualizarSiVersion",
+                r -> r.actualizarSiVersion("a", 0L, "u", "Pendiente", 0L, 10, 0, "Control", null, null, null),
+                CLAVE_PRIMARIA),
+            consulta("findHorasDeUsuarioPorEstadoAnteriorA",
+                r -> r.findHorasDeUsuarioPorEstadoAnteriorA("Pendiente", 0L), "idx_horas_estado_agenda"),
+            consulta("findClavesConteoParaActualizar", r -> r.findClavesConteoParaActualizar(List.of("a", "b")),
+                CLAVE_PRIMARIA),
+            consulta("findParaArchivar",
+                r -> r.findParaArchivar(List.of("Completada", "Cancelada"), 0L, Limit.of(10)), "idx_horas_estado_agenda"),
+            consulta("eliminarPorIds", r -> r.eliminarPorIds(List.of("a", "b")), CLAVE_PRIMARIA),
+            consulta("findParaPurgarPorUsuario", r -> r.findParaPurgarPorUsuario("u", Limit.of(500)),
+                "idx_horas_usuario_"),
+            consulta("findParaPurgarPorMascota", r -> r.findParaPurgarPorMascota("m", Limit.of(500)),
+                "idx_horas_mascota_agenda"),
+            consulta("findUsuarioIdsDesde", r -> r.findUsuarioIdsDesde("u", Limit.of(1000)), "idx_horas_usuario_"),
+            consulta("findMascotaIdsDesde", r -> r.findMascotaIdsDesde("m", Limit.of(1000)), "idx_horas_mascota_agenda"),
+            // Nativas contra las tablas de los otros servicios: el tramo de ids va por el índice y
+            // cada uno se busca por clave primaria en la tabla ajena
+            consulta("findUsuariosInexistentes", r -> r.findUsuariosInexistentes(List.of("a", "b"), ahora),
+                "idx_horas_usuario_"),
+            consulta("findMascotasInexistentes", r -> r.findMascotasInexistentes(List.of("a", "b"), ahora),
+                "idx_horas_mascota_agenda")
+        );
+    }
+
+    // Las páginas por cursor se arman con Specification dentro del servicio; se pide la segunda
+    // página (con cursor) de cada listado, también contra el histórico
+    static Stream<Arguments> paginas() {
+        String cursor = cursor("1000:10:0:a");
+        return Stream.of(
+            pagina("obtenerTodas", s -> s.obtenerTodas(cursor, 10, true), "idx_horas_agenda", "idx_historico_agenda"),
+            pagina("obtenerPorUsuario", s -> s.obtenerPorUsuario("u", cursor, 10, true),
+                "idx_horas_usuario_agenda", "idx_historico_usuario_agenda"),
+            pagina("obtenerPorMascota", s -> s.obtenerPorMascota("m", cursor, 10, true),
+                "idx_horas_mascota_agenda", "idx_historico_mascota_agenda"),
+            pagina("obtenerPorEstado", s -> s.obtenerPorEstado("Pendiente", cursor, 10, true),
+                "idx_horas_estado_agenda", "idx_historico_estado_agenda"),
+            pagina("obtenerPorTipo", s -> s.obtenerPorTipo("Control", cursor, 10, true),
+                "idx_horas_tipo_agenda", "idx_historico_tipo_agenda")
+        );
+    }
+
+    private static Arguments consulta(String nombre, Consumer<HoraAgendadaRepository> ejecutar, String... indices) {
+        return Arguments.of(nombre, ejecutar, indices);
+    }
+
+    private static Arguments pagina(String nombre, Consumer<HoraAgendadaService> ejecutar, String... indices) {
+        return Arguments.of(nombre, ejecutar, indices);
+    }
+
+    private static String cursor(String posicion) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(posicion.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("consultas")
+    @DisplayName("La consulta usa el índice esperado")
+    void laConsultaUsaElIndiceEsperado(String nombre, Consumer<HoraAgendadaRepository> ejecutar, String[] indices) {
+        // Given
+        registroSql.sentencias.clear();
+
+        // When
+        ejecutar.accept(horaAgendadaRepository);
+
+        // Then
+        revisarPlanes(nombre, indices);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("paginas")
+    @DisplayName("La página por cursor usa el índice esperado")
+    void laPaginaUsaElIndiceEsperado(String nombre, Consumer<HoraAgendadaService> ejecutar, String[] indices) {
+        // Given
+        registroSql.sentencias.clear();
+
+        // When
+        ejecutar.accept(horaAgendadaService);
+
+        // Then
+        revisarPlanes(nombre, indices);
+    }
+
+    // Con varios índices esperados cada sentencia tiene que usar alguno (p. ej. uno por tabla)
+    private void revisarPlanes(String nombre, String[] indices) {
+        assertFalse(registroSql.sentencias.isEmpty(), nombre + " no ejecutó SQL");
+        for (String sql : registroSql.sentencias) {
+            String plan = explicar(sql);
+            assertFalse(plan.contains(".tableScan"), nombre + " recorre la tabla completa:\n" + plan);
+            boolean usaEsperado = false;
+            Matcher acceso = ACCESO.matcher(plan);
+            while (acceso.find()) {
+                String indice = acceso.group(1);
+                boolean busca = !acceso.group(2).isEmpty();
+                assertTrue(busca || AGREGADOS_COMPLETOS.contains(nombre),
+                    nombre + " recorre entero el índice " + indice + ":\n" + plan);
+                for (String esperado : indices) {
+                    usaEsperado |= indice.startsWith(esperado);
+                }
+            }
+            assertTrue(usaEsperado, nombre + " no usa " + String.join(" ni ", indices) + ":\n" + plan);
+        }
+    }
+
+    // Los parámetros van en null: EXPLAIN no ejecuta la sentencia, solo la planifica
+    private String explicar(String sql) {
+        Object[] parametros = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parametros);
+    }
+}
@@ -0,0 +1,84 @@
+package com.appvet.horas.seguridad;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+@DisplayName("Tests para FiltroTokens")
+class FiltroTokensTest {
+
+    private static final Map<String, String> CLAVES = Map.of("k1", Tokens.SECRETO_K1);
+
+    @Test
+    @DisplayName("Debe dejar el acceso en la petición cuando el token es válido")
+    void debeDejarAccesoConTokenValido() throws Exception {
+        // Given
+        FiltroTokens filtro = filtro(true);
+        MockHttpServletRequest request = peticion("/api/horas-agendadas");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + Tokens.firmar("k1", Tokens.SECRETO_K1, "u1",
+            "Cliente", Instant.now().getEpochSecond() + 60));
+        MockFilterChain cadena = new MockFilterChain();
+
+        // When
+        filtro.doFilter(request, new MockHttpServletResponse(), cadena);
+
+        // Then
+        assertNotNull(cadena.getRequest());
+        assertEquals("u1", ((TokenAcceso) request.getAttribute(FiltroTokens.ACCESO)).usuarioId());
+    }
+
+    @Test
+    @DisplayName("Debe responder 401 con un token inválido aunque no sea obligatorio")
+    void debeRechazarTokenInvalido() throws Exception {
+        // Given
+        FiltroTokens filtro = filtro(false);
+        MockHttpServletRequest request = peticion("/api/horas-agendadas");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer k1.abc.def");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain cadena = new MockFilterChain();
+
+        // When
+        filtro.doFilter(request, response, cadena);
+
+        // Then
+        assertEquals(401, response.getStatus());
+        assertNull(cadena.getRequest());
+    }
+
+    @Test
+    @DisplayName("Debe exigir token solo cuando es obligatorio, salvo en health")
+    void debeExigirTokenSoloCuandoEsObligatorio() throws Exception {
+        // Given
+        MockHttpServletResponse sinToken = new MockHttpServletResponse();
+        MockFilterChain opcional = new MockFilterChain();
+        MockFilterChain health = new MockFilterChain();
+
+        // When
+        filtro(true).doFilter(peticion("/api/horas-agendadas"), sinToken, new MockFilterChain());
+        filtro(false).doFilter(peticion("/api/horas-agendadas"), new MockHttpServletResponse(), opcional);
+        filtro(true).doFilter(peticion("/api/horas-agendadas/health"), new MockHttpServletResponse(), health);
+
+        // Then
+        assertEquals(401, sinToken.getStatus());
+        assertNotNull(opcional.getRequest());
+        assertNotNull(health.getRequest());
+    }
+
+    private static FiltroTokens filtro(boolean obligatorio) {
+        return new FiltroTokens(new VerificadorTokens(Tokens.config(obligatorio, CLAVES)),
+            Tokens.config(obligatorio, CLAVES));
+    }
+
+    private static MockHttpServletRequest peticion(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+}
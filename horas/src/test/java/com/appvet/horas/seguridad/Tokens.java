@@ -0,0 +1,39 @@
+package com.appvet.horas.seguridad;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import com.appvet.horas.config.TokensProperties;
+
+// Firma tokens igual que EmisorTokens de usuarios, para los tests
+final class Tokens {
+
+    static final String SECRETO_K1 = Base64.getEncoder().encodeToString(
+        "secreto-de-prueba-k1-de-32-bytes!".getBytes(StandardCharsets.UTF_8));
+    static final String SECRETO_K2 = Base64.getEncoder().encodeToString(
+        "secreto-de-prueba-k2-de-32-bytes!".getBytes(StandardCharsets.UTF_8));
+
+    private Tokens() {
+    }
+
+    static TokensProperties config(boolean obligatorio, Map<String, String> claves) {
+        return new TokensProperties(obligatorio, claves, 1000);
+    }
+
+    static String firmar(String claveId, String secreto, String usuarioId, String rol, long expiraSegundos) {
+        try {
+            String contenido = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (usuarioId + "\n" + rol + "\n" + expiraSegundos).getBytes(StandardCharsets.UTF_8));
+            String firmado = claveId + "." + contenido;
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(Base64.getDecoder().decode(secreto), "HmacSHA256"));
+            return firmado + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(
+                mac.doFinal(firmado.getBytes(StandardCharsets.US_ASCII)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.appvet.horas.seguridad;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.appvet.horas.config.TokensProperties;
+
+// Costo de verificar el encabezado Authorization de cada petición: el acierto en caché (el caso
+// de todos los días) y la primera vez que llega un token (HMAC y decodificación).
+// Ejecutar con: mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=TokensBenchmarkTest
+@Tag("benchmark")
+@DisplayName("Benchmark de verificación de tokens")
+class TokensBenchmarkTest {
+
+    private static final int TOKENS = 1000;
+    private static final int VUELTAS = 2_000_000;
+
+    @Test
+    @DisplayName("Un token ya visto se verifica en microsegundos y sin asignar memoria")
+    void tokenYaVistoEsBaratoYNoAsigna() {
+        VerificadorTokens verificador = new VerificadorTokens(
+            new TokensProperties(false, Map.of("k1", Tokens.SECRETO_K1), 100_000));
+        long expira = Instant.now().getEpochSecond() + 3600;
+        String[] encabezados = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            encabezados[i] = "Bearer " + Tokens.firmar("k1", Tokens.SECRETO_K1, "usuario-" + i, "Cliente", expira);
+        }
+
+        long inicio = System.nanoTime();
+        for (String encabezado : encabezados) {
+            assertNotNull(verificador.verificar(encabezado, 7));
+        }
+        double primeraVez = (System.nanoTime() - inicio) / (double) TOKENS / 1000;
+
+        // Calentamiento para el JIT, luego la medición
+        recorrer(verificador, encabezados, VUELTAS);
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long bytesAntes = hilos.getCurrentThreadAllocatedBytes();
+        inicio = System.nanoTime();
+        recorrer(verificador, encabezados, VUELTAS);
+        double acierto = (System.nanoTime() - inicio) / (double) VUELTAS / 1000;
+        double bytes = (hilos.getCurrentThreadAllocatedBytes() - bytesAntes) / (double) VUELTAS;
+
+        System.out.printf("primera vez: %.2f µs por token%n", primeraVez);
+        System.out.printf("en caché: %.3f µs por token, %.2f bytes asignados por verificación%n", acierto, bytes);
+        assertTrue(acierto < 2, "Verificar un token ya visto tardó más de 2 µs");
+        assertTrue(bytes < 1, "Verificar un token ya visto asignó memoria");
+    }
+
+    private static void recorrer(VerificadorTokens verificador, String[] encabezados, int vueltas) {
+        int validos = 0;
+        for (int i = 0; i < vueltas; i++) {
+            if (verificador.verificar(encabezados[i % encabezados.length], 7) != null) {
+                validos++;
+            }
+        }
+        assertTrue(validos == vueltas);
+    }
+}
@@ -0,0 +1,124 @@
+package com.appvet.horas.seguridad;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import com.appvet.horas.config.TokensProperties;
+
+@DisplayName("Tests para VerificadorTokens")
+class VerificadorTokensTest {
+
+    private static final long AHORA = 1_767_225_600L; // 2026-01-01T00:00:00Z, en segundos
+    private static final Clock RELOJ = Clock.fixed(Instant.ofEpochSecond(AHORA), ZoneOffset.UTC);
+
+    private final VerificadorTokens verificador = new VerificadorTokens(
+        Tokens.config(false, Map.of("k1", Tokens.SECRETO_K1)), RELOJ);
+
+    @Test
+    @DisplayName("Debe aceptar un token bien firmado y devolver usuario y rol")
+    void debeAceptarTokenBienFirmado() {
+        // Given
+        String token = Tokens.firmar("k1", Tokens.SECRETO_K1, "u1", "Cliente", AHORA + 60);
+
+        // When
+        TokenAcceso acceso = verificador.verificar(token);
+
+        // Then
+        assertNotNull(acceso);
+        assertEquals("u1", acceso.usuarioId());
+        assertEquals("Cliente", acceso.rol());
+        assertEquals((AHORA + 60) * 1000, acceso.expira());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar un token alterado, vencido o con clave desconocida")
+    void debeRechazarTokensInvalidos() {
+        // Given
+        String token = Tokens.firmar("k1", Tokens.SECRETO_K1, "u1", "Cliente", AHORA + 60);
+        String admin = Tokens.firmar("k1", Tokens.SECRETO_K1, "u1", "Admin", AHORA + 60);
+        String alterado = admin.substring(0, admin.lastIndexOf('.')) + token.substring(token.lastIndexOf('.'));
+
+        // When & Then
+        assertNull(verificador.verificar(alterado));
+        assertNull(verificador.verificar(Tokens.firmar("k1", Tokens.SECRETO_K1, "u1", "Cliente", AHORA)));
+        assertNull(verificador.verificar(Tokens.firmar("k9", Tokens.SECRETO_K1, "u1", "Cliente", AHORA + 60)));
+        assertNull(verificador.verificar(Tokens.firmar("k1", Tokens.SECRETO_K2, "u1", "Cliente", AHORA + 60)));
+        assertNull(verificador.verificar("k1.basura"));
+        assertNull(verificador.verificar("k1.%%%.%%%"));
+        assertEquals(0, verificador.enCache());
+    }
+
+    @Test
+    @DisplayName("Debe aceptar tokens de la clave vieja y de la nueva durante una rotación")
+    void debeAceptarAmbasClavesDuranteRotacion() {
+        // Given
+        VerificadorTokens rotando = new VerificadorTokens(
+            Tokens.config(false, Map.of("k1", Tokens.SECRETO_K1, "k2", Tokens.SECRETO_K2)), RELOJ);
+
+        // When & Then
+        assertNotNull(rotando.verificar(Tokens.firmar("k1", Tokens.SECRETO_K1, "u1", "Cliente", AHORA + 60)));
+        assertNotNull(rotando.verificar(Tokens.firmar("k2", Tokens.SECRETO_K2, "u1", "Cliente", AHORA + 60)));
+    }
+
+    @Test
+    @DisplayName("Debe recordar el token verificado y soltarlo cuando vence")
+    void debeRecordarTokenHastaQueVence() {
+        // Given
+        String token = Tokens.firmar("k1", Tokens.SECRETO_K1, "u1", "Cliente", AHORA + 60);
+        TokenAcceso primero = verificador.verificar(token);
+
+        // When
+        TokenAcceso segundo = verificador.verificar(new String(token));
+        VerificadorTokens despues = new VerificadorTokens(Tokens.config(false, Map.of("k1", Tokens.SECRETO_K1)),
+            Clock.offset(RELOJ, Duration.ofSeconds(61)));
+
+        // Then
+        assertEquals(1, verificador.enCache());
+        assertEquals(primero, segundo);
+        assertNull(despues.verificar(token));
+        assertEquals(0, despues.enCache());
+    }
+
+    @Test
+    @DisplayName("Debe verificar desde el encabezado completo sin recortarlo")
+    void debeVerificarDesdeEncabezado() {
+        // Given
+        String token = Tokens.firmar("k1", Tokens.SECRETO_K1, "u1", "Cliente", AHORA + 60);
+
+        // When
+        TokenAcceso acceso = verificador.verificar("Bearer " + token, "Bearer ".length());
+
+        // Then
+        assertNotNull(acceso);
+        assertEquals("u1", acceso.usuarioId());
+    }
+
+    @Test
+    @DisplayName("Debe fallar al iniciar si no hay claves configuradas o alguna está vacía")
+    void debeFallarAlIniciarSinClaves() {
+        ApplicationContextRunner contexto = new ApplicationContextRunner()
+            .withUserConfiguration(ConfigTokens.class);
+
+        // When & Then
+        contexto.run(iniciado -> assertNotNull(iniciado.getStartupFailure()));
+        contexto.withPropertyValues("appvet.tokens.claves.k1=")
+            .run(iniciado -> assertNotNull(iniciado.getStartupFailure()));
+        contexto.withPropertyValues("appvet.tokens.claves.k1=" + Tokens.SECRETO_K1 + "")
+            .run(iniciado -> assertNull(iniciado.getStartupFailure()));
+    }
+
+    @EnableConfigurationProperties(TokensProperties.class)
+    static class ConfigTokens {
+    }
+}
@@ -0,0 +1,81 @@
+package com.appvet.horas.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.appvet.horas.config.AgendaProperties;
+import com.appvet.horas.model.HoraAgendada;
+
+// Altas con id del cliente que llegan a la vez: ninguna debe esperar ni fallar por la otra
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("Altas concurrentes con id del cliente")
+class AltasConcurrentesTest {
+
+    private static final int PARES = 10;
+    private static final String USUARIO = "altas-user";
+
+    @Autowired
+    private HoraAgendadaService horaAgendadaService;
+
+    @Autowired
+    private ContadorHoras contadorHoras;
+
+    @Autowired
+    private AgendaProperties agenda;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Debe crear las dos horas cuando dos altas con ids nuevos llegan a la vez")
+    void debeCrearAmbasHorasConIdsNuevos() throws Exception {
+        // Given: pares de ids contiguos (mismo hueco del índice), en horarios que no chocan
+        jdbcTemplate.update("DELETE FROM horas_agendadas WHERE usuario_id = ?", USUARIO);
+        contadorHoras.reconciliar();
+        long fecha = agenda.inicioDe(agenda.hoy().plusDays(40));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            for (int par = 0; par < PARES; par++) {
+                CountDownLatch largada = new CountDownLatch(1);
+                List<Future<HoraAgendada>> tareas = new ArrayList<>();
+                for (int lado = 0; lado < 2; lado++) {
+                    HoraAgendada hora = new HoraAgendada("altas-" + par + "-" + lado, fecha + par * 86_400_000L,
+                        9 + lado, 0, "Control", USUARIO);
+                    tareas.add(executor.submit(() -> {
+                        largada.await();
+                        return horaAgendadaService.guardar(hora);
+                    }));
+                }
+
+                // When
+                largada.countDown();
+                for (Future<HoraAgendada> tarea : tareas) {
+                    tarea.get();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        assertEquals(PARES * 2, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM horas_agendadas WHERE usuario_id = ?", Integer.class, USUARIO));
+        assertEquals(PARES * 2L, contadorHoras.contarPorUsuario(USUARIO).orElseThrow());
+        jdbcTemplate.update("DELETE FROM horas_agendadas WHERE usuario_id = ?", USUARIO);
+        contadorHoras.reconciliar();
+    }
+}
@@ -0,0 +1,105 @@
+package com.appvet.horas.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+// Mide el p99 de las lecturas de todos los días (lista de un usuario y primera página de las
+// Pendientes) antes y después de archivar, con el 90% de la tabla en horas antiguas terminadas.
+// Ejecutar con: mvn test -Dgroups=benchmark -DexcludedGroups= -Dbenchmark.filas=10000000
+@Tag("benchmark")
+@SpringBootTest(properties = "appvet.horas.archivo.pausa-entre-lotes=0ms")
+@ActiveProfiles("h2")
+@DisplayName("Benchmark de lecturas antes y después del archivado")
+class ArchivoBenchmarkTest {
+
+    private static final long FECHA_BASE = 1_609_459_200_000L; // 2021-01-01T00:00:00Z
+    private static final long DIA = 86_400_000L;
+    private static final int HORAS_POR_DIA = 40;
+    private static final int USUARIOS = 1_000;
+    private static final int CONSULTAS = 500;
+
+    @Autowired
+    private ArchivoHoras archivoHoras;
+
+    @Autowired
+    private HoraAgendadaService horaAgendadaService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Las lecturas no empeoran al sacar las horas antiguas de la tabla de trabajo")
+    void lecturasNoEmpeoranTrasArchivar() {
+        int filas = Integer.parseInt(System.getProperty("benchmark.filas", "200000"));
+        jdbcTemplate.update("DELETE FROM horas_agendadas");
+        jdbcTemplate.update("DELETE FROM horas_agendadas_historico");
+        insertarFilas(filas);
+        // Todo lo del primer 90% del calendario queda antes del corte
+        long corte = fechaDe(filas * 9 / 10);
+
+        double usuarioAntes = medirP99(u -> horaAgendadaService.obtenerPorUsuario("u" + u));
+        double pendientesAntes = medirP99(u -> horaAgendadaService.obtenerPorEstado("Pendiente", null, 50));
+        long inicio = System.nanoTime();
+        int archivadas = archivoHoras.archivarAnterioresA(corte);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        double usuarioDespues = medirP99(u -> horaAgendadaService.obtenerPorUsuario("u" + u));
+        double pendientesDespues = medirP99(u -> horaAgendadaService.obtenerPorEstado("Pendiente", null, 50));
+
+        System.out.printf("filas=%,d archivadas=%,d en %.1f s%n", filas, archivadas, segundos);
+        System.out.printf("por usuario: p99 %.3f ms -> %.3f ms%n", usuarioAntes, usuarioDespues);
+        System.out.printf("pendientes:  p99 %.3f ms -> %.3f ms%n", pendientesAntes, pendientesDespues);
+        // Holgura para el ruido del JIT y de H2
+        assertTrue(usuarioDespues <= usuarioAntes * 1.5 + 1, "La lista por usuario empeoró al archivar");
+        assertTrue(pendientesDespues <= pendientesAntes * 1.5 + 1, "La página de pendientes empeoró al archivar");
+    }
+
+    private double medirP99(IntConsumer consulta) {
+        Random random = new Random(42);
+        for (int i = 0; i < CONSULTAS / 5; i++) {
+            consulta.accept(random.nextInt(USUARIOS));
+        }
+        List<Long> tiempos = new ArrayList<>(CONSULTAS);
+        for (int i = 0; i < CONSULTAS; i++) {
+            int usuario = random.nextInt(USUARIOS);
+            long inicio = System.nanoTime();
+            consulta.accept(usuario);
+            tiempos.add(System.nanoTime() - inicio);
+        }
+        tiempos.sort(null);
+        return tiempos.get((int) Math.ceil(CONSULTAS * 0.99) - 1) / 1_000_000.0;
+    }
+
+    // Las horas antiguas quedan Completadas o Canceladas; el último 10% del calendario, Pendiente
+    private void insertarFilas(int filas) {
+        List<Object[]> lote = new ArrayList<>();
+        int recientes = filas * 9 / 10;
+        for (int i = 0; i < filas; i++) {
+            int enElDia = i % HORAS_POR_DIA;
+            String estado = i >= recientes ? "Pendiente" : (i % 5 == 0 ? "Cancelada" : "Completada");
+            lote.add(new Object[] {
+                String.format("a-%010d", i), fechaDe(i), 8 + enElDia / 4, (enElDia % 4) * 15, "u" + (i % USUARIOS), estado
+            });
+            if (lote.size() == 5_000 || i == filas - 1) {
+                jdbcTemplate.batchUpdate(
+                    "INSERT INTO horas_agendadas (id, fecha, hora, minuto, tipo, usuario_id, estado) "
+                        + "VALUES (?, ?, ?, ?, 'Control', ?, ?)", lote);
+                lote.clear();
+            }
+        }
+    }
+
+    private static long fechaDe(int fila) {
+        return FECHA_BASE + (fila / HORAS_POR_DIA) * DIA;
+    }
+}
@@ -0,0 +1,101 @@
+package com.appvet.horas.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.appvet.horas.dto.HoraResumen;
+import com.appvet.horas.dto.Pagina;
+
+// Archivado real contra H2, con lotes de 3 filas para que una pasada recorra varios lotes
+@SpringBootTest(properties = {
+    "appvet.horas.archivo.filas-por-lote=3",
+    "appvet.horas.archivo.pausa-entre-lotes=0ms"
+})
+@ActiveProfiles("h2")
+@DisplayName("Tests para ArchivoHoras")
+class ArchivoHorasTest {
+
+    private static final long FECHA_ANTIGUA = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    private static final long FECHA_RECIENTE = 1_767_225_600_000L; // 2026-01-01T00:00:00Z
+    private static final long CORTE = 1_735_689_600_000L; // 2025-01-01T00:00:00Z
+    private static final String USUARIO = "archivo-user";
+
+    @Autowired
+    private ArchivoHoras archivoHoras;
+
+    @Autowired
+    private HoraAgendadaService horaAgendadaService;
+
+    @Autowired
+    private ContadorHoras contadorHoras;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Debe mover solo las horas terminadas y antiguas, en varios lotes")
+    void debeMoverSoloHorasTerminadasYAntiguas() {
+        // Given: 7 antiguas terminadas, una antigua Pendiente y una reciente Completada
+        limpiar();
+        List<String> antiguas = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            String id = "archivo-" + i;
+            insertar(id, FECHA_ANTIGUA + i * 60_000L, i % 2 == 0 ? "Completada" : "Cancelada");
+            antiguas.add(id);
+        }
+        insertar("archivo-pendiente", FECHA_ANTIGUA, "Pendiente");
+        insertar("archivo-reciente", FECHA_RECIENTE, "Completada");
+        contadorHoras.reconciliar();
+
+        // When
+        int archivadas = archivoHoras.archivarAnterioresA(CORTE);
+
+        // Then
+        assertEquals(7, archivadas);
+        assertEquals(List.of("archivo-pendiente", "archivo-reciente"), jdbcTemplate.queryForList(
+            "SELECT id FROM horas_agendadas WHERE usuario_id = ? ORDER BY id", String.class, USUARIO));
+        assertEquals(antiguas, jdbcTemplate.queryForList(
+            "SELECT id FROM horas_agendadas_historico WHERE usuario_id = ? ORDER BY id", String.class, USUARIO));
+        assertEquals(2L, contadorHoras.contarPorUsuario(USUARIO).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Debe seguir encontrando las horas archivadas si se incluye el histórico")
+    void debeEncontrarHorasArchivadasConHistorico() {
+        // Given
+        limpiar();
+        insertar("archivo-vieja", FECHA_ANTIGUA, "Completada");
+        insertar("archivo-nueva", FECHA_RECIENTE, "Pendiente");
+        archivoHoras.archivarAnterioresA(CORTE);
+
+        // When
+        Pagina<HoraResumen> sinHistorico = horaAgendadaService.obtenerPorUsuario(USUARIO, null, 10);
+        Pagina<HoraResumen> conHistorico = horaAgendadaService.obtenerPorUsuario(USUARIO, null, 10, true);
+
+        // Then
+        assertEquals(List.of("archivo-nueva"), sinHistorico.items().stream().map(HoraResumen::id).toList());
+        assertEquals(List.of("archivo-vieja", "archivo-nueva"),
+            conHistorico.items().stream().map(HoraResumen::id).toList());
+        assertTrue(horaAgendadaService.obtenerPorId("archivo-vieja").isEmpty());
+        assertEquals("Completada", horaAgendadaService.obtenerPorId("archivo-vieja", true).orElseThrow().getEstado());
+    }
+
+    private void limpiar() {
+        jdbcTemplate.update("DELETE FROM horas_agendadas WHERE id LIKE 'archivo-%'");
+        jdbcTemplate.update("DELETE FROM horas_agendadas_historico WHERE id LIKE 'archivo-%'");
+    }
+
+    private void insertar(String id, long fecha, String estado) {
+        jdbcTemplate.update("INSERT INTO horas_agendadas (id, fecha, hora, minuto, tipo, usuario_id, estado) "
+            + "VALUES (?, ?, 10, 0, 'Control', ?, ?)", id, fecha, USUARIO, estado);
+    }
+}
@@ -0,0 +1,136 @@
+package com.appvet.horas.service;
+
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.appvet.horas.dto.ConteoPorClave;
+import com.appvet.horas.repository.HoraAgendadaRepository;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests para ContadorHoras")
+class ContadorHorasTest {
+
+    @Mock
+    private HoraAgendadaRepository horaAgendadaRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ContadorHoras contadorHoras;
+
+    @BeforeEach
+    void setUp() {
+        contadorHoras = new ContadorHoras(horaAgendadaRepository, transactionManager);
+    }
+
+    private void cargar(List<ConteoPorClave> usuarios, List<ConteoPorClave> estados) {
+        when(horaAgendadaRepository.contarPorUsuarioAgrupado()).thenReturn(usuarios);
+        when(horaAgendadaRepository.contarPorEstadoAgrupado()).thenReturn(estados);
+        contadorHoras.reconciliar();
+    }
+
+    @Test
+    @DisplayName("No debe responder antes de la carga inicial")
+    void noDebeResponderAntesDeLaCargaInicial() {
+        assertTrue(contadorHoras.contarPorUsuario("user1").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debe ajustar los contadores con cada alta, baja y cambio de estado")
+    void debeAjustarContadores() {
+        // Given
+        cargar(List.of(new ConteoPorClave("user1", 2)), List.of(new ConteoPorClave("Pendiente", 2)));
+
+        // When
+        contadorHoras.alta("user1", "Pendiente");
+        contadorHoras.alta("user2", null);
+        contadorHoras.baja("user1", "Pendiente");
+        contadorHoras.cambioEstado("Pendiente", "Completada", 1);
+
+        // Then
+        assertEquals(OptionalLong.of(2), contadorHoras.contarPorUsuario("user1"));
+        assertEquals(OptionalLong.of(1), contadorHoras.contarPorUsuario("user2"));
+        assertEquals(OptionalLong.of(0), contadorHoras.contarPorUsuario("user3"));
+        assertEquals(OptionalLong.of(1), contadorHoras.contarPorEstado("Pendiente"));
+        assertEquals(OptionalLong.of(1), contadorHoras.contarPorEstado("Completada"));
+        assertEquals(OptionalLong.of(1), contadorHoras.contarPorEstado(null));
+    }
+
+    @Test
+    @DisplayName("Debe aplicar los ajustes de una transacción solo si confirma")
+    void debeAplicarAjustesSoloSiConfirma() {
+        // Given
+        cargar(List.of(new ConteoPorClave("user1", 1)), List.of());
+
+        // When
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            contadorHoras.alta("user1", "Pendiente");
+            assertEquals(OptionalLong.of(1), contadorHoras.contarPorUsuario("user1"));
+            TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.beforeCommit(false));
+            TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            contadorHoras.alta("user1", "Pendiente");
+            TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Then
+        assertEquals(OptionalLong.of(2), contadorHoras.contarPorUsuario("user1"));
+    }
+
+    @Test
+    @DisplayName("Debe corregir diferencias al reconciliar contra la base")
+    void debeCorregirDiferenciasAlReconciliar() {
+        // Given
+        cargar(List.of(new ConteoPorClave("user1", 5), new ConteoPorClave("user2", 1)), List.of());
+        contadorHoras.alta("user1", "Pendiente");
+
+        // When
+        cargar(List.of(new ConteoPorClave("user1", 4)), List.of(new ConteoPorClave("Pendiente", 4)));
+
+        // Then
+        assertEquals(OptionalLong.of(4), contadorHoras.contarPorUsuario("user1"));
+        assertEquals(OptionalLong.of(0), contadorHoras.contarPorUsuario("user2"));
+        assertEquals(OptionalLong.of(4), contadorHoras.contarPorEstado("Pendiente"));
+    }
+
+    @Test
+    @DisplayName("Debe conservar lo confirmado mientras corren los GROUP BY de la reconciliación")
+    void debeConservarLoConfirmadoDuranteLaReconciliacion() {
+        // Given: un alta confirma después de la foto, mientras se agrupa (y sin esperar al cerrojo)
+        cargar(List.of(new ConteoPorClave("user1", 2)), List.of(new ConteoPorClave("Pendiente", 2)));
+        when(horaAgendadaRepository.contarPorUsuarioAgrupado()).thenAnswer(invocacion -> {
+            contadorHoras.alta("user1", "Pendiente");
+            return List.of(new ConteoPorClave("user1", 2));
+        });
+
+        // When
+        contadorHoras.reconciliar();
+
+        // Then: la foto no la incluye, pero el contador sí
+        assertEquals(OptionalLong.of(3), contadorHoras.contarPorUsuario("user1"));
+        assertEquals(OptionalLong.of(3), contadorHoras.contarPorEstado("Pendiente"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.appvet.horas.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.appvet.horas.model.HoraAgendada;
+
+// Altas, cambios de estado y bajas concurrentes mientras otro hilo reconcilia sin parar:
+// al terminar, los contadores en memoria deben calzar exactamente con COUNT(*) en la base
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("Stress de contadores concurrentes")
+class ContadoresConcurrentesStressTest {
+
+    private static final int OPERACIONES = 1_500;
+    private static final int HILOS = 16;
+    private static final String[] ESTADOS = {"Pendiente", "Confirmada", "Completada", "Cancelada"};
+
+    @Autowired
+    private HoraAgendadaService horaAgendadaService;
+
+    @Autowired
+    private ContadorHoras contadorHoras;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Los contadores calzan con la base tras escrituras concurrentes")
+    void losContadoresCalzanConLaBase() throws Exception {
+        // Given
+        jdbcTemplate.update("DELETE FROM horas_agendadas WHERE id LIKE 'contador-%'");
+        contadorHoras.reconciliar();
+        AtomicBoolean terminado = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS + 1);
+        Future<?> reconciliador = executor.submit(() -> {
+            while (!terminado.get()) {
+                contadorHoras.reconciliar();
+            }
+        });
+
+        // When
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < OPERACIONES; i++) {
+            int n = i;
+            tareas.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                // Sin fecha, para no pasar por el índice de ocupación
+                String id = "contador-" + random.nextInt(OPERACIONES / 3);
+                try {
+                    switch (n % 3) {
+                        case 0 -> horaAgendadaService.guardar(
+                            new HoraAgendada(id, null, 10, 0, "Control", "contador-user-" + random.nextInt(10)));
+                        case 1 -> horaAgendadaService.cambiarEstado(id, ESTADOS[random.nextInt(ESTADOS.length)]);
+                        default -> horaAgendadaService.eliminar(id);
+                    }
+                } catch (RuntimeException e) {
+                    // Hora inexistente o choque de inserción con otro hilo: la transacción no confirma
+                }
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        terminado.set(true);
+        reconciliador.get();
+        executor.shutdown();
+
+        // Then
+        for (Map<String, Object> fila : jdbcTemplate.queryForList(
+                "SELECT usuario_id, COUNT(*) AS cantidad FROM horas_agendadas GROUP BY usuario_id")) {
+            assertEquals(((Number) fila.get("cantidad")).longValue(),
+                contadorHoras.contarPorUsuario((String) fila.get("usuario_id")).orElseThrow(),
+                "Usuario " + fila.get("usuario_id"));
+        }
+        for (Map<String, Object> fila : jdbcTemplate.queryForList(
+                "SELECT estado, COUNT(*) AS cantidad FROM horas_agendadas GROUP BY estado")) {
+            assertEquals(((Number) fila.get("cantidad")).longValue(),
+                contadorHoras.contarPorEstado((String) fila.get("estado")).orElseThrow(),
+                "Estado " + fila.get("estado"));
+        }
+        jdbcTemplate.update("DELETE FROM horas_agendadas WHERE id LIKE 'contador-%'");
+    }
+}
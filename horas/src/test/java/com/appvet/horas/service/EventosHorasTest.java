@@ -0,0 +1,295 @@
+package com.appvet.horas.service;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import com.appvet.horas.config.AgendaProperties;
+
+@DisplayName("Tests para EventosHoras")
+class EventosHorasTest {
+
+    // Cola de 3 eventos por conexión, historial de 2 por usuario y 200 ms por escritura
+    private static final AgendaProperties AGENDA = new AgendaProperties(ZoneId.of("America/Santiago"), 30,
+        new AgendaProperties.Jornada(LocalTime.of(8, 0), LocalTime.of(20, 0), 15),
+        new AgendaProperties.Ocupacion(false, 365), new AgendaProperties.Recordatorios(60, 48),
+        new AgendaProperties.Eventos(3, 2, Duration.ofMinutes(5), Duration.ofMinutes(30), 1,
+            Duration.ofMillis(200)), null);
+
+    private static final Pattern ID = Pattern.compile("id:(\\S+)");
+
+    private final ObjectMapper objectMapper = spy(JsonMapper.builder().findAndAddModules().build());
+    private final List<EmisorDePrueba> emisores = new ArrayList<>();
+
+    @Test
+    @DisplayName("Debe enviar cada cambio solo a las conexiones de su usuario")
+    void debeEnviarCambiosSoloAConexionesDelUsuario() {
+        // Given
+        EventosHoras eventos = eventos(Runnable::run);
+        eventos.suscribir("u1", null);
+        eventos.suscribir("u1", null);
+        eventos.suscribir("u2", null);
+
+        // When
+        eventos.estadoCambiado("u1", "h1", "Completada");
+
+        // Then
+        assertEquals(1, emisores.get(0).enviados.size());
+        assertEquals(1, emisores.get(1).enviados.size());
+        assertTrue(emisores.get(2).enviados.isEmpty());
+        String enviado = emisores.get(0).enviados.get(0);
+        assertTrue(enviado.contains("event:estado"));
+        assertTrue(enviado.contains("{\"id\":\"h1\",\"estado\":\"Completada\"}"));
+    }
+
+    @Test
+    @DisplayName("No debe serializar eventos de usuarios sin conexiones")
+    void noDebeSerializarEventosDeUsuariosSinConexiones() throws Exception {
+        // Given
+        EventosHoras eventos = eventos(Runnable::run);
+        eventos.suscribir("u1", null);
+
+        // When
+        eventos.eliminada("u2", "h1");
+
+        // Then
+        verify(objectMapper, never()).writeValueAsString(any());
+        assertFalse(eventos.escuchando("u2"));
+    }
+
+    @Test
+    @DisplayName("Debe reenviar lo que faltó al reanudar con Last-Event-ID")
+    void debeReenviarLoQueFaltoAlReanudar() {
+        // Given
+        EventosHoras eventos = eventos(Runnable::run);
+        eventos.suscribir("u1", null);
+        eventos.eliminada("u1", "h1");
+        eventos.eliminada("u1", "h2");
+        eventos.eliminada("u1", "h3");
+        String primero = idDe(emisores.get(0).enviados.get(0));
+
+        // When
+        eventos.suscribir("u1", primero);
+
+        // Then
+        List<String> reenviados = emisores.get(1).enviados;
+        assertEquals(2, reenviados.size());
+        assertTrue(reenviados.get(0).contains("h2"));
+        assertTrue(reenviados.get(1).contains("h3"));
+    }
+
+    @Test
+    @DisplayName("Debe pedir reinicio si lo que falta ya no está o el id es de otra instancia")
+    void debePedirReinicioSiNoPuedeReanudar() {
+        // Given
+        EventosHoras eventos = eventos(Runnable::run);
+        eventos.suscribir("u1", null);
+        for (int i = 1; i <= 4; i++) {
+            eventos.eliminada("u1", "h" + i);
+        }
+        String primero = idDe(emisores.get(0).enviados.get(0));
+
+        // When
+        eventos.suscribir("u1", primero);
+        eventos.suscribir("u1", "otra-3");
+
+        // Then
+        assertEquals(1, emisores.get(1).enviados.size());
+        assertTrue(emisores.get(1).enviados.get(0).contains("event:reinicio"));
+        assertTrue(emisores.get(2).enviados.get(0).contains("event:reinicio"));
+    }
+
+    @Test
+    @DisplayName("Debe cortar la conexión que no alcanza a recibir sus eventos")
+    void debeCortarConexionLenta() {
+        // Given: el despacho nunca corre, así que la cola no se vacía
+        List<Runnable> pendientes = new ArrayList<>();
+        EventosHoras eventos = eventos(pendientes::add);
+        eventos.suscribir("u1", null);
+
+        // When
+        for (int i = 1; i <= 3; i++) {
+            eventos.eliminada("u1", "h" + i);
+        }
+        boolean cortadaConTres = emisores.get(0).completado;
+        eventos.eliminada("u1", "h4");
+        pendientes.forEach(Runnable::run);
+
+        // Then
+        assertFalse(cortadaConTres);
+        assertTrue(emisores.get(0).completado);
+        assertTrue(emisores.get(0).enviados.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Debe seguir entregando a los demás cuando una conexión se traba al escribir")
+    void debeSeguirEntregandoConUnaConexionTrabada() throws Exception {
+        // Given: un solo hilo de despacho y un cliente que no lee, ni siquiera si lo interrumpen
+        CountDownLatch soltar = new CountDownLatch(1);
+        ThreadPoolExecutor despacho = EventosHoras.poolDespacho(1);
+        List<SseEmitter> creados = new ArrayList<>();
+        EventosHoras eventos = new EventosHoras(objectMapper, AGENDA, despacho, timeout -> {
+            SseEmitter emisor = creados.isEmpty() ? new EmisorTrabado(timeout, soltar) : new EmisorDePrueba(timeout);
+            creados.add(emisor);
+            return emisor;
+        });
+        eventos.suscribir("u1", null);
+        eventos.suscribir("u2", null);
+        EmisorTrabado trabado = (EmisorTrabado) creados.get(0);
+        EmisorDePrueba sano = (EmisorDePrueba) creados.get(1);
+
+        try {
+            // When
+            eventos.eliminada("u1", "h1");
+            assertTrue(trabado.escribiendo.await(5, TimeUnit.SECONDS));
+            eventos.eliminada("u2", "h2");
+            eventos.eliminada("u2", "h3");
+
+            // Then: u2 recibe aunque el único hilo original siga atascado con u1
+            assertTrue(esperar(() -> sano.enviados.size() == 2));
+            assertTrue(sano.enviados.get(1).contains("h3"));
+            assertEquals(1, soltar.getCount());
+            assertFalse(trabado.completado);
+
+            // Al destrabarse, la conexión cortada se completa y el hilo extra se devuelve
+            soltar.countDown();
+            assertTrue(esperar(() -> trabado.completado));
+            assertTrue(esperar(() -> despacho.getCorePoolSize() == 1));
+            eventos.eliminada("u1", "h4");
+            assertEquals(1, trabado.intentos.get());
+        } finally {
+            soltar.countDown();
+            eventos.cerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Debe sostener 50.000 conexiones inactivas con un latido cada una")
+    void debeSostenerCincuentaMilConexionesInactivas() {
+        // Given
+        EventosHoras eventos = eventos(Runnable::run);
+        for (int i = 0; i < 50_000; i++) {
+            eventos.suscribir("u" + i, null);
+        }
+
+        // When
+        eventos.latir();
+
+        // Then
+        assertEquals(50_000, eventos.conexiones());
+        assertTrue(emisores.stream().allMatch(emisor -> emisor.enviados.size() == 1));
+        assertTrue(emisores.get(0).enviados.get(0).startsWith(":latido"));
+    }
+
+    private EventosHoras eventos(Executor despacho) {
+        return new EventosHoras(objectMapper, AGENDA, despacho, timeout -> {
+            EmisorDePrueba emisor = new EmisorDePrueba(timeout);
+            emisores.add(emisor);
+            return emisor;
+        });
+    }
+
+    private static boolean esperar(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condicion.getAsBoolean()) {
+            if (System.nanoTime() > limite) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static String idDe(String enviado) {
+        Matcher matcher = ID.matcher(enviado);
+        assertTrue(matcher.find());
+        return matcher.group(1);
+    }
+
+    // Guarda lo enviado en texto en vez de escribirlo en una respuesta
+    private static final class EmisorDePrueba extends SseEmitter {
+
+        private final List<String> enviados = Collections.synchronizedList(new ArrayList<>(1));
+        private volatile boolean completado;
+
+        private EmisorDePrueba(Long timeout) {
+            super(timeout);
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> datos) {
+            enviados.add(datos.stream().map(dato -> String.valueOf(dato.getData())).collect(Collectors.joining()));
+        }
+
+        @Override
+        public void complete() {
+            completado = true;
+        }
+    }
+
+    // Un cliente que no lee: la escritura queda esperando hasta que se lo suelte, como un socket
+    // con el buffer lleno, y no responde a interrupciones
+    private static final class EmisorTrabado extends SseEmitter {
+
+        private final CountDownLatch soltar;
+        private final CountDownLatch escribiendo = new CountDownLatch(1);
+        private final AtomicInteger intentos = new AtomicInteger();
+        private volatile boolean completado;
+
+        private EmisorTrabado(Long timeout, CountDownLatch soltar) {
+            super(timeout);
+            this.soltar = soltar;
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> datos) {
+            intentos.incrementAndGet();
+            escribiendo.countDown();
+            boolean interrumpido = false;
+            while (true) {
+                try {
+                    soltar.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrumpido = true;
+                }
+            }
+            if (interrumpido) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void complete() {
+            completado = true;
+        }
+    }
+}
@@ -1,8 +1,21 @@
 package com.appvet.horas.service;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -16,16 +29,42 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import static org.mockito.Mockito.doNothing;
+import org.mockito.Spy;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import com.appvet.horas.config.AgendaProperties;
+import com.appvet.horas.dto.CalendarioMes;
+import com.appvet.horas.dto.ClaveConteo;
+import com.appvet.horas.dto.ConteoAgenda;
+import com.appvet.horas.dto.DiaCalendario;
+import com.appvet.horas.dto.HoraArchivable;
+import com.appvet.horas.dto.HoraDeUsuario;
+import com.appvet.horas.dto.HoraResumen;
+import com.appvet.horas.dto.Pagina;
+import com.appvet.horas.dto.PorIds;
+import com.appvet.horas.dto.ResultadoLote;
+import com.appvet.horas.exception.HorarioNoDisponibleException;
+import com.appvet.horas.exception.VersionNoCoincideException;
 import com.appvet.horas.model.HoraAgendada;
+import com.appvet.horas.model.HoraAgendadaHistorica;
+import com.appvet.horas.repository.HoraAgendadaHistoricoRepository;
 import com.appvet.horas.repository.HoraAgendadaRepository;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,6 +74,35 @@ class HoraAgendadaServiceImplTest {
     @Mock
     private HoraAgendadaRepository horaAgendadaRepository;
 
+    @Mock
+    private HoraAgendadaHistoricoRepository horaAgendadaHistoricoRepository;
+
+    @Mock
+    private OcupacionIndex ocupacionIndex;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ContadorHoras contadorHoras;
+
+    @Mock
+    private RecordatorioHoras recordatorioHoras;
+
+    @Mock
+    private EventosHoras eventosHoras;
+
+    @Spy
+    private ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @Spy
+    private AgendaProperties agenda = new AgendaProperties(ZoneId.of("America/Santiago"), 30,
+        new AgendaProperties.Jornada(LocalTime.of(8, 0), LocalTime.of(20, 0), 15),
+        new AgendaProperties.Ocupacion(false, 365), new AgendaProperties.Recordatorios(60, 48), null, null);
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @InjectMocks
     private HoraAgendadaServiceImpl horaAgendadaService;
 
@@ -51,7 +119,7 @@ class HoraAgendadaServiceImplTest {
             30, // minuto
             "Consulta General",
             usuarioId,
-            mascotaId, mascotaId, mascotaId, null, null
+            mascotaId, mascotaId, mascotaId, null, null, null
         );
     }
 
@@ -61,7 +129,7 @@ class HoraAgendadaServiceImplTest {
         // Given
         List<HoraAgendada> horas = Arrays.asList(
             horaAgendadaTest,
-            new HoraAgendada("2", System.currentTimeMillis(), 15, 0, "Vacunación", usuarioId, mascotaId, mascotaId, mascotaId, null, null)
+            new HoraAgendada("2", System.currentTimeMillis(), 15, 0, "Vacunación", usuarioId, mascotaId, mascotaId, mascotaId, null, null, null)
         );
         when(horaAgendadaRepository.findAll()).thenReturn(horas);
 
@@ -107,13 +175,48 @@ class HoraAgendadaServiceImplTest {
         verify(horaAgendadaRepository, times(1)).findById("999");
     }
 
+    @Test
+    @DisplayName("Debe devolver las horas en el orden pedido, buscando en el histórico solo las que faltan")
+    void debeObtenerPorIdsEnOrdenConHistorico() {
+        // Given
+        HoraAgendada otra = new HoraAgendada("3", System.currentTimeMillis(), 9, 0, "Control", usuarioId);
+        when(horaAgendadaRepository.findAllById(List.of("3", "1", "9", "7")))
+            .thenReturn(List.of(horaAgendadaTest, otra));
+        when(horaAgendadaHistoricoRepository.findAllById(List.of("9", "7")))
+            .thenReturn(List.of(historica("9", horaAgendadaTest.getFecha(), 10)));
+
+        // When
+        PorIds<HoraAgendada> resultado = horaAgendadaService.obtenerPorIds(List.of("3", "1", "9", "3", "7"), true);
+
+        // Then
+        assertEquals(List.of("3", "1", "9"), resultado.encontrados().stream().map(HoraAgendada::getId).toList());
+        assertEquals(List.of("7"), resultado.faltantes());
+    }
+
+    @Test
+    @DisplayName("Debe partir una lista larga de ids en una consulta cada mil")
+    void debePartirListaLargaDeIds() {
+        // Given
+        List<String> ids = IntStream.range(0, 2500).mapToObj(i -> "h" + i).toList();
+        when(horaAgendadaRepository.findAllById(any())).thenReturn(List.of());
+
+        // When
+        PorIds<HoraAgendada> resultado = horaAgendadaService.obtenerPorIds(ids, false);
+
+        // Then
+        verify(horaAgendadaRepository, times(3)).findAllById(any());
+        verify(horaAgendadaHistoricoRepository, never()).findAllById(any());
+        assertEquals(ids, resultado.faltantes());
+        assertTrue(resultado.encontrados().isEmpty());
+    }
+
     @Test
     @DisplayName("Debe obtener horas agendadas por usuario")
     void debeObtenerHorasAgendadasPorUsuario() {
         // Given
         List<HoraAgendada> horas = Arrays.asList(
             horaAgendadaTest,
-            new HoraAgendada("2", System.currentTimeMillis(), 16, 0, "Control", usuarioId, mascotaId, mascotaId, mascotaId, null, null)
+            new HoraAgendada("2", System.currentTimeMillis(), 16, 0, "Control", usuarioId, mascotaId, mascotaId, mascotaId, null, null, null)
         );
         when(horaAgendadaRepository.findByUsuarioId(usuarioId)).thenReturn(horas);
 
@@ -133,7 +236,7 @@ class HoraAgendadaServiceImplTest {
         // Given
         List<HoraAgendada> horas = Arrays.asList(
             horaAgendadaTest,
-            new HoraAgendada("2", System.currentTimeMillis(), 10, 0, "Vacunación", usuarioId, mascotaId, mascotaId, mascotaId, null, null)
+            new HoraAgendada("2", System.currentTimeMillis(), 10, 0, "Vacunación", usuarioId, mascotaId, mascotaId, mascotaId, null, null, null)
         );
         when(horaAgendadaRepository.findByMascotaId(mascotaId)).thenReturn(horas);
 
@@ -153,7 +256,7 @@ class HoraAgendadaServiceImplTest {
         // Given
         List<HoraAgendada> horasPendientes = Arrays.asList(
             horaAgendadaTest,
-            new HoraAgendada("2", System.currentTimeMillis(), 11, 0, "Control", usuarioId, mascotaId, mascotaId, mascotaId, null, null)
+            new HoraAgendada("2", System.currentTimeMillis(), 11, 0, "Control", usuarioId, mascotaId, mascotaId, mascotaId, null, null, null)
         );
         when(horaAgendadaRepository.findByEstado("Pendiente")).thenReturn(horasPendientes);
 
@@ -172,7 +275,7 @@ class HoraAgendadaServiceImplTest {
         // Given
         List<HoraAgendada> consultas = Arrays.asList(
             horaAgendadaTest,
-            new HoraAgendada("2", System.currentTimeMillis(), 9, 0, "Consulta General", "user456", "pet789", mascotaId, mascotaId, null, null)
+            new HoraAgendada("2", System.currentTimeMillis(), 9, 0, "Consulta General", "user456", "pet789", mascotaId, mascotaId, null, null, null)
         );
         when(horaAgendadaRepository.findByTipo("Consulta General")).thenReturn(consultas);
 
@@ -203,6 +306,39 @@ class HoraAgendadaServiceImplTest {
         assertEquals(usuarioId, resultado.getUsuarioId());
         assertEquals(mascotaId, resultado.getMascotaId());
         verify(horaAgendadaRepository, times(1)).save(horaAgendadaTest);
+        verify(eventosHoras, times(1)).creada(horaAgendadaTest);
+    }
+
+    @Test
+    @DisplayName("No debe bloquear el id del cliente cuando la hora todavía no existe")
+    void noDebeBloquearIdDelClienteQueNoExiste() {
+        // Given
+        when(horaAgendadaRepository.existsById("1")).thenReturn(false);
+        when(horaAgendadaRepository.save(horaAgendadaTest)).thenReturn(horaAgendadaTest);
+
+        // When
+        horaAgendadaService.guardar(horaAgendadaTest);
+
+        // Then
+        verify(horaAgendadaRepository, never()).findParaActualizarById(any());
+        verify(contadorHoras, never()).baja(any(), any());
+        verify(eventosHoras, times(1)).creada(horaAgendadaTest);
+    }
+
+    @Test
+    @DisplayName("Debe generar un id UUIDv7 cuando la hora llega sin id")
+    void debeGenerarIdCuandoLaHoraLlegaSinId() {
+        // Given
+        HoraAgendada sinId = new HoraAgendada(null, System.currentTimeMillis(), 9, 0, "Control", usuarioId);
+        when(horaAgendadaRepository.save(sinId)).thenReturn(sinId);
+
+        // When
+        HoraAgendada resultado = horaAgendadaService.guardar(sinId);
+
+        // Then
+        assertEquals(7, UUID.fromString(resultado.getId()).version());
+        verify(horaAgendadaRepository, never()).findParaActualizarById(any());
+        verify(contadorHoras, never()).baja(any(), any());
     }
 
     @Test
@@ -216,10 +352,10 @@ class HoraAgendadaServiceImplTest {
             45, // minuto actualizado
             "Vacunación", // tipo actualizado
             usuarioId,
-            mascotaId, mascotaId, mascotaId, null, null
+            mascotaId, mascotaId, mascotaId, null, null, null
         );
         
-        when(horaAgendadaRepository.findById("1")).thenReturn(Optional.of(horaAgendadaTest));
+        when(horaAgendadaRepository.findParaActualizarById("1")).thenReturn(Optional.of(horaAgendadaTest));
         when(horaAgendadaRepository.save(any(HoraAgendada.class))).thenReturn(horaActualizada);
 
         // When
@@ -230,7 +366,7 @@ class HoraAgendadaServiceImplTest {
         assertEquals("Vacunación", resultado.getTipo());
         assertEquals(15, resultado.getHora());
         assertEquals(45, resultado.getMinuto());
-        verify(horaAgendadaRepository, times(1)).findById("1");
+        verify(horaAgendadaRepository, times(1)).findParaActualizarById("1");
         verify(horaAgendadaRepository, times(1)).save(any(HoraAgendada.class));
     }
 
@@ -238,7 +374,7 @@ class HoraAgendadaServiceImplTest {
     @DisplayName("Debe lanzar excepción al actualizar hora agendada que no existe")
     void debeLanzarExcepcionAlActualizarHoraAgendadaQueNoExiste() {
         // Given
-        when(horaAgendadaRepository.findById("999")).thenReturn(Optional.empty());
+        when(horaAgendadaRepository.findParaActualizarById("999")).thenReturn(Optional.empty());
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -246,66 +382,157 @@ class HoraAgendadaServiceImplTest {
         });
 
         assertTrue(exception.getMessage().contains("Hora agendada no encontrada"));
-        verify(horaAgendadaRepository, times(1)).findById("999");
+        verify(horaAgendadaRepository, times(1)).findParaActualizarById("999");
         verify(horaAgendadaRepository, never()).save(any());
     }
 
     @Test
-    @DisplayName("Debe cambiar estado de hora agendada")
+    @DisplayName("Debe cambiar estado de hora agendada sin cargar la entidad ni bloquear la fila")
     void debeCambiarEstadoDeHoraAgendada() {
         // Given
+        when(horaAgendadaRepository.findClaveConteoById("1"))
+            .thenReturn(Optional.of(new ClaveConteo(usuarioId, "Pendiente", 0L)));
+        when(horaAgendadaRepository.actualizarEstadoSiVersion(eq("1"), eq("Completada"), eq(0L), any())).thenReturn(1);
+
+        // When
+        int resultado = horaAgendadaService.cambiarEstado("1", "Completada");
+
+        // Then
+        assertEquals(1, resultado);
+        verify(horaAgendadaRepository, never()).findClaveConteoParaActualizar(any());
+        verify(horaAgendadaRepository, never()).actualizarEstado(any(), any(), any());
+        verify(contadorHoras, times(1)).cambioEstado("Pendiente", "Completada", 1);
+        verify(recordatorioHoras, times(1)).cancelar("1");
+        verify(eventosHoras, times(1)).estadoCambiado(usuarioId, "1", "Completada");
+        verify(horaAgendadaRepository, never()).findById(any());
+        verify(horaAgendadaRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Debe devolver cero al cambiar estado de hora agendada que no existe")
+    void debeDevolverCeroAlCambiarEstadoDeHoraAgendadaQueNoExiste() {
+        // Given
+        when(horaAgendadaRepository.findClaveConteoById("999")).thenReturn(Optional.empty());
+
+        // When
+        int resultado = horaAgendadaService.cambiarEstado("999", "Completada");
+
+        // Then
+        assertEquals(0, resultado);
+        verify(horaAgendadaRepository, never()).actualizarEstadoSiVersion(any(), any(), anyLong(), any());
+        verify(horaAgendadaRepository, never()).actualizarEstado(any(), any(), any());
+        verify(contadorHoras, never()).cambioEstado(any(), any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Debe volver a reservar el horario al reactivar una hora cancelada")
+    void debeReservarHorarioAlReactivarHoraCancelada() {
+        // Given
+        horaAgendadaTest.setEstado("Cancelada");
+        when(horaAgendadaRepository.findClaveConteoById("1"))
+            .thenReturn(Optional.of(new ClaveConteo(usuarioId, "Cancelada", 0L)));
+        when(horaAgendadaRepository.findClaveConteoParaActualizar("1"))
+            .thenReturn(Optional.of(new ClaveConteo(usuarioId, "Cancelada", 0L)));
         when(horaAgendadaRepository.findById("1")).thenReturn(Optional.of(horaAgendadaTest));
-        when(horaAgendadaRepository.save(any(HoraAgendada.class))).thenAnswer(invocation -> {
-            HoraAgendada hora = invocation.getArgument(0);
-            return hora;
-        });
+        when(ocupacionIndex.ocupaHorario(horaAgendadaTest)).thenReturn(true);
 
         // When
-        HoraAgendada resultado = horaAgendadaService.cambiarEstado("1", "Completada");
+        int resultado = horaAgendadaService.cambiarEstado("1", "Pendiente");
 
         // Then
-        assertNotNull(resultado);
-        assertEquals("Completada", resultado.getEstado());
-        verify(horaAgendadaRepository, times(1)).findById("1");
-        verify(horaAgendadaRepository, times(1)).save(any(HoraAgendada.class));
+        assertEquals(1, resultado);
+        assertEquals("Pendiente", horaAgendadaTest.getEstado());
+        verify(ocupacionIndex, times(1)).reservar(horaAgendadaTest);
+        verify(horaAgendadaRepository, times(1)).save(horaAgendadaTest);
+        verify(recordatorioHoras, times(1)).programar(horaAgendadaTest);
+        verify(horaAgendadaRepository, never()).actualizarEstadoSiVersion(any(), any(), anyLong(), any());
     }
 
     @Test
-    @DisplayName("Debe lanzar excepción al cambiar estado de hora agendada que no existe")
-    void debeLanzarExcepcionAlCambiarEstadoDeHoraAgendadaQueNoExiste() {
+    @DisplayName("Debe repetir el cambio de estado con la fila bloqueada si otra escritura se adelantó")
+    void debeRepetirCambioDeEstadoBloqueadoSiLaVersionCambio() {
         // Given
-        when(horaAgendadaRepository.findById("999")).thenReturn(Optional.empty());
+        when(horaAgendadaRepository.findClaveConteoById("1"))
+            .thenReturn(Optional.of(new ClaveConteo(usuarioId, "Pendiente", 0L)));
+        when(horaAgendadaRepository.actualizarEstadoSiVersion(eq("1"), eq("Completada"), eq(0L), any())).thenReturn(0);
+        when(horaAgendadaRepository.findClaveConteoParaActualizar("1"))
+            .thenReturn(Optional.of(new ClaveConteo(usuarioId, "Confirmada", 1L)));
+
+        // When
+        int resultado = horaAgendadaService.cambiarEstado("1", "Completada");
+
+        // Then
+        assertEquals(1, resultado);
+        verify(horaAgendadaRepository, times(1)).actualizarEstado(eq("1"), eq("Completada"), any());
+        verify(contadorHoras, times(1)).cambioEstado("Confirmada", "Completada", 1);
+        verify(contadorHoras, never()).cambioEstado(eq("Pendiente"), any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar el cambio de estado si otra escritura se adelantó a la versión esperada")
+    void debeRechazarCambioDeEstadoSiLaVersionCambioAntesDelUpdate() {
+        // Given
+        when(horaAgendadaRepository.findClaveConteoById("1"))
+            .thenReturn(Optional.of(new ClaveConteo(usuarioId, "Pendiente", 1L)));
+        when(horaAgendadaRepository.actualizarEstadoSiVersion(eq("1"), eq("Completada"), eq(1L), any())).thenReturn(0);
+        when(horaAgendadaRepository.findClaveConteoParaActualizar("1"))
+            .thenReturn(Optional.of(new ClaveConteo(usuarioId, "Pendiente", 2L)));
 
         // When & Then
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
-            horaAgendadaService.cambiarEstado("999", "Completada");
-        });
+        assertThrows(VersionNoCoincideException.class, () -> horaAgendadaService.cambiarEstado("1", "Completada", 1L));
+        verify(horaAgendadaRepository, never()).actualizarEstado(any(), any(), any());
+        verify(contadorHoras, never()).cambioEstado(any(), any(), anyLong());
+    }
 
-        assertTrue(exception.getMessage().contains("Hora agendada no encontrada"));
-        verify(horaAgendadaRepository, times(1)).findById("999");
-        verify(horaAgendadaRepository, never()).save(any());
+    @Test
+    @DisplayName("Debe vencer las horas pendientes anteriores a una fecha sin cargarlas")
+    void debeVencerHorasPendientesSinCargarlas() {
+        // Given
+        when(horaAgendadaRepository.actualizarEstadoAnteriorA(eq("Pendiente"), eq("Vencida"), eq(1000L), any()))
+            .thenReturn(42);
+
+        // When
+        int resultado = horaAgendadaService.cambiarEstadoAnteriorA("Pendiente", "Vencida", 1000L);
+
+        // Then
+        assertEquals(42, resultado);
+        verify(contadorHoras, times(1)).cambioEstado("Pendiente", "Vencida", 42);
+        verify(horaAgendadaRepository, never()).findIdsPorEstadoAnteriorA(any(), any());
+        verify(horaAgendadaRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Debe rechazar reactivar horas canceladas en bloque")
+    void debeRechazarReactivarHorasCanceladasEnBloque() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class,
+            () -> horaAgendadaService.cambiarEstadoAnteriorA("Cancelada", "Pendiente", 1000L));
+        verify(horaAgendadaRepository, never()).actualizarEstadoAnteriorA(any(), any(), any(), any());
     }
 
     @Test
     @DisplayName("Debe eliminar hora agendada cuando existe")
     void debeEliminarHoraAgendadaCuandoExiste() {
         // Given
-        when(horaAgendadaRepository.existsById("1")).thenReturn(true);
-        doNothing().when(horaAgendadaRepository).deleteById("1");
+        when(horaAgendadaRepository.findClaveConteoParaActualizar("1"))
+            .thenReturn(Optional.of(new ClaveConteo(usuarioId, "Pendiente", 0L)));
+        when(horaAgendadaRepository.eliminarPorId("1")).thenReturn(1);
 
         // When
         assertDoesNotThrow(() -> horaAgendadaService.eliminar("1"));
 
         // Then
-        verify(horaAgendadaRepository, times(1)).existsById("1");
-        verify(horaAgendadaRepository, times(1)).deleteById("1");
+        verify(horaAgendadaRepository, times(1)).eliminarPorId("1");
+        verify(contadorHoras, times(1)).baja(usuarioId, "Pendiente");
+        verify(recordatorioHoras, times(1)).cancelar("1");
+        verify(eventosHoras, times(1)).eliminada(usuarioId, "1");
     }
 
     @Test
     @DisplayName("Debe lanzar excepción al eliminar hora agendada que no existe")
     void debeLanzarExcepcionAlEliminarHoraAgendadaQueNoExiste() {
         // Given
-        when(horaAgendadaRepository.existsById("999")).thenReturn(false);
+        when(horaAgendadaRepository.findClaveConteoParaActualizar("999")).thenReturn(Optional.empty());
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -313,8 +540,109 @@ class HoraAgendadaServiceImplTest {
         });
 
         assertTrue(exception.getMessage().contains("Hora agendada no encontrada"));
-        verify(horaAgendadaRepository, times(1)).existsById("999");
-        verify(horaAgendadaRepository, never()).deleteById(any());
+        verify(horaAgendadaRepository, never()).eliminarPorId(any());
+    }
+
+    @Test
+    @DisplayName("Debe actualizar con If-Match en un solo UPDATE sin leer la hora")
+    void debeActualizarConVersionSinLeerLaHora() {
+        // Given
+        when(horaAgendadaRepository.actualizarSiVersion(eq("1"), eq(3L), any(), any(), any(), any(), any(), any(), any(), any(), any()))
+            .thenReturn(1);
+
+        // When
+        long version = horaAgendadaService.actualizar("1", horaAgendadaTest, 3L);
+
+        // Then
+        assertEquals(4L, version);
+        verify(eventosHoras, times(1)).actualizada(horaAgendadaTest);
+        verify(horaAgendadaRepository, never()).findParaActualizarById(any());
+        verify(horaAgendadaRepository, never()).save(any());
+        verify(recordatorioHoras, times(1)).programar(horaAgendadaTest);
+    }
+
+    @Test
+    @DisplayName("Debe rechazar la actualización cuando la versión no coincide")
+    void debeRechazarActualizacionConVersionDistinta() {
+        // Given
+        HoraAgendada existente = new HoraAgendada("1", System.currentTimeMillis(), 14, 30, "Consulta General",
+            usuarioId, mascotaId, mascotaId, mascotaId, null, null, null);
+        existente.setVersion(5L);
+        when(horaAgendadaRepository.actualizarSiVersion(eq("1"), eq(3L), any(), any(), any(), any(), any(), any(), any(), any(), any()))
+            .thenReturn(0);
+        when(horaAgendadaRepository.findParaActualizarById("1")).thenReturn(Optional.of(existente));
+
+        // When & Then
+        assertThrows(VersionNoCoincideException.class, () -> horaAgendadaService.actualizar("1", horaAgendadaTest, 3L));
+        verify(horaAgendadaRepository, never()).save(any());
+        verify(contadorHoras, never()).cambioEstado(any(), any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Debe actualizar con If-Match por la entidad cuando cambia el estado")
+    void debeActualizarConVersionCuandoCambiaElEstado() {
+        // Given
+        HoraAgendada existente = new HoraAgendada("1", System.currentTimeMillis(), 14, 30, "Consulta General",
+            usuarioId, mascotaId, mascotaId, mascotaId, null, null, null);
+        existente.setEstado("Pendiente");
+        existente.setVersion(3L);
+        horaAgendadaTest.setEstado("Completada");
+        when(horaAgendadaRepository.actualizarSiVersion(eq("1"), eq(3L), any(), any(), any(), any(), any(), any(), any(), any(), any()))
+            .thenReturn(0);
+        when(horaAgendadaRepository.findParaActualizarById("1")).thenReturn(Optional.of(existente));
+        when(horaAgendadaRepository.save(existente)).thenReturn(existente);
+
+        // When
+        horaAgendadaService.actualizar("1", horaAgendadaTest, 3L);
+
+        // Then
+        assertEquals("Completada", existente.getEstado());
+        verify(horaAgendadaRepository, times(1)).flush();
+        verify(contadorHoras, times(1)).cambioEstado("Pendiente", "Completada", 1);
+    }
+
+    @Test
+    @DisplayName("Debe lanzar excepción al actualizar con If-Match una hora que no existe")
+    void debeLanzarExcepcionAlActualizarConVersionHoraQueNoExiste() {
+        // Given
+        when(horaAgendadaRepository.actualizarSiVersion(eq("999"), eq(0L), any(), any(), any(), any(), any(), any(), any(), any(), any()))
+            .thenReturn(0);
+        when(horaAgendadaRepository.findParaActualizarById("999")).thenReturn(Optional.empty());
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> horaAgendadaService.actualizar("999", horaAgendadaTest, 0L));
+        assertFalse(exception instanceof VersionNoCoincideException);
+    }
+
+    @Test
+    @DisplayName("Debe rechazar el cambio de estado cuando la versión no coincide")
+    void debeRechazarCambioDeEstadoConVersionDistinta() {
+        // Given
+        when(horaAgendadaRepository.findClaveConteoById("1"))
+            .thenReturn(Optional.of(new ClaveConteo(usuarioId, "Pendiente", 2L)));
+
+        // When & Then
+        assertThrows(VersionNoCoincideException.class, () -> horaAgendadaService.cambiarEstado("1", "Completada", 1L));
+        verify(horaAgendadaRepository, never()).actualizarEstadoSiVersion(any(), any(), anyLong(), any());
+        verify(horaAgendadaRepository, never()).actualizarEstado(any(), any(), any());
+        verify(contadorHoras, never()).cambioEstado(any(), any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Debe eliminar con If-Match solo si la versión coincide")
+    void debeEliminarConVersionSoloSiCoincide() {
+        // Given
+        when(horaAgendadaRepository.findClaveConteoParaActualizar("1"))
+            .thenReturn(Optional.of(new ClaveConteo(usuarioId, "Pendiente", 2L)));
+
+        // When & Then
+        assertThrows(VersionNoCoincideException.class, () -> horaAgendadaService.eliminar("1", 1L));
+        verify(horaAgendadaRepository, never()).eliminarPorId(any());
+
+        horaAgendadaService.eliminar("1", 2L);
+        verify(horaAgendadaRepository, times(1)).eliminarPorId("1");
+        verify(contadorHoras, times(1)).baja(usuarioId, "Pendiente");
     }
 
     @Test
@@ -331,6 +659,20 @@ class HoraAgendadaServiceImplTest {
         verify(horaAgendadaRepository, times(1)).countByUsuarioId(usuarioId);
     }
 
+    @Test
+    @DisplayName("Debe contar horas agendadas por usuario desde memoria sin consultar la base")
+    void debeContarHorasAgendadasPorUsuarioDesdeMemoria() {
+        // Given
+        when(contadorHoras.contarPorUsuario(usuarioId)).thenReturn(OptionalLong.of(7));
+
+        // When
+        long resultado = horaAgendadaService.contarPorUsuario(usuarioId);
+
+        // Then
+        assertEquals(7L, resultado);
+        verify(horaAgendadaRepository, never()).countByUsuarioId(any());
+    }
+
     @Test
     @DisplayName("Debe validar que hora está en rango válido (0-23)")
     void debeValidarQueHoraEstaEnRangoValido() {
@@ -342,7 +684,7 @@ class HoraAgendadaServiceImplTest {
             59, // minuto máximo válido
             "Consulta",
             usuarioId,
-            mascotaId, mascotaId, mascotaId, null, null
+            mascotaId, mascotaId, mascotaId, null, null, null
         );
         when(horaAgendadaRepository.save(any(HoraAgendada.class))).thenReturn(horaValida);
 
@@ -387,7 +729,7 @@ class HoraAgendadaServiceImplTest {
             "Consulta General",
             usuarioId,
             null // Sin mascota
-, mascotaId, mascotaId, null, null
+, mascotaId, mascotaId, null, null, null
         );
         when(horaAgendadaRepository.save(any(HoraAgendada.class))).thenReturn(horaSinMascota);
 
@@ -415,4 +757,379 @@ class HoraAgendadaServiceImplTest {
         assertTrue(resultado.isEmpty());
         verify(horaAgendadaRepository, times(1)).findByUsuarioId("userSinHoras");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Debe entregar una página con cursor cuando hay más resultados")
+    void debeEntregarPaginaConCursorCuandoHayMasResultados() {
+        // Given
+        List<HoraResumen> filas = Arrays.asList(
+            resumen(horaAgendadaTest),
+            resumen(new HoraAgendada("2", horaAgendadaTest.getFecha(), 15, 0, "Vacunación", usuarioId, mascotaId, mascotaId, mascotaId, null, null, null)),
+            resumen(new HoraAgendada("3", horaAgendadaTest.getFecha(), 16, 0, "Control", usuarioId, mascotaId, mascotaId, mascotaId, null, null, null))
+        );
+        when(horaAgendadaRepository.findBy(any(Specification.class), any())).thenReturn(filas);
+
+        // When
+        Pagina<HoraResumen> pagina = horaAgendadaService.obtenerPorUsuario(usuarioId, null, 2);
+
+        // Then
+        assertEquals(2, pagina.items().size());
+        assertEquals("2", pagina.items().get(1).id());
+        assertTrue(pagina.tieneSiguiente());
+        assertDoesNotThrow(() -> CursorPaginacion.decodificar(pagina.siguienteCursor()));
+    }
+
+    @Test
+    @DisplayName("Debe mezclar en orden la tabla de trabajo y el histórico cuando se pide")
+    void debeMezclarTablaDeTrabajoEHistorico() {
+        // Given
+        Long fecha = horaAgendadaTest.getFecha();
+        when(horaAgendadaRepository.findBy(any(Specification.class), any())).thenReturn(List.of(
+            resumen(new HoraAgendada("2", fecha, 10, 0, "Control", usuarioId)),
+            resumen(new HoraAgendada("4", fecha, 12, 0, "Control", usuarioId))));
+        when(horaAgendadaHistoricoRepository.findBy(any(Specification.class), any())).thenReturn(List.of(
+            resumen(historica("1", fecha, 9).aHoraAgendada()),
+            resumen(historica("3", fecha, 11).aHoraAgendada()),
+            resumen(historica("5", fecha, 13).aHoraAgendada())));
+
+        // When
+        Pagina<HoraResumen> pagina = horaAgendadaService.obtenerPorUsuario(usuarioId, null, 3, true);
+
+        // Then
+        assertEquals(List.of("1", "2", "3"), pagina.items().stream().map(HoraResumen::id).toList());
+        assertTrue(pagina.tieneSiguiente());
+    }
+
+    @Test
+    @DisplayName("No debe consultar el histórico si no se pide")
+    void noDebeConsultarHistoricoSiNoSePide() {
+        // Given
+        when(horaAgendadaRepository.findBy(any(Specification.class), any())).thenReturn(List.of(resumen(horaAgendadaTest)));
+        when(horaAgendadaRepository.findById("9")).thenReturn(Optional.empty());
+
+        // When
+        horaAgendadaService.obtenerPorUsuario(usuarioId, null, 2);
+        Optional<HoraAgendada> porId = horaAgendadaService.obtenerPorId("9", false);
+
+        // Then
+        assertTrue(porId.isEmpty());
+        verify(horaAgendadaHistoricoRepository, never()).findBy(any(Specification.class), any());
+        verify(horaAgendadaHistoricoRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Debe buscar por ID en el histórico cuando se pide")
+    void debeBuscarPorIdEnHistorico() {
+        // Given
+        when(horaAgendadaRepository.findById("9")).thenReturn(Optional.empty());
+        when(horaAgendadaHistoricoRepository.findById("9"))
+            .thenReturn(Optional.of(historica("9", horaAgendadaTest.getFecha(), 10)));
+
+        // When
+        Optional<HoraAgendada> resultado = horaAgendadaService.obtenerPorId("9", true);
+
+        // Then
+        assertTrue(resultado.isPresent());
+        assertEquals("Completada", resultado.get().getEstado());
+    }
+
+    @Test
+    @DisplayName("Debe entregar la última página sin cursor")
+    void debeEntregarUltimaPaginaSinCursor() {
+        // Given
+        when(horaAgendadaRepository.findBy(any(Specification.class), any())).thenReturn(List.of(resumen(horaAgendadaTest)));
+
+        // When
+        Pagina<HoraResumen> pagina = horaAgendadaService.obtenerTodas(null, 2);
+
+        // Then
+        assertEquals(1, pagina.items().size());
+        assertFalse(pagina.tieneSiguiente());
+        assertNull(pagina.siguienteCursor());
+    }
+
+    @Test
+    @DisplayName("Debe codificar y decodificar el cursor de una hora sin fecha")
+    void debeCodificarYDecodificarCursorDeHoraSinFecha() {
+        // Given
+        HoraResumen sinFecha = resumen(new HoraAgendada("a:b", null, 9, 15, "Control", usuarioId));
+
+        // When
+        CursorPaginacion.Posicion posicion = CursorPaginacion.decodificar(CursorPaginacion.codificar(sinFecha));
+
+        // Then
+        assertNull(posicion.fecha());
+        assertEquals(9, posicion.hora());
+        assertEquals(15, posicion.minuto());
+        assertEquals("a:b", posicion.id());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar un cursor inválido")
+    void debeRechazarCursorInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> horaAgendadaService.obtenerTodas("no-es-un-cursor", 10));
+        verify(horaAgendadaRepository, never()).findBy(any(Specification.class), any());
+    }
+
+    @Test
+    @DisplayName("Debe acotar el tamaño de página")
+    void debeAcotarTamanoDePagina() {
+        assertEquals(CursorPaginacion.LIMITE_POR_DEFECTO, CursorPaginacion.acotarLimite(null));
+        assertEquals(CursorPaginacion.LIMITE_POR_DEFECTO, CursorPaginacion.acotarLimite(0));
+        assertEquals(CursorPaginacion.LIMITE_MAXIMO, CursorPaginacion.acotarLimite(10_000));
+        assertEquals(25, CursorPaginacion.acotarLimite(25));
+    }
+
+    @Test
+    @DisplayName("Debe exportar en NDJSON y desprender cada hora del contexto")
+    void debeExportarEnNdjsonYDesprenderCadaHora() throws IOException {
+        // Given
+        HoraAgendada otra = new HoraAgendada("2", horaAgendadaTest.getFecha(), 15, 0, "Vacunación", usuarioId);
+        when(horaAgendadaRepository.streamByFechaBetween(0L, 10L)).thenReturn(Stream.of(horaAgendadaTest, otra));
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        // When
+        long filas = horaAgendadaService.exportar(0L, 10L, salida);
+
+        // Then
+        String texto = salida.toString(StandardCharsets.UTF_8);
+        String[] lineas = texto.split("\n");
+        assertEquals(2, filas);
+        assertEquals(2, lineas.length);
+        assertTrue(texto.endsWith("\n"));
+        assertEquals("1", objectMapper.readTree(lineas[0]).get("id").asText());
+        assertEquals("Vacunación", objectMapper.readTree(lineas[1]).get("tipo").asText());
+        verify(entityManager, times(1)).detach(horaAgendadaTest);
+        verify(entityManager, times(1)).detach(otra);
+    }
+
+    @Test
+    @DisplayName("Debe exportar vacío cuando no hay horas en el rango")
+    void debeExportarVacioCuandoNoHayHorasEnElRango() throws IOException {
+        // Given
+        when(horaAgendadaRepository.streamByFechaBetween(0L, 10L)).thenReturn(Stream.empty());
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        // When
+        long filas = horaAgendadaService.exportar(0L, 10L, salida);
+
+        // Then
+        assertEquals(0, filas);
+        assertEquals(0, salida.size());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar una hora que choca con otra sin escribir en la base de datos")
+    void debeRechazarHoraQueChocaConOtra() {
+        // Given
+        when(ocupacionIndex.ocupaHorario(horaAgendadaTest)).thenReturn(true);
+        when(ocupacionIndex.reservar(horaAgendadaTest))
+            .thenThrow(new HorarioNoDisponibleException("El horario 14:30 ya está ocupado"));
+
+        // When & Then
+        assertThrows(HorarioNoDisponibleException.class, () -> horaAgendadaService.guardar(horaAgendadaTest));
+        verify(horaAgendadaRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Debe liberar el horario al cancelar una hora agendada")
+    void debeLiberarHorarioAlCancelarHoraAgendada() {
+        // Given
+        when(horaAgendadaRepository.findClaveConteoById("1"))
+            .thenReturn(Optional.of(new ClaveConteo(usuarioId, "Pendiente", 0L)));
+        when(horaAgendadaRepository.actualizarEstadoSiVersion(eq("1"), eq("Cancelada"), eq(0L), any())).thenReturn(1);
+
+        // When
+        horaAgendadaService.cambiarEstado("1", "Cancelada");
+
+        // Then
+        verify(ocupacionIndex, times(1)).liberar("1");
+        verify(ocupacionIndex, never()).reservar(any());
+        verify(horaAgendadaRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Debe liberar los horarios al cancelar horas en bloque")
+    void debeLiberarHorariosAlCancelarHorasEnBloque() {
+        // Given
+        when(horaAgendadaRepository.actualizarEstadoPorIds(eq(List.of("1", "2")), eq("Cancelada"), any()))
+            .thenReturn(2);
+
+        // When
+        int resultado = horaAgendadaService.cambiarEstado(List.of("1", "2"), "Cancelada");
+
+        // Then
+        assertEquals(2, resultado);
+        verify(ocupacionIndex, times(1)).liberar("1");
+        verify(ocupacionIndex, times(1)).liberar("2");
+    }
+
+    @Test
+    @DisplayName("Debe ajustar los contadores por cada hora de un cambio en bloque sin reconciliar")
+    void debeAjustarContadoresPorHoraEnCambioEnBloque() {
+        // Given: la cancelada no se reactiva en bloque, así que no mueve contadores
+        when(horaAgendadaRepository.findClavesConteoParaActualizar(List.of("1", "2", "3", "4")))
+            .thenReturn(List.of(new HoraArchivable("1", usuarioId, "Pendiente"),
+                new HoraArchivable("2", usuarioId, "Pendiente"),
+                new HoraArchivable("3", usuarioId, "Confirmada"),
+                new HoraArchivable("4", usuarioId, "Cancelada")));
+        when(horaAgendadaRepository.actualizarEstadoActivas(eq(List.of("1", "2", "3", "4")), eq("Completada"), any()))
+            .thenReturn(3);
+
+        // When
+        int resultado = horaAgendadaService.cambiarEstado(List.of("1", "2", "3", "4"), "Completada");
+
+        // Then
+        assertEquals(3, resultado);
+        verify(contadorHoras, times(1)).cambioEstado("Pendiente", "Completada", 2);
+        verify(contadorHoras, times(1)).cambioEstado("Confirmada", "Completada", 1);
+        verify(contadorHoras, never()).cambioEstado(eq("Cancelada"), any(), anyLong());
+        verify(contadorHoras, never()).reconciliar();
+    }
+
+    @Test
+    @DisplayName("Debe avisar los cambios masivos solo a los usuarios con canal abierto")
+    void debeAvisarCambiosMasivosSoloAUsuariosEscuchando() {
+        // Given
+        when(eventosHoras.hayCanales()).thenReturn(true);
+        when(eventosHoras.escuchando(usuarioId)).thenReturn(true);
+        when(horaAgendadaRepository.findClavesConteoParaActualizar(List.of("1", "2")))
+            .thenReturn(List.of(new HoraArchivable("1", usuarioId, "Pendiente"), new HoraArchivable("2", "otro", "Pendiente")));
+        when(horaAgendadaRepository.actualizarEstadoActivas(eq(List.of("1", "2")), eq("Completada"), any()))
+            .thenReturn(2);
+
+        // When
+        horaAgendadaService.cambiarEstado(List.of("1", "2"), "Completada");
+
+        // Then
+        verify(eventosHoras, times(1)).estadoCambiado(usuarioId, "1", "Completada");
+        verify(eventosHoras, never()).estadoCambiado(eq("otro"), any(), any());
+    }
+
+    @Test
+    @DisplayName("Debe guardar un lote informando el resultado de cada hora")
+    void debeGuardarLoteInformandoResultadoDeCadaHora() {
+        // Given
+        HoraAgendada sinTipo = new HoraAgendada("2", System.currentTimeMillis(), 10, 0, "", usuarioId);
+        HoraAgendada existente = new HoraAgendada("3", System.currentTimeMillis(), 11, 0, "Vacunación", usuarioId);
+        HoraAgendada repetida = new HoraAgendada("1", System.currentTimeMillis(), 12, 0, "Vacunación", usuarioId);
+        when(horaAgendadaRepository.findIdsExistentes(any())).thenReturn(Set.of("3"));
+
+        // When
+        ResultadoLote resultado = horaAgendadaService.guardarLote(
+            Arrays.asList(horaAgendadaTest, sinTipo, existente, repetida, null));
+
+        // Then
+        assertEquals(1, resultado.creadas());
+        assertEquals(4, resultado.rechazadas());
+        assertTrue(resultado.items().get(0).creada());
+        assertEquals(List.of("El tipo es obligatorio"), resultado.items().get(1).errores());
+        assertEquals(List.of("Ya existe una hora agendada con ID: 3"), resultado.items().get(2).errores());
+        assertEquals(List.of("El ID está repetido dentro del lote: 1"), resultado.items().get(3).errores());
+        assertFalse(resultado.items().get(4).creada());
+        verify(entityManager, times(1)).persist(horaAgendadaTest);
+        verify(horaAgendadaRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Debe crear en el lote las horas sin id con un id generado")
+    void debeCrearEnLoteHorasSinIdConIdGenerado() {
+        // Given
+        HoraAgendada sinId = new HoraAgendada(null, System.currentTimeMillis(), 10, 0, "Control", usuarioId);
+        when(horaAgendadaRepository.findIdsExistentes(any())).thenReturn(Set.of());
+
+        // When
+        ResultadoLote resultado = horaAgendadaService.guardarLote(List.of(horaAgendadaTest, sinId));
+
+        // Then
+        assertEquals(2, resultado.creadas());
+        assertNotNull(sinId.getId());
+        assertEquals(sinId.getId(), resultado.items().get(1).id());
+        verify(horaAgendadaRepository, times(1)).findIdsExistentes(List.of(horaAgendadaTest.getId()));
+    }
+
+    @Test
+    @DisplayName("Debe rechazar dentro del lote una hora cuyo horario está ocupado")
+    void debeRechazarEnLoteHoraConHorarioOcupado() {
+        // Given
+        when(horaAgendadaRepository.findIdsExistentes(any())).thenReturn(Set.of());
+        when(ocupacionIndex.ocupaHorario(horaAgendadaTest)).thenReturn(true);
+        when(ocupacionIndex.reservar(horaAgendadaTest))
+            .thenThrow(new HorarioNoDisponibleException("El horario 14:30 ya está ocupado"));
+
+        // When
+        ResultadoLote resultado = horaAgendadaService.guardarLote(List.of(horaAgendadaTest));
+
+        // Then
+        assertEquals(0, resultado.creadas());
+        assertEquals(List.of("El horario 14:30 ya está ocupado"), resultado.items().get(0).errores());
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    @DisplayName("Debe armar el calendario del mes desde los conteos agregados")
+    void debeArmarCalendarioDesdeConteosAgregados() {
+        // Given
+        YearMonth mes = YearMonth.of(2026, 3);
+        long dia3 = agenda.inicioDe(LocalDate.of(2026, 3, 3));
+        long dia3Tarde = dia3 + 15 * 3_600_000L;
+        long dia10 = agenda.inicioDe(LocalDate.of(2026, 3, 10));
+        when(horaAgendadaRepository.contarAgendaDeUsuario(usuarioId,
+                agenda.inicioDe(LocalDate.of(2026, 3, 1)), agenda.inicioDe(LocalDate.of(2026, 4, 1))))
+            .thenReturn(List.of(
+                new ConteoAgenda(dia10, "Pendiente", "Control", 1),
+                new ConteoAgenda(dia3, "Pendiente", "Vacunación", 2),
+                new ConteoAgenda(dia3Tarde, "Completada", "Vacunación", 1),
+                new ConteoAgenda(dia3Tarde, null, "Control", 3)));
+
+        // When
+        CalendarioMes calendario = horaAgendadaService.obtenerCalendario(mes, usuarioId);
+
+        // Then
+        assertEquals(2, calendario.dias().size());
+        DiaCalendario primero = calendario.dias().get(0);
+        assertEquals(LocalDate.of(2026, 3, 3), primero.dia());
+        assertEquals(6, primero.total());
+        assertEquals(Map.of("Pendiente", 2L, "Completada", 1L, "Sin estado", 3L), primero.porEstado());
+        assertEquals(Map.of("Vacunación", 3L, "Control", 3L), primero.porTipo());
+        assertEquals(LocalDate.of(2026, 3, 10), calendario.dias().get(1).dia());
+        verify(horaAgendadaRepository, never()).findByUsuarioId(any());
+    }
+
+    @Test
+    @DisplayName("Debe mover los contadores al sobrescribir una hora existente")
+    void debeMoverContadoresAlSobrescribirHoraExistente() {
+        // Given
+        HoraAgendada existente = new HoraAgendada("1", System.currentTimeMillis(), 9, 0, "Control", "otroUsuario");
+        existente.setEstado("Cancelada");
+        when(horaAgendadaRepository.existsById("1")).thenReturn(true);
+        when(horaAgendadaRepository.findParaActualizarById("1")).thenReturn(Optional.of(existente));
+        when(horaAgendadaRepository.save(horaAgendadaTest)).thenReturn(horaAgendadaTest);
+
+        // When
+        horaAgendadaService.guardar(horaAgendadaTest);
+
+        // Then
+        verify(contadorHoras, times(1)).baja("otroUsuario", "Cancelada");
+        verify(contadorHoras, times(1)).alta(usuarioId, horaAgendadaTest.getEstado());
+    }
+
+    private static HoraResumen resumen(HoraAgendada hora) {
+        return new HoraResumen(hora.getId(), hora.getFecha(), hora.getHora(), hora.getMinuto(), hora.getTipo(),
+            hora.getUsuarioId(), hora.getMascotaId(), hora.getEstado(), hora.getFechaCreacion(),
+            hora.getFechaActualizacion());
+    }
+
+    private HoraAgendadaHistorica historica(String id, Long fecha, int hora) {
+        HoraAgendadaHistorica historica = new HoraAgendadaHistorica();
+        historica.setId(id);
+        historica.setFecha(fecha);
+        historica.setHora(hora);
+        historica.setMinuto(0);
+        historica.setTipo("Control");
+        historica.setUsuarioId(usuarioId);
+        historica.setEstado("Completada");
+        historica.setVersion(0L);
+        return historica;
+    }
+}
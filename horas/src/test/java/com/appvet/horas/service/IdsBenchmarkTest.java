@@ -0,0 +1,91 @@
+package com.appvet.horas.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.appvet.horas.model.UuidV7;
+
+// Inserta las mismas filas en tres tablas con la forma de horas_agendadas (clave primaria más un
+// índice secundario por usuario y agenda) y compara filas por segundo y espacio ocupado:
+// UUID v4 aleatorio en VARCHAR(36), que es lo que manda hoy la app; UUIDv7 en VARCHAR(36); y
+// UUIDv7 en BINARY(16), los 16 bytes del UUID en el mismo orden.
+// Va contra una base H2 en archivo (en memoria DISK_SPACE_USED no mide nada); contra MySQL lo
+// equivalente es data_length e index_length de information_schema.TABLES.
+// Ejecutar con: mvn test -Dgroups=benchmark -DexcludedGroups= -Dbenchmark.filas=5000000
+@Tag("benchmark")
+@DisplayName("Benchmark de ids aleatorios contra ordenados por tiempo")
+class IdsBenchmarkTest {
+
+    private static final int FILAS_POR_LOTE = 1_000;
+
+    private final SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+        "jdbc:h2:file:./target/benchmark-ids;MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", "", true);
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @Test
+    @DisplayName("Los ids UUIDv7 en BINARY(16) insertan más rápido y ocupan menos")
+    void idsOrdenadosInsertanMasRapidoYOcupanMenos() {
+        int filas = Integer.parseInt(System.getProperty("benchmark.filas", "300000"));
+        // Un commit por lote, como guardarLote
+        dataSource.setAutoCommit(false);
+
+        double[] v4Texto = medir("bench_ids_v4_texto", "VARCHAR(36)", filas, i -> UUID.randomUUID().toString());
+        double[] v7Texto = medir("bench_ids_v7_texto", "VARCHAR(36)", filas, i -> UuidV7.generar());
+        double[] v7Binario = medir("bench_ids_v7_binario", "BINARY(16)", filas, i -> binario(UuidV7.generar()));
+        dataSource.destroy();
+
+        System.out.printf("v4 VARCHAR(36): %,.0f filas/s, %,.0f KB%n", v4Texto[0], v4Texto[1]);
+        System.out.printf("v7 VARCHAR(36): %,.0f filas/s, %,.0f KB%n", v7Texto[0], v7Texto[1]);
+        System.out.printf("v7 BINARY(16):  %,.0f filas/s, %,.0f KB%n", v7Binario[0], v7Binario[1]);
+        assertTrue(v7Binario[1] < v4Texto[1], "BINARY(16) no ocupó menos: " + Arrays.toString(v7Binario));
+        // Holgura para el ruido del JIT y de H2
+        assertTrue(v7Binario[0] * 1.2 >= v4Texto[0], "BINARY(16) insertó más lento: " + Arrays.toString(v7Binario));
+    }
+
+    private static byte[] binario(String id) {
+        UUID valor = UUID.fromString(id);
+        return ByteBuffer.allocate(16)
+            .putLong(valor.getMostSignificantBits())
+            .putLong(valor.getLeastSignificantBits())
+            .array();
+    }
+
+    // Devuelve {filas por segundo, KB ocupados}
+    private double[] medir(String tabla, String tipoId, int filas, IntFunction<Object> id) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + tabla);
+        jdbcTemplate.execute("CREATE TABLE " + tabla + " (id " + tipoId + " NOT NULL, fecha BIGINT, hora INT NOT NULL, "
+            + "minuto INT NOT NULL, tipo VARCHAR(100) NOT NULL, usuario_id VARCHAR(36) NOT NULL, PRIMARY KEY (id))");
+        jdbcTemplate.execute("CREATE INDEX idx_" + tabla + "_usuario ON " + tabla + " (usuario_id, fecha, hora, minuto)");
+        String insert = "INSERT INTO " + tabla + " (id, fecha, hora, minuto, tipo, usuario_id) VALUES (?, ?, ?, ?, 'Control', ?)";
+        long inicio = System.nanoTime();
+        List<Object[]> lote = new ArrayList<>(FILAS_POR_LOTE);
+        for (int i = 0; i < filas; i++) {
+            lote.add(new Object[] {id.apply(i), 1_767_225_600_000L + (i / 40) * 86_400_000L, 8 + (i % 40) / 4,
+                (i % 4) * 15, "u" + (i % 1_000)});
+            if (lote.size() == FILAS_POR_LOTE || i == filas - 1) {
+                jdbcTemplate.batchUpdate(insert, lote);
+                jdbcTemplate.execute((ConnectionCallback<Void>) conexion -> {
+                    conexion.commit();
+                    return null;
+                });
+                lote.clear();
+            }
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        Long bytes = jdbcTemplate.queryForObject("SELECT DISK_SPACE_USED('" + tabla + "')", Long.class);
+        jdbcTemplate.execute("DROP TABLE " + tabla);
+        return new double[] {filas / segundos, bytes / 1024.0};
+    }
+}
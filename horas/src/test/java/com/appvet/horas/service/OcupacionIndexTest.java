@@ -0,0 +1,198 @@
+package com.appvet.horas.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.anyLong;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.appvet.horas.config.AgendaProperties;
+import com.appvet.horas.dto.HoraOcupada;
+import com.appvet.horas.dto.HorarioLibre;
+import com.appvet.horas.exception.HorarioNoDisponibleException;
+import com.appvet.horas.model.HoraAgendada;
+import com.appvet.horas.repository.HoraAgendadaRepository;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests para OcupacionIndex")
+class OcupacionIndexTest {
+
+    private static final ZoneId ZONA = ZoneId.of("America/Santiago");
+
+    @Mock
+    private HoraAgendadaRepository horaAgendadaRepository;
+
+    private AgendaProperties agenda;
+    private OcupacionIndex ocupacionIndex;
+    private LocalDate manana;
+
+    @BeforeEach
+    void setUp() {
+        agenda = new AgendaProperties(ZONA, 30,
+            new AgendaProperties.Jornada(LocalTime.of(9, 0), LocalTime.of(11, 0), 15),
+            new AgendaProperties.Ocupacion(false, 30), new AgendaProperties.Recordatorios(60, 48), null, null);
+        ocupacionIndex = new OcupacionIndex(horaAgendadaRepository, agenda);
+        manana = LocalDate.now(ZONA).plusDays(1);
+    }
+
+    private HoraOcupada ocupada(String id, LocalDate dia, int hora, int minuto) {
+        return new HoraOcupada(id, agenda.inicioDe(dia), hora, minuto, "pet1");
+    }
+
+    private HoraAgendada hora(String id, int hora, int minuto, String mascotaId) {
+        HoraAgendada horaAgendada = new HoraAgendada(id, agenda.inicioDe(manana), hora, minuto, "Control", "user123");
+        horaAgendada.setMascotaId(mascotaId);
+        return horaAgendada;
+    }
+
+    @Test
+    @DisplayName("Debe rechazar una hora que se cruza con otra ya reservada")
+    void debeRechazarHoraQueSeCruzaConOtra() {
+        ocupacionIndex.reservar(hora("1", 10, 0, "pet1"));
+
+        assertThrows(HorarioNoDisponibleException.class, () -> ocupacionIndex.reservar(hora("2", 10, 0, "pet2")));
+        assertThrows(HorarioNoDisponibleException.class, () -> ocupacionIndex.reservar(hora("3", 10, 29, "pet2")));
+        assertThrows(HorarioNoDisponibleException.class, () -> ocupacionIndex.reservar(hora("4", 9, 31, "pet2")));
+        assertDoesNotThrow(() -> ocupacionIndex.reservar(hora("5", 10, 30, "pet2")));
+        assertDoesNotThrow(() -> ocupacionIndex.reservar(hora("6", 9, 30, "pet2")));
+    }
+
+    @Test
+    @DisplayName("Debe permitir mover una hora sobre su propio horario")
+    void debePermitirMoverHoraSobreSuPropioHorario() {
+        ocupacionIndex.reservar(hora("1", 10, 0, "pet1"));
+
+        OcupacionIndex.Reserva previa = ocupacionIndex.reservar(hora("1", 10, 15, "pet1"));
+
+        // Hasta el commit se conservan ambos bloques
+        assertEquals(600, previa.desde());
+        assertFalse(ocupacionIndex.estaLibre(manana, 9, 45, null));
+        ocupacionIndex.confirmarCambio("1", previa);
+        assertFalse(ocupacionIndex.estaLibre(manana, 10, 15, null));
+        assertTrue(ocupacionIndex.estaLibre(manana, 9, 45, null));
+    }
+
+    @Test
+    @DisplayName("Debe volver a la reserva anterior al deshacer un cambio")
+    void debeVolverAReservaAnteriorAlDeshacer() {
+        ocupacionIndex.reservar(hora("1", 10, 0, "pet1"));
+        OcupacionIndex.Reserva previa = ocupacionIndex.reservar(hora("1", 12, 0, "pet1"));
+
+        ocupacionIndex.deshacer("1", previa);
+
+        assertFalse(ocupacionIndex.estaLibre(manana, 10, 0, null));
+        assertTrue(ocupacionIndex.estaLibre(manana, 12, 0, null));
+        ocupacionIndex.liberar("1");
+        assertTrue(ocupacionIndex.estaLibre(manana, 10, 0, null));
+    }
+
+    @Test
+    @DisplayName("Debe devolver lo tomado cuando la reserva choca a mitad de camino")
+    void debeDevolverLoTomadoCuandoLaReservaChoca() {
+        // Las 10:20 cruzan dos palabras: 620-639 está libre y 640-649 choca con la hora de las 10:45
+        ocupacionIndex.reservar(hora("1", 10, 45, "pet1"));
+
+        assertThrows(HorarioNoDisponibleException.class, () -> ocupacionIndex.reservar(hora("2", 10, 20, "pet1")));
+
+        assertTrue(ocupacionIndex.estaLibre(manana, 10, 15, null));
+        assertDoesNotThrow(() -> ocupacionIndex.reservar(hora("3", 10, 15, "pet1")));
+    }
+
+    @Test
+    @DisplayName("Debe liberar el horario de una hora eliminada")
+    void debeLiberarHorarioDeHoraEliminada() {
+        ocupacionIndex.reservar(hora("1", 23, 50, "pet1"));
+
+        ocupacionIndex.liberar("1");
+
+        assertTrue(ocupacionIndex.estaLibre(manana, 23, 50, null));
+        assertDoesNotThrow(() -> ocupacionIndex.reservar(hora("2", 23, 45, "pet1")));
+    }
+
+    @Test
+    @DisplayName("Debe evaluar choques por mascota cuando está configurado")
+    void debeEvaluarChoquesPorMascota() {
+        ocupacionIndex = new OcupacionIndex(horaAgendadaRepository, new AgendaProperties(ZONA, 30,
+            agenda.jornada(), new AgendaProperties.Ocupacion(true, 30), agenda.recordatorios(), agenda.eventos(), agenda.archivo()));
+        ocupacionIndex.reservar(hora("1", 10, 0, "pet1"));
+
+        assertDoesNotThrow(() -> ocupacionIndex.reservar(hora("2", 10, 0, "pet2")));
+        assertThrows(HorarioNoDisponibleException.class, () -> ocupacionIndex.reservar(hora("3", 10, 10, "pet1")));
+    }
+
+    @Test
+    @DisplayName("Debe listar los horarios libres de la jornada")
+    void debeListarHorariosLibresDeLaJornada() {
+        ocupacionIndex.reservar(hora("1", 9, 30, "pet1"));
+
+        List<HorarioLibre> libres = ocupacionIndex.horariosLibres(manana, 30, 10, null);
+
+        assertEquals(List.of(
+            new HorarioLibre(9, 0),
+            new HorarioLibre(10, 0),
+            new HorarioLibre(10, 15),
+            new HorarioLibre(10, 30)), libres);
+        assertEquals(2, ocupacionIndex.horariosLibres(manana, 30, 2, null).size());
+    }
+
+    @Test
+    @DisplayName("Debe reconstruirse desde la base de datos hasta el horizonte")
+    void debeReconstruirseHastaElHorizonte() {
+        // Given: las canceladas ya quedan fuera de la consulta
+        when(horaAgendadaRepository.streamOcupadasEntre(agenda.inicioDe(LocalDate.now(ZONA)),
+                agenda.inicioDe(LocalDate.now(ZONA).plusDays(30))))
+            .thenReturn(Stream.of(ocupada("1", manana, 10, 0)));
+
+        // When
+        ocupacionIndex.reconstruir();
+
+        // Then: dentro del horizonte no se vuelve a consultar la tabla
+        assertFalse(ocupacionIndex.estaLibre(manana, 10, 0, null));
+        assertTrue(ocupacionIndex.estaLibre(manana, 11, 0, null));
+        verify(horaAgendadaRepository, never()).findOcupadasEntre(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Debe cargar desde la base de datos un día más allá del horizonte antes de reservar en él")
+    void debeCargarDiaMasAllaDelHorizonte() {
+        // Given
+        LocalDate lejano = LocalDate.now(ZONA).plusDays(400);
+        when(horaAgendadaRepository.streamOcupadasEntre(anyLong(), anyLong())).thenReturn(Stream.empty());
+        when(horaAgendadaRepository.findOcupadasEntre(agenda.inicioDe(lejano), agenda.inicioDe(lejano.plusDays(1))))
+            .thenReturn(List.of(ocupada("1", lejano, 10, 0)));
+        ocupacionIndex.reconstruir();
+        HoraAgendada choca = new HoraAgendada("2", agenda.inicioDe(lejano), 10, 15, "Control", "user123");
+        HoraAgendada libre = new HoraAgendada("3", agenda.inicioDe(lejano), 11, 0, "Control", "user123");
+
+        // When / Then
+        assertThrows(HorarioNoDisponibleException.class, () -> ocupacionIndex.reservar(choca));
+        assertDoesNotThrow(() -> ocupacionIndex.reservar(libre));
+        verify(horaAgendadaRepository, times(1)).findOcupadasEntre(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Debe calcular la máscara de bits de un rango")
+    void debeCalcularMascaraDeBitsDeUnRango() {
+        assertEquals(-1L, OcupacionIndex.mascara(0, 0, 64));
+        assertEquals(0b1110L, OcupacionIndex.mascara(0, 1, 4));
+        assertEquals(1L, OcupacionIndex.mascara(1, 60, 65));
+        assertEquals(0xF000_0000_0000_0000L, OcupacionIndex.mascara(0, 60, 65));
+    }
+}
@@ -0,0 +1,115 @@
+package com.appvet.horas.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.appvet.horas.dto.HoraResumen;
+import com.appvet.horas.dto.Pagina;
+import com.appvet.horas.model.HoraAgendada;
+
+// Mide el p99 de pedir una página a una profundidad aleatoria de la tabla a medida que crece.
+// Ejecutar con: mvn test -Dgroups=benchmark -DexcludedGroups= -Dbenchmark.filas=10000,100000,1000000,5000000
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("Benchmark de paginación por cursor")
+class PaginacionBenchmarkTest {
+
+    private static final long FECHA_BASE = 1_767_225_600_000L; // 2026-01-01T00:00:00Z
+    private static final long DIA = 86_400_000L;
+    private static final int HORAS_POR_DIA = 40;
+    private static final int CONSULTAS = 500;
+    private static final int TAMANO_PAGINA = 50;
+
+    @Autowired
+    private HoraAgendadaService horaAgendadaService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("El p99 por página se mantiene plano al crecer la tabla")
+    void p99SeMantienePlanoAlCrecerLaTabla() {
+        int[] tamanos = Arrays.stream(System.getProperty("benchmark.filas", "10000,100000,1000000").split(","))
+            .mapToInt(Integer::parseInt)
+            .toArray();
+        double[] p99 = new double[tamanos.length];
+        jdbcTemplate.update("DELETE FROM horas_agendadas");
+        int insertadas = 0;
+        for (int i = 0; i < tamanos.length; i++) {
+            insertarFilas(insertadas, tamanos[i]);
+            insertadas = tamanos[i];
+            p99[i] = medirP99(tamanos[i]);
+            System.out.printf("filas=%,d p99=%.3f ms%n", tamanos[i], p99[i]);
+        }
+        // Holgura amplia para el ruido del JIT y de H2; un OFFSET crecería de forma lineal
+        assertTrue(p99[p99.length - 1] <= p99[0] * 5 + 5,
+            "El p99 creció con el tamaño de la tabla: " + Arrays.toString(p99));
+    }
+
+    private double medirP99(int filas) {
+        Random random = new Random(42);
+        for (int i = 0; i < CONSULTAS / 5; i++) {
+            pedirPagina(random.nextInt(filas));
+        }
+        List<Long> tiempos = new ArrayList<>(CONSULTAS);
+        for (int i = 0; i < CONSULTAS; i++) {
+            int fila = random.nextInt(filas);
+            long inicio = System.nanoTime();
+            Pagina<HoraResumen> pagina = pedirPagina(fila);
+            tiempos.add(System.nanoTime() - inicio);
+            assertEquals(Math.min(TAMANO_PAGINA, filas - fila - 1), pagina.items().size());
+        }
+        tiempos.sort(null);
+        return tiempos.get((int) Math.ceil(CONSULTAS * 0.99) - 1) / 1_000_000.0;
+    }
+
+    private Pagina<HoraResumen> pedirPagina(int fila) {
+        return horaAgendadaService.obtenerTodas(CursorPaginacion.codificar(resumen(filaGenerada(fila))), TAMANO_PAGINA);
+    }
+
+    private void insertarFilas(int desde, int hasta) {
+        List<Object[]> lote = new ArrayList<>();
+        for (int i = desde; i < hasta; i++) {
+            HoraAgendada hora = filaGenerada(i);
+            lote.add(new Object[] {
+                hora.getId(), hora.getFecha(), hora.getHora(), hora.getMinuto(), hora.getTipo(), hora.getUsuarioId()
+            });
+            if (lote.size() == 5_000 || i == hasta - 1) {
+                jdbcTemplate.batchUpdate(
+                    "INSERT INTO horas_agendadas (id, fecha, hora, minuto, tipo, usuario_id, estado) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, 'Pendiente')", lote);
+                lote.clear();
+            }
+        }
+    }
+
+    private static HoraResumen resumen(HoraAgendada hora) {
+        return new HoraResumen(hora.getId(), hora.getFecha(), hora.getHora(), hora.getMinuto(), hora.getTipo(),
+            hora.getUsuarioId(), null, "Pendiente", null, null);
+    }
+
+    // Fila i de un calendario sintético: 40 horas por día, cada 15 minutos desde las 8:00
+    private static HoraAgendada filaGenerada(int i) {
+        int enElDia = i % HORAS_POR_DIA;
+        return new HoraAgendada(
+            String.format("h-%010d", i),
+            FECHA_BASE + (i / HORAS_POR_DIA) * DIA,
+            8 + enElDia / 4,
+            (enElDia % 4) * 15,
+            "Control",
+            "u" + (i % 1_000));
+    }
+}
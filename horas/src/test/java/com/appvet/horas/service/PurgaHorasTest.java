@@ -0,0 +1,154 @@
+package com.appvet.horas.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.appvet.horas.model.Eliminacion;
+import com.appvet.horas.repository.EliminacionRepository;
+
+// Purga real contra H2, con lotes de 2 filas para que un usuario ocupe varios lotes
+@SpringBootTest(properties = {
+    "appvet.horas.purga.filas-por-lote=2",
+    "appvet.horas.purga.pausa-entre-lotes=0ms",
+    "appvet.horas.purga.claves-por-tramo=2"
+})
+@ActiveProfiles("h2")
+@DisplayName("Tests para PurgaHoras")
+class PurgaHorasTest {
+
+    private static final long FECHA = 1_767_225_600_000L; // 2026-01-01T00:00:00Z
+    private static final LocalDateTime ANTIGUA = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Autowired
+    private PurgaHoras purgaHoras;
+
+    @Autowired
+    private EliminacionRepository eliminacionRepository;
+
+    @Autowired
+    private ContadorHoras contadorHoras;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM horas_agendadas WHERE id LIKE 'purga-%'");
+        jdbcTemplate.update("DELETE FROM horas_agendadas_historico WHERE id LIKE 'purga-%'");
+        jdbcTemplate.update("DELETE FROM eliminaciones");
+        // En appvet_db son tablas de los otros microservicios; aquí basta con su id
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS usuarios (id VARCHAR(36) NOT NULL, PRIMARY KEY (id))");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS mascotas (id VARCHAR(36) NOT NULL, PRIMARY KEY (id))");
+    }
+
+    @Test
+    @DisplayName("Debe borrar en lotes las horas del usuario eliminado, también del histórico, y marcar el evento")
+    void debePurgarHorasDelUsuarioEliminado() {
+        // Given: 5 horas del eliminado (3 lotes), una archivada y una de otro usuario
+        for (int i = 0; i < 5; i++) {
+            insertar("purga-" + i, "purga-eliminado", null, null);
+        }
+        insertar("purga-otra", "purga-vigente", null, null);
+        jdbcTemplate.update("INSERT INTO horas_agendadas_historico (id, fecha, hora, minuto, tipo, usuario_id, estado, "
+            + "version, fecha_archivado) VALUES ('purga-archivada', ?, 10, 0, 'Control', 'purga-eliminado', "
+            + "'Completada', 0, CURRENT_TIMESTAMP)", FECHA);
+        contadorHoras.reconciliar();
+        Long id = eliminacionRepository.save(evento(Eliminacion.USUARIO, "purga-eliminado")).getId();
+
+        // When
+        int procesadas = purgaHoras.procesarPendientes();
+
+        // Then
+        assertEquals(1, procesadas);
+        assertEquals(List.of("purga-otra"), idsEnAgenda());
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM horas_agendadas_historico WHERE id LIKE 'purga-%'", Integer.class));
+        assertEquals(0L, contadorHoras.contarPorUsuario("purga-eliminado").orElseThrow());
+        assertNotNull(eliminacionRepository.findById(id).orElseThrow().getPurgadaHoras());
+        assertEquals(0, purgaHoras.procesarPendientes());
+    }
+
+    @Test
+    @DisplayName("Debe cortar la pasada al vencer el plazo y dejar el evento pendiente")
+    void debeCortarLaPasadaAlVencerElPlazo() {
+        // Given: 5 horas del eliminado; con el plazo ya vencido solo alcanza el primer lote
+        for (int i = 0; i < 5; i++) {
+            insertar("purga-" + i, "purga-eliminado", null, null);
+        }
+        Long id = eliminacionRepository.save(evento(Eliminacion.USUARIO, "purga-eliminado")).getId();
+
+        // When
+        int procesadas = purgaHoras.procesarPendientes(PurgaHoras.Plazo.de(Duration.ZERO));
+
+        // Then
+        assertEquals(0, procesadas);
+        assertEquals(3, idsEnAgenda().size());
+        assertNull(eliminacionRepository.findById(id).orElseThrow().getPurgadaHoras());
+        assertEquals(1, purgaHoras.procesarPendientes());
+        assertEquals(List.of(), idsEnAgenda());
+    }
+
+    @Test
+    @DisplayName("Debe borrar solo las horas de la mascota eliminada")
+    void debePurgarHorasDeLaMascotaEliminada() {
+        // Given
+        insertar("purga-m1", "purga-dueno", "purga-mascota-1", null);
+        insertar("purga-m2", "purga-dueno", "purga-mascota-2", null);
+        eliminacionRepository.save(evento(Eliminacion.MASCOTA, "purga-mascota-1"));
+
+        // When
+        purgaHoras.procesarPendientes();
+
+        // Then
+        assertEquals(List.of("purga-m2"), idsEnAgenda());
+    }
+
+    @Test
+    @DisplayName("Debe reconciliar solo las horas huérfanas anteriores al corte")
+    void debeReconciliarHuerfanas() {
+        // Given: existen "purga-u-vigente" y "purga-m-vigente"; las horas sin fecha de creación no
+        // cuentan como antiguas
+        jdbcTemplate.update("MERGE INTO usuarios (id) VALUES ('purga-u-vigente')");
+        jdbcTemplate.update("MERGE INTO mascotas (id) VALUES ('purga-m-vigente')");
+        insertar("purga-r1", "purga-u-borrado", null, ANTIGUA);
+        insertar("purga-r2", "purga-u-borrado", null, ANTIGUA);
+        insertar("purga-r3", "purga-u-vigente", "purga-m-borrada", ANTIGUA);
+        insertar("purga-r4", "purga-u-vigente", "purga-m-vigente", ANTIGUA);
+        insertar("purga-r5", "purga-u-reciente", null, LocalDateTime.now());
+        insertar("purga-r6", "purga-u-sin-fecha", null, null);
+
+        // When
+        int purgadas = purgaHoras.reconciliarAnterioresA(LocalDateTime.of(2025, 1, 1, 0, 0));
+
+        // Then
+        assertEquals(3, purgadas);
+        assertEquals(List.of("purga-r4", "purga-r5", "purga-r6"), idsEnAgenda());
+    }
+
+    private static Eliminacion evento(String tipo, String entidadId) {
+        return new Eliminacion(null, tipo, entidadId, LocalDateTime.now(), null, null);
+    }
+
+    private List<String> idsEnAgenda() {
+        return jdbcTemplate.queryForList("SELECT id FROM horas_agendadas WHERE id LIKE 'purga-%' ORDER BY id", String.class);
+    }
+
+    private void insertar(String id, String usuarioId, String mascotaId, LocalDateTime creacion) {
+        jdbcTemplate.update("INSERT INTO horas_agendadas (id, fecha, hora, minuto, tipo, usuario_id, mascota_id, estado, "
+            + "fecha_creacion) VALUES (?, ?, 10, 0, 'Control', ?, ?, 'Pendiente', ?)",
+            id, FECHA, usuarioId, mascotaId, creacion == null ? null : Timestamp.valueOf(creacion));
+    }
+}
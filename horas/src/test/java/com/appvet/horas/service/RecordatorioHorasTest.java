@@ -0,0 +1,138 @@
+package com.appvet.horas.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.appvet.horas.config.AgendaProperties;
+import com.appvet.horas.dto.CitaProgramada;
+import com.appvet.horas.model.HoraAgendada;
+import com.appvet.horas.repository.HoraAgendadaRepository;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests para RecordatorioHoras")
+class RecordatorioHorasTest {
+
+    private static final ZoneId ZONA = ZoneId.of("America/Santiago");
+    // Recordatorios 60 minutos antes, con 48 horas cargadas en memoria
+    private static final AgendaProperties AGENDA = new AgendaProperties(ZONA, 30,
+        new AgendaProperties.Jornada(LocalTime.of(8, 0), LocalTime.of(20, 0), 15),
+        new AgendaProperties.Ocupacion(false, 365), new AgendaProperties.Recordatorios(60, 48), null, null);
+
+    @Mock
+    private HoraAgendadaRepository horaAgendadaRepository;
+
+    @Mock
+    private Clock reloj;
+
+    private final List<String> enviados = new ArrayList<>();
+    private final LocalDate manana = LocalDate.of(2030, 3, 11);
+    private final long fechaManana = AGENDA.inicioDe(manana);
+    private RecordatorioHoras recordatorios;
+    private Instant ahora;
+
+    @BeforeEach
+    void setUp() {
+        ahora = manana.minusDays(1).atTime(12, 0).atZone(ZONA).toInstant();
+        when(reloj.millis()).thenAnswer(i -> ahora.toEpochMilli());
+        // Destino en memoria en vez del log
+        DestinoRecordatorios enMemoria = (hora, cita) -> enviados.add(hora.getId() + "@" + cita);
+        recordatorios = new RecordatorioHoras(horaAgendadaRepository, AGENDA, List.of(enMemoria), reloj);
+    }
+
+    private HoraAgendada hora(String id, int hora, String estado) {
+        HoraAgendada h = new HoraAgendada(id, fechaManana, hora, 0, "Control", "user1");
+        h.setEstado(estado);
+        return h;
+    }
+
+    private void transcurrir(Duration duracion) {
+        ahora = ahora.plus(duracion);
+        recordatorios.avanzar();
+    }
+
+    @Test
+    @DisplayName("Debe cargar las horas pendientes del horizonte y avisar una hora antes")
+    void debeCargarYAvisarUnaHoraAntes() {
+        // Given: mañana a las 10:00 y pasado mañana a las 15:00 (fuera de las 48 horas)
+        when(horaAgendadaRepository.findCitasPorEstadoEntre(eq("Pendiente"), anyLong(), anyLong())).thenReturn(List.of(
+            new CitaProgramada("1", fechaManana, 10, 0),
+            new CitaProgramada("2", AGENDA.inicioDe(manana.plusDays(1)), 15, 0)));
+        when(horaAgendadaRepository.findAllById(any())).thenReturn(List.of(hora("1", 10, "Pendiente")));
+        recordatorios.recargar();
+
+        // When: hasta las 8:59 de mañana no vence nada
+        transcurrir(Duration.ofHours(20).plusMinutes(59));
+        List<String> antes = List.copyOf(enviados);
+        transcurrir(Duration.ofMinutes(1));
+
+        // Then
+        assertTrue(antes.isEmpty());
+        Instant cita = manana.atTime(10, 0).atZone(ZONA).toInstant();
+        assertEquals(List.of("1@" + cita), enviados);
+        assertEquals(0, recordatorios.pendientes());
+    }
+
+    @Test
+    @DisplayName("Debe quitar el recordatorio cuando la hora deja de estar pendiente")
+    void debeQuitarRecordatorioDeHoraNoPendiente() {
+        // Given
+        recordatorios.programar(hora("1", 10, "Pendiente"));
+
+        // When
+        recordatorios.programar(hora("1", 10, "Cancelada"));
+        transcurrir(Duration.ofDays(1));
+
+        // Then
+        assertEquals(0, recordatorios.pendientes());
+        assertTrue(enviados.isEmpty());
+        verify(horaAgendadaRepository, never()).findAllById(any());
+    }
+
+    @Test
+    @DisplayName("Debe descartar el aviso si al vencer la hora ya no está pendiente en la base")
+    void debeDescartarAvisoDeHoraCambiadaEnLaBase() {
+        // Given: un cambio masivo la completó sin pasar por la rueda
+        recordatorios.programar(hora("1", 10, "Pendiente"));
+        when(horaAgendadaRepository.findAllById(any())).thenReturn(List.of(hora("1", 10, "Completada")));
+
+        // When
+        transcurrir(Duration.ofDays(1));
+
+        // Then
+        assertTrue(enviados.isEmpty());
+    }
+
+    @Test
+    @DisplayName("No debe programar horas cuyo momento de aviso ya pasó")
+    void noDebeProgramarAvisoPasado() {
+        // Given
+        ahora = manana.atTime(9, 30).atZone(ZONA).toInstant();
+
+        // When
+        recordatorios.programar(hora("1", 10, "Pendiente"));
+
+        // Then
+        assertEquals(0, recordatorios.pendientes());
+    }
+}
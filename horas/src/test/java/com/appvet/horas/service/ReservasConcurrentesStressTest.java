@@ -0,0 +1,121 @@
+package com.appvet.horas.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.appvet.horas.config.AgendaProperties;
+import com.appvet.horas.exception.HorarioNoDisponibleException;
+import com.appvet.horas.model.HoraAgendada;
+import com.appvet.horas.repository.HoraAgendadaRepository;
+
+// Dispara 10.000 reservas concurrentes sobre pocos horarios (muchos choques exactos y parciales)
+// y comprueba contra la base de datos que ningún par de horas activas se superpone. La versión
+// corta y determinista corre siempre en ReservasConcurrentesTest.
+// Ejecutar con: mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=ReservasConcurrentesStressTest
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("Stress de reservas concurrentes")
+class ReservasConcurrentesStressTest {
+
+    private static final int RESERVAS = 10_000;
+    private static final int HILOS = 32;
+    private static final int DIAS = 5;
+
+    @Autowired
+    private HoraAgendadaService horaAgendadaService;
+
+    @Autowired
+    private HoraAgendadaRepository horaAgendadaRepository;
+
+    @Autowired
+    private AgendaProperties agenda;
+
+    @Test
+    @DisplayName("No debe haber dobles reservas bajo concurrencia")
+    void noDebeHaberDoblesReservasBajoConcurrencia() throws Exception {
+        // Given
+        LocalDate primerDia = agenda.hoy().plusDays(100);
+        int apertura = agenda.jornada().apertura().getHour() * 60 + agenda.jornada().apertura().getMinute();
+        int cierre = agenda.jornada().cierre().getHour() * 60 + agenda.jornada().cierre().getMinute();
+        int intervalo = agenda.jornada().intervaloMinutos();
+        int horariosPorDia = (cierre - apertura) / intervalo;
+        Random random = new Random(42);
+        List<HoraAgendada> solicitudes = new ArrayList<>(RESERVAS);
+        for (int i = 0; i < RESERVAS; i++) {
+            int minuto = apertura + random.nextInt(horariosPorDia) * intervalo;
+            HoraAgendada hora = new HoraAgendada("stress-" + i, agenda.inicioDe(primerDia.plusDays(random.nextInt(DIAS))),
+                minuto / 60, minuto % 60, "Control", "user-" + (i % 100));
+            hora.setEstado("Pendiente");
+            solicitudes.add(hora);
+        }
+        AtomicInteger aceptadas = new AtomicInteger();
+        AtomicInteger rechazadas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+
+        // When
+        List<Future<?>> tareas = new ArrayList<>(RESERVAS);
+        for (HoraAgendada hora : solicitudes) {
+            tareas.add(executor.submit(() -> {
+                largada.await();
+                try {
+                    horaAgendadaService.guardar(hora);
+                    aceptadas.incrementAndGet();
+                } catch (HorarioNoDisponibleException e) {
+                    rechazadas.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        long inicio = System.nanoTime();
+        largada.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        System.out.printf("reservas=%,d hilos=%d aceptadas=%,d rechazadas=%,d tiempo=%.2f s throughput=%,.0f reservas/s%n",
+            RESERVAS, HILOS, aceptadas.get(), rechazadas.get(), segundos, RESERVAS / segundos);
+
+        // Then
+        List<HoraAgendada> guardadas = horaAgendadaRepository.findByFechaBetween(
+            agenda.inicioDe(primerDia), agenda.inicioDe(primerDia.plusDays(DIAS)) - 1);
+        assertEquals(RESERVAS, aceptadas.get() + rechazadas.get());
+        assertEquals(aceptadas.get(), guardadas.size());
+        Map<Long, List<HoraAgendada>> porDia = guardadas.stream()
+            .collect(Collectors.groupingBy(HoraAgendada::getFecha));
+        for (List<HoraAgendada> delDia : porDia.values()) {
+            delDia.sort(Comparator.comparingInt(h -> h.getHora() * 60 + h.getMinuto()));
+            for (int i = 1; i < delDia.size(); i++) {
+                HoraAgendada anterior = delDia.get(i - 1);
+                HoraAgendada siguiente = delDia.get(i);
+                int separacion = (siguiente.getHora() * 60 + siguiente.getMinuto()) - (anterior.getHora() * 60 + anterior.getMinuto());
+                assertTrue(separacion >= agenda.duracionCitaMinutos(),
+                    "Doble reserva entre " + anterior.getId() + " y " + siguiente.getId());
+            }
+        }
+        horaAgendadaRepository.deleteAllInBatch(guardadas);
+    }
+}
@@ -0,0 +1,140 @@
+package com.appvet.horas.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.appvet.horas.config.AgendaProperties;
+import com.appvet.horas.exception.HorarioNoDisponibleException;
+import com.appvet.horas.model.HoraAgendada;
+
+// Reservas que compiten por el mismo horario al mismo tiempo: gana exactamente una. Es la
+// comprobación corta de ReservasConcurrentesStressTest, que corre aparte como benchmark
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("Reservas concurrentes")
+class ReservasConcurrentesTest {
+
+    private static final int HILOS = 8;
+    private static final String USUARIO = "reservas-user";
+
+    @Autowired
+    private HoraAgendadaService horaAgendadaService;
+
+    @Autowired
+    private AgendaProperties agenda;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM horas_agendadas WHERE usuario_id = ?", USUARIO);
+    }
+
+    @Test
+    @DisplayName("Debe aceptar una sola de las reservas que piden el mismo horario")
+    void debeAceptarUnaSolaReservaDelMismoHorario() throws Exception {
+        // Given
+        long fecha = agenda.inicioDe(agenda.hoy().plusDays(120));
+        List<HoraAgendada> solicitudes = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            solicitudes.add(hora("mismo-" + i, fecha, 10 * 60));
+        }
+
+        // When
+        int aceptadas = reservarALaVez(solicitudes);
+
+        // Then
+        assertEquals(1, aceptadas);
+        assertEquals(1, guardadasEn(fecha));
+    }
+
+    @Test
+    @DisplayName("Debe aceptar una sola de dos reservas que se superponen en parte")
+    void debeAceptarUnaSolaReservaSuperpuesta() throws Exception {
+        // Given: la segunda empieza a mitad de la primera
+        long fecha = agenda.inicioDe(agenda.hoy().plusDays(121));
+        int mitad = agenda.duracionCitaMinutos() / 2;
+
+        // When
+        int aceptadas = reservarALaVez(List.of(hora("parcial-a", fecha, 10 * 60), hora("parcial-b", fecha, 10 * 60 + mitad)));
+
+        // Then
+        assertEquals(1, aceptadas);
+        assertEquals(1, guardadasEn(fecha));
+    }
+
+    @Test
+    @DisplayName("Debe aceptar todas las reservas de horarios que no se cruzan")
+    void debeAceptarReservasQueNoSeCruzan() throws Exception {
+        // Given: una tras otra, separadas exactamente por la duración de una cita
+        long fecha = agenda.inicioDe(agenda.hoy().plusDays(122));
+        List<HoraAgendada> solicitudes = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            solicitudes.add(hora("seguida-" + i, fecha, 8 * 60 + i * agenda.duracionCitaMinutos()));
+        }
+
+        // When
+        int aceptadas = reservarALaVez(solicitudes);
+
+        // Then
+        assertEquals(HILOS, aceptadas);
+        assertEquals(HILOS, guardadasEn(fecha));
+    }
+
+    // Suelta todas las reservas juntas y cuenta las aceptadas; un choque es el único rechazo esperado
+    private int reservarALaVez(List<HoraAgendada> solicitudes) throws Exception {
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(solicitudes.size());
+        try {
+            List<Future<Boolean>> tareas = new ArrayList<>();
+            for (HoraAgendada hora : solicitudes) {
+                Callable<Boolean> reserva = () -> {
+                    largada.await();
+                    try {
+                        horaAgendadaService.guardar(hora);
+                        return true;
+                    } catch (HorarioNoDisponibleException e) {
+                        return false;
+                    }
+                };
+                tareas.add(executor.submit(reserva));
+            }
+            largada.countDown();
+            int aceptadas = 0;
+            for (Future<Boolean> tarea : tareas) {
+                if (tarea.get()) {
+                    aceptadas++;
+                }
+            }
+            return aceptadas;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private HoraAgendada hora(String id, long fecha, int minutoDelDia) {
+        HoraAgendada hora = new HoraAgendada("reservas-" + id, fecha, minutoDelDia / 60, minutoDelDia % 60, "Control", USUARIO);
+        hora.setEstado("Pendiente");
+        return hora;
+    }
+
+    private int guardadasEn(long fecha) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM horas_agendadas WHERE usuario_id = ? AND fecha = ?",
+            Integer.class, USUARIO, fecha);
+    }
+}
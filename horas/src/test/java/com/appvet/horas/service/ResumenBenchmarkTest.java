@@ -0,0 +1,115 @@
+package com.appvet.horas.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.appvet.horas.repository.HoraAgendadaRepository;
+
+// Compara, para la misma página de 50 horas de un usuario, leer y serializar las entidades
+// completas contra el resumen sin notas. Las notas imitan lo que llega desde la app: texto
+// corto en la mayoría y una foto en data URI (~150 KB) en una de cada diez.
+// Ejecutar con: mvn test -Dgroups=benchmark -DexcludedGroups= -Dbenchmark.filas=100000
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("Benchmark de listados con resumen")
+class ResumenBenchmarkTest {
+
+    private static final long FECHA_BASE = 1_767_225_600_000L; // 2026-01-01T00:00:00Z
+    private static final long DIA = 86_400_000L;
+    private static final int USUARIOS = 200;
+    private static final int CONSULTAS = 300;
+    private static final int TAMANO_PAGINA = 50;
+
+    @Autowired
+    private HoraAgendadaService horaAgendadaService;
+
+    @Autowired
+    private HoraAgendadaRepository horaAgendadaRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("El resumen pesa y tarda menos que la entidad completa")
+    void resumenPesaYTardaMenos() {
+        int filas = Integer.parseInt(System.getProperty("benchmark.filas", "20000"));
+        jdbcTemplate.update("DELETE FROM horas_agendadas");
+        insertarFilas(filas);
+
+        Medicion entidades = medir(usuario -> horaAgendadaRepository.findBy(
+            CursorPaginacion.igual("usuarioId", usuario),
+            q -> q.sortBy(CursorPaginacion.ORDEN_AGENDA).limit(TAMANO_PAGINA).all()));
+        Medicion resumenes = medir(usuario -> horaAgendadaService.obtenerPorUsuario(usuario, null, TAMANO_PAGINA).items());
+
+        System.out.printf("entidad: %,d bytes por página, p99 %.3f ms%n", entidades.bytes(), entidades.p99());
+        System.out.printf("resumen: %,d bytes por página, p99 %.3f ms%n", resumenes.bytes(), resumenes.p99());
+        assertTrue(resumenes.bytes() * 10 < entidades.bytes(), "El resumen no achicó la respuesta");
+        // Holgura para el ruido del JIT y de H2
+        assertTrue(resumenes.p99() <= entidades.p99() * 1.2 + 1, "El resumen tardó más que la entidad");
+    }
+
+    private record Medicion(long bytes, double p99) {
+    }
+
+    // Lectura más serialización, que es lo que paga cada petición del listado
+    private Medicion medir(Function<String, List<?>> pagina) {
+        Random random = new Random(42);
+        for (int i = 0; i < CONSULTAS / 5; i++) {
+            serializar(pagina.apply("u" + random.nextInt(USUARIOS)));
+        }
+        List<Long> tiempos = new ArrayList<>(CONSULTAS);
+        long bytes = 0;
+        for (int i = 0; i < CONSULTAS; i++) {
+            String usuario = "u" + random.nextInt(USUARIOS);
+            long inicio = System.nanoTime();
+            bytes += serializar(pagina.apply(usuario)).length;
+            tiempos.add(System.nanoTime() - inicio);
+        }
+        tiempos.sort(null);
+        return new Medicion(bytes / CONSULTAS, tiempos.get((int) Math.ceil(CONSULTAS * 0.99) - 1) / 1_000_000.0);
+    }
+
+    private byte[] serializar(List<?> items) {
+        try {
+            return objectMapper.writeValueAsBytes(items);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void insertarFilas(int filas) {
+        String foto = "data:image/jpeg;base64," + "A".repeat(150_000);
+        String texto = "Control anual. Traer carnet de vacunas y muestra de deposiciones. ".repeat(3);
+        List<Object[]> lote = new ArrayList<>();
+        for (int i = 0; i < filas; i++) {
+            lote.add(new Object[] {
+                String.format("r-%010d", i), FECHA_BASE + (i / 40) * DIA, 8 + (i % 40) / 4, (i % 4) * 15,
+                "u" + (i % USUARIOS), (i / USUARIOS) % 10 == 0 ? foto : texto
+            });
+            if (lote.size() == 500 || i == filas - 1) {
+                jdbcTemplate.batchUpdate(
+                    "INSERT INTO horas_agendadas (id, fecha, hora, minuto, tipo, usuario_id, estado, notas) "
+                        + "VALUES (?, ?, ?, ?, 'Control', ?, 'Pendiente', ?)", lote);
+                lote.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.appvet.horas.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Tests para RuedaTemporal")
+class RuedaTemporalTest {
+
+    private static final long INICIO = 1_000_000L;
+
+    private RuedaTemporal rueda;
+    private List<String> vencidos;
+
+    @BeforeEach
+    void setUp() {
+        // Resolución de 1 ms para que los ticks y los milisegundos coincidan
+        rueda = new RuedaTemporal(1, INICIO, 16);
+        vencidos = new ArrayList<>();
+    }
+
+    private void avanzar(long hasta) {
+        rueda.avanzarHasta(hasta, (id, vence) -> vencidos.add(id + "@" + vence));
+    }
+
+    @Test
+    @DisplayName("Debe vencer cada temporizador en su tick exacto, en cualquier nivel")
+    void debeVencerEnElTickExacto() {
+        // Given: uno por nivel y uno más allá de la última rueda
+        long[] plazos = {5, 64, 100, 4_096, 70_000, 262_144, 300_000, 16_777_216L + 7};
+        for (long plazo : plazos) {
+            rueda.programar("t" + plazo, INICIO + plazo);
+        }
+
+        // When & Then
+        for (long plazo : plazos) {
+            avanzar(INICIO + plazo - 1);
+            assertFalse(vencidos.contains("t" + plazo + "@" + (INICIO + plazo)), "Vencido antes de tiempo: " + plazo);
+            avanzar(INICIO + plazo);
+            assertTrue(vencidos.contains("t" + plazo + "@" + (INICIO + plazo)), "No venció a tiempo: " + plazo);
+        }
+        assertEquals(plazos.length, vencidos.size());
+        assertEquals(0, rueda.tamano());
+    }
+
+    @Test
+    @DisplayName("Debe mover un temporizador al reprogramarlo con el mismo id")
+    void debeMoverAlReprogramar() {
+        // Given
+        rueda.programar("a", INICIO + 10_000);
+
+        // When
+        rueda.programar("a", INICIO + 20);
+        avanzar(INICIO + 20_000);
+
+        // Then
+        assertEquals(List.of("a@" + (INICIO + 20)), vencidos);
+    }
+
+    @Test
+    @DisplayName("No debe vencer un temporizador cancelado")
+    void noDebeVencerCancelado() {
+        // Given
+        rueda.programar("a", INICIO + 100);
+        rueda.programar("b", INICIO + 100);
+
+        // When
+        boolean cancelado = rueda.cancelar("a");
+        avanzar(INICIO + 200);
+
+        // Then
+        assertTrue(cancelado);
+        assertFalse(rueda.cancelar("a"));
+        assertEquals(List.of("b@" + (INICIO + 100)), vencidos);
+    }
+
+    @Test
+    @DisplayName("Debe vencer en el próximo tick lo programado en el pasado")
+    void debeVencerEnElProximoTickLoAtrasado() {
+        // Given
+        avanzar(INICIO + 50);
+
+        // When
+        rueda.programar("atrasado", INICIO - 1_000);
+        avanzar(INICIO + 51);
+
+        // Then
+        assertEquals(List.of("atrasado@" + (INICIO + 51)), vencidos);
+    }
+
+    @Test
+    @DisplayName("Debe manejar un millón de temporizadores programando y cancelando")
+    void debeManejarUnMillonDeTemporizadores() {
+        // Given
+        int cantidad = 1_000_000;
+        for (int i = 0; i < cantidad; i++) {
+            rueda.programar("hora-" + i, INICIO + 1 + (i * 7919L) % 172_800_000L);
+        }
+        for (int i = 0; i < cantidad; i += 2) {
+            rueda.cancelar("hora-" + i);
+        }
+
+        // When
+        long[] contados = new long[1];
+        long[] ultimo = {0};
+        boolean[] enOrden = {true};
+        rueda.avanzarHasta(INICIO + 172_800_000L, (id, vence) -> {
+            contados[0]++;
+            enOrden[0] &= vence >= ultimo[0];
+            ultimo[0] = vence;
+        });
+
+        // Then
+        assertEquals(cantidad / 2, contados[0]);
+        assertTrue(enOrden[0]);
+        assertEquals(0, rueda.tamano());
+        assertFalse(rueda.contiene("hora-1"));
+    }
+}
@@ -0,0 +1,17 @@
+package com.appvet.mascotas.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Caché de las mascotas de cada dueño (prefijo appvet.mascotas.cache).
+// maximoMascotas: total de mascotas guardadas sumando todos los dueños, que es lo que ocupa
+// memoria; pasado eso entra solo el dueño que se pide más que el que sale.
+// duracion: cuánto vive cada lista desde que se cargó. Es lo más que puede tardar en verse un
+// cambio hecho desde otra instancia; los de esta instancia se ven al tiro
+@ConfigurationProperties(prefix = "appvet.mascotas.cache")
+public record CacheMascotasProperties(
+        @DefaultValue("200000") long maximoMascotas,
+        @DefaultValue("10m") Duration duracion) {
+}
@@ -0,0 +1,24 @@
+package com.appvet.mascotas.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Limpieza en cascada de las mascotas de usuarios eliminados (prefijo appvet.mascotas.purga).
+// filasPorLote y pausaEntreLotes: lo que se borra por transacción y la espera entre una y otra.
+// eventosPorPasada: eliminaciones que se leen en cada pasada.
+// usuariosPorTramo y antiguedadMinima: la reconciliación revisa los dueños de a tramos y solo
+// toca mascotas registradas hace más de antiguedadMinima, para no adelantarse a un alta en curso.
+// duracionMaximaPasada y duracionMaximaReconciliacion: tope de cada pasada; lo que no alcanza
+// queda para la siguiente
+@ConfigurationProperties(prefix = "appvet.mascotas.purga")
+public record PurgaProperties(
+        @DefaultValue("500") int filasPorLote,
+        @DefaultValue("200ms") Duration pausaEntreLotes,
+        @DefaultValue("100") int eventosPorPasada,
+        @DefaultValue("1000") int usuariosPorTramo,
+        @DefaultValue("1d") Duration antiguedadMinima,
+        @DefaultValue("20s") Duration duracionMaximaPasada,
+        @DefaultValue("30m") Duration duracionMaximaReconciliacion) {
+}
@@ -1,10 +1,17 @@
 package com.appvet.mascotas.controller;
 
+import com.appvet.mascotas.dto.EstadisticasCache;
+import com.appvet.mascotas.dto.MascotaResumen;
+import com.appvet.mascotas.dto.PorIds;
+import com.appvet.mascotas.dto.ResultadoFiltro;
+import com.appvet.mascotas.exception.VersionNoCoincideException;
 import com.appvet.mascotas.model.Mascota;
 import com.appvet.mascotas.service.MascotaService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,13 +26,19 @@ import java.util.Map;
 @CrossOrigin(origins = "*") // Permite peticiones desde cualquier origen (Android)
 public class MascotaController {
     
+    // Máximo de ids por búsqueda por ids
+    private static final int LIMITE_IDS = 5000;
+    
+    // Máximo de resultados de la búsqueda por nombre
+    private static final int LIMITE_BUSQUEDA = 50;
+    
     private final MascotaService mascotaService;
     
-    // GET - Obtener todas las mascotas
+    // GET - Obtener todas las mascotas (resumen, sin fotoUri: la foto viene en GET /{id})
     @GetMapping
-    public ResponseEntity<List<Mascota>> obtenerTodas() {
+    public ResponseEntity<List<MascotaResumen>> obtenerTodas() {
         log.info("GET /api/mascotas - Obteniendo todas las mascotas");
-        List<Mascota> mascotas = mascotaService.obtenerTodas();
+        List<MascotaResumen> mascotas = mascotaService.obtenerResumenes();
         return ResponseEntity.ok(mascotas);
     }
     
@@ -34,23 +47,72 @@ public class MascotaController {
     public ResponseEntity<Mascota> obtenerPorId(@PathVariable String id) {
         log.info("GET /api/mascotas/{} - Buscando mascota", id);
         return mascotaService.obtenerPorId(id)
-            .map(ResponseEntity::ok)
+            .map(mascota -> ResponseEntity.ok().eTag(Etags.de(mascota.getVersion())).body(mascota))
             .orElse(ResponseEntity.notFound().build());
     }
     
+    // POST - Varias mascotas completas en una sola petición: en el orden pedido y con los ids
+    // que no existen en "faltantes"
+    @PostMapping("/by-ids")
+    public ResponseEntity<PorIds<Mascota>> obtenerPorIds(@RequestBody List<String> ids) {
+        log.info("POST /api/mascotas/by-ids - {} ids", ids.size());
+        if (ids.isEmpty() || ids.size() > LIMITE_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(mascotaService.obtenerPorIds(ids));
+    }
+    
+    // GET - Filtrar por cualquier combinación de especie, rango de edad y dueño, de a "limite"
+    // (50 por defecto, 200 como máximo). La primera página trae además los conteos por especie
+    // y por tramo de edad; las siguientes se piden con el siguienteCursor de la anterior
+    @GetMapping("/filtrar")
+    public ResponseEntity<ResultadoFiltro> filtrar(
+            @RequestParam(required = false) String especie,
+            @RequestParam(required = false) Integer edadMin,
+            @RequestParam(required = false) Integer edadMax,
+            @RequestParam(required = false) String usuarioId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        log.info("GET /api/mascotas/filtrar - Filtrando mascotas");
+        try {
+            return ResponseEntity.ok(mascotaService.filtrar(especie, edadMin, edadMax, usuarioId, cursor, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    // GET - Buscar por nombre mientras se escribe: "lu" encuentra Luna y Don Lucas; con tres o
+    // más letras también lo que las contiene. Las mejores coincidencias primero. 503 mientras
+    // el índice se carga al iniciar
+    @GetMapping("/buscar")
+    public ResponseEntity<List<MascotaResumen>> buscarPorNombre(
+            @RequestParam String q,
+            @RequestParam(required = false) String usuarioId,
+            @RequestParam(defaultValue = "20") int limite) {
+        log.info("GET /api/mascotas/buscar?q={} - Buscando mascotas por nombre", q);
+        if (limite < 1 || limite > LIMITE_BUSQUEDA) {
+            return ResponseEntity.badRequest().build();
+        }
+        return mascotaService.buscarPorNombre(q, usuarioId, limite)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .build());
+    }
+    
     // GET - Obtener mascotas por usuario
     @GetMapping("/usuario/{usuarioId}")
-    public ResponseEntity<List<Mascota>> obtenerPorUsuario(@PathVariable String usuarioId) {
+    public ResponseEntity<List<MascotaResumen>> obtenerPorUsuario(@PathVariable String usuarioId) {
         log.info("GET /api/mascotas/usuario/{} - Obteniendo mascotas del usuario", usuarioId);
-        List<Mascota> mascotas = mascotaService.obtenerPorUsuario(usuarioId);
+        List<MascotaResumen> mascotas = mascotaService.obtenerResumenesPorUsuario(usuarioId);
         return ResponseEntity.ok(mascotas);
     }
     
     // GET - Obtener mascotas por especie
     @GetMapping("/especie/{especie}")
-    public ResponseEntity<List<Mascota>> obtenerPorEspecie(@PathVariable String especie) {
+    public ResponseEntity<List<MascotaResumen>> obtenerPorEspecie(@PathVariable String especie) {
         log.info("GET /api/mascotas/especie/{} - Obteniendo mascotas de especie", especie);
-        List<Mascota> mascotas = mascotaService.obtenerPorEspecie(especie);
+        List<MascotaResumen> mascotas = mascotaService.obtenerResumenesPorEspecie(especie);
         return ResponseEntity.ok(mascotas);
     }
     
@@ -62,23 +124,38 @@ public class MascotaController {
         return ResponseEntity.ok(Map.of("count", count));
     }
     
-    // POST - Crear nueva mascota
+    // POST - Crear nueva mascota. 409 si otra petición creó a la vez una con el mismo id
     @PostMapping
     public ResponseEntity<Mascota> crear(@Valid @RequestBody Mascota mascota) {
         log.info("POST /api/mascotas - Creando nueva mascota: {}", mascota.getNombre());
-        Mascota nuevaMascota = mascotaService.guardar(mascota);
-        return ResponseEntity.status(HttpStatus.CREATED).body(nuevaMascota);
+        try {
+            Mascota nuevaMascota = mascotaService.guardar(mascota);
+            return ResponseEntity.status(HttpStatus.CREATED).body(nuevaMascota);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Alta concurrente con el mismo ID de mascota: {}", mascota.getId());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
     
-    // PUT - Actualizar mascota existente
+    // PUT - Actualizar mascota existente. Con If-Match la escritura es condicional y responde
+    // 204 con el ETag nuevo, o 412 si la versión ya cambió
     @PutMapping("/{id}")
     public ResponseEntity<Mascota> actualizar(
             @PathVariable String id,
-            @Valid @RequestBody Mascota mascota) {
+            @Valid @RequestBody Mascota mascota,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("PUT /api/mascotas/{} - Actualizando mascota", id);
         try {
+            Long version = Etags.versionDe(ifMatch);
+            if (version != null) {
+                long nueva = mascotaService.actualizar(id, mascota, version);
+                return ResponseEntity.noContent().eTag(Etags.de(nueva)).build();
+            }
             Mascota mascotaActualizada = mascotaService.actualizar(id, mascota);
             return ResponseEntity.ok(mascotaActualizada);
+        } catch (VersionNoCoincideException e) {
+            log.warn("Conflicto de versión al actualizar mascota: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
         } catch (RuntimeException e) {
             log.error("Error al actualizar mascota: {}", e.getMessage());
             return ResponseEntity.notFound().build();
@@ -87,17 +164,33 @@ public class MascotaController {
     
     // DELETE - Eliminar mascota
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> eliminar(@PathVariable String id) {
+    public ResponseEntity<Void> eliminar(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("DELETE /api/mascotas/{} - Eliminando mascota", id);
         try {
-            mascotaService.eliminar(id);
+            Long version = Etags.versionDe(ifMatch);
+            if (version != null) {
+                mascotaService.eliminar(id, version);
+            } else {
+                mascotaService.eliminar(id);
+            }
             return ResponseEntity.noContent().build();
+        } catch (VersionNoCoincideException e) {
+            log.warn("Conflicto de versión al eliminar mascota: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
         } catch (RuntimeException e) {
             log.error("Error al eliminar mascota: {}", e.getMessage());
             return ResponseEntity.notFound().build();
         }
     }
     
+    // Aciertos, fallos, expulsiones y tamaño de la caché de mascotas por dueño de esta instancia
+    @GetMapping("/cache")
+    public ResponseEntity<EstadisticasCache> estadisticasCache() {
+        return ResponseEntity.ok(mascotaService.estadisticasCache());
+    }
+    
     // GET - Health check
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> healthCheck() {
@@ -0,0 +1,5 @@
+package com.appvet.mascotas.dto;
+
+// Lo que hace falta saber de una mascota antes de borrarla: a quién descontarla y su versión
+public record ClaveMascota(String usuarioId, Long version) {
+}
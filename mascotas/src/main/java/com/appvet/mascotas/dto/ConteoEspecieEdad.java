@@ -0,0 +1,5 @@
+package com.appvet.mascotas.dto;
+
+// Mascotas por combinación de especie y edad; de aquí salen las dos facetas de /filtrar
+public record ConteoEspecieEdad(String especie, Integer edad, long cantidad) {
+}
@@ -0,0 +1,5 @@
+package com.appvet.mascotas.dto;
+
+// Resultado del COUNT de mascotas agrupado por usuario
+public record ConteoPorUsuario(String usuarioId, long cantidad) {
+}
@@ -0,0 +1,6 @@
+package com.appvet.mascotas.dto;
+
+// Contadores de la caché de mascotas por dueño desde que arrancó la instancia
+public record EstadisticasCache(long aciertos, long fallos, long expulsiones, double tasaAciertos, long duenos,
+                                long mascotas) {
+}
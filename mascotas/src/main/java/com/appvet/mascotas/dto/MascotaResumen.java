@@ -0,0 +1,9 @@
+package com.appvet.mascotas.dto;
+
+import java.time.LocalDateTime;
+
+// Una mascota en los listados: todo menos fotoUri (TEXT, suele ser un data URI), que solo viene
+// en GET /{id}. fotoIcono alcanza para dibujar la lista
+public record MascotaResumen(String id, String nombre, Integer edad, String especie, Integer fotoIcono,
+                             String usuarioId, LocalDateTime fechaRegistro, LocalDateTime fechaActualizacion) {
+}
@@ -0,0 +1,5 @@
+package com.appvet.mascotas.dto;
+
+// Lo único que lee de cada fila el índice de nombres al armarse
+public record NombreMascota(String id, String nombre) {
+}
@@ -0,0 +1,25 @@
+package com.appvet.mascotas.dto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Resultado de buscar por lista de ids: los encontrados en el orden en que se pidieron y los
+// ids que no existen, también en ese orden
+public record PorIds<T>(List<T> encontrados, List<String> faltantes) {
+
+    public static <T> PorIds<T> ordenar(Collection<String> ids, Map<String, T> porId) {
+        List<T> encontrados = new ArrayList<>(porId.size());
+        List<String> faltantes = new ArrayList<>();
+        for (String id : ids) {
+            T valor = porId.get(id);
+            if (valor != null) {
+                encontrados.add(valor);
+            } else {
+                faltantes.add(id);
+            }
+        }
+        return new PorIds<>(encontrados, faltantes);
+    }
+}
@@ -0,0 +1,14 @@
+package com.appvet.mascotas.dto;
+
+import java.util.List;
+import java.util.Map;
+
+// Página de GET /api/mascotas/filtrar con el cursor de la siguiente (null si no hay más).
+// Las facetas vienen solo en la primera página, la que no lleva cursor
+public record ResultadoFiltro(List<MascotaResumen> items, String siguienteCursor, Facetas facetas) {
+
+    // total cumple todos los filtros. porEspecie respeta todos menos el de especie y porEdad
+    // todos menos el de edad, así cada faceta muestra a cuánto se llega cambiando solo ese filtro
+    public record Facetas(long total, Map<String, Long> porEspecie, Map<String, Long> porEdad) {
+    }
+}
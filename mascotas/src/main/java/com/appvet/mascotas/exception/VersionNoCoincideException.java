@@ -0,0 +1,9 @@
+package com.appvet.mascotas.exception;
+
+// La versión indicada en If-Match ya no es la actual: otra petición modificó el registro
+public class VersionNoCoincideException extends RuntimeException {
+
+    public VersionNoCoincideException(String message) {
+        super(message);
+    }
+}
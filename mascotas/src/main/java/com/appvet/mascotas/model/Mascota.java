@@ -1,5 +1,6 @@
 package com.appvet.mascotas.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
@@ -55,6 +56,12 @@ public class Mascota {
     @Column(name = "fecha_actualizacion")
     private LocalDateTime fechaActualizacion;
     
+    // Control optimista: viaja como ETag, no en el cuerpo
+    @Version
+    @JsonIgnore
+    @Column(name = "version", nullable = false)
+    private Long version;
+    
     // Constructor sin timestamps (para crear desde Android)
     public Mascota(String id, String nombre, Integer edad, String especie, String fotoUri, String usuarioId) {
         this.id = id;
@@ -0,0 +1,24 @@
+package com.appvet.mascotas.repository;
+
+import com.appvet.mascotas.model.Eliminacion;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EliminacionRepository extends JpaRepository<Eliminacion, Long> {
+    
+    // Los que mascotas aún no purga, del más antiguo al más nuevo (idx_eliminaciones_mascotas)
+    @Query("SELECT e FROM Eliminacion e WHERE e.purgadaMascotas IS NULL ORDER BY e.id")
+    List<Eliminacion> findPendientesParaMascotas(Limit limite);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Eliminacion e SET e.purgadaMascotas = :ahora WHERE e.id = :id")
+    int marcarPurgadaEnMascotas(@Param("id") Long id, @Param("ahora") LocalDateTime ahora);
+}
@@ -1,15 +1,32 @@
 package com.appvet.mascotas.repository;
 
+import com.appvet.mascotas.dto.ClaveMascota;
+import com.appvet.mascotas.dto.ConteoEspecieEdad;
+import com.appvet.mascotas.dto.ConteoPorUsuario;
+import com.appvet.mascotas.dto.MascotaResumen;
+import com.appvet.mascotas.dto.NombreMascota;
 import com.appvet.mascotas.model.Mascota;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface MascotaRepository extends JpaRepository<Mascota, String> {
+public interface MascotaRepository extends JpaRepository<Mascota, String>, JpaSpecificationExecutor<Mascota> {
     
     // Buscar mascotas por usuario
     List<Mascota> findByUsuarioId(String usuarioId);
@@ -23,9 +40,108 @@ public interface MascotaRepository extends JpaRepository<Mascota, String> {
     // Buscar mascotas por usuario y especie
     List<Mascota> findByUsuarioIdAndEspecie(String usuarioId, String especie);
     
+    // Listados: solo las columnas de MascotaResumen, así fotoUri ni se lee de la base
+    @Query("SELECT new com.appvet.mascotas.dto.MascotaResumen(m.id, m.nombre, m.edad, m.especie, m.fotoIcono, "
+         + "m.usuarioId, m.fechaRegistro, m.fechaActualizacion) FROM Mascota m")
+    List<MascotaResumen> findResumenes();
+    
+    @Query("SELECT new com.appvet.mascotas.dto.MascotaResumen(m.id, m.nombre, m.edad, m.especie, m.fotoIcono, "
+         + "m.usuarioId, m.fechaRegistro, m.fechaActualizacion) FROM Mascota m WHERE m.usuarioId = :usuarioId")
+    List<MascotaResumen> findResumenesPorUsuario(@Param("usuarioId") String usuarioId);
+    
+    @Query("SELECT new com.appvet.mascotas.dto.MascotaResumen(m.id, m.nombre, m.edad, m.especie, m.fotoIcono, "
+         + "m.usuarioId, m.fechaRegistro, m.fechaActualizacion) FROM Mascota m WHERE m.especie = :especie")
+    List<MascotaResumen> findResumenesPorEspecie(@Param("especie") String especie);
+    
+    // Resultados de la búsqueda por nombre, que salen del índice como ids
+    @Query("SELECT new com.appvet.mascotas.dto.MascotaResumen(m.id, m.nombre, m.edad, m.especie, m.fotoIcono, "
+         + "m.usuarioId, m.fechaRegistro, m.fechaActualizacion) FROM Mascota m WHERE m.id IN :ids")
+    List<MascotaResumen> findResumenesPorIds(@Param("ids") Collection<String> ids);
+    
+    // Carga de IndiceNombres: toda la tabla de a fetch size filas (useCursorFetch en la URL),
+    // sin pasar por el contexto de persistencia. Hay que cerrar el Stream dentro de la transacción
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.appvet.mascotas.dto.NombreMascota(m.id, m.nombre) FROM Mascota m")
+    Stream<NombreMascota> streamParaIndice();
+    
+    // Puesta al día del índice de nombres (idx_mascotas_actualizacion): altas y cambios de todas
+    // las instancias desde la última lectura
+    @Query("SELECT new com.appvet.mascotas.dto.NombreMascota(m.id, m.nombre) FROM Mascota m "
+        + "WHERE m.fechaActualizacion >= :desde")
+    List<NombreMascota> findNombresActualizadosDesde(@Param("desde") LocalDateTime desde);
+    
+    // Dueño de una mascota, para invalidar su caché tras un UPDATE que no lee la fila
+    @Query("SELECT m.usuarioId FROM Mascota m WHERE m.id = :id")
+    Optional<String> findUsuarioIdById(@Param("id") String id);
+    
     // Contar mascotas por usuario
     long countByUsuarioId(String usuarioId);
     
+    // Carga y reconciliación de ContadorMascotas
+    @Query("SELECT new com.appvet.mascotas.dto.ConteoPorUsuario(m.usuarioId, COUNT(m)) FROM Mascota m GROUP BY m.usuarioId")
+    List<ConteoPorUsuario> contarPorUsuarioAgrupado();
+    
+    // Facetas de /filtrar: sin usuario se lee solo idx_mascotas_especie_edad
+    @Query("SELECT new com.appvet.mascotas.dto.ConteoEspecieEdad(m.especie, m.edad, COUNT(m)) FROM Mascota m "
+         + "GROUP BY m.especie, m.edad")
+    List<ConteoEspecieEdad> contarPorEspecieYEdad();
+    
+    @Query("SELECT new com.appvet.mascotas.dto.ConteoEspecieEdad(m.especie, m.edad, COUNT(m)) FROM Mascota m "
+         + "WHERE m.usuarioId = :usuarioId GROUP BY m.especie, m.edad")
+    List<ConteoEspecieEdad> contarPorEspecieYEdadDeUsuario(@Param("usuarioId") String usuarioId);
+    
+    // Lecturas con bloqueo de fila previas a una escritura, para que los contadores sepan
+    // exactamente a qué usuario descontar aunque otra petición toque la misma mascota
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Mascota> findParaActualizarById(String id);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.appvet.mascotas.dto.ClaveMascota(m.usuarioId, m.version) FROM Mascota m WHERE m.id = :id")
+    Optional<ClaveMascota> findClaveParaActualizar(@Param("id") String id);
+    
+    // PUT con If-Match: 0 filas si no existe o si la versión cambió. El dueño no se toca, así
+    // que los contadores no necesitan leer la fila antes
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Mascota m SET m.nombre = :nombre, m.edad = :edad, m.especie = :especie, m.fotoUri = :fotoUri, "
+         + "m.fotoIcono = :fotoIcono, m.fechaActualizacion = :ahora, m.version = m.version + 1 "
+         + "WHERE m.id = :id AND m.version = :version")
+    int actualizarSiVersion(@Param("id") String id,
+                            @Param("version") long version,
+                            @Param("nombre") String nombre,
+                            @Param("edad") Integer edad,
+                            @Param("especie") String especie,
+                            @Param("fotoUri") String fotoUri,
+                            @Param("fotoIcono") Integer fotoIcono,
+                            @Param("ahora") LocalDateTime ahora);
+    
+    // Devuelve las filas borradas: 0 si otra petición la eliminó antes
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Mascota m WHERE m.id = :id")
+    int eliminarPorId(@Param("id") String id);
+    
+    // Un lote de la purga de un usuario eliminado, bloqueado hasta que se borre (idx_mascotas_usuario_especie)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m.id FROM Mascota m WHERE m.usuarioId = :usuarioId")
+    List<String> findIdsParaPurgar(@Param("usuarioId") String usuarioId, Limit limite);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Mascota m WHERE m.id IN :ids")
+    int eliminarPorIds(@Param("ids") Collection<String> ids);
+    
+    // Reconciliación de huérfanas: los dueños se recorren por tramos en orden, solo por el índice
+    @Query("SELECT DISTINCT m.usuarioId FROM Mascota m WHERE m.usuarioId > :desde ORDER BY m.usuarioId")
+    List<String> findUsuarioIdsDesde(@Param("desde") String desde, Limit limite);
+    
+    // De un tramo de dueños, los que ya no están en usuarios (tabla del microservicio de usuarios
+    // en la misma appvet_db) y tienen alguna mascota registrada antes de "antesDe"
+    @Query(value = "SELECT DISTINCT m.usuario_id FROM mascotas m LEFT JOIN usuarios u ON u.id = m.usuario_id "
+        + "WHERE m.usuario_id IN (:usuarioIds) AND u.id IS NULL AND m.fecha_registro < :antesDe", nativeQuery = true)
+    List<String> findUsuariosInexistentes(@Param("usuarioIds") Collection<String> usuarioIds,
+                                          @Param("antesDe") LocalDateTime antesDe);
+    
     // Buscar mascotas por rango de edad
     @Query("SELECT m FROM Mascota m WHERE m.edad BETWEEN :edadMin AND :edadMax")
     List<Mascota> findByEdadBetween(@Param("edadMin") Integer edadMin, @Param("edadMax") Integer edadMax);
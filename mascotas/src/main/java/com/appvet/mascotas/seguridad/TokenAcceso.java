@@ -0,0 +1,5 @@
+package com.appvet.mascotas.seguridad;
+
+// Lo que trae un token válido; expira en milisegundos desde epoch
+public record TokenAcceso(String usuarioId, String rol, long expira) {
+}
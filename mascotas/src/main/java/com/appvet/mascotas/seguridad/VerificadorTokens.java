@@ -0,0 +1,129 @@
+package com.appvet.mascotas.seguridad;
+
+import com.appvet.mascotas.config.TokensProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Verifica sin llamar a usuarios los tokens que este firma al hacer login:
+//   clave "." base64url(usuarioId "\n" rol "\n" expiraSegundos) "." base64url(HMAC-SHA256)
+// donde la firma cubre "clave.contenido" con el secreto de esa clave. El mismo token llega en
+// cada petición de la app durante horas, así que lo ya verificado se recuerda: un acierto es una
+// búsqueda en el mapa y una comparación de la expiración, sin HMAC ni asignar memoria.
+// Solo se recuerdan tokens con firma válida; uno inválido siempre se vuelve a calcular.
+// Es una copia de la de horas: cada microservicio se compila por separado
+@Component
+public class VerificadorTokens {
+
+    private static final String ALGORITMO = "HmacSHA256";
+
+    private final Map<String, ThreadLocal<Mac>> firmas = new HashMap<>();
+    private final ConcurrentHashMap<String, TokenAcceso> verificados = new ConcurrentHashMap<>();
+    private final int maximoCache;
+    private final Clock reloj;
+
+    @Autowired
+    public VerificadorTokens(TokensProperties config) {
+        this(config, Clock.systemUTC());
+    }
+
+    VerificadorTokens(TokensProperties config, Clock reloj) {
+        Map<String, String> claves = config.claves() == null ? Map.of() : config.claves();
+        claves.forEach((id, secreto) -> {
+            SecretKeySpec clave = new SecretKeySpec(Base64.getDecoder().decode(secreto), ALGORITMO);
+            firmas.put(id, ThreadLocal.withInitial(() -> mac(clave)));
+        });
+        this.maximoCache = config.maximoCache();
+        this.reloj = reloj;
+    }
+
+    // null si el token no es válido, está firmado con una clave desconocida o ya venció
+    public TokenAcceso verificar(String token) {
+        return verificar(token, 0);
+    }
+
+    // El token empieza en "desde"; así el filtro pasa el encabezado Authorization completo y un
+    // acierto no tiene que recortarlo
+    public TokenAcceso verificar(String texto, int desde) {
+        if (texto == null) {
+            return null;
+        }
+        long ahora = reloj.millis();
+        TokenAcceso acceso = verificados.get(texto);
+        if (acceso == null) {
+            acceso = verificarFirma(texto.substring(desde).trim());
+            if (acceso == null) {
+                return null;
+            }
+            recordar(texto, acceso, ahora);
+        }
+        if (acceso.expira() <= ahora) {
+            verificados.remove(texto);
+            return null;
+        }
+        return acceso;
+    }
+
+    int enCache() {
+        return verificados.size();
+    }
+
+    private TokenAcceso verificarFirma(String token) {
+        int primero = token.indexOf('.');
+        int segundo = token.indexOf('.', primero + 1);
+        if (primero <= 0 || segundo < 0 || token.indexOf('.', segundo + 1) >= 0) {
+            return null;
+        }
+        ThreadLocal<Mac> firma = firmas.get(token.substring(0, primero));
+        if (firma == null) {
+            return null;
+        }
+        try {
+            byte[] esperada = firma.get().doFinal(token.substring(0, segundo).getBytes(StandardCharsets.US_ASCII));
+            byte[] recibida = Base64.getUrlDecoder().decode(token.substring(segundo + 1));
+            if (!MessageDigest.isEqual(esperada, recibida)) {
+                return null;
+            }
+            String[] partes = new String(Base64.getUrlDecoder().decode(token.substring(primero + 1, segundo)),
+                StandardCharsets.UTF_8).split("\n", -1);
+            if (partes.length != 3) {
+                return null;
+            }
+            return new TokenAcceso(partes[0], partes[1], Long.parseLong(partes[2]) * 1000);
+        } catch (IllegalArgumentException e) {
+            // Base64 o número mal formados
+            return null;
+        }
+    }
+
+    // Con el mapa lleno primero se sueltan los vencidos; si no alcanza, se parte de cero
+    private void recordar(String token, TokenAcceso acceso, long ahora) {
+        if (verificados.size() >= maximoCache) {
+            verificados.values().removeIf(otro -> otro.expira() <= ahora);
+            if (verificados.size() >= maximoCache) {
+                verificados.clear();
+            }
+        }
+        verificados.put(token, acceso);
+    }
+
+    private static Mac mac(SecretKeySpec clave) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(clave);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.appvet.mascotas.service;
+
+import com.appvet.mascotas.config.CacheMascotasProperties;
+import com.appvet.mascotas.dto.EstadisticasCache;
+import com.appvet.mascotas.dto.MascotaResumen;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Las mascotas de cada dueño en memoria, para la pantalla de inicio de la app, que las pide en
+// cada apertura aunque cambian muy de vez en cuando.
+// Cada dueño pesa lo que sus mascotas y Caffeine acota el peso total; al llenarse admite por
+// frecuencia (W-TinyLFU), así la cola larga de dueños que abren la app una vez al mes no
+// desplaza a los que la abren a diario. Si muchas peticiones piden a la vez un dueño que no
+// está, una sola va a la base y el resto espera ese resultado.
+// Se guarda una lista inmutable de records, que se entrega tal cual. Un dueño sin mascotas
+// también se guarda: es una lista vacía
+@Component
+public class CacheMascotas {
+
+    private final Cache<String, List<MascotaResumen>> porUsuario;
+
+    public CacheMascotas(CacheMascotasProperties config) {
+        this.porUsuario = Caffeine.newBuilder()
+            .maximumWeight(config.maximoMascotas())
+            .weigher((String usuarioId, List<MascotaResumen> mascotas) -> 1 + mascotas.size())
+            .expireAfterWrite(config.duracion())
+            .recordStats()
+            .build();
+    }
+
+    public List<MascotaResumen> porUsuario(String usuarioId, Function<String, List<MascotaResumen>> cargar) {
+        if (usuarioId == null) {
+            return List.of();
+        }
+        return porUsuario.get(usuarioId, clave -> List.copyOf(cargar.apply(clave)));
+    }
+
+    // Tras confirmar un cambio en alguna mascota del dueño
+    public void invalidar(String usuarioId) {
+        if (usuarioId != null) {
+            porUsuario.invalidate(usuarioId);
+        }
+    }
+
+    // cleanUp aplica antes las expulsiones pendientes, para que el tamaño sea el real
+    public EstadisticasCache estadisticas() {
+        porUsuario.cleanUp();
+        CacheStats stats = porUsuario.stats();
+        // El peso cuenta uno por dueño más sus mascotas
+        long mascotas = porUsuario.policy().eviction().map(eviccion -> eviccion.weightedSize().orElse(0)).orElse(0L)
+            - porUsuario.estimatedSize();
+        return new EstadisticasCache(stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate(),
+            porUsuario.estimatedSize(), Math.max(0, mascotas));
+    }
+}
@@ -0,0 +1,169 @@
+package com.appvet.mascotas.service;
+
+import com.appvet.mascotas.dto.ConteoPorUsuario;
+import com.appvet.mascotas.repository.MascotaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Conteo de mascotas por usuario en memoria. Se carga con un GROUP BY al iniciar, se ajusta
+// con cada escritura confirmada y se reconcilia periódicamente contra la base.
+// Los ajustes de una transacción se aplican tras el commit con el cerrojo de lectura tomado
+// desde beforeCommit. La reconciliación toma el de escritura solo para fijar la foto de su
+// transacción (REPEATABLE READ) y copiar los contadores; el GROUP BY corre sin cerrojo y al
+// final se suma la diferencia entre la foto y la copia, sin pisar lo confirmado mientras tanto.
+// Abre su transacción antes de tomar el cerrojo, así no espera una conexión mientras otras
+// transacciones esperan el cerrojo.
+@Component
+@Slf4j
+public class ContadorMascotas {
+
+    private final MascotaRepository mascotaRepository;
+    private final TransactionTemplate lectura;
+
+    private final ConcurrentHashMap<String, LongAdder> porUsuario = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private volatile boolean cargado;
+
+    public ContadorMascotas(MascotaRepository mascotaRepository, PlatformTransactionManager transactionManager) {
+        this.mascotaRepository = mascotaRepository;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.lectura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.lectura.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Vacío mientras no se haya hecho la carga inicial: el llamador cae al COUNT de siempre
+    public OptionalLong contarPorUsuario(String usuarioId) {
+        if (!cargado || usuarioId == null) {
+            return OptionalLong.empty();
+        }
+        LongAdder contador = porUsuario.get(usuarioId);
+        return OptionalLong.of(contador == null ? 0 : contador.sum());
+    }
+
+    public void alta(String usuarioId) {
+        sumar(usuarioId, 1);
+    }
+
+    public void baja(String usuarioId) {
+        sumar(usuarioId, -1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${appvet.mascotas.contadores.reconciliacion:PT15M}",
+               initialDelayString = "${appvet.mascotas.contadores.reconciliacion:PT15M}")
+    public void reconciliar() {
+        lectura.executeWithoutResult(estado -> {
+            Map<String, Long> enLaFoto = new HashMap<>();
+            cerrojo.writeLock().lock();
+            try {
+                // La primera lectura fija la foto que verá el GROUP BY
+                mascotaRepository.existsById("");
+                porUsuario.forEach((usuarioId, contador) -> enLaFoto.put(usuarioId, contador.sum()));
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+            List<ConteoPorUsuario> conteos = mascotaRepository.contarPorUsuarioAgrupado();
+            cerrojo.writeLock().lock();
+            try {
+                int diferencias = corregir(enLaFoto, conteos);
+                if (cargado && diferencias > 0) {
+                    log.warn("Contadores de mascotas reconciliados: {} usuarios corregidos", diferencias);
+                }
+                cargado = true;
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+        });
+    }
+
+    // Suma a cada contador lo que le faltaba en la foto, para que una lectura concurrente nunca
+    // vea un valor intermedio; lo sumado después de la foto se conserva
+    private int corregir(Map<String, Long> enLaFoto, List<ConteoPorUsuario> conteos) {
+        Map<String, Long> reales = new HashMap<>();
+        for (ConteoPorUsuario conteo : conteos) {
+            if (conteo.usuarioId() != null) {
+                reales.put(conteo.usuarioId(), conteo.cantidad());
+            }
+        }
+        Set<String> usuarios = new HashSet<>(enLaFoto.keySet());
+        usuarios.addAll(reales.keySet());
+        int diferencias = 0;
+        for (String usuarioId : usuarios) {
+            long diferencia = reales.getOrDefault(usuarioId, 0L) - enLaFoto.getOrDefault(usuarioId, 0L);
+            if (diferencia != 0) {
+                porUsuario.computeIfAbsent(usuarioId, clave -> new LongAdder()).add(diferencia);
+                diferencias++;
+            }
+        }
+        return diferencias;
+    }
+
+    private void sumar(String usuarioId, long cantidad) {
+        // Las mascotas sin usuario no tienen badge que mostrar
+        if (usuarioId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cerrojo.readLock().lock();
+            try {
+                porUsuario.computeIfAbsent(usuarioId, clave -> new LongAdder()).add(cantidad);
+            } finally {
+                cerrojo.readLock().unlock();
+            }
+            return;
+        }
+        Ajustes ajustes = (Ajustes) TransactionSynchronizationManager.getResource(this);
+        if (ajustes == null) {
+            ajustes = new Ajustes();
+            TransactionSynchronizationManager.bindResource(this, ajustes);
+            TransactionSynchronizationManager.registerSynchronization(ajustes);
+        }
+        ajustes.usuarios.merge(usuarioId, cantidad, Long::sum);
+    }
+
+    // Acumula los ajustes de una transacción y los aplica solo si confirma
+    private final class Ajustes implements TransactionSynchronization {
+
+        private final Map<String, Long> usuarios = new HashMap<>();
+        private boolean bloqueado;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            cerrojo.readLock().lock();
+            bloqueado = true;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ContadorMascotas.this);
+            try {
+                if (status == STATUS_COMMITTED) {
+                    usuarios.forEach((clave, cantidad) -> porUsuario.computeIfAbsent(clave, k -> new LongAdder()).add(cantidad));
+                }
+            } finally {
+                if (bloqueado) {
+                    cerrojo.readLock().unlock();
+                }
+            }
+        }
+    }
+}
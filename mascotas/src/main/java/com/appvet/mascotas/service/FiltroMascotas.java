@@ -0,0 +1,128 @@
+package com.appvet.mascotas.service;
+
+import com.appvet.mascotas.dto.ConteoEspecieEdad;
+import com.appvet.mascotas.dto.ResultadoFiltro;
+import com.appvet.mascotas.model.Mascota;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+// Filtros combinables de GET /api/mascotas/filtrar: la página va por cursor (keyset) sobre el
+// id, que como UUIDv7 sigue el orden de registro, y las facetas salen de un solo GROUP BY
+// (especie, edad) que se recorre una vez
+final class FiltroMascotas {
+
+    static final Sort ORDEN = Sort.by("id");
+
+    static final int LIMITE_POR_DEFECTO = 50;
+    static final int LIMITE_MAXIMO = 200;
+
+    // Edad en que empieza cada tramo de la faceta de edad; el último no tiene tope
+    private static final int[] TRAMOS_EDAD = {0, 2, 5, 8, 11};
+
+    private FiltroMascotas() {
+    }
+
+    record Criterios(String especie, Integer edadMin, Integer edadMax, String usuarioId) {
+
+        Criterios {
+            if (edadMin != null && edadMax != null && edadMin > edadMax) {
+                throw new IllegalArgumentException("edadMin no puede ser mayor que edadMax");
+            }
+        }
+
+        boolean cumpleEspecie(String especieMascota) {
+            return especie == null || especie.equals(especieMascota);
+        }
+
+        boolean cumpleEdad(Integer edad) {
+            return (edadMin == null || edad != null && edad >= edadMin)
+                && (edadMax == null || edad != null && edad <= edadMax);
+        }
+    }
+
+    // Con cada filtro que venga, más las filas posteriores al cursor
+    static Specification<Mascota> especificacion(Criterios criterios, String despuesDeId) {
+        return (root, query, cb) -> cb.and(Stream.of(
+                criterios.usuarioId() == null ? null : cb.equal(root.get("usuarioId"), criterios.usuarioId()),
+                criterios.especie() == null ? null : cb.equal(root.get("especie"), criterios.especie()),
+                criterios.edadMin() == null ? null : cb.greaterThanOrEqualTo(root.<Integer>get("edad"), criterios.edadMin()),
+                criterios.edadMax() == null ? null : cb.lessThanOrEqualTo(root.<Integer>get("edad"), criterios.edadMax()),
+                despuesDeId == null ? null : cb.greaterThan(root.<String>get("id"), despuesDeId))
+            .filter(Objects::nonNull)
+            .toArray(Predicate[]::new));
+    }
+
+    // Una pasada por los conteos: cada combinación suma a porEspecie si cumple la edad, a
+    // porEdad si cumple la especie y al total si cumple ambas. El filtro de usuario ya lo aplicó
+    // la consulta
+    static ResultadoFiltro.Facetas facetas(List<ConteoEspecieEdad> conteos, Criterios criterios) {
+        Map<String, Long> porEspecie = new TreeMap<>();
+        Map<String, Long> porEdad = new LinkedHashMap<>();
+        for (int tramo = 0; tramo < TRAMOS_EDAD.length; tramo++) {
+            porEdad.put(nombreTramo(tramo), 0L);
+        }
+        long total = 0;
+        for (ConteoEspecieEdad conteo : conteos) {
+            boolean cumpleEspecie = criterios.cumpleEspecie(conteo.especie());
+            boolean cumpleEdad = criterios.cumpleEdad(conteo.edad());
+            if (cumpleEdad) {
+                porEspecie.merge(conteo.especie(), conteo.cantidad(), Long::sum);
+            }
+            if (cumpleEspecie && conteo.edad() != null) {
+                porEdad.merge(nombreTramo(tramo(conteo.edad())), conteo.cantidad(), Long::sum);
+            }
+            if (cumpleEspecie && cumpleEdad) {
+                total += conteo.cantidad();
+            }
+        }
+        return new ResultadoFiltro.Facetas(total, porEspecie, porEdad);
+    }
+
+    // El cursor es el último id entregado, opaco para el cliente
+    static String codificar(String ultimoId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(ultimoId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    static int acotarLimite(Integer limite) {
+        if (limite == null || limite <= 0) {
+            return LIMITE_POR_DEFECTO;
+        }
+        return Math.min(limite, LIMITE_MAXIMO);
+    }
+
+    private static int tramo(int edad) {
+        int tramo = 0;
+        while (tramo + 1 < TRAMOS_EDAD.length && edad >= TRAMOS_EDAD[tramo + 1]) {
+            tramo++;
+        }
+        return tramo;
+    }
+
+    // "0-1", "2-4", ... y "11+" para el último
+    private static String nombreTramo(int tramo) {
+        return tramo + 1 < TRAMOS_EDAD.length
+            ? TRAMOS_EDAD[tramo] + "-" + (TRAMOS_EDAD[tramo + 1] - 1)
+            : TRAMOS_EDAD[tramo] + "+";
+    }
+}
@@ -0,0 +1,165 @@
+package com.appvet.mascotas.service;
+
+import com.appvet.mascotas.dto.NombreMascota;
+import com.appvet.mascotas.repository.MascotaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Búsqueda de mascotas por nombre mientras se escribe. El índice de trigramas se arma al
+// iniciar recorriendo la tabla en streaming, se ajusta con cada escritura confirmada y se
+// reconstruye periódicamente contra la base.
+// Las escrituras confirmadas solo llegan a esta instancia; las altas y cambios de nombre de las
+// demás se leen cada "puesta-al-dia" por fecha_actualizacion (con un margen por relojes
+// desfasados y commits lentos). Una mascota borrada en otra instancia sigue en el índice hasta
+// la reconstrucción, pero no aparece en los resultados: buscarPorNombre carga los ids
+// encontrados y descarta los que ya no existen.
+// La reconstrucción arma un índice nuevo sin cerrojo (mientras tanto hay dos en memoria) y
+// anota los cambios que llegan entretanto; con el cerrojo de escritura los repite sobre el
+// nuevo y lo pone en lugar del anterior. Repetir un cambio que la lectura ya vio no altera nada
+@Component
+@Slf4j
+public class IndiceNombres {
+
+    private static final Duration MARGEN = Duration.ofMinutes(1);
+
+    private final MascotaRepository mascotaRepository;
+    private final TransactionTemplate lectura;
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private IndiceTrigramas indice;
+    private List<Consumer<IndiceTrigramas>> pendientes;
+    // Inicio de la última lectura de la base: lo escrito antes ya está en el índice
+    private volatile LocalDateTime leidoHasta;
+
+    public IndiceNombres(MascotaRepository mascotaRepository, PlatformTransactionManager transactionManager) {
+        this.mascotaRepository = mascotaRepository;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.lectura.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Ids de las mascotas que mejor coinciden, o vacío mientras no se haya hecho la carga inicial
+    public Optional<List<String>> buscar(String consulta, int limite) {
+        cerrojo.readLock().lock();
+        try {
+            return indice == null ? Optional.empty() : Optional.of(indice.buscar(consulta, limite));
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    public void guardada(String id, String nombre) {
+        trasCommit(indice -> indice.poner(id, nombre));
+    }
+
+    public void eliminada(String id) {
+        trasCommit(indice -> indice.quitar(id));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${appvet.mascotas.indice-nombres.reconstruccion:PT6H}",
+               initialDelayString = "${appvet.mascotas.indice-nombres.reconstruccion:PT6H}")
+    public void reconstruir() {
+        IndiceTrigramas nuevo;
+        cerrojo.writeLock().lock();
+        try {
+            if (pendientes != null) {
+                return;
+            }
+            pendientes = new ArrayList<>();
+            nuevo = new IndiceTrigramas(indice == null ? 1024 : indice.tamano());
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+        try {
+            long inicio = System.nanoTime();
+            LocalDateTime desde = LocalDateTime.now();
+            lectura.executeWithoutResult(estado -> {
+                try (Stream<NombreMascota> nombres = mascotaRepository.streamParaIndice()) {
+                    nombres.forEach(mascota -> nuevo.poner(mascota.id(), mascota.nombre()));
+                }
+            });
+            cerrojo.writeLock().lock();
+            try {
+                pendientes.forEach(cambio -> cambio.accept(nuevo));
+                indice = nuevo;
+                leidoHasta = desde;
+            } finally {
+                pendientes = null;
+                cerrojo.writeLock().unlock();
+            }
+            log.info("Índice de nombres de mascotas armado: {} mascotas en {} ms",
+                nuevo.tamano(), (System.nanoTime() - inicio) / 1_000_000);
+        } catch (RuntimeException e) {
+            cerrojo.writeLock().lock();
+            try {
+                pendientes = null;
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+            throw e;
+        }
+    }
+
+    // Lo que escribieron otras instancias desde la última lectura. Volver a poner una mascota que
+    // ya estaba no cambia nada, así que el margen solo cuesta releer unas pocas filas
+    @Scheduled(fixedDelayString = "${appvet.mascotas.indice-nombres.puesta-al-dia:PT30S}",
+               initialDelayString = "${appvet.mascotas.indice-nombres.puesta-al-dia:PT30S}")
+    public void ponerAlDia() {
+        LocalDateTime desde = leidoHasta;
+        if (desde == null) {
+            return;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        List<NombreMascota> cambios = lectura.execute(
+            estado -> mascotaRepository.findNombresActualizadosDesde(desde.minus(MARGEN)));
+        aplicar(indice -> cambios.forEach(mascota -> indice.poner(mascota.id(), mascota.nombre())));
+        leidoHasta = ahora;
+        log.debug("Índice de nombres al día: {} mascotas releídas", cambios.size());
+    }
+
+    // Dentro de una transacción, el cambio espera al commit y se descarta si hay rollback
+    private void trasCommit(Consumer<IndiceTrigramas> cambio) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            aplicar(cambio);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                aplicar(cambio);
+            }
+        });
+    }
+
+    private void aplicar(Consumer<IndiceTrigramas> cambio) {
+        cerrojo.writeLock().lock();
+        try {
+            if (indice != null) {
+                cambio.accept(indice);
+            }
+            if (pendientes != null) {
+                pendientes.add(cambio);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,553 @@
+package com.appvet.mascotas.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+// Índice invertido de trigramas sobre los nombres de las mascotas. No es seguro entre hilos:
+// IndiceNombres lo usa con su cerrojo.
+// Los trigramas no apuntan a mascotas sino a nombres distintos (hay muchas "Luna"), así las
+// listas son cortas. Cada lista es de números de nombre crecientes, guardados como diferencias
+// en varint dentro de un byte[]. Cada nombre tiene a su vez el arreglo de sus mascotas.
+// Las mascotas viven en ranuras con arreglos primitivos: el id como UUID en dos long (los que
+// no son UUID van aparte) y el número de su nombre. Un id se encuentra en una tabla hash abierta. Los nombres que se quedan sin mascotas siguen en las listas hasta
+// la próxima reconstrucción; las ranuras libres se reutilizan.
+// Un texto se compara normalizado: minúsculas, sin tildes y con cualquier otro signo como
+// espacio. Se indexa " " + normalizado, así el trigrama " lu" marca un comienzo de palabra y
+// una búsqueda de dos letras queda en los nombres con alguna palabra que empieza así
+final class IndiceTrigramas {
+
+    static final int MINIMO_CONSULTA = 2;
+
+    private static final int BITS_CARACTER = 7;
+    private static final int LIBRE = -1;
+    private static final int LARGO_MAXIMO = 0xFF;
+
+    private final Postings[] porTrigrama = new Postings[1 << (3 * BITS_CARACTER)];
+
+    // Nombres distintos tal como se escribieron
+    private final Map<String, Integer> nombrePorTexto = new HashMap<>();
+    private String[] normalizados = new String[64];
+    private int[][] mascotasDeNombre = new int[64][];
+    private int[] cantidadDeNombre = new int[64];
+    private int nombres;
+
+    // Mascotas por ranura
+    private long[] idAlto;
+    private long[] idBajo;
+    private final Map<Integer, String> idsTexto = new HashMap<>();
+    private int[] nombreDe;
+    private int[] posicionEnNombre;
+    private int ranuras;
+    private int[] libres = new int[16];
+    private int cantidadLibres;
+    private int mascotas;
+
+    // Ranura + 1 por id, con sondeo lineal; 0 es vacío
+    private int[] tabla;
+
+    IndiceTrigramas(int capacidad) {
+        int inicial = Math.max(16, capacidad);
+        idAlto = new long[inicial];
+        idBajo = new long[inicial];
+        nombreDe = new int[inicial];
+        posicionEnNombre = new int[inicial];
+        tabla = new int[Integer.highestOneBit(inicial) << 2];
+    }
+
+    int tamano() {
+        return mascotas;
+    }
+
+    // Agrega la mascota o le cambia el nombre si ya estaba
+    void poner(String id, String nombre) {
+        if (id == null || nombre == null) {
+            quitar(id);
+            return;
+        }
+        int numero = numeroDeNombre(nombre);
+        int ranura = buscarRanura(id);
+        if (ranura < 0) {
+            ranura = nuevaRanura(id);
+        } else if (nombreDe[ranura] == numero) {
+            return;
+        } else {
+            soltarDeNombre(ranura);
+        }
+        ponerEnNombre(ranura, numero);
+    }
+
+    void quitar(String id) {
+        int ranura = id == null ? -1 : buscarRanura(id);
+        if (ranura < 0) {
+            return;
+        }
+        soltarDeNombre(ranura);
+        sacarDeTabla(ranura);
+        nombreDe[ranura] = LIBRE;
+        idsTexto.remove(ranura);
+        if (cantidadLibres == libres.length) {
+            libres = Arrays.copyOf(libres, libres.length * 2);
+        }
+        libres[cantidadLibres++] = ranura;
+        mascotas--;
+    }
+
+    // Ids de hasta "limite" mascotas cuyo nombre contiene la consulta, de mejor a peor
+    // coincidencia: nombre idéntico, nombre que empieza así, alguna palabra que empieza así y
+    // por último en cualquier parte; a igual nivel, el nombre más corto
+    List<String> buscar(String consulta, int limite) {
+        String buscado = consulta == null ? "" : normalizar(consulta);
+        if (buscado.length() < MINIMO_CONSULTA || limite <= 0) {
+            return List.of();
+        }
+        int[] candidatos = candidatos(buscado);
+        MejoresK mejores = new MejoresK(limite);
+        for (int candidato : candidatos) {
+            if (cantidadDeNombre[candidato] == 0) {
+                continue;
+            }
+            String normalizado = normalizados[candidato];
+            int nivel = nivel(normalizado, buscado);
+            if (nivel < 0) {
+                continue;
+            }
+            long clave = ((long) nivel << 40) | ((long) Math.min(normalizado.length(), LARGO_MAXIMO) << 32) | candidato;
+            if (mejores.entraria(clave)) {
+                mejores.ofrecer(clave);
+            }
+        }
+        List<String> ids = new ArrayList<>(limite);
+        for (long clave : mejores.ordenados()) {
+            int nombre = (int) clave;
+            int[] delNombre = mascotasDeNombre[nombre];
+            for (int i = 0; i < cantidadDeNombre[nombre] && ids.size() < limite; i++) {
+                ids.add(idDe(delNombre[i]));
+            }
+        }
+        return ids;
+    }
+
+    // Mismo criterio que buscar sobre una lista corta ya leída, como las mascotas de un dueño
+    static <T> List<T> mejores(List<T> elementos, Function<T, String> nombreDe, String consulta, int limite) {
+        String buscado = consulta == null ? "" : normalizar(consulta);
+        if (buscado.length() < MINIMO_CONSULTA || limite <= 0) {
+            return List.of();
+        }
+        List<Map.Entry<Long, T>> encontrados = new ArrayList<>();
+        for (T elemento : elementos) {
+            String nombre = nombreDe.apply(elemento);
+            String normalizado = nombre == null ? "" : normalizar(nombre);
+            int nivel = nivel(normalizado, buscado);
+            if (nivel >= 0) {
+                encontrados.add(Map.entry(((long) nivel << 32) | Math.min(normalizado.length(), LARGO_MAXIMO), elemento));
+            }
+        }
+        return encontrados.stream()
+            .sorted(Comparator.comparing(Map.Entry::getKey))
+            .limit(limite)
+            .map(Map.Entry::getValue)
+            .toList();
+    }
+
+    // -1 si el nombre no contiene la consulta; si no, el nivel de la coincidencia (0 es la mejor)
+    static int nivel(String normalizado, String buscado) {
+        if (normalizado.equals(buscado)) {
+            return 0;
+        }
+        if (normalizado.startsWith(buscado)) {
+            return 1;
+        }
+        int posicion = normalizado.indexOf(buscado);
+        if (posicion < 0) {
+            return -1;
+        }
+        while (posicion >= 0) {
+            if (normalizado.charAt(posicion - 1) == ' ') {
+                return 2;
+            }
+            posicion = normalizado.indexOf(buscado, posicion + 1);
+        }
+        return buscado.length() > MINIMO_CONSULTA ? 3 : -1;
+    }
+
+    static String normalizar(String texto) {
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder normalizado = new StringBuilder(descompuesto.length());
+        boolean espacio = true;
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                normalizado.append(Character.toLowerCase(c));
+                espacio = false;
+            } else if (!espacio) {
+                normalizado.append(' ');
+                espacio = true;
+            }
+        }
+        int largo = normalizado.length();
+        if (largo > 0 && normalizado.charAt(largo - 1) == ' ') {
+            normalizado.setLength(largo - 1);
+        }
+        return normalizado.toString();
+    }
+
+    // Nombres que tienen todos los trigramas de la consulta, intersectando desde la lista más corta
+    private int[] candidatos(String buscado) {
+        int[] claves = buscado.length() == MINIMO_CONSULTA ? trigramas(" " + buscado) : trigramas(buscado);
+        Postings[] listas = new Postings[claves.length];
+        for (int i = 0; i < claves.length; i++) {
+            listas[i] = porTrigrama[claves[i]];
+            if (listas[i] == null) {
+                return new int[0];
+            }
+        }
+        Arrays.sort(listas, (a, b) -> Integer.compare(a.cantidad, b.cantidad));
+        int[] candidatos = listas[0].decodificar();
+        int cantidad = candidatos.length;
+        for (int i = 1; i < listas.length && cantidad > 0; i++) {
+            cantidad = listas[i].filtrar(candidatos, cantidad);
+        }
+        return cantidad == candidatos.length ? candidatos : Arrays.copyOf(candidatos, cantidad);
+    }
+
+    private int numeroDeNombre(String nombre) {
+        Integer numero = nombrePorTexto.get(nombre);
+        if (numero != null) {
+            return numero;
+        }
+        if (nombres == normalizados.length) {
+            int capacidad = nombres + (nombres >> 1);
+            normalizados = Arrays.copyOf(normalizados, capacidad);
+            mascotasDeNombre = Arrays.copyOf(mascotasDeNombre, capacidad);
+            cantidadDeNombre = Arrays.copyOf(cantidadDeNombre, capacidad);
+        }
+        int nuevo = nombres++;
+        String normalizado = normalizar(nombre);
+        normalizados[nuevo] = normalizado;
+        mascotasDeNombre[nuevo] = new int[1];
+        nombrePorTexto.put(nombre, nuevo);
+        // Los números de nombre solo crecen, así cada lista queda ordenada al agregar al final
+        for (int clave : trigramas(" " + normalizado)) {
+            Postings lista = porTrigrama[clave];
+            if (lista == null) {
+                lista = new Postings();
+                porTrigrama[clave] = lista;
+            }
+            lista.agregar(nuevo);
+        }
+        return nuevo;
+    }
+
+    private void ponerEnNombre(int ranura, int nombre) {
+        int cantidad = cantidadDeNombre[nombre];
+        if (cantidad == mascotasDeNombre[nombre].length) {
+            mascotasDeNombre[nombre] = Arrays.copyOf(mascotasDeNombre[nombre], cantidad + Math.max(1, cantidad >> 1));
+        }
+        mascotasDeNombre[nombre][cantidad] = ranura;
+        cantidadDeNombre[nombre] = cantidad + 1;
+        nombreDe[ranura] = nombre;
+        posicionEnNombre[ranura] = cantidad;
+    }
+
+    // La última del nombre pasa al lugar de la que sale
+    private void soltarDeNombre(int ranura) {
+        int nombre = nombreDe[ranura];
+        int ultima = --cantidadDeNombre[nombre];
+        int movida = mascotasDeNombre[nombre][ultima];
+        mascotasDeNombre[nombre][posicionEnNombre[ranura]] = movida;
+        posicionEnNombre[movida] = posicionEnNombre[ranura];
+    }
+
+    private int nuevaRanura(String id) {
+        int ranura;
+        if (cantidadLibres > 0) {
+            ranura = libres[--cantidadLibres];
+        } else {
+            if (ranuras == nombreDe.length) {
+                int capacidad = ranuras + (ranuras >> 1);
+                idAlto = Arrays.copyOf(idAlto, capacidad);
+                idBajo = Arrays.copyOf(idBajo, capacidad);
+                nombreDe = Arrays.copyOf(nombreDe, capacidad);
+                posicionEnNombre = Arrays.copyOf(posicionEnNombre, capacidad);
+            }
+            ranura = ranuras++;
+        }
+        if (!empacarUuid(id, ranura)) {
+            idsTexto.put(ranura, id);
+        }
+        mascotas++;
+        if (mascotas * 2 > tabla.length) {
+            agrandarTabla();
+        }
+        ponerEnTabla(ranura);
+        return ranura;
+    }
+
+    private int buscarRanura(String id) {
+        boolean uuid = esUuid(id);
+        long alto = uuid ? alto(id) : 0;
+        long bajo = uuid ? bajo(id) : 0;
+        int mascara = tabla.length - 1;
+        for (int i = (uuid ? mezclar(alto, bajo) : mezclar(id.hashCode(), 0)) & mascara; tabla[i] != 0; i = (i + 1) & mascara) {
+            int ranura = tabla[i] - 1;
+            String texto = idsTexto.get(ranura);
+            if (uuid ? texto == null && idAlto[ranura] == alto && idBajo[ranura] == bajo : id.equals(texto)) {
+                return ranura;
+            }
+        }
+        return -1;
+    }
+
+    private void ponerEnTabla(int ranura) {
+        int mascara = tabla.length - 1;
+        int i = hashDe(ranura) & mascara;
+        while (tabla[i] != 0) {
+            i = (i + 1) & mascara;
+        }
+        tabla[i] = ranura + 1;
+    }
+
+    // Borrado con sondeo lineal: corre hacia atrás las que quedarían inalcanzables
+    private void sacarDeTabla(int ranura) {
+        int mascara = tabla.length - 1;
+        int i = hashDe(ranura) & mascara;
+        while (tabla[i] != ranura + 1) {
+            i = (i + 1) & mascara;
+        }
+        int hueco = i;
+        for (int j = (hueco + 1) & mascara; tabla[j] != 0; j = (j + 1) & mascara) {
+            int ideal = hashDe(tabla[j] - 1) & mascara;
+            if (((j - ideal) & mascara) >= ((j - hueco) & mascara)) {
+                tabla[hueco] = tabla[j];
+                hueco = j;
+            }
+        }
+        tabla[hueco] = 0;
+    }
+
+    private void agrandarTabla() {
+        int[] anterior = tabla;
+        tabla = new int[anterior.length * 2];
+        for (int valor : anterior) {
+            if (valor != 0) {
+                ponerEnTabla(valor - 1);
+            }
+        }
+    }
+
+    private int hashDe(int ranura) {
+        String texto = idsTexto.get(ranura);
+        return texto != null ? mezclar(texto.hashCode(), 0) : mezclar(idAlto[ranura], idBajo[ranura]);
+    }
+
+    private String idDe(int ranura) {
+        String texto = idsTexto.get(ranura);
+        if (texto != null) {
+            return texto;
+        }
+        return new UUID(idAlto[ranura], idBajo[ranura]).toString();
+    }
+
+    // Solo el formato que produce UUID.toString (minúsculas), para que el id vuelva idéntico
+    private boolean empacarUuid(String id, int ranura) {
+        if (!esUuid(id)) {
+            return false;
+        }
+        idAlto[ranura] = alto(id);
+        idBajo[ranura] = bajo(id);
+        return true;
+    }
+
+    private static long alto(String uuid) {
+        return hexa(uuid, 0, 8) << 32 | hexa(uuid, 9, 13) << 16 | hexa(uuid, 14, 18);
+    }
+
+    private static long bajo(String uuid) {
+        return hexa(uuid, 19, 23) << 48 | hexa(uuid, 24, 36);
+    }
+
+    private static boolean esUuid(String id) {
+        if (id.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            boolean guion = i == 8 || i == 13 || i == 18 || i == 23;
+            if (guion ? c != '-' : !(c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hexa(String texto, int desde, int hasta) {
+        long valor = 0;
+        for (int i = desde; i < hasta; i++) {
+            valor = valor << 4 | Character.digit(texto.charAt(i), 16);
+        }
+        return valor;
+    }
+
+    private static int mezclar(long alto, long bajo) {
+        long h = (alto ^ Long.rotateLeft(bajo, 29)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // Claves distintas y ordenadas. Un carácter fuera de ASCII comparte código con los demás;
+    // un choque solo suma candidatos, que la comparación del nombre descarta
+    private static int[] trigramas(String texto) {
+        if (texto.length() < 3) {
+            return new int[0];
+        }
+        int[] claves = new int[texto.length() - 2];
+        for (int i = 0; i < claves.length; i++) {
+            claves[i] = codigo(texto.charAt(i)) << (2 * BITS_CARACTER)
+                | codigo(texto.charAt(i + 1)) << BITS_CARACTER
+                | codigo(texto.charAt(i + 2));
+        }
+        Arrays.sort(claves);
+        int distintas = 0;
+        for (int i = 0; i < claves.length; i++) {
+            if (i == 0 || claves[i] != claves[distintas - 1]) {
+                claves[distintas++] = claves[i];
+            }
+        }
+        return Arrays.copyOf(claves, distintas);
+    }
+
+    private static int codigo(char c) {
+        return c < 0x7F ? c : 0x7F;
+    }
+
+    // Números crecientes como diferencias en varint: 1 byte por diferencia menor que 128
+    private static final class Postings {
+
+        private byte[] datos = new byte[4];
+        private int largo;
+        private int cantidad;
+        private int ultimo;
+
+        void agregar(int valor) {
+            if (largo + 5 > datos.length) {
+                datos = Arrays.copyOf(datos, datos.length + Math.max(4, datos.length >> 1));
+            }
+            int diferencia = valor - ultimo;
+            while ((diferencia & ~0x7F) != 0) {
+                datos[largo++] = (byte) (diferencia & 0x7F | 0x80);
+                diferencia >>>= 7;
+            }
+            datos[largo++] = (byte) diferencia;
+            ultimo = valor;
+            cantidad++;
+        }
+
+        int[] decodificar() {
+            int[] valores = new int[cantidad];
+            int posicion = 0;
+            int valor = 0;
+            for (int i = 0; i < cantidad; i++) {
+                int diferencia = 0;
+                int desplazamiento = 0;
+                byte b;
+                do {
+                    b = datos[posicion++];
+                    diferencia |= (b & 0x7F) << desplazamiento;
+                    desplazamiento += 7;
+                } while (b < 0);
+                valor += diferencia;
+                valores[i] = valor;
+            }
+            return valores;
+        }
+
+        // Deja al comienzo de "candidatos" los que también están en esta lista; devuelve cuántos
+        int filtrar(int[] candidatos, int cantidadCandidatos) {
+            int quedan = 0;
+            int posicion = 0;
+            int leidos = 0;
+            int valor = 0;
+            int actual = -1;
+            for (int i = 0; i < cantidadCandidatos; i++) {
+                int candidato = candidatos[i];
+                while (actual < candidato && leidos < cantidad) {
+                    int diferencia = 0;
+                    int desplazamiento = 0;
+                    byte b;
+                    do {
+                        b = datos[posicion++];
+                        diferencia |= (b & 0x7F) << desplazamiento;
+                        desplazamiento += 7;
+                    } while (b < 0);
+                    valor += diferencia;
+                    actual = valor;
+                    leidos++;
+                }
+                if (actual == candidato) {
+                    candidatos[quedan++] = candidato;
+                } else if (actual < candidato) {
+                    break;
+                }
+            }
+            return quedan;
+        }
+    }
+
+    // Las k claves más chicas vistas, en un montículo de máximos
+    private static final class MejoresK {
+
+        private final long[] claves;
+        private int cantidad;
+
+        MejoresK(int k) {
+            this.claves = new long[k];
+        }
+
+        boolean entraria(long clave) {
+            return cantidad < claves.length || clave < claves[0];
+        }
+
+        void ofrecer(long clave) {
+            if (cantidad < claves.length) {
+                int i = cantidad++;
+                while (i > 0 && claves[(i - 1) / 2] < clave) {
+                    claves[i] = claves[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                claves[i] = clave;
+                return;
+            }
+            int i = 0;
+            while (true) {
+                int hijo = 2 * i + 1;
+                if (hijo >= cantidad) {
+                    break;
+                }
+                if (hijo + 1 < cantidad && claves[hijo + 1] > claves[hijo]) {
+                    hijo++;
+                }
+                if (claves[hijo] <= clave) {
+                    break;
+                }
+                claves[i] = claves[hijo];
+                i = hijo;
+            }
+            claves[i] = clave;
+        }
+
+        long[] ordenados() {
+            long[] ordenados = Arrays.copyOf(claves, cantidad);
+            Arrays.sort(ordenados);
+            return ordenados;
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.appvet.mascotas.service;
 
+import com.appvet.mascotas.dto.EstadisticasCache;
+import com.appvet.mascotas.dto.MascotaResumen;
+import com.appvet.mascotas.dto.PorIds;
+import com.appvet.mascotas.dto.ResultadoFiltro;
 import com.appvet.mascotas.model.Mascota;
 import java.util.List;
 import java.util.Optional;
@@ -7,10 +11,20 @@ import java.util.Optional;
 public interface MascotaService {
     List<Mascota> obtenerTodas();
     Optional<Mascota> obtenerPorId(String id);
+    PorIds<Mascota> obtenerPorIds(List<String> ids);
     List<Mascota> obtenerPorUsuario(String usuarioId);
     List<Mascota> obtenerPorEspecie(String especie);
+    List<MascotaResumen> obtenerResumenes();
+    List<MascotaResumen> obtenerResumenesPorUsuario(String usuarioId);
+    List<MascotaResumen> obtenerResumenesPorEspecie(String especie);
+    ResultadoFiltro filtrar(String especie, Integer edadMin, Integer edadMax, String usuarioId,
+                            String cursor, Integer limite);
+    Optional<List<MascotaResumen>> buscarPorNombre(String texto, String usuarioId, int limite);
     Mascota guardar(Mascota mascota);
     Mascota actualizar(String id, Mascota mascota);
+    long actualizar(String id, Mascota mascota, long versionEsperada);
     void eliminar(String id);
+    void eliminar(String id, long versionEsperada);
     long contarPorUsuario(String usuarioId);
+    EstadisticasCache estadisticasCache();
 }
\ No newline at end of file
@@ -1,13 +1,30 @@
 package com.appvet.mascotas.service;
 
+import com.appvet.mascotas.dto.ClaveMascota;
+import com.appvet.mascotas.dto.ConteoEspecieEdad;
+import com.appvet.mascotas.dto.EstadisticasCache;
+import com.appvet.mascotas.dto.MascotaResumen;
+import com.appvet.mascotas.dto.PorIds;
+import com.appvet.mascotas.dto.ResultadoFiltro;
+import com.appvet.mascotas.exception.VersionNoCoincideException;
+import com.appvet.mascotas.model.Eliminacion;
 import com.appvet.mascotas.model.Mascota;
+import com.appvet.mascotas.model.UuidV7;
+import com.appvet.mascotas.repository.EliminacionRepository;
 import com.appvet.mascotas.repository.MascotaRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -16,7 +33,14 @@ import java.util.Optional;
 @Transactional
 public class MascotaServiceImpl implements MascotaService {
     
+    // Ids por cada IN: listas más largas se parten, para no armar sentencias enormes
+    static final int IDS_POR_CONSULTA = 1000;
+    
     private final MascotaRepository mascotaRepository;
+    private final ContadorMascotas contadorMascotas;
+    private final IndiceNombres indiceNombres;
+    private final CacheMascotas cacheMascotas;
+    private final EliminacionRepository eliminacionRepository;
     
     @Override
     @Transactional(readOnly = true)
@@ -32,6 +56,20 @@ public class MascotaServiceImpl implements MascotaService {
         return mascotaRepository.findById(id);
     }
     
+    // Un IN por cada IDS_POR_CONSULTA ids en vez de una consulta por id
+    @Override
+    @Transactional(readOnly = true)
+    public PorIds<Mascota> obtenerPorIds(List<String> ids) {
+        List<String> unicos = ids.stream().filter(Objects::nonNull).distinct().toList();
+        log.info("Buscando {} mascotas por ID", unicos.size());
+        Map<String, Mascota> porId = new HashMap<>();
+        for (int desde = 0; desde < unicos.size(); desde += IDS_POR_CONSULTA) {
+            mascotaRepository.findAllById(unicos.subList(desde, Math.min(desde + IDS_POR_CONSULTA, unicos.size())))
+                .forEach(mascota -> porId.put(mascota.getId(), mascota));
+        }
+        return PorIds.ordenar(unicos, porId);
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public List<Mascota> obtenerPorUsuario(String usuarioId) {
@@ -46,10 +84,102 @@ public class MascotaServiceImpl implements MascotaService {
         return mascotaRepository.findByEspecie(especie);
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public List<MascotaResumen> obtenerResumenes() {
+        log.info("Obteniendo el resumen de todas las mascotas");
+        return mascotaRepository.findResumenes();
+    }
+    
+    // Pasa por CacheMascotas y no abre transacción: un acierto no toma conexión del pool, y en
+    // un fallo el repositorio abre la suya
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<MascotaResumen> obtenerResumenesPorUsuario(String usuarioId) {
+        log.debug("Obteniendo el resumen de las mascotas del usuario: {}", usuarioId);
+        return cacheMascotas.porUsuario(usuarioId, mascotaRepository::findResumenesPorUsuario);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<MascotaResumen> obtenerResumenesPorEspecie(String especie) {
+        log.info("Obteniendo el resumen de las mascotas de especie: {}", especie);
+        return mascotaRepository.findResumenesPorEspecie(especie);
+    }
+    
+    // Una consulta para la página (limite + 1 filas, para saber si hay otra) y, solo en la
+    // primera página, otra para las facetas de especie y edad
+    @Override
+    @Transactional(readOnly = true)
+    public ResultadoFiltro filtrar(String especie, Integer edadMin, Integer edadMax, String usuarioId,
+                                   String cursor, Integer limite) {
+        log.info("Filtrando mascotas: especie={}, edad={}-{}, usuario={}", especie, edadMin, edadMax, usuarioId);
+        FiltroMascotas.Criterios criterios = new FiltroMascotas.Criterios(especie, edadMin, edadMax, usuarioId);
+        int tamano = FiltroMascotas.acotarLimite(limite);
+        String despuesDe = FiltroMascotas.decodificar(cursor);
+        List<MascotaResumen> filas = mascotaRepository.findBy(FiltroMascotas.especificacion(criterios, despuesDe),
+            q -> q.as(MascotaResumen.class).sortBy(FiltroMascotas.ORDEN).limit(tamano + 1).all());
+        ResultadoFiltro.Facetas facetas = null;
+        if (despuesDe == null) {
+            List<ConteoEspecieEdad> conteos = usuarioId == null
+                ? mascotaRepository.contarPorEspecieYEdad()
+                : mascotaRepository.contarPorEspecieYEdadDeUsuario(usuarioId);
+            facetas = FiltroMascotas.facetas(conteos, criterios);
+        }
+        if (filas.size() <= tamano) {
+            return new ResultadoFiltro(filas, null, facetas);
+        }
+        List<MascotaResumen> items = filas.subList(0, tamano);
+        return new ResultadoFiltro(items, FiltroMascotas.codificar(items.get(tamano - 1).id()), facetas);
+    }
+    
+    // Con usuarioId se ordenan sus mascotas, que son pocas y salen de CacheMascotas; sin usuarioId los
+    // ids salen de IndiceNombres y se leen con un solo IN. Vacío si el índice aún no se carga.
+    // Una mascota borrada después de consultar el índice simplemente no aparece
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<List<MascotaResumen>> buscarPorNombre(String texto, String usuarioId, int limite) {
+        log.info("Buscando mascotas por nombre: {}", texto);
+        if (usuarioId != null) {
+            return Optional.of(IndiceTrigramas.mejores(obtenerResumenesPorUsuario(usuarioId),
+                MascotaResumen::nombre, texto, limite));
+        }
+        return indiceNombres.buscar(texto, limite).map(ids -> {
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            Map<String, MascotaResumen> porId = new HashMap<>();
+            mascotaRepository.findResumenesPorIds(ids).forEach(resumen -> porId.put(resumen.id(), resumen));
+            return ids.stream().map(porId::get).filter(Objects::nonNull).toList();
+        });
+    }
+    
     @Override
     public Mascota guardar(Mascota mascota) {
         log.info("Guardando mascota: {}", mascota.getNombre());
-        return mascotaRepository.save(mascota);
+        // Sin id del cliente se genera uno ordenado por tiempo, que no puede existir todavía.
+        // Si el id ya existe save() la sobrescribe, posiblemente con otro dueño. Toma la versión
+        // actual para que save() haga merge y no intente insertarla de nuevo.
+        // El id del cliente se busca primero sin bloqueo y solo una fila existente se lee con
+        // FOR UPDATE: sobre un id que no existe, InnoDB bloquearía el hueco del índice y dos altas
+        // concurrentes en el mismo hueco se trabarían al insertar. Si otra petición inserta el
+        // mismo id entretanto, el INSERT falla por clave duplicada al confirmar
+        boolean idGenerado = mascota.getId() == null || mascota.getId().isBlank();
+        if (idGenerado) {
+            mascota.setId(UuidV7.generar());
+        }
+        Optional<Mascota> existente = idGenerado || !mascotaRepository.existsById(mascota.getId())
+            ? Optional.empty()
+            : mascotaRepository.findParaActualizarById(mascota.getId());
+        Optional<String> usuarioAnterior = existente.map(Mascota::getUsuarioId);
+        existente.ifPresent(previa -> mascota.setVersion(previa.getVersion()));
+        Mascota guardada = mascotaRepository.save(mascota);
+        usuarioAnterior.ifPresent(contadorMascotas::baja);
+        contadorMascotas.alta(guardada.getUsuarioId());
+        indiceNombres.guardada(guardada.getId(), guardada.getNombre());
+        usuarioAnterior.ifPresent(this::invalidarTrasCommit);
+        invalidarTrasCommit(guardada.getUsuarioId());
+        return guardada;
     }
     
     @Override
@@ -62,24 +192,85 @@ public class MascotaServiceImpl implements MascotaService {
                 mascotaExistente.setEspecie(mascotaActualizada.getEspecie());
                 mascotaExistente.setFotoUri(mascotaActualizada.getFotoUri());
                 mascotaExistente.setFotoIcono(mascotaActualizada.getFotoIcono());
+                indiceNombres.guardada(id, mascotaExistente.getNombre());
+                invalidarTrasCommit(mascotaExistente.getUsuarioId());
                 return mascotaRepository.save(mascotaExistente);
             })
             .orElseThrow(() -> new RuntimeException("Mascota no encontrada con ID: " + id));
     }
     
+    // If-Match: un solo UPDATE condicionado a la versión, sin leer antes la fila. Devuelve la
+    // versión nueva, para el ETag de la respuesta
+    @Override
+    public long actualizar(String id, Mascota mascotaActualizada, long versionEsperada) {
+        log.info("Actualizando mascota con ID: {} (versión {})", id, versionEsperada);
+        int filas = mascotaRepository.actualizarSiVersion(id, versionEsperada, mascotaActualizada.getNombre(),
+            mascotaActualizada.getEdad(), mascotaActualizada.getEspecie(), mascotaActualizada.getFotoUri(),
+            mascotaActualizada.getFotoIcono(), LocalDateTime.now());
+        if (filas == 0) {
+            if (!mascotaRepository.existsById(id)) {
+                throw new RuntimeException("Mascota no encontrada con ID: " + id);
+            }
+            throw new VersionNoCoincideException("La mascota " + id + " fue modificada por otra petición");
+        }
+        indiceNombres.guardada(id, mascotaActualizada.getNombre());
+        // El UPDATE no lee la fila: el dueño, para la caché, sale de una lectura por id ya bloqueada
+        mascotaRepository.findUsuarioIdById(id).ifPresent(this::invalidarTrasCommit);
+        return versionEsperada + 1;
+    }
+    
     @Override
     public void eliminar(String id) {
+        eliminarSiCoincide(id, null);
+    }
+    
+    // El borrado necesita el dueño para el contador, así que la versión se compara en esa misma
+    // lectura bloqueada en vez de en el DELETE
+    @Override
+    public void eliminar(String id, long versionEsperada) {
+        eliminarSiCoincide(id, versionEsperada);
+    }
+    
+    private void eliminarSiCoincide(String id, Long versionEsperada) {
         log.info("Eliminando mascota con ID: {}", id);
-        if (!mascotaRepository.existsById(id)) {
-            throw new RuntimeException("Mascota no encontrada con ID: " + id);
+        ClaveMascota actual = mascotaRepository.findClaveParaActualizar(id)
+            .orElseThrow(() -> new RuntimeException("Mascota no encontrada con ID: " + id));
+        if (versionEsperada != null && !versionEsperada.equals(actual.version())) {
+            throw new VersionNoCoincideException("La mascota " + id + " fue modificada por otra petición");
         }
-        mascotaRepository.deleteById(id);
+        mascotaRepository.eliminarPorId(id);
+        // Para que horas purgue las de esta mascota; queda solo si el borrado se confirma
+        eliminacionRepository.save(Eliminacion.deMascota(id));
+        contadorMascotas.baja(actual.usuarioId());
+        indiceNombres.eliminada(id);
+        invalidarTrasCommit(actual.usuarioId());
     }
     
     @Override
     @Transactional(readOnly = true)
     public long contarPorUsuario(String usuarioId) {
         log.info("Contando mascotas del usuario: {}", usuarioId);
-        return mascotaRepository.countByUsuarioId(usuarioId);
+        return contadorMascotas.contarPorUsuario(usuarioId)
+            .orElseGet(() -> mascotaRepository.countByUsuarioId(usuarioId));
+    }
+    
+    @Override
+    public EstadisticasCache estadisticasCache() {
+        return cacheMascotas.estadisticas();
+    }
+    
+    // Recién después del commit: si se invalidara antes, una lectura concurrente podría volver a
+    // cargar la lista vieja
+    private void invalidarTrasCommit(String usuarioId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cacheMascotas.invalidar(usuarioId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cacheMascotas.invalidar(usuarioId);
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,217 @@
+package com.appvet.mascotas.service;
+
+import com.appvet.mascotas.config.PurgaProperties;
+import com.appvet.mascotas.model.Eliminacion;
+import com.appvet.mascotas.repository.EliminacionRepository;
+import com.appvet.mascotas.repository.MascotaRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Limpieza en cascada de las mascotas de un usuario eliminado. Usuarios deja cada borrado en la
+// tabla común eliminaciones, en la misma transacción que lo confirma; aquí se leen los que
+// mascotas aún no purga y se borran sus mascotas en lotes chicos, cada uno en su propia
+// transacción, como el archivado de horas. El evento se marca purgado recién cuando no le queda
+// nada: si algo falla sigue pendiente y la próxima pasada lo reintenta desde lo que falte. Dos
+// instancias a la vez no se pisan, porque la segunda espera el bloqueo del lote y luego ya no
+// encuentra esas filas.
+// La reconciliación nocturna recoge las huérfanas que no tienen evento: las de borrados
+// anteriores a esta tabla o hechos directo en la base.
+// Las pasadas corren en un hilo propio, una a la vez, y cada una tiene un tope de duración: lo
+// que no alcanza queda para la siguiente. El scheduler solo las lanza
+@Component
+@Slf4j
+public class PurgaMascotas {
+
+    private final MascotaRepository mascotaRepository;
+    private final EliminacionRepository eliminacionRepository;
+    private final ContadorMascotas contadorMascotas;
+    private final IndiceNombres indiceNombres;
+    private final CacheMascotas cacheMascotas;
+    private final PurgaProperties config;
+    private final TransactionTemplate transaccion;
+    private final ExecutorService ejecutor = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "purga-mascotas");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+    private final AtomicBoolean purgaEnCurso = new AtomicBoolean();
+    private final AtomicBoolean reconciliacionEnCurso = new AtomicBoolean();
+
+    public PurgaMascotas(MascotaRepository mascotaRepository, EliminacionRepository eliminacionRepository,
+                         ContadorMascotas contadorMascotas, IndiceNombres indiceNombres, CacheMascotas cacheMascotas,
+                         PurgaProperties config, PlatformTransactionManager transactionManager) {
+        this.mascotaRepository = mascotaRepository;
+        this.eliminacionRepository = eliminacionRepository;
+        this.contadorMascotas = contadorMascotas;
+        this.indiceNombres = indiceNombres;
+        this.cacheMascotas = cacheMascotas;
+        this.config = config;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Scheduled(fixedDelayString = "${appvet.mascotas.purga.intervalo:PT30S}",
+               initialDelayString = "${appvet.mascotas.purga.intervalo:PT30S}")
+    public void purgarPendientes() {
+        lanzar(purgaEnCurso, () -> {
+            int procesadas = procesarPendientes();
+            if (procesadas > 0) {
+                log.info("Purga: {} eliminaciones procesadas", procesadas);
+            }
+        });
+    }
+
+    @Scheduled(cron = "${appvet.mascotas.purga.reconciliacion:0 0 4 * * *}")
+    public void reconciliar() {
+        lanzar(reconciliacionEnCurso, () -> {
+            int purgadas = reconciliarAnterioresA(LocalDateTime.now().minus(config.antiguedadMinima()));
+            log.info("Reconciliación de huérfanas: {} mascotas de usuarios inexistentes purgadas", purgadas);
+        });
+    }
+
+    // Una pasada por hasta eventosPorPasada eliminaciones, dentro de duracionMaximaPasada;
+    // devuelve cuántas quedaron purgadas
+    public int procesarPendientes() {
+        return procesarPendientes(Plazo.de(config.duracionMaximaPasada()));
+    }
+
+    int procesarPendientes(Plazo plazo) {
+        List<Eliminacion> pendientes = transaccion.execute(estado ->
+            eliminacionRepository.findPendientesParaMascotas(Limit.of(config.eventosPorPasada())));
+        int procesadas = 0;
+        for (Eliminacion eliminacion : pendientes) {
+            try {
+                if (Eliminacion.USUARIO.equals(eliminacion.getTipo())) {
+                    purgarUsuario(eliminacion.getEntidadId(), plazo);
+                }
+                // Cortada a la mitad: sigue pendiente y la próxima pasada termina
+                if (plazo.vencido()) {
+                    return procesadas;
+                }
+                transaccion.executeWithoutResult(estado ->
+                    eliminacionRepository.marcarPurgadaEnMascotas(eliminacion.getId(), LocalDateTime.now()));
+                procesadas++;
+            } catch (RuntimeException e) {
+                log.warn("No se pudo purgar la eliminación {} ({} {}); se reintenta en la próxima pasada",
+                    eliminacion.getId(), eliminacion.getTipo(), eliminacion.getEntidadId(), e);
+            }
+        }
+        return procesadas;
+    }
+
+    // Recorre los dueños de a usuariosPorTramo y purga los que ya no existen en usuarios, dentro
+    // de duracionMaximaReconciliacion; devuelve cuántas mascotas borró. Cada tramo es una
+    // consulta corta por el índice, no un JOIN de toda la tabla
+    public int reconciliarAnterioresA(LocalDateTime antesDe) {
+        Plazo plazo = Plazo.de(config.duracionMaximaReconciliacion());
+        int total = 0;
+        String desde = "";
+        while (!plazo.vencido()) {
+            String cursor = desde;
+            List<String> tramo = transaccion.execute(estado ->
+                mascotaRepository.findUsuarioIdsDesde(cursor, Limit.of(config.usuariosPorTramo())));
+            if (tramo.isEmpty()) {
+                break;
+            }
+            List<String> huerfanos = transaccion.execute(estado ->
+                mascotaRepository.findUsuariosInexistentes(tramo, antesDe));
+            for (String usuarioId : huerfanos) {
+                total += purgarUsuario(usuarioId, plazo);
+            }
+            if (tramo.size() < config.usuariosPorTramo()) {
+                break;
+            }
+            desde = tramo.get(tramo.size() - 1);
+        }
+        return total;
+    }
+
+    // Borra lote a lote las mascotas del usuario hasta que no quede ninguna o se acabe el plazo;
+    // devuelve cuántas. Siempre hace al menos un lote, así cada pasada avanza
+    int purgarUsuario(String usuarioId, Plazo plazo) {
+        int total = 0;
+        try {
+            while (true) {
+                Integer borradas = transaccion.execute(estado -> purgarLote(usuarioId));
+                total += borradas;
+                if (borradas < config.filasPorLote() || plazo.vencido()) {
+                    return total;
+                }
+                Thread.sleep(config.pausaEntreLotes().toMillis());
+            }
+        } catch (InterruptedException e) {
+            // Lo ya borrado queda; el evento sigue pendiente y la próxima pasada termina
+            Thread.currentThread().interrupt();
+            return total;
+        } finally {
+            if (total > 0) {
+                cacheMascotas.invalidar(usuarioId);
+            }
+        }
+    }
+
+    @PreDestroy
+    void cerrar() {
+        ejecutor.shutdownNow();
+    }
+
+    // Si la pasada anterior del mismo tipo sigue corriendo, esta se omite
+    private void lanzar(AtomicBoolean enCurso, Runnable pasada) {
+        if (!enCurso.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ejecutor.execute(() -> {
+                try {
+                    pasada.run();
+                } catch (RuntimeException e) {
+                    log.error("Pasada de purga interrumpida por un error; la próxima sigue con lo que falta", e);
+                } finally {
+                    enCurso.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            enCurso.set(false);
+            throw e;
+        }
+    }
+
+    // Contador e índice se ajustan tras el commit de este lote, como en un borrado normal
+    private int purgarLote(String usuarioId) {
+        List<String> ids = mascotaRepository.findIdsParaPurgar(usuarioId, Limit.of(config.filasPorLote()));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        mascotaRepository.eliminarPorIds(ids);
+        for (String id : ids) {
+            contadorMascotas.baja(usuarioId);
+            indiceNombres.eliminada(id);
+        }
+        return ids.size();
+    }
+
+    // Momento en que una pasada debe soltar; una interrupción (al apagar) también la corta
+    record Plazo(long hastaNanos) {
+
+        static Plazo de(Duration duracion) {
+            return new Plazo(System.nanoTime() + duracion.toNanos());
+        }
+
+        boolean vencido() {
+            return System.nanoTime() - hastaNanos >= 0 || Thread.currentThread().isInterrupted();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+-- Esquema de mascotas tal como lo creaba ddl-auto=update.
+-- IF NOT EXISTS porque en appvet_db la tabla ya existe: ahí esta versión solo queda registrada.
+CREATE TABLE IF NOT EXISTS mascotas (
+    id VARCHAR(36) NOT NULL,
+    nombre VARCHAR(100) NOT NULL,
+    edad INT NOT NULL,
+    especie VARCHAR(50) NOT NULL,
+    foto_icono INT,
+    foto_uri TEXT,
+    usuario_id VARCHAR(36) NOT NULL,
+    fecha_registro DATETIME(6),
+    fecha_actualizacion DATETIME(6),
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,11 @@
+-- Índices para las consultas de MascotaRepository.
+-- findByNombreContainingIgnoreCase (LIKE '%...%') no puede usar un índice B-tree y queda fuera.
+
+-- findByUsuarioId, countByUsuarioId, findByUsuarioIdAndEspecie
+CREATE INDEX idx_mascotas_usuario_especie ON mascotas (usuario_id, especie);
+
+-- findByEspecie
+CREATE INDEX idx_mascotas_especie ON mascotas (especie);
+
+-- findByEdadBetween
+CREATE INDEX idx_mascotas_edad ON mascotas (edad);
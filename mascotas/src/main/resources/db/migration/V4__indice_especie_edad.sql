@@ -0,0 +1,6 @@
+-- Facetas de GET /api/mascotas/filtrar: contarPorEspecieYEdad agrupa toda la tabla por
+-- (especie, edad) y con este índice la lee sin tocar las filas. Reemplaza a idx_mascotas_especie,
+-- que es su prefijo: findByEspecie y el filtro por especie lo siguen usando
+CREATE INDEX idx_mascotas_especie_edad ON mascotas (especie, edad);
+
+DROP INDEX idx_mascotas_especie ON mascotas;
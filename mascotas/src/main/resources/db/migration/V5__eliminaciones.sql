@@ -0,0 +1,17 @@
+-- Eventos de borrado para la limpieza en cascada entre microservicios: usuarios y mascotas
+-- registran aquí cada borrado en la misma transacción que lo confirma, y mascotas y horas
+-- purgan después lo que dependía de él. purgada_mascotas y purgada_horas quedan en null
+-- mientras ese consumidor no termina.
+-- La tabla es común en appvet_db y los tres microservicios la declaran igual, con IF NOT EXISTS
+-- y los índices adentro: la crea el primero que migra
+CREATE TABLE IF NOT EXISTS eliminaciones (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    tipo VARCHAR(20) NOT NULL,
+    entidad_id VARCHAR(36) NOT NULL,
+    fecha DATETIME(6) NOT NULL,
+    purgada_mascotas DATETIME(6),
+    purgada_horas DATETIME(6),
+    PRIMARY KEY (id),
+    INDEX idx_eliminaciones_mascotas (purgada_mascotas, id),
+    INDEX idx_eliminaciones_horas (purgada_horas, id)
+);
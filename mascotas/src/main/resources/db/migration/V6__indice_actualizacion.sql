@@ -0,0 +1,3 @@
+-- findNombresActualizadosDesde: cada instancia pone al día su índice de nombres con lo que
+-- escribieron las demás, leyendo solo las filas cambiadas en los últimos segundos
+CREATE INDEX idx_mascotas_actualizacion ON mascotas (fecha_actualizacion);
@@ -0,0 +1,181 @@
+package com.appvet.mascotas.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.data.domain.Limit;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.appvet.mascotas.dto.MascotaResumen;
+import com.appvet.mascotas.model.Mascota;
+
+// Corre cada consulta del repositorio sobre H2 (modo MySQL, con las migraciones de Flyway),
+// captura el SQL que genera Hibernate y revisa su EXPLAIN. Cada acceso a una tabla tiene que
+// buscar por un índice (en el plan: "/* public.indice: condiciones */") y alguno tiene que ser
+// el esperado para esa consulta. Un recorrido completo, de la tabla o de un índice entero
+// ("/* public.indice */" sin condiciones), falla salvo en AGREGADOS_COMPLETOS
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+@DisplayName("Planes de ejecución de MascotaRepository")
+class MascotaRepositoryPlanesTest {
+
+    @TestConfiguration
+    static class RegistroConfig {
+
+        @Bean
+        RegistroSql registroSql() {
+            return new RegistroSql();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer registrarSql(RegistroSql registroSql) {
+            return propiedades -> propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, registroSql);
+        }
+    }
+
+    static class RegistroSql implements StatementInspector {
+
+        private final List<String> sentencias = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            sentencias.add(sql);
+            return sql;
+        }
+    }
+
+    // Conteos de ContadorMascotas al arrancar y al reconciliar, y las estadísticas de toda la
+    // clínica: leen todas las filas a propósito. Se aceptan si recorren entero un índice angosto
+    // (alcanza para agrupar), nunca la tabla
+    private static final Set<String> AGREGADOS_COMPLETOS = Set.of("contarPorUsuarioAgrupado", "contarPorEspecieYEdad");
+
+    // Las claves primarias de H2 tienen nombre generado (PRIMARY_KEY_A...): se compara por prefijo
+    private static final String CLAVE_PRIMARIA = "PRIMARY_KEY";
+
+    private static final Pattern ACCESO = Pattern.compile("/\\* public\\.(\\w+)(:?)");
+
+    @Autowired
+    private MascotaRepository mascotaRepository;
+
+    @Autowired
+    private RegistroSql registroSql;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void crearTablasAjenas() {
+        // En appvet_db es la tabla del microservicio de usuarios; aquí basta con su id
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS usuarios (id VARCHAR(36) NOT NULL, PRIMARY KEY (id))");
+    }
+
+    // findByNombreContainingIgnoreCase no está: un LIKE '%...%' siempre recorre la tabla.
+    // findResumenes y streamParaIndice tampoco: leen la tabla completa a propósito
+    static Stream<Arguments> consultas() {
+        return Stream.of(
+            consulta("findAllById", r -> r.findAllById(List.of("a", "b")), CLAVE_PRIMARIA),
+            consulta("findByUsuarioId", r -> r.findByUsuarioId("u"), "idx_mascotas_usuario_especie"),
+            consulta("findByEspecie", r -> r.findByEspecie("Perro"), "idx_mascotas_especie_edad"),
+            consulta("findResumenesPorIds", r -> r.findResumenesPorIds(List.of("a", "b")), CLAVE_PRIMARIA),
+            consulta("findResumenesPorUsuario", r -> r.findResumenesPorUsuario("u"), "idx_mascotas_usuario_especie"),
+            consulta("findResumenesPorEspecie", r -> r.findResumenesPorEspecie("Perro"), "idx_mascotas_especie_edad"),
+            consulta("findByUsuarioIdAndEspecie", r -> r.findByUsuarioIdAndEspecie("u", "Perro"),
+                "idx_mascotas_usuario_especie"),
+            consulta("countByUsuarioId", r -> r.countByUsuarioId("u"), "idx_mascotas_usuario_especie"),
+            consulta("findByEdadBetween", r -> r.findByEdadBetween(1, 5), "idx_mascotas_edad"),
+            consulta("existsByIdAndUsuarioId", r -> r.existsByIdAndUsuarioId("a", "u"), CLAVE_PRIMARIA),
+            consulta("contarPorUsuarioAgrupado", r -> r.contarPorUsuarioAgrupado(), "idx_mascotas_usuario_especie"),
+            consulta("contarPorEspecieYEdad", r -> r.contarPorEspecieYEdad(), "idx_mascotas_especie_edad"),
+            consulta("contarPorEspecieYEdadDeUsuario", r -> r.contarPorEspecieYEdadDeUsuario("u"),
+                "idx_mascotas_usuario_especie"),
+            consulta("filtrar por especie y edad", r -> r.findBy(
+                (Specification<Mascota>) (root, q, cb) -> cb.and(cb.equal(root.get("especie"), "Perro"),
+                    cb.between(root.get("edad"), 1, 5), cb.greaterThan(root.get("id"), "a")),
+                q -> q.as(MascotaResumen.class).sortBy(Sort.by("id")).limit(51).all()), "idx_mascotas_especie_edad"),
+            consulta("filtrar por usuario", r -> r.findBy(
+                (Specification<Mascota>) (root, q, cb) -> cb.equal(root.get("usuarioId"), "u"),
+                q -> q.as(MascotaResumen.class).sortBy(Sort.by("id")).limit(51).all()), "idx_mascotas_usuario_especie"),
+            consulta("findUsuarioIdById", r -> r.findUsuarioIdById("a"), CLAVE_PRIMARIA),
+            consulta("findParaActualizarById", r -> r.findParaActualizarById("a"), CLAVE_PRIMARIA),
+            consulta("findClaveParaActualizar", r -> r.findClaveParaActualizar("a"), CLAVE_PRIMARIA),
+            consulta("actualizarSiVersion", r -> r.actualizarSiVersion("a", 0L, "Firulais", 3, "Perro", null, null, null),
+                CLAVE_PRIMARIA),
+            consulta("eliminarPorId", r -> r.eliminarPorId("a"), CLAVE_PRIMARIA),
+            consulta("findIdsParaPurgar", r -> r.findIdsParaPurgar("u", Limit.of(500)), "idx_mascotas_usuario_especie"),
+            consulta("eliminarPorIds", r -> r.eliminarPorIds(List.of("a", "b")), CLAVE_PRIMARIA),
+            consulta("findUsuarioIdsDesde", r -> r.findUsuarioIdsDesde("u", Limit.of(1000)),
+                "idx_mascotas_usuario_especie"),
+            consulta("findNombresActualizadosDesde", r -> r.findNombresActualizadosDesde(LocalDateTime.now()),
+                "idx_mascotas_actualizacion"),
+            // Nativa contra la tabla de usuarios: el tramo de ids va por el índice y cada uno se
+            // busca por clave primaria en la tabla ajena
+            consulta("findUsuariosInexistentes", r -> r.findUsuariosInexistentes(List.of("a", "b"), LocalDateTime.now()),
+                "idx_mascotas_usuario_especie")
+        );
+    }
+
+    private static Arguments consulta(String nombre, Consumer<MascotaRepository> ejecutar, String... indices) {
+        return Arguments.of(nombre, ejecutar, indices);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("consultas")
+    @DisplayName("La consulta usa el índice esperado")
+    void laConsultaUsaElIndiceEsperado(String nombre, Consumer<MascotaRepository> ejecutar, String[] indices) {
+        // Given
+        registroSql.sentencias.clear();
+
+        // When
+        ejecutar.accept(mascotaRepository);
+
+        // Then
+        assertFalse(registroSql.sentencias.isEmpty(), nombre + " no ejecutó SQL");
+        for (String sql : registroSql.sentencias) {
+            String plan = explicar(sql);
+            assertFalse(plan.contains(".tableScan"), nombre + " recorre la tabla completa:\n" + plan);
+            boolean usaEsperado = false;
+            Matcher acceso = ACCESO.matcher(plan);
+            while (acceso.find()) {
+                String indice = acceso.group(1);
+                boolean busca = !acceso.group(2).isEmpty();
+                assertTrue(busca || AGREGADOS_COMPLETOS.contains(nombre),
+                    nombre + " recorre entero el índice " + indice + ":\n" + plan);
+                for (String esperado : indices) {
+                    usaEsperado |= indice.startsWith(esperado);
+                }
+            }
+            assertTrue(usaEsperado, nombre + " no usa " + String.join(" ni ", indices) + ":\n" + plan);
+        }
+    }
+
+    // Los parámetros van en null: EXPLAIN no ejecuta la sentencia, solo la planifica
+    private String explicar(String sql) {
+        Object[] parametros = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parametros);
+    }
+}
@@ -0,0 +1,75 @@
+package com.appvet.mascotas.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.appvet.mascotas.model.Mascota;
+
+// Altas con id del cliente que llegan a la vez: ninguna debe esperar ni fallar por la otra
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("Altas concurrentes con id del cliente")
+class AltasConcurrentesTest {
+
+    private static final int PARES = 10;
+    private static final String USUARIO = "altas-user";
+
+    @Autowired
+    private MascotaService mascotaService;
+
+    @Autowired
+    private ContadorMascotas contadorMascotas;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Debe crear las dos mascotas cuando dos altas con ids nuevos llegan a la vez")
+    void debeCrearAmbasMascotasConIdsNuevos() throws Exception {
+        // Given: pares de ids contiguos, en el mismo hueco del índice
+        jdbcTemplate.update("DELETE FROM mascotas WHERE usuario_id = ?", USUARIO);
+        contadorMascotas.reconciliar();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            for (int par = 0; par < PARES; par++) {
+                CountDownLatch largada = new CountDownLatch(1);
+                List<Future<Mascota>> tareas = new ArrayList<>();
+                for (int lado = 0; lado < 2; lado++) {
+                    Mascota mascota = new Mascota("altas-" + par + "-" + lado, "Firulais", 3, "Perro", null, USUARIO);
+                    tareas.add(executor.submit(() -> {
+                        largada.await();
+                        return mascotaService.guardar(mascota);
+                    }));
+                }
+
+                // When
+                largada.countDown();
+                for (Future<Mascota> tarea : tareas) {
+                    tarea.get();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        assertEquals(PARES * 2, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM mascotas WHERE usuario_id = ?", Integer.class, USUARIO));
+        assertEquals(PARES * 2L, contadorMascotas.contarPorUsuario(USUARIO).orElseThrow());
+        jdbcTemplate.update("DELETE FROM mascotas WHERE usuario_id = ?", USUARIO);
+        contadorMascotas.reconciliar();
+    }
+}
@@ -0,0 +1,83 @@
+package com.appvet.mascotas.service;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+// Latencia de la búsqueda por nombre sobre cinco millones de mascotas: nombres comunes que se
+// repiten mucho más algunos inventados, y consultas de dos a cinco letras como las que se
+// teclean. Informa p50/p99 y la memoria que ocupa el índice.
+// Ejecutar con: mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=BusquedaBenchmarkTest
+@Tag("benchmark")
+@DisplayName("Benchmark de la búsqueda por nombre")
+class BusquedaBenchmarkTest {
+
+    private static final int MASCOTAS = 5_000_000;
+    private static final int CONSULTAS = 20_000;
+    private static final String[] COMUNES = {"Luna", "Rocky", "Max", "Firulais", "Pelusa", "Toby", "Canela",
+        "Lucas", "Michi", "Nala", "Simba", "Coco", "Bruno", "Kira", "Manchas", "Negrita", "Chispa", "Princesa"};
+    private static final String SILABAS = "bacadafagalamanapasatazabecedefegelemenepesetezebicidifigilimini";
+
+    @Test
+    @DisplayName("p99 bajo 5 ms con cinco millones de mascotas")
+    void cincoMillonesDeMascotas() {
+        Random azar = new Random(7);
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long memoriaAntes = runtime.totalMemory() - runtime.freeMemory();
+        long inicio = System.nanoTime();
+        IndiceTrigramas indice = new IndiceTrigramas(MASCOTAS);
+        for (int i = 0; i < MASCOTAS; i++) {
+            indice.poner(UUID.randomUUID().toString(), nombre(azar));
+        }
+        double carga = (System.nanoTime() - inicio) / 1e6;
+        System.gc();
+        long memoria = runtime.totalMemory() - runtime.freeMemory() - memoriaAntes;
+
+        String[] consultas = new String[CONSULTAS];
+        for (int i = 0; i < CONSULTAS; i++) {
+            String nombre = IndiceTrigramas.normalizar(nombre(azar));
+            int largo = Math.min(nombre.length(), 2 + azar.nextInt(4));
+            int desde = azar.nextBoolean() ? 0 : azar.nextInt(nombre.length() - largo + 1);
+            consultas[i] = nombre.substring(desde, desde + largo);
+        }
+        for (int i = 0; i < CONSULTAS; i++) {
+            indice.buscar(consultas[i], 20);
+        }
+        long[] tiempos = new long[CONSULTAS];
+        for (int i = 0; i < CONSULTAS; i++) {
+            long antes = System.nanoTime();
+            indice.buscar(consultas[i], 20);
+            tiempos[i] = System.nanoTime() - antes;
+        }
+        Arrays.sort(tiempos);
+        double p50 = tiempos[CONSULTAS / 2] / 1e6;
+        double p99 = tiempos[CONSULTAS * 99 / 100] / 1e6;
+        System.out.printf("%d mascotas: carga %.0f ms, %.0f MB, p50 %.3f ms, p99 %.3f ms, máximo %.3f ms%n",
+            indice.tamano(), carga, memoria / 1_048_576.0, p50, p99, tiempos[CONSULTAS - 1] / 1e6);
+        assertTrue(p99 < 5, "p99 de " + p99 + " ms");
+    }
+
+    // Un tercio de nombres comunes, el resto de dos o tres sílabas y a veces dos palabras
+    private static String nombre(Random azar) {
+        if (azar.nextInt(3) == 0) {
+            return COMUNES[azar.nextInt(COMUNES.length)];
+        }
+        StringBuilder nombre = new StringBuilder();
+        int silabas = 2 + azar.nextInt(2);
+        for (int i = 0; i < silabas; i++) {
+            int silaba = azar.nextInt(SILABAS.length() / 2) * 2;
+            nombre.append(SILABAS, silaba, silaba + 2);
+        }
+        nombre.setCharAt(0, Character.toUpperCase(nombre.charAt(0)));
+        if (azar.nextInt(4) == 0) {
+            nombre.append(' ').append(COMUNES[azar.nextInt(COMUNES.length)]);
+        }
+        return nombre.toString();
+    }
+}
@@ -0,0 +1,151 @@
+package com.appvet.mascotas.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.appvet.mascotas.config.CacheMascotasProperties;
+import com.appvet.mascotas.dto.EstadisticasCache;
+import com.appvet.mascotas.dto.MascotaResumen;
+import com.appvet.mascotas.repository.MascotaRepository;
+
+// Aperturas de la app: unos pocos dueños la abren a diario y una cola larga muy de vez en
+// cuando (Zipf). Compara ir siempre a la base con pasar por CacheMascotas, con una caché más
+// chica que el total para que la admisión por frecuencia importe, y mide cuánta memoria ocupa
+// cada mascota guardada.
+// Con H2 en memoria la base ya es rápida; contra MySQL por red la diferencia es mucho mayor.
+// Ejecutar con: mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=CacheBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest(properties = "appvet.mascotas.cache.maximo-mascotas=30000")
+@ActiveProfiles("h2")
+@DisplayName("Benchmark de la caché de mascotas por dueño")
+class CacheBenchmarkTest {
+
+    private static final int DUENOS = 50_000;
+    private static final int LECTURAS = 200_000;
+    private static final int MASCOTAS_EN_MEMORIA = 200_000;
+
+    @Autowired
+    private MascotaService mascotaService;
+
+    @Autowired
+    private MascotaRepository mascotaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("La caché atiende la pantalla de inicio más rápido que la base")
+    void cacheAtiendeMasRapidoQueLaBase() {
+        jdbcTemplate.update("DELETE FROM mascotas");
+        Random random = new Random(42);
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 0; i < DUENOS; i++) {
+            for (int j = 1 + random.nextInt(3); j > 0; j--) {
+                filas.add(new Object[] {UUID.randomUUID().toString(), "Mascota " + j, j, "Perro", "u" + i});
+            }
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO mascotas (id, nombre, edad, especie, usuario_id, version) VALUES (?, ?, ?, ?, ?, 0)", filas);
+
+        Zipf zipf = new Zipf(DUENOS, 1.0);
+        Medicion base = medir(mascotaRepository::findResumenesPorUsuario, zipf);
+        Medicion cache = medir(mascotaService::obtenerResumenesPorUsuario, zipf);
+        EstadisticasCache estadisticas = mascotaService.estadisticasCache();
+
+        System.out.printf("%d dueños, %d mascotas%n", DUENOS, filas.size());
+        System.out.printf("base:   %,.0f lecturas/s, p99 %.1f µs%n", base.porSegundo(), base.p99());
+        System.out.printf("caché:  %,.0f lecturas/s, p99 %.1f µs, aciertos %.1f%%, %d dueños y %d mascotas en "
+                + "memoria, expulsiones %,d%n", cache.porSegundo(), cache.p99(), estadisticas.tasaAciertos() * 100,
+            estadisticas.duenos(), estadisticas.mascotas(), estadisticas.expulsiones());
+        // Con un quinto de fallos que igual van a H2 local la mejora es acotada; contra MySQL
+        // cada acierto se ahorra un viaje por red
+        assertTrue(cache.porSegundo() > base.porSegundo(), "La caché no mejoró las lecturas");
+    }
+
+    @Test
+    @DisplayName("Memoria por mascota guardada")
+    void memoriaPorMascota() {
+        CacheMascotas cache = new CacheMascotas(new CacheMascotasProperties(MASCOTAS_EN_MEMORIA, Duration.ofMinutes(10)));
+        Random random = new Random(7);
+        LocalDateTime ahora = LocalDateTime.now();
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long antes = runtime.totalMemory() - runtime.freeMemory();
+        for (int i = 0; cache.estadisticas().mascotas() + cache.estadisticas().duenos() < MASCOTAS_EN_MEMORIA; i++) {
+            String usuarioId = UUID.randomUUID().toString();
+            int cantidad = 1 + random.nextInt(3);
+            cache.porUsuario(usuarioId, clave -> {
+                List<MascotaResumen> mascotas = new ArrayList<>();
+                for (int j = 0; j < cantidad; j++) {
+                    mascotas.add(new MascotaResumen(UUID.randomUUID().toString(), "Mascota " + j, j, "Perro", j,
+                        clave, ahora.minusDays(j), ahora));
+                }
+                return mascotas;
+            });
+        }
+        System.gc();
+        long usada = runtime.totalMemory() - runtime.freeMemory() - antes;
+        EstadisticasCache estadisticas = cache.estadisticas();
+        System.out.printf("%d dueños, %d mascotas: %.1f MB, %.0f bytes por mascota%n", estadisticas.duenos(),
+            estadisticas.mascotas(), usada / 1_048_576.0, usada / (double) estadisticas.mascotas());
+        assertTrue(usada > 0);
+    }
+
+    private record Medicion(double porSegundo, double p99) {
+    }
+
+    private static Medicion medir(Function<String, List<MascotaResumen>> leer, Zipf zipf) {
+        Random random = new Random(42);
+        for (int i = 0; i < LECTURAS / 10; i++) {
+            leer.apply("u" + zipf.siguiente(random));
+        }
+        long[] tiempos = new long[LECTURAS];
+        long inicio = System.nanoTime();
+        for (int i = 0; i < LECTURAS; i++) {
+            long antes = System.nanoTime();
+            assertTrue(!leer.apply("u" + zipf.siguiente(random)).isEmpty());
+            tiempos[i] = System.nanoTime() - antes;
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        Arrays.sort(tiempos);
+        return new Medicion(LECTURAS / segundos, tiempos[(int) (LECTURAS * 0.99)] / 1000.0);
+    }
+
+    // Rango de 0 a n-1 con probabilidad proporcional a 1 / (rango + 1)^s, por la acumulada
+    private static final class Zipf {
+
+        private final double[] acumulada;
+
+        Zipf(int n, double s) {
+            acumulada = new double[n];
+            double suma = 0;
+            for (int i = 0; i < n; i++) {
+                suma += 1 / Math.pow(i + 1, s);
+                acumulada[i] = suma;
+            }
+            for (int i = 0; i < n; i++) {
+                acumulada[i] /= suma;
+            }
+        }
+
+        int siguiente(Random random) {
+            int posicion = Arrays.binarySearch(acumulada, random.nextDouble());
+            return Math.min(posicion < 0 ? -posicion - 1 : posicion, acumulada.length - 1);
+        }
+    }
+}
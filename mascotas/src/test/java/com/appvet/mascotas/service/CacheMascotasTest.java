@@ -0,0 +1,112 @@
+package com.appvet.mascotas.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.appvet.mascotas.config.CacheMascotasProperties;
+import com.appvet.mascotas.dto.EstadisticasCache;
+import com.appvet.mascotas.dto.MascotaResumen;
+
+@DisplayName("Tests para CacheMascotas")
+class CacheMascotasTest {
+
+    private final CacheMascotas cache = new CacheMascotas(new CacheMascotasProperties(100, Duration.ofMinutes(5)));
+    private final AtomicInteger cargas = new AtomicInteger();
+
+    @Test
+    @DisplayName("Debe ir una sola vez a la base aunque muchos pidan el mismo dueño a la vez")
+    void debeCargarUnaSolaVezConPedidosSimultaneos() {
+        // Given: la carga tarda lo suficiente para que todos lleguen mientras corre
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(16);
+        List<CompletableFuture<List<MascotaResumen>>> pedidos = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 16; i++) {
+            pedidos.add(CompletableFuture.supplyAsync(() -> {
+                esperar(largada);
+                return cache.porUsuario("u1", usuarioId -> {
+                    dormir(100);
+                    return cargar(usuarioId);
+                });
+            }, hilos));
+        }
+        largada.countDown();
+        CompletableFuture.allOf(pedidos.toArray(CompletableFuture[]::new)).join();
+        hilos.shutdown();
+
+        // Then
+        assertEquals(1, cargas.get());
+        assertTrue(pedidos.stream().allMatch(pedido -> pedido.join().size() == 2));
+    }
+
+    @Test
+    @DisplayName("Debe entregar una lista que no se puede modificar y recargarla al invalidar")
+    void debeEntregarListaInmutableYRecargarAlInvalidar() {
+        // Given
+        List<MascotaResumen> leidas = cache.porUsuario("u1", this::cargar);
+
+        // When
+        cache.porUsuario("u1", this::cargar);
+        cache.invalidar("u1");
+        cache.porUsuario("u1", this::cargar);
+
+        // Then
+        assertThrows(UnsupportedOperationException.class, () -> leidas.remove(0));
+        assertEquals(2, cargas.get());
+        EstadisticasCache estadisticas = cache.estadisticas();
+        assertEquals(1, estadisticas.aciertos());
+        assertEquals(2, estadisticas.fallos());
+        assertEquals(1, estadisticas.duenos());
+        assertEquals(2, estadisticas.mascotas());
+    }
+
+    @Test
+    @DisplayName("Debe acotar la memoria por el total de mascotas y no por la cantidad de dueños")
+    void debeAcotarPorTotalDeMascotas() {
+        // When: 60 dueños de 2 mascotas pesan 180, más que el máximo de 100
+        IntStream.range(0, 60).forEach(i -> cache.porUsuario("u" + i, this::cargar));
+        EstadisticasCache estadisticas = cache.estadisticas();
+
+        // Then
+        assertTrue(estadisticas.mascotas() + estadisticas.duenos() <= 100,
+            "Pesa " + (estadisticas.mascotas() + estadisticas.duenos()));
+        assertTrue(estadisticas.expulsiones() > 0);
+    }
+
+    private List<MascotaResumen> cargar(String usuarioId) {
+        cargas.incrementAndGet();
+        return List.of(
+            new MascotaResumen("1", "Firulais", 3, "Perro", 2, usuarioId, null, null),
+            new MascotaResumen("2", "Michi", 2, "Gato", 1, usuarioId, null, null));
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void dormir(long milisegundos) {
+        try {
+            Thread.sleep(milisegundos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.appvet.mascotas.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+// Las escrituras de otra instancia se simulan con SQL directo: no pasan por guardada()
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("Tests para IndiceNombres")
+class IndiceNombresTest {
+
+    @Autowired
+    private IndiceNombres indiceNombres;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM mascotas WHERE id LIKE 'indice-%'");
+        indiceNombres.reconstruir();
+    }
+
+    @Test
+    @DisplayName("Debe incorporar al ponerse al día las altas y cambios de nombre hechos por otra instancia")
+    void debeIncorporarCambiosDeOtraInstancia() {
+        // Given
+        jdbcTemplate.update("INSERT INTO mascotas (id, nombre, edad, especie, usuario_id, fecha_actualizacion, version) "
+            + "VALUES ('indice-1', 'Zanahoria', 3, 'Conejo', 'u', ?, 0)", Timestamp.valueOf(LocalDateTime.now()));
+        assertTrue(indiceNombres.buscar("zanahoria", 5).orElseThrow().isEmpty());
+
+        // When
+        indiceNombres.ponerAlDia();
+
+        // Then
+        assertEquals(List.of("indice-1"), indiceNombres.buscar("zanahoria", 5).orElseThrow());
+
+        // Y un cambio de nombre posterior reemplaza al anterior
+        jdbcTemplate.update("UPDATE mascotas SET nombre = 'Rabanito', fecha_actualizacion = ? WHERE id = 'indice-1'",
+            Timestamp.valueOf(LocalDateTime.now()));
+        indiceNombres.ponerAlDia();
+        assertEquals(List.of("indice-1"), indiceNombres.buscar("rabanito", 5).orElseThrow());
+        assertTrue(indiceNombres.buscar("zanahoria", 5).orElseThrow().isEmpty());
+    }
+}
@@ -0,0 +1,106 @@
+package com.appvet.mascotas.service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Tests para IndiceTrigramas")
+class IndiceTrigramasTest {
+
+    private IndiceTrigramas indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceTrigramas(4);
+    }
+
+    @Test
+    @DisplayName("Debe ordenar por nombre idéntico, comienzo, comienzo de palabra y contenido")
+    void debeOrdenarPorNivelDeCoincidencia() {
+        // Given
+        indice.poner("1", "Pelusa");
+        indice.poner("2", "Don Lucas");
+        indice.poner("3", "Lucas");
+        indice.poner("4", "Lu");
+        indice.poner("5", "Lucas Andrés");
+
+        // When
+        List<String> dosLetras = indice.buscar("lu", 10);
+        List<String> tresLetras = indice.buscar("luc", 10);
+        List<String> contenido = indice.buscar("usa", 10);
+
+        // Then
+        assertEquals(List.of("4", "3", "5", "2"), dosLetras);
+        assertEquals(List.of("3", "5", "2"), tresLetras);
+        assertEquals(List.of("1"), contenido);
+    }
+
+    @Test
+    @DisplayName("Debe ignorar mayúsculas, tildes y signos")
+    void debeIgnorarMayusculasTildesYSignos() {
+        // Given
+        indice.poner("1", "Ñoño-Pérez");
+
+        // When / Then
+        assertEquals(List.of("1"), indice.buscar("PEREZ", 10));
+        assertEquals(List.of("1"), indice.buscar("nono p", 10));
+        assertEquals(List.of(), indice.buscar("l", 10));
+    }
+
+    @Test
+    @DisplayName("Debe reflejar renombres y eliminaciones")
+    void debeReflejarRenombresYEliminaciones() {
+        // Given
+        String luna = UUID.randomUUID().toString();
+        String rex = UUID.randomUUID().toString();
+        indice.poner(luna, "Luna");
+        indice.poner(rex, "Rex");
+
+        // When
+        indice.poner(rex, "Lunita");
+        indice.quitar(luna);
+        indice.quitar("no-existe");
+
+        // Then
+        assertEquals(List.of(rex), indice.buscar("lun", 10));
+        assertEquals(List.of(), indice.buscar("rex", 10));
+        assertEquals(1, indice.tamano());
+    }
+
+    @Test
+    @DisplayName("Debe respetar el límite y encontrar cada id tras muchas altas y bajas")
+    void debeRespetarLimiteTrasAltasYBajas() {
+        // Given
+        List<String> ids = IntStream.range(0, 5000).mapToObj(i -> i % 2 == 0 ? UUID.randomUUID().toString() : "m" + i).toList();
+        ids.forEach(id -> indice.poner(id, "Firulais"));
+        ids.subList(0, 2500).forEach(indice::quitar);
+        ids.subList(0, 1000).forEach(id -> indice.poner(id, "Firulais"));
+
+        // When
+        List<String> encontrados = indice.buscar("firulais", 50);
+
+        // Then
+        assertEquals(3500, indice.tamano());
+        assertEquals(50, encontrados.size());
+        assertTrue(encontrados.stream().noneMatch(ids.subList(1000, 2500)::contains));
+        ids.forEach(indice::quitar);
+        assertEquals(0, indice.tamano());
+        assertEquals(List.of(), indice.buscar("firulais", 50));
+    }
+
+    @Test
+    @DisplayName("Debe ordenar una lista corta con el mismo criterio")
+    void debeOrdenarListaCorta() {
+        // When
+        List<String> mejores = IndiceTrigramas.mejores(List.of("Pelusa", "Don Lucas", "Lu"), nombre -> nombre, "lu", 10);
+
+        // Then
+        assertEquals(List.of("Lu", "Don Lucas"), mejores);
+    }
+}
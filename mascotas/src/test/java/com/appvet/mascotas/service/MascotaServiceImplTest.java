@@ -1,8 +1,13 @@
 package com.appvet.mascotas.service;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -15,17 +20,29 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.data.jpa.domain.Specification;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import static org.mockito.Mockito.doNothing;
+import org.mockito.Spy;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.appvet.mascotas.config.CacheMascotasProperties;
+import com.appvet.mascotas.dto.ClaveMascota;
+import com.appvet.mascotas.dto.ConteoEspecieEdad;
+import com.appvet.mascotas.dto.MascotaResumen;
+import com.appvet.mascotas.dto.PorIds;
+import com.appvet.mascotas.dto.ResultadoFiltro;
+import com.appvet.mascotas.exception.VersionNoCoincideException;
+import com.appvet.mascotas.model.Eliminacion;
 import com.appvet.mascotas.model.Mascota;
+import com.appvet.mascotas.repository.EliminacionRepository;
 import com.appvet.mascotas.repository.MascotaRepository;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,6 +52,18 @@ class MascotaServiceImplTest {
     @Mock
     private MascotaRepository mascotaRepository;
 
+    @Mock
+    private ContadorMascotas contadorMascotas;
+
+    @Mock
+    private IndiceNombres indiceNombres;
+
+    @Mock
+    private EliminacionRepository eliminacionRepository;
+
+    @Spy
+    private CacheMascotas cacheMascotas = new CacheMascotas(new CacheMascotasProperties(100, Duration.ofMinutes(5)));
+
     @InjectMocks
     private MascotaServiceImpl mascotaService;
 
@@ -74,6 +103,55 @@ class MascotaServiceImplTest {
         verify(mascotaRepository, times(1)).findAll();
     }
 
+    @Test
+    @DisplayName("Debe listar el resumen de las mascotas del usuario sin leer las entidades")
+    void debeListarResumenDeMascotasDelUsuario() {
+        // Given
+        List<MascotaResumen> resumenes = List.of(
+            new MascotaResumen("1", "Firulais", 3, "Perro", 2, usuarioId, null, null));
+        when(mascotaRepository.findResumenesPorUsuario(usuarioId)).thenReturn(resumenes);
+
+        // When
+        List<MascotaResumen> resultado = mascotaService.obtenerResumenesPorUsuario(usuarioId);
+
+        // Then
+        assertEquals(resumenes, resultado);
+        verify(mascotaRepository, never()).findByUsuarioId(any());
+    }
+
+    @Test
+    @DisplayName("Debe leer de memoria las mascotas del usuario hasta que una escritura las cambie")
+    void debeLeerDeMemoriaHastaUnaEscritura() {
+        // Given
+        when(mascotaRepository.findResumenesPorUsuario(usuarioId)).thenReturn(List.of(
+            new MascotaResumen("1", "Firulais", 3, "Perro", 2, usuarioId, null, null)));
+        when(mascotaRepository.findClaveParaActualizar("1")).thenReturn(Optional.of(new ClaveMascota(usuarioId, 0L)));
+
+        // When
+        mascotaService.obtenerResumenesPorUsuario(usuarioId);
+        mascotaService.obtenerResumenesPorUsuario(usuarioId);
+        mascotaService.eliminar("1");
+        mascotaService.obtenerResumenesPorUsuario(usuarioId);
+
+        // Then
+        verify(mascotaRepository, times(2)).findResumenesPorUsuario(usuarioId);
+        assertEquals(1, cacheMascotas.estadisticas().aciertos());
+    }
+
+    @Test
+    @DisplayName("Debe invalidar la caché del dueño tras una actualización condicionada")
+    void debeInvalidarCacheTrasActualizacionCondicionada() {
+        // Given
+        when(mascotaRepository.actualizarSiVersion(eq("1"), eq(2L), any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(mascotaRepository.findUsuarioIdById("1")).thenReturn(Optional.of(usuarioId));
+
+        // When
+        mascotaService.actualizar("1", mascotaTest, 2L);
+
+        // Then
+        verify(cacheMascotas, times(1)).invalidar(usuarioId);
+    }
+
     @Test
     @DisplayName("Debe obtener mascota por ID cuando existe")
     void debeObtenerMascotaPorIdCuandoExiste() {
@@ -91,6 +169,139 @@ class MascotaServiceImplTest {
         verify(mascotaRepository, times(1)).findById("1");
     }
 
+    @Test
+    @DisplayName("Debe devolver las mascotas en el orden pedido e informar las que no existen")
+    void debeObtenerPorIdsEnOrden() {
+        // Given
+        Mascota michi = new Mascota("2", "Michi", 2, "Gato", null, usuarioId);
+        when(mascotaRepository.findAllById(List.of("2", "999", "1"))).thenReturn(List.of(mascotaTest, michi));
+
+        // When
+        PorIds<Mascota> resultado = mascotaService.obtenerPorIds(List.of("2", "999", "1", "2"));
+
+        // Then
+        assertEquals(List.of("Michi", "Firulais"), resultado.encontrados().stream().map(Mascota::getNombre).toList());
+        assertEquals(List.of("999"), resultado.faltantes());
+    }
+
+    @Test
+    @DisplayName("Debe partir una lista larga de ids en una consulta cada mil")
+    void debePartirListaLargaDeIds() {
+        // Given
+        List<String> ids = IntStream.range(0, 2500).mapToObj(i -> "m" + i).toList();
+        when(mascotaRepository.findAllById(any())).thenReturn(List.of());
+
+        // When
+        PorIds<Mascota> resultado = mascotaService.obtenerPorIds(ids);
+
+        // Then
+        verify(mascotaRepository, times(3)).findAllById(any());
+        assertEquals(ids, resultado.faltantes());
+    }
+
+    @Test
+    @DisplayName("Debe buscar por nombre en el índice y devolver los resúmenes en su orden")
+    void debeBuscarPorNombreEnElIndice() {
+        // Given
+        when(indiceNombres.buscar("lu", 20)).thenReturn(Optional.of(List.of("2", "borrada", "1")));
+        when(mascotaRepository.findResumenesPorIds(List.of("2", "borrada", "1"))).thenReturn(List.of(
+            new MascotaResumen("1", "Don Lucas", 3, "Perro", 2, usuarioId, null, null),
+            new MascotaResumen("2", "Luna", 2, "Gato", 1, usuarioId, null, null)));
+
+        // When
+        Optional<List<MascotaResumen>> resultado = mascotaService.buscarPorNombre("lu", null, 20);
+
+        // Then
+        assertTrue(resultado.isPresent());
+        assertEquals(List.of("Luna", "Don Lucas"), resultado.get().stream().map(MascotaResumen::nombre).toList());
+        verify(mascotaRepository, never()).findByNombreContainingIgnoreCase(any());
+    }
+
+    @Test
+    @DisplayName("Debe responder vacío mientras el índice de nombres no está cargado")
+    void debeResponderVacioSinIndiceCargado() {
+        // Given
+        when(indiceNombres.buscar("lu", 20)).thenReturn(Optional.empty());
+
+        // When
+        Optional<List<MascotaResumen>> resultado = mascotaService.buscarPorNombre("lu", null, 20);
+
+        // Then
+        assertFalse(resultado.isPresent());
+        verify(mascotaRepository, never()).findResumenesPorIds(any());
+    }
+
+    @Test
+    @DisplayName("Debe buscar entre las mascotas del usuario sin pasar por el índice")
+    void debeBuscarPorNombreEntreLasDelUsuario() {
+        // Given
+        when(mascotaRepository.findResumenesPorUsuario(usuarioId)).thenReturn(List.of(
+            new MascotaResumen("1", "Pelusa", 3, "Gato", 2, usuarioId, null, null),
+            new MascotaResumen("2", "Rex", 5, "Perro", 1, usuarioId, null, null),
+            new MascotaResumen("3", "Lucas", 2, "Perro", 1, usuarioId, null, null)));
+
+        // When
+        Optional<List<MascotaResumen>> resultado = mascotaService.buscarPorNombre("LÚ", usuarioId, 20);
+
+        // Then
+        assertEquals(List.of("Lucas"), resultado.get().stream().map(MascotaResumen::nombre).toList());
+        verify(indiceNombres, never()).buscar(any(), eq(20));
+    }
+
+    @Test
+    @DisplayName("Debe calcular las facetas de especie y edad con una sola consulta agrupada")
+    void debeCalcularFacetasConUnaConsulta() {
+        // Given
+        when(mascotaRepository.findBy(any(Specification.class), any())).thenReturn(List.of(
+            new MascotaResumen("1", "Firulais", 3, "Perro", 2, usuarioId, null, null)));
+        when(mascotaRepository.contarPorEspecieYEdad()).thenReturn(List.of(
+            new ConteoEspecieEdad("Perro", 3, 4),
+            new ConteoEspecieEdad("Perro", 12, 1),
+            new ConteoEspecieEdad("Gato", 1, 2),
+            new ConteoEspecieEdad("Gato", 4, 3)));
+
+        // When
+        ResultadoFiltro resultado = mascotaService.filtrar("Perro", 2, 6, null, null, 20);
+
+        // Then
+        assertEquals(1, resultado.items().size());
+        assertNull(resultado.siguienteCursor());
+        assertEquals(4, resultado.facetas().total());
+        // porEspecie ignora el filtro de especie; porEdad, el de edad
+        assertEquals(Map.of("Gato", 3L, "Perro", 4L), resultado.facetas().porEspecie());
+        assertEquals(Map.of("0-1", 0L, "2-4", 4L, "5-7", 0L, "8-10", 0L, "11+", 1L), resultado.facetas().porEdad());
+        verify(mascotaRepository, never()).contarPorEspecieYEdadDeUsuario(any());
+    }
+
+    @Test
+    @DisplayName("Debe devolver cursor cuando hay más filas y omitir las facetas en las páginas siguientes")
+    void debePaginarFiltroPorCursor() {
+        // Given
+        when(mascotaRepository.findBy(any(Specification.class), any())).thenReturn(List.of(
+            new MascotaResumen("1", "Firulais", 3, "Perro", 2, usuarioId, null, null),
+            new MascotaResumen("2", "Rex", 5, "Perro", 2, usuarioId, null, null)));
+
+        // When
+        ResultadoFiltro primera = mascotaService.filtrar(null, null, null, usuarioId, null, 1);
+        ResultadoFiltro siguiente = mascotaService.filtrar(null, null, null, usuarioId, primera.siguienteCursor(), 1);
+
+        // Then
+        assertEquals(List.of("1"), primera.items().stream().map(MascotaResumen::id).toList());
+        assertNotNull(primera.siguienteCursor());
+        assertNotNull(primera.facetas());
+        assertNull(siguiente.facetas());
+        verify(mascotaRepository, times(1)).contarPorEspecieYEdadDeUsuario(usuarioId);
+        verify(mascotaRepository, never()).contarPorEspecieYEdad();
+    }
+
+    @Test
+    @DisplayName("Debe rechazar un rango de edad invertido")
+    void debeRechazarRangoDeEdadInvertido() {
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> mascotaService.filtrar(null, 5, 2, null, null, null));
+        verify(mascotaRepository, never()).findBy(any(Specification.class), any());
+    }
+
     @Test
     @DisplayName("Debe retornar Optional vacío cuando mascota no existe")
     void debeRetornarOptionalVacioCuandoMascotaNoExiste() {
@@ -163,6 +374,38 @@ class MascotaServiceImplTest {
         verify(mascotaRepository, times(1)).save(mascotaTest);
     }
 
+    @Test
+    @DisplayName("No debe bloquear el id del cliente cuando la mascota todavía no existe")
+    void noDebeBloquearIdDelClienteQueNoExiste() {
+        // Given
+        when(mascotaRepository.existsById("1")).thenReturn(false);
+        when(mascotaRepository.save(mascotaTest)).thenReturn(mascotaTest);
+
+        // When
+        mascotaService.guardar(mascotaTest);
+
+        // Then
+        verify(mascotaRepository, never()).findParaActualizarById(any());
+        verify(contadorMascotas, never()).baja(any());
+        verify(contadorMascotas, times(1)).alta(usuarioId);
+    }
+
+    @Test
+    @DisplayName("Debe generar un id UUIDv7 cuando la mascota llega sin id")
+    void debeGenerarIdCuandoLaMascotaLlegaSinId() {
+        // Given
+        Mascota sinId = new Mascota(null, "Michi", 2, "Gato", null, usuarioId);
+        when(mascotaRepository.save(sinId)).thenReturn(sinId);
+
+        // When
+        Mascota resultado = mascotaService.guardar(sinId);
+
+        // Then
+        assertEquals(7, UUID.fromString(resultado.getId()).version());
+        verify(mascotaRepository, never()).findParaActualizarById(any());
+        verify(contadorMascotas, times(1)).alta(usuarioId);
+    }
+
     @Test
     @DisplayName("Debe actualizar mascota cuando existe")
     void debeActualizarMascotaCuandoExiste() {
@@ -206,26 +449,70 @@ class MascotaServiceImplTest {
         verify(mascotaRepository, never()).save(any());
     }
 
+    @Test
+    @DisplayName("Debe actualizar con una sola escritura condicionada a la versión")
+    void debeActualizarConEscrituraCondicionada() {
+        // Given
+        when(mascotaRepository.actualizarSiVersion(eq("1"), eq(2L), eq("Firulais"), eq(3), eq("Perro"),
+            eq("http://foto.com/firulais.jpg"), any(), any())).thenReturn(1);
+
+        // When
+        long version = mascotaService.actualizar("1", mascotaTest, 2L);
+
+        // Then
+        assertEquals(3L, version);
+        verify(mascotaRepository, never()).findById(any());
+        verify(indiceNombres, times(1)).guardada("1", "Firulais");
+        verify(mascotaRepository, never()).existsById(any());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar la actualización si la versión ya cambió")
+    void debeRechazarActualizacionConVersionDistinta() {
+        // Given
+        when(mascotaRepository.actualizarSiVersion(eq("1"), eq(2L), any(), any(), any(), any(), any(), any()))
+            .thenReturn(0);
+        when(mascotaRepository.existsById("1")).thenReturn(true);
+
+        // When & Then
+        assertThrows(VersionNoCoincideException.class, () -> mascotaService.actualizar("1", mascotaTest, 2L));
+    }
+
+    @Test
+    @DisplayName("No debe eliminar la mascota si la versión ya cambió")
+    void noDebeEliminarConVersionDistinta() {
+        // Given
+        when(mascotaRepository.findClaveParaActualizar("1")).thenReturn(Optional.of(new ClaveMascota(usuarioId, 5L)));
+
+        // When & Then
+        assertThrows(VersionNoCoincideException.class, () -> mascotaService.eliminar("1", 4L));
+        verify(mascotaRepository, never()).eliminarPorId(any());
+        verify(contadorMascotas, never()).baja(any());
+    }
+
     @Test
     @DisplayName("Debe eliminar mascota cuando existe")
     void debeEliminarMascotaCuandoExiste() {
         // Given
-        when(mascotaRepository.existsById("1")).thenReturn(true);
-        doNothing().when(mascotaRepository).deleteById("1");
+        when(mascotaRepository.findClaveParaActualizar("1")).thenReturn(Optional.of(new ClaveMascota(usuarioId, 0L)));
+        when(mascotaRepository.eliminarPorId("1")).thenReturn(1);
 
         // When
         assertDoesNotThrow(() -> mascotaService.eliminar("1"));
 
         // Then
-        verify(mascotaRepository, times(1)).existsById("1");
-        verify(mascotaRepository, times(1)).deleteById("1");
+        verify(mascotaRepository, times(1)).eliminarPorId("1");
+        verify(contadorMascotas, times(1)).baja(usuarioId);
+        verify(indiceNombres, times(1)).eliminada("1");
+        verify(eliminacionRepository).save(argThat(eliminacion -> Eliminacion.MASCOTA.equals(eliminacion.getTipo())
+            && "1".equals(eliminacion.getEntidadId()) && eliminacion.getPurgadaHoras() == null));
     }
 
     @Test
     @DisplayName("Debe lanzar excepción al eliminar mascota que no existe")
     void debeLanzarExcepcionAlEliminarMascotaQueNoExiste() {
         // Given
-        when(mascotaRepository.existsById("999")).thenReturn(false);
+        when(mascotaRepository.findClaveParaActualizar("999")).thenReturn(Optional.empty());
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -233,8 +520,9 @@ class MascotaServiceImplTest {
         });
 
         assertTrue(exception.getMessage().contains("Mascota no encontrada"));
-        verify(mascotaRepository, times(1)).existsById("999");
-        verify(mascotaRepository, never()).deleteById(any());
+        verify(mascotaRepository, never()).eliminarPorId(any());
+        verify(contadorMascotas, never()).baja(any());
+        verify(eliminacionRepository, never()).save(any());
     }
 
     @Test
@@ -251,6 +539,41 @@ class MascotaServiceImplTest {
         verify(mascotaRepository, times(1)).countByUsuarioId(usuarioId);
     }
 
+    @Test
+    @DisplayName("Debe contar mascotas por usuario desde memoria sin consultar la base")
+    void debeContarMascotasPorUsuarioDesdeMemoria() {
+        // Given
+        when(contadorMascotas.contarPorUsuario(usuarioId)).thenReturn(OptionalLong.of(3));
+
+        // When
+        long resultado = mascotaService.contarPorUsuario(usuarioId);
+
+        // Then
+        assertEquals(3L, resultado);
+        verify(mascotaRepository, never()).countByUsuarioId(any());
+    }
+
+    @Test
+    @DisplayName("Debe mover el contador al sobrescribir una mascota de otro usuario")
+    void debeMoverContadorAlSobrescribirMascota() {
+        // Given
+        Mascota existente = new Mascota("1", "Firulais", 3, "Perro", null, "otroUsuario");
+        existente.setVersion(7L);
+        when(mascotaRepository.existsById("1")).thenReturn(true);
+        when(mascotaRepository.findParaActualizarById("1")).thenReturn(Optional.of(existente));
+        when(mascotaRepository.save(mascotaTest)).thenReturn(mascotaTest);
+
+        // When
+        mascotaService.guardar(mascotaTest);
+
+        // Then
+        assertEquals(7L, mascotaTest.getVersion());
+        verify(contadorMascotas, times(1)).baja("otroUsuario");
+        verify(contadorMascotas, times(1)).alta(usuarioId);
+        verify(cacheMascotas, times(1)).invalidar("otroUsuario");
+        verify(cacheMascotas, times(1)).invalidar(usuarioId);
+    }
+
     @Test
     @DisplayName("Debe retornar cero cuando usuario no tiene mascotas")
     void debeRetornarCeroCuandoUsuarioNoTieneMascotas() {
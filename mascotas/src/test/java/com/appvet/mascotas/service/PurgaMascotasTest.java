@@ -0,0 +1,132 @@
+package com.appvet.mascotas.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.appvet.mascotas.model.Eliminacion;
+import com.appvet.mascotas.repository.EliminacionRepository;
+
+// Purga real contra H2, con lotes de 2 filas para que un usuario ocupe varios lotes
+@SpringBootTest(properties = {
+    "appvet.mascotas.purga.filas-por-lote=2",
+    "appvet.mascotas.purga.pausa-entre-lotes=0ms",
+    "appvet.mascotas.purga.usuarios-por-tramo=2"
+})
+@ActiveProfiles("h2")
+@DisplayName("Tests para PurgaMascotas")
+class PurgaMascotasTest {
+
+    private static final LocalDateTime ANTIGUA = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Autowired
+    private PurgaMascotas purgaMascotas;
+
+    @Autowired
+    private EliminacionRepository eliminacionRepository;
+
+    @Autowired
+    private ContadorMascotas contadorMascotas;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM mascotas");
+        jdbcTemplate.update("DELETE FROM eliminaciones");
+        // En appvet_db la tabla es del microservicio de usuarios; aquí basta con su id
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS usuarios (id VARCHAR(36) NOT NULL, PRIMARY KEY (id))");
+        jdbcTemplate.update("DELETE FROM usuarios");
+    }
+
+    @Test
+    @DisplayName("Debe borrar en lotes las mascotas del usuario eliminado y marcar el evento")
+    void debePurgarMascotasDelUsuarioEliminado() {
+        // Given: 5 mascotas del eliminado (3 lotes) y una de otro usuario
+        for (int i = 0; i < 5; i++) {
+            insertar("purga-" + i, "eliminado", ANTIGUA);
+        }
+        insertar("purga-otra", "vigente", ANTIGUA);
+        contadorMascotas.reconciliar();
+        Long id = eliminacionRepository.save(Eliminacion.deUsuario("eliminado")).getId();
+
+        // When
+        int procesadas = purgaMascotas.procesarPendientes();
+
+        // Then
+        assertEquals(1, procesadas);
+        assertEquals(List.of("purga-otra"), jdbcTemplate.queryForList("SELECT id FROM mascotas", String.class));
+        assertEquals(0L, contadorMascotas.contarPorUsuario("eliminado").orElseThrow());
+        assertNotNull(eliminacionRepository.findById(id).orElseThrow().getPurgadaMascotas());
+        assertEquals(0, purgaMascotas.procesarPendientes());
+    }
+
+    @Test
+    @DisplayName("Debe cortar la pasada al vencer el plazo y dejar el evento pendiente")
+    void debeCortarLaPasadaAlVencerElPlazo() {
+        // Given: 5 mascotas del eliminado; con el plazo ya vencido solo alcanza el primer lote
+        for (int i = 0; i < 5; i++) {
+            insertar("purga-" + i, "eliminado", ANTIGUA);
+        }
+        Long id = eliminacionRepository.save(Eliminacion.deUsuario("eliminado")).getId();
+
+        // When
+        int procesadas = purgaMascotas.procesarPendientes(PurgaMascotas.Plazo.de(Duration.ZERO));
+
+        // Then
+        assertEquals(0, procesadas);
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mascotas", Integer.class));
+        assertNull(eliminacionRepository.findById(id).orElseThrow().getPurgadaMascotas());
+        assertEquals(1, purgaMascotas.procesarPendientes());
+    }
+
+    @Test
+    @DisplayName("No debe procesar los eventos de mascotas, que solo purga horas")
+    void noDebeProcesarEventosDeMascotas() {
+        // Given
+        eliminacionRepository.save(Eliminacion.deMascota("purga-0"));
+
+        // When & Then
+        assertEquals(0, purgaMascotas.procesarPendientes());
+    }
+
+    @Test
+    @DisplayName("Debe reconciliar solo las huérfanas de usuarios inexistentes y anteriores al corte")
+    void debeReconciliarHuerfanas() {
+        // Given: cuatro dueños (dos tramos); solo "u-vigente" existe y "u-reciente" no tiene mascotas antiguas
+        jdbcTemplate.update("INSERT INTO usuarios (id) VALUES ('u-vigente')");
+        insertar("rec-1", "u-borrado-1", ANTIGUA);
+        insertar("rec-2", "u-borrado-1", ANTIGUA);
+        insertar("rec-3", "u-borrado-1", ANTIGUA);
+        insertar("rec-4", "u-borrado-2", ANTIGUA);
+        insertar("rec-5", "u-vigente", ANTIGUA);
+        insertar("rec-6", "u-reciente", LocalDateTime.now());
+        insertar("rec-7", "u-vigente", ANTIGUA);
+
+        // When
+        int purgadas = purgaMascotas.reconciliarAnterioresA(LocalDateTime.of(2025, 1, 1, 0, 0));
+
+        // Then
+        assertEquals(4, purgadas);
+        assertEquals(List.of("rec-5", "rec-6", "rec-7"),
+            jdbcTemplate.queryForList("SELECT id FROM mascotas ORDER BY id", String.class));
+    }
+
+    private void insertar(String id, String usuarioId, LocalDateTime registro) {
+        jdbcTemplate.update("INSERT INTO mascotas (id, nombre, edad, especie, usuario_id, fecha_registro, version) "
+            + "VALUES (?, 'Firulais', 3, 'Perro', ?, ?, 0)", id, usuarioId, Timestamp.valueOf(registro));
+    }
+}
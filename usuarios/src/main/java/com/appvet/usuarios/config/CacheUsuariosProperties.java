@@ -0,0 +1,16 @@
+package com.appvet.usuarios.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Caché de usuarios por id y por email (prefijo appvet.usuarios.cache).
+// maximo: usuarios que se guardan; pasado eso entra solo lo que se pide más que lo que sale.
+// duracion: cuánto vive cada entrada desde que se cargó. Es lo más que puede tardar en verse
+// un cambio hecho desde otra instancia; los de esta instancia se ven al tiro
+@ConfigurationProperties(prefix = "appvet.usuarios.cache")
+public record CacheUsuariosProperties(
+        @DefaultValue("10000") long maximo,
+        @DefaultValue("5m") Duration duracion) {
+}
@@ -0,0 +1,23 @@
+package com.appvet.usuarios.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Hash de contraseñas (prefijo appvet.usuarios.contrasenas).
+// costo: factor de BCrypt (cada punto duplica el trabajo); al subirlo, las contraseñas se
+// vuelven a hashear en el siguiente login correcto. hilos: 0 usa un hilo por núcleo.
+// cola: cuántos hash pueden esperar; pasado eso se rechaza al tiro. esperaMaxima: lo que
+// espera en la cola antes de descartarse, porque el cliente probablemente ya se rindió
+@ConfigurationProperties(prefix = "appvet.usuarios.contrasenas")
+public record ContrasenasProperties(
+        @DefaultValue("10") int costo,
+        @DefaultValue("0") int hilos,
+        @DefaultValue("64") int cola,
+        @DefaultValue("2s") Duration esperaMaxima) {
+
+    public int hilosEfectivos() {
+        return hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,16 @@
+package com.appvet.usuarios.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Retención de la tabla común eliminaciones (prefijo appvet.usuarios.eliminaciones).
+// retencion: cuánto se guarda un evento después de que mascotas y horas lo purgaron (sirve para
+// auditar una purga). filasPorLote: eventos por cada DELETE. La limpieza corre cada
+// appvet.usuarios.eliminaciones.limpieza
+@ConfigurationProperties(prefix = "appvet.usuarios.eliminaciones")
+public record EliminacionesProperties(
+        @DefaultValue("30d") Duration retencion,
+        @DefaultValue("1000") int filasPorLote) {
+}
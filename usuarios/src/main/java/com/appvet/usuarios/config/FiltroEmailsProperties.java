@@ -0,0 +1,14 @@
+package com.appvet.usuarios.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Filtro de Bloom de emails registrados (prefijo appvet.usuarios.filtro-emails).
+// capacidadInicial: emails que caben antes de que el filtro sume un tramo; conviene que alcance
+// para la tabla completa. falsosPositivos: proporción de emails libres que igual se consultan en
+// la base. La recarga (appvet.usuarios.filtro-emails.recarga) lo reconstruye desde la tabla
+@ConfigurationProperties(prefix = "appvet.usuarios.filtro-emails")
+public record FiltroEmailsProperties(
+        @DefaultValue("100000") long capacidadInicial,
+        @DefaultValue("0.01") double falsosPositivos) {
+}
@@ -0,0 +1,22 @@
+package com.appvet.usuarios.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Importación de usuarios desde CSV (prefijo appvet.usuarios.importacion).
+// filasPorLote: filas por transacción y por batch JDBC. costoHash: costo BCrypt de las
+// contraseñas importadas; si es menor que appvet.usuarios.contrasenas.costo, el hash se sube en
+// el primer login correcto de cada usuario. hilos: hilos que hashean cada lote; 0 usa la mitad
+// de los núcleos, para dejar el resto a las peticiones. maximoRechazos: filas rechazadas que el
+// informe detalla; las demás solo se cuentan
+@ConfigurationProperties(prefix = "appvet.usuarios.importacion")
+public record ImportacionProperties(
+        @DefaultValue("500") int filasPorLote,
+        @DefaultValue("4") int costoHash,
+        @DefaultValue("0") int hilos,
+        @DefaultValue("1000") int maximoRechazos) {
+
+    public int hilosEfectivos() {
+        return hilos > 0 ? hilos : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+}
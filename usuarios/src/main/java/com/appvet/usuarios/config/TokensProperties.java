@@ -0,0 +1,24 @@
+package com.appvet.usuarios.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.Map;
+
+// Tokens de acceso que se entregan al hacer login (prefijo appvet.tokens).
+// claves: identificador -> secreto HMAC en base64, compartidas con mascotas y horas, que
+// verifican por su cuenta. claveActiva: con cuál se firma. Para rotar, la clave nueva se agrega
+// primero en mascotas y horas, luego aquí como activa, y la vieja se quita de todos cuando
+// pasó una duracion completa. duracion: vigencia del token; no hay revocación, así que es corta.
+// Las claves no tienen valor por defecto: sin ninguna, o con una vacía, el servicio no arranca
+@ConfigurationProperties(prefix = "appvet.tokens")
+@Validated
+public record TokensProperties(
+        @DefaultValue("12h") Duration duracion,
+        @NotBlank(message = "Falta configurar appvet.tokens.clave-activa") String claveActiva,
+        @NotEmpty(message = "Falta configurar appvet.tokens.claves") Map<String, @NotBlank(message = "Hay una clave de appvet.tokens.claves vacía") String> claves) {
+}
@@ -0,0 +1,32 @@
+package com.appvet.usuarios.controller;
+
+// ETag fuerte a partir de la columna version, y de vuelta desde If-Match
+final class Etags {
+
+    // Nunca coincide con una versión real: la petición termina en 412
+    static final long SIN_COINCIDENCIA = -1;
+
+    private Etags() {
+    }
+
+    static String de(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    // null si no hay condición (sin encabezado o "*"). Un ETag débil o que no es nuestro no
+    // puede coincidir con comparación fuerte
+    static Long versionDe(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String etag = ifMatch.trim();
+        if (etag.length() < 3 || etag.charAt(0) != '"' || etag.charAt(etag.length() - 1) != '"') {
+            return SIN_COINCIDENCIA;
+        }
+        try {
+            return Long.parseLong(etag.substring(1, etag.length() - 1));
+        } catch (NumberFormatException e) {
+            return SIN_COINCIDENCIA;
+        }
+    }
+}
@@ -1,16 +1,33 @@
 package com.appvet.usuarios.controller;
 
+import com.appvet.usuarios.dto.EstadisticasCache;
+import com.appvet.usuarios.dto.LoginRespuesta;
+import com.appvet.usuarios.dto.PorIds;
+import com.appvet.usuarios.dto.ResultadoImportacion;
+import com.appvet.usuarios.dto.UsuarioResumen;
+import com.appvet.usuarios.exception.ContrasenasSaturadasException;
+import com.appvet.usuarios.exception.VersionNoCoincideException;
 import com.appvet.usuarios.model.Usuario;
+import com.appvet.usuarios.seguridad.EmisorTokens;
+import com.appvet.usuarios.service.ImportacionUsuarios;
 import com.appvet.usuarios.service.UsuarioService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/usuarios")
@@ -19,22 +36,39 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class UsuarioController {
     
+    // Máximo de ids por búsqueda por ids
+    private static final int LIMITE_IDS = 5000;
+    
     private final UsuarioService usuarioService;
+    private final EmisorTokens emisorTokens;
+    private final ImportacionUsuarios importacionUsuarios;
     
+    // Resumen sin password ni foto; el usuario completo solo viene en GET /{id}
     @GetMapping
-    public ResponseEntity<List<Usuario>> obtenerTodos() {
+    public ResponseEntity<List<UsuarioResumen>> obtenerTodos() {
         log.info("GET /api/usuarios - Obteniendo todos los usuarios");
-        return ResponseEntity.ok(usuarioService.obtenerTodos());
+        return ResponseEntity.ok(usuarioService.obtenerResumenes());
     }
     
     @GetMapping("/{id}")
     public ResponseEntity<Usuario> obtenerPorId(@PathVariable String id) {
         log.info("GET /api/usuarios/{}", id);
         return usuarioService.obtenerPorId(id)
-            .map(ResponseEntity::ok)
+            .map(usuario -> ResponseEntity.ok().eTag(Etags.de(usuario.getVersion())).body(usuario))
             .orElse(ResponseEntity.notFound().build());
     }
     
+    // Varios usuarios en una sola petición: en el orden pedido y con los ids que no existen en
+    // "faltantes"
+    @PostMapping("/by-ids")
+    public ResponseEntity<PorIds<Usuario>> obtenerPorIds(@RequestBody List<String> ids) {
+        log.info("POST /api/usuarios/by-ids - {} ids", ids.size());
+        if (ids.isEmpty() || ids.size() > LIMITE_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(usuarioService.obtenerPorIds(ids));
+    }
+    
     @GetMapping("/email/{email}")
     public ResponseEntity<Usuario> obtenerPorEmail(@PathVariable String email) {
         log.info("GET /api/usuarios/email/{}", email);
@@ -50,6 +84,8 @@ public class UsuarioController {
         try {
             Usuario nuevoUsuario = usuarioService.registrar(usuario);
             return ResponseEntity.status(HttpStatus.CREATED).body(nuevoUsuario);
+        } catch (ContrasenasSaturadasException e) {
+            return saturado(e);
         } catch (RuntimeException e) {
             log.error("Error al registrar usuario: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.CONFLICT)
@@ -57,27 +93,72 @@ public class UsuarioController {
         }
     }
     
+    // Alta masiva desde un CSV en UTF-8 con encabezado (nombre, email, password; rol e id
+    // opcionales). El cuerpo se lee a medida que se importa y cada lote se confirma por separado.
+    // Responde los totales y las filas rechazadas; 400 solo si el encabezado no sirve
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<?> importar(InputStream cuerpo) throws IOException {
+        log.info("POST /api/usuarios/import");
+        try {
+            ResultadoImportacion resultado = importacionUsuarios.importar(
+                new InputStreamReader(cuerpo, StandardCharsets.UTF_8));
+            return ResponseEntity.ok(resultado);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    // La verificación corre en el pool de contraseñas y el hilo de Tomcat queda libre mientras
+    // tanto. Si el pool está lleno se responde 503 de inmediato. La respuesta trae el token que
+    // mascotas y horas verifican por su cuenta; se emite en el hilo de tareas que completa el
+    // login, no en el pool de contraseñas
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody Map<String, String> credentials) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody Map<String, String> credentials) {
         String email = credentials.get("email");
         String password = credentials.get("password");
         
         log.info("POST /api/usuarios/login - Email: {}", email);
         
-        return usuarioService.login(email, password)
-            .map(ResponseEntity::ok)
-            .orElse(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                .body(null));
+        try {
+            return usuarioService.login(email, password)
+                .<ResponseEntity<?>>thenApply(usuario -> usuario
+                    .<ResponseEntity<?>>map(encontrado -> {
+                        EmisorTokens.TokenEmitido emitido = emisorTokens.emitir(encontrado);
+                        return ResponseEntity.ok(new LoginRespuesta(encontrado, emitido.token(), emitido.expira()));
+                    })
+                    .orElse(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null)))
+                .exceptionally(error -> {
+                    if (error.getCause() instanceof ContrasenasSaturadasException saturado) {
+                        return saturado(saturado);
+                    }
+                    throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+                });
+        } catch (ContrasenasSaturadasException e) {
+            return CompletableFuture.completedFuture(saturado(e));
+        }
     }
     
+    // Con If-Match la escritura es condicional y responde 204 con el ETag nuevo, o 412 si la
+    // versión ya cambió
     @PutMapping("/{id}")
-    public ResponseEntity<Usuario> actualizar(
+    public ResponseEntity<?> actualizar(
             @PathVariable String id,
-            @Valid @RequestBody Usuario usuario) {
+            @Valid @RequestBody Usuario usuario,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("PUT /api/usuarios/{}", id);
         
         try {
+            Long version = Etags.versionDe(ifMatch);
+            if (version != null) {
+                long nueva = usuarioService.actualizar(id, usuario, version);
+                return ResponseEntity.noContent().eTag(Etags.de(nueva)).build();
+            }
             return ResponseEntity.ok(usuarioService.actualizar(id, usuario));
+        } catch (VersionNoCoincideException e) {
+            log.warn("Conflicto de versión al actualizar usuario: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        } catch (ContrasenasSaturadasException e) {
+            return saturado(e);
         } catch (RuntimeException e) {
             log.error("Error al actualizar usuario: {}", e.getMessage());
             return ResponseEntity.notFound().build();
@@ -85,18 +166,34 @@ public class UsuarioController {
     }
     
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> eliminar(@PathVariable String id) {
+    public ResponseEntity<Void> eliminar(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("DELETE /api/usuarios/{}", id);
         
         try {
-            usuarioService.eliminar(id);
+            Long version = Etags.versionDe(ifMatch);
+            if (version != null) {
+                usuarioService.eliminar(id, version);
+            } else {
+                usuarioService.eliminar(id);
+            }
             return ResponseEntity.noContent().build();
+        } catch (VersionNoCoincideException e) {
+            log.warn("Conflicto de versión al eliminar usuario: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
         } catch (RuntimeException e) {
             log.error("Error al eliminar usuario: {}", e.getMessage());
             return ResponseEntity.notFound().build();
         }
     }
     
+    // Aciertos, fallos y expulsiones de la caché de usuarios de esta instancia
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, EstadisticasCache>> estadisticasCache() {
+        return ResponseEntity.ok(usuarioService.estadisticasCache());
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> healthCheck() {
         return ResponseEntity.ok(Map.of(
@@ -105,4 +202,10 @@ public class UsuarioController {
             "port", "8080"
         ));
     }
+    
+    private static ResponseEntity<Map<String, String>> saturado(ContrasenasSaturadasException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(Map.of("error", e.getMessage()));
+    }
 }
\ No newline at end of file
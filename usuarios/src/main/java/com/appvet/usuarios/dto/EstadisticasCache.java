@@ -0,0 +1,5 @@
+package com.appvet.usuarios.dto;
+
+// Contadores de una caché desde que arrancó la instancia
+public record EstadisticasCache(long aciertos, long fallos, long expulsiones, double tasaAciertos, long tamano) {
+}
@@ -0,0 +1,9 @@
+package com.appvet.usuarios.dto;
+
+import com.appvet.usuarios.model.Usuario;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+// El usuario con los mismos campos de siempre, más el token para mascotas y horas y cuándo
+// vence (milisegundos desde epoch); la app que no lo usa sigue leyendo la respuesta igual
+public record LoginRespuesta(@JsonUnwrapped Usuario usuario, String token, long tokenExpira) {
+}
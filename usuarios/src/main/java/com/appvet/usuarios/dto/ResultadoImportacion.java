@@ -0,0 +1,11 @@
+package com.appvet.usuarios.dto;
+
+import java.util.List;
+
+// Resultado de una importación CSV: totales y el detalle de las filas rechazadas. "linea" es la
+// del archivo contando el encabezado; email es null si la fila no se pudo leer
+public record ResultadoImportacion(long leidas, long creadas, long rechazadas, List<Rechazo> rechazos) {
+
+    public record Rechazo(long linea, String email, List<String> errores) {
+    }
+}
@@ -0,0 +1,8 @@
+package com.appvet.usuarios.dto;
+
+import java.time.LocalDateTime;
+
+// Un usuario en los listados: sin password y sin fotoPerfilUri (TEXT, suele ser un data URI)
+public record UsuarioResumen(String id, String nombre, String email, String rol,
+                             LocalDateTime fechaRegistro, LocalDateTime fechaActualizacion) {
+}
@@ -0,0 +1,9 @@
+package com.appvet.usuarios.exception;
+
+// El pool de hash de contraseñas está lleno: se responde 503 en vez de hacer esperar la petición
+public class ContrasenasSaturadasException extends RuntimeException {
+
+    public ContrasenasSaturadasException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,44 @@
+package com.appvet.usuarios.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Un borrado que los otros microservicios tienen que propagar (tabla común eliminaciones).
+// Cada consumidor tiene su columna purgada*, en null hasta que termina de purgar
+@Entity
+@Table(name = "eliminaciones")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Eliminacion {
+    
+    public static final String USUARIO = "usuario";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "tipo", nullable = false, length = 20)
+    private String tipo;
+    
+    @Column(name = "entidad_id", nullable = false, length = 36)
+    private String entidadId;
+    
+    @Column(name = "fecha", nullable = false)
+    private LocalDateTime fecha;
+    
+    @Column(name = "purgada_mascotas")
+    private LocalDateTime purgadaMascotas;
+    
+    @Column(name = "purgada_horas")
+    private LocalDateTime purgadaHoras;
+    
+    // Mascotas borra las del usuario y horas, las horas del usuario
+    public static Eliminacion deUsuario(String usuarioId) {
+        return new Eliminacion(null, USUARIO, usuarioId, LocalDateTime.now(), null, null);
+    }
+}
@@ -1,5 +1,7 @@
 package com.appvet.usuarios.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
@@ -32,6 +34,8 @@ public class Usuario {
     @Column(name = "email", nullable = false, unique = true, length = 100)
     private String email;
     
+    // Se recibe al registrar o cambiarla, pero nunca sale en las respuestas: se guarda su hash
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @NotBlank(message = "La contraseña es obligatoria")
     @Size(min = 6, message = "La contraseña debe tener al menos 6 caracteres")
     @Column(name = "password", nullable = false)
@@ -51,6 +55,12 @@ public class Usuario {
     @Column(name = "fecha_actualizacion")
     private LocalDateTime fechaActualizacion;
     
+    // Control optimista: viaja como ETag, no en el cuerpo
+    @Version
+    @JsonIgnore
+    @Column(name = "version", nullable = false)
+    private Long version;
+    
     // Constructor sin timestamps (para crear desde Android)
     public Usuario(String id, String nombre, String email, String password, String rol) {
         this.id = id;
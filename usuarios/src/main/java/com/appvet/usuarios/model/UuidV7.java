@@ -0,0 +1,42 @@
+package com.appvet.usuarios.model;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+// Ids UUIDv7 (RFC 9562) para los usuarios importados sin id: los primeros 48 bits son el instante
+// en milisegundos, así que ids consecutivos caen juntos al final del índice primario en vez de
+// en cualquier página (menos divisiones de página y mejor uso del buffer pool). También se
+// ordenan igual como texto, por eso sirven en la columna VARCHAR(36) actual.
+// Dentro de un mismo milisegundo los 12 bits siguientes son un contador, así que los ids de
+// esta instancia salen siempre crecientes aunque el reloj retroceda. Los 62 bits restantes
+// son aleatorios.
+public final class UuidV7 {
+
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+    private static final int CONTADOR_MAXIMO = 0xFFF;
+
+    private static long ultimoMilis;
+    private static int contador;
+
+    private UuidV7() {
+    }
+
+    public static String generar() {
+        return generar(System.currentTimeMillis()).toString();
+    }
+
+    static synchronized UUID generar(long ahora) {
+        if (ahora > ultimoMilis) {
+            ultimoMilis = ahora;
+            // Arranca en la mitad baja para dejar espacio a los siguientes del mismo milisegundo
+            contador = ALEATORIO.nextInt(CONTADOR_MAXIMO / 2);
+        } else if (++contador > CONTADOR_MAXIMO) {
+            // Se agotó el milisegundo (o el reloj retrocedió): se toma prestado el siguiente
+            ultimoMilis++;
+            contador = 0;
+        }
+        long alto = (ultimoMilis << 16) | 0x7000L | contador;
+        long bajo = (ALEATORIO.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(alto, bajo);
+    }
+}
@@ -0,0 +1,29 @@
+package com.appvet.usuarios.repository;
+
+import com.appvet.usuarios.model.Eliminacion;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// Usuarios registra eventos y, como dueño de la tabla, borra los que mascotas y horas ya
+// purgaron hace más de la retención; purgarlos es cosa de ellos
+@Repository
+public interface EliminacionRepository extends JpaRepository<Eliminacion, Long> {
+    
+    // Por rango en idx_eliminaciones_horas: horas suele ser el último en purgar
+    @Query("SELECT e.id FROM Eliminacion e WHERE e.purgadaHoras < :antesDe AND e.purgadaMascotas < :antesDe")
+    List<Long> findIdsPurgadosAntesDe(@Param("antesDe") LocalDateTime antesDe, Limit limite);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Eliminacion e WHERE e.id IN :ids")
+    int eliminarPorIds(@Param("ids") Collection<Long> ids);
+}
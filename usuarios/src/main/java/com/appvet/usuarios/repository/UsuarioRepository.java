@@ -1,15 +1,70 @@
 package com.appvet.usuarios.repository;
 
+import com.appvet.usuarios.dto.UsuarioResumen;
 import com.appvet.usuarios.model.Usuario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UsuarioRepository extends JpaRepository<Usuario, String> {
     
     Optional<Usuario> findByEmail(String email);
     boolean existsByEmail(String email);
-    Optional<Usuario> findByEmailAndPassword(String email, String password);
+    
+    // Listado: solo las columnas de UsuarioResumen, así ni password ni fotoPerfilUri se leen
+    @Query("SELECT new com.appvet.usuarios.dto.UsuarioResumen(u.id, u.nombre, u.email, u.rol, "
+         + "u.fechaRegistro, u.fechaActualizacion) FROM Usuario u")
+    List<UsuarioResumen> findResumenes();
+    
+    // Todos los emails para armar FiltroEmails, con un cursor JDBC: llegan de a FETCH_SIZE
+    // (requiere useCursorFetch=true en MySQL) y se leen del índice único, sin tocar las filas
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u.email FROM Usuario u")
+    Stream<String> streamEmails();
+    
+    // Los de la lista que ya están registrados, para la importación: una consulta por lote, que
+    // se resuelve en el índice único
+    @Query("SELECT u.email FROM Usuario u WHERE u.email IN :emails")
+    List<String> findEmailsRegistrados(@Param("emails") Collection<String> emails);
+    
+    // Escrituras condicionadas a la versión (If-Match): 0 filas si no existe o si cambió.
+    // Un password null deja el actual
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Usuario u SET u.nombre = :nombre, u.rol = :rol, u.fotoPerfilUri = :fotoPerfilUri, "
+         + "u.password = COALESCE(:password, u.password), u.fechaActualizacion = :ahora, u.version = u.version + 1 "
+         + "WHERE u.id = :id AND u.version = :version")
+    int actualizarSiVersion(@Param("id") String id,
+                            @Param("version") long version,
+                            @Param("nombre") String nombre,
+                            @Param("rol") String rol,
+                            @Param("fotoPerfilUri") String fotoPerfilUri,
+                            @Param("password") String password,
+                            @Param("ahora") LocalDateTime ahora);
+    
+    // Rehash en el login: solo si la contraseña no cambió entretanto. No sube la versión ni la
+    // fecha de actualización, porque para el usuario nada cambió
+    @Transactional
+    @Modifying
+    @Query("UPDATE Usuario u SET u.password = :nuevo WHERE u.id = :id AND u.password = :anterior")
+    int reemplazarHash(@Param("id") String id, @Param("anterior") String anterior, @Param("nuevo") String nuevo);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Usuario u WHERE u.id = :id AND u.version = :version")
+    int eliminarSiVersion(@Param("id") String id, @Param("version") long version);
 }
\ No newline at end of file
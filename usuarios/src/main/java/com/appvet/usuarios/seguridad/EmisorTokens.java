@@ -0,0 +1,68 @@
+package com.appvet.usuarios.seguridad;
+
+import com.appvet.usuarios.config.TokensProperties;
+import com.appvet.usuarios.model.Usuario;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.util.Base64;
+
+// Firma el token que se entrega al hacer login, para que mascotas y horas sepan quién llama
+// sin preguntarle a este servicio en cada petición:
+//   clave "." base64url(usuarioId "\n" rol "\n" expiraSegundos) "." base64url(HMAC-SHA256)
+// La firma cubre "clave.contenido" con el secreto de la clave activa. El formato es más corto
+// que un JWT y se verifica sin parsear JSON (ver VerificadorTokens en mascotas y horas)
+@Component
+public class EmisorTokens {
+
+    private static final String ALGORITMO = "HmacSHA256";
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+
+    public record TokenEmitido(String token, long expira) {
+    }
+
+    private final String claveActiva;
+    private final SecretKeySpec secreto;
+    private final long duracionSegundos;
+    private final Clock reloj;
+
+    @Autowired
+    public EmisorTokens(TokensProperties config) {
+        this(config, Clock.systemUTC());
+    }
+
+    EmisorTokens(TokensProperties config, Clock reloj) {
+        String secreto = config.claves() == null ? null : config.claves().get(config.claveActiva());
+        if (secreto == null) {
+            throw new IllegalStateException("appvet.tokens.clave-activa no está entre appvet.tokens.claves");
+        }
+        this.claveActiva = config.claveActiva();
+        this.secreto = new SecretKeySpec(Base64.getDecoder().decode(secreto), ALGORITMO);
+        this.duracionSegundos = config.duracion().toSeconds();
+        this.reloj = reloj;
+    }
+
+    // expira va en milisegundos desde epoch, redondeado al segundo como dentro del token
+    public TokenEmitido emitir(Usuario usuario) {
+        long expira = reloj.instant().getEpochSecond() + duracionSegundos;
+        String contenido = BASE64.encodeToString(
+            (usuario.getId() + "\n" + usuario.getRol() + "\n" + expira).getBytes(StandardCharsets.UTF_8));
+        String firmado = claveActiva + "." + contenido;
+        return new TokenEmitido(firmado + "." + BASE64.encodeToString(firmar(firmado)), expira * 1000);
+    }
+
+    private byte[] firmar(String texto) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(secreto);
+            return mac.doFinal(texto.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 no disponible", e);
+        }
+    }
+}
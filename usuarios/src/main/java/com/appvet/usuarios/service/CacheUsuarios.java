@@ -0,0 +1,120 @@
+package com.appvet.usuarios.service;
+
+import com.appvet.usuarios.config.CacheUsuariosProperties;
+import com.appvet.usuarios.dto.EstadisticasCache;
+import com.appvet.usuarios.model.Usuario;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+// Usuarios recientes en memoria, por id y por email, para que las lecturas más frecuentes no
+// vayan a MySQL. Caffeine acota por tamaño y por tiempo, y al llenarse admite por frecuencia
+// (W-TinyLFU): un barrido de ids que se piden una sola vez no desplaza a los que se piden siempre.
+// Si muchas peticiones piden a la vez un usuario que no está, una sola va a la base y el resto
+// espera ese resultado.
+// Se guarda una copia sin password y cada lectura recibe otra copia, así nadie modifica la
+// guardada. Por email se guarda solo el id (el email se pasa a minúsculas, como lo compara
+// MySQL). Lo que no existe no se guarda: un usuario recién creado en otra instancia aparece de
+// inmediato
+@Component
+public class CacheUsuarios {
+
+    private final Cache<String, Usuario> porId;
+    private final Cache<String, String> porEmail;
+
+    public CacheUsuarios(CacheUsuariosProperties config) {
+        this.porId = Caffeine.newBuilder()
+            .maximumSize(config.maximo())
+            .expireAfterWrite(config.duracion())
+            .recordStats()
+            .build();
+        this.porEmail = Caffeine.newBuilder()
+            .maximumSize(config.maximo())
+            .expireAfterWrite(config.duracion())
+            .recordStats()
+            .build();
+    }
+
+    public Optional<Usuario> porId(String id, Function<String, Optional<Usuario>> cargar) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Usuario guardado = porId.get(id, clave -> cargar.apply(clave).map(CacheUsuarios::sinPassword).orElse(null));
+        return Optional.ofNullable(guardado).map(CacheUsuarios::sinPassword);
+    }
+
+    // Los que ya están salen de memoria y el resto se carga de una vez con "cargar". Los que no
+    // existen quedan fuera del mapa
+    public Map<String, Usuario> porIds(Collection<String> ids, Function<List<String>, List<Usuario>> cargar) {
+        Map<String, Usuario> guardados = porId.getAll(ids, faltan -> {
+            Map<String, Usuario> cargados = new HashMap<>();
+            cargar.apply(List.copyOf(faltan)).forEach(usuario -> cargados.put(usuario.getId(), sinPassword(usuario)));
+            return cargados;
+        });
+        Map<String, Usuario> copias = new HashMap<>(guardados.size() * 2);
+        guardados.forEach((id, usuario) -> copias.put(id, sinPassword(usuario)));
+        return copias;
+    }
+
+    public Optional<Usuario> porEmail(String email, Function<String, Optional<Usuario>> cargarPorEmail,
+                                      Function<String, Optional<Usuario>> cargarPorId) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        String clave = clave(email);
+        String id = porEmail.get(clave, sinUso -> cargarPorEmail.apply(email)
+            .map(usuario -> {
+                porId.put(usuario.getId(), sinPassword(usuario));
+                return usuario.getId();
+            })
+            .orElse(null));
+        if (id == null) {
+            return Optional.empty();
+        }
+        Optional<Usuario> usuario = porId(id, cargarPorId);
+        if (usuario.isEmpty()) {
+            // El id ya no existe (se eliminó): el email se vuelve a buscar la próxima vez
+            porEmail.invalidate(clave);
+        }
+        return usuario;
+    }
+
+    // Tras confirmar un cambio. email puede ser null si no cambió: su entrada apunta al mismo id
+    public void invalidar(String id, String email) {
+        if (id != null) {
+            porId.invalidate(id);
+        }
+        if (email != null) {
+            porEmail.invalidate(clave(email));
+        }
+    }
+
+    public Map<String, EstadisticasCache> estadisticas() {
+        return Map.of("porId", estadisticas(porId), "porEmail", estadisticas(porEmail));
+    }
+
+    private static EstadisticasCache estadisticas(Cache<String, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new EstadisticasCache(stats.hitCount(), stats.missCount(), stats.evictionCount(),
+            stats.hitRate(), cache.estimatedSize());
+    }
+
+    private static String clave(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Usuario sinPassword(Usuario usuario) {
+        return new Usuario(usuario.getId(), usuario.getNombre(), usuario.getEmail(), null, usuario.getRol(),
+            usuario.getFotoPerfilUri(), usuario.getFechaRegistro(), usuario.getFechaActualizacion(),
+            usuario.getVersion());
+    }
+}
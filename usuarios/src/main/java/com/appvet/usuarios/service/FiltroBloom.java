@@ -0,0 +1,144 @@
+package com.appvet.usuarios.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Filtro de Bloom escalable y concurrente sobre textos. Responde "seguro que no está" o "puede
+// estar"; nunca olvida lo agregado, así que no hay falsos negativos.
+// Arranca con un tramo dimensionado para capacidadInicial elementos. Cuando se llena se agrega
+// otro del doble de capacidad y la mitad de falsos positivos, así el total nunca pasa del
+// objetivo (la suma p/2 + p/4 + ... no llega a p). Consultar revisa todos los tramos.
+// Los bits se marcan con compareAndSet, sin bloqueos: agregar y consultar se pueden hacer desde
+// cualquier hilo a la vez. Solo crecer se sincroniza, y pasa pocas veces
+final class FiltroBloom {
+
+    private static final double RAZON = 0.5;
+
+    private final double falsosPositivos;
+    private volatile Tramo[] tramos;
+
+    FiltroBloom(long capacidadInicial, double falsosPositivos) {
+        this.falsosPositivos = falsosPositivos;
+        this.tramos = new Tramo[] {new Tramo(Math.max(capacidadInicial, 1), falsosPositivos * (1 - RAZON))};
+    }
+
+    void agregar(String clave) {
+        long h1 = hash(clave, 0xcbf29ce484222325L);
+        long h2 = hash(clave, 0x9e3779b97f4a7c15L) | 1;
+        while (true) {
+            Tramo[] actuales = tramos;
+            for (Tramo tramo : actuales) {
+                if (tramo.contiene(h1, h2)) {
+                    // Ya estaba (o es un falso positivo): no gasta capacidad
+                    return;
+                }
+            }
+            Tramo ultimo = actuales[actuales.length - 1];
+            // Lleno: se espera el tramo nuevo en vez de seguir cargando este, que se pasaría
+            // de sus falsos positivos
+            if (ultimo.elementos.get() >= ultimo.capacidad) {
+                crecer(ultimo);
+                continue;
+            }
+            ultimo.marcar(h1, h2);
+            ultimo.elementos.incrementAndGet();
+            return;
+        }
+    }
+
+    boolean puedeContener(String clave) {
+        long h1 = hash(clave, 0xcbf29ce484222325L);
+        long h2 = hash(clave, 0x9e3779b97f4a7c15L) | 1;
+        for (Tramo tramo : tramos) {
+            if (tramo.contiene(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long elementos() {
+        return Arrays.stream(tramos).mapToLong(tramo -> tramo.elementos.get()).sum();
+    }
+
+    long bytes() {
+        return Arrays.stream(tramos).mapToLong(tramo -> tramo.bits.length() * 8L).sum();
+    }
+
+    int cantidadTramos() {
+        return tramos.length;
+    }
+
+    double falsosPositivos() {
+        return falsosPositivos;
+    }
+
+    private synchronized void crecer(Tramo lleno) {
+        Tramo[] actuales = tramos;
+        if (actuales[actuales.length - 1] != lleno) {
+            return;
+        }
+        Tramo[] mas = Arrays.copyOf(actuales, actuales.length + 1);
+        mas[actuales.length] = new Tramo(lleno.capacidad * 2, lleno.falsosPositivos * RAZON);
+        tramos = mas;
+    }
+
+    // FNV-1a sobre los caracteres y una mezcla final (la de MurmurHash3) para repartir los bits.
+    // Con dos semillas salen dos hash independientes, y de ellos los k índices (h1 + i·h2)
+    private static long hash(String clave, long semilla) {
+        long h = semilla;
+        for (int i = 0; i < clave.length(); i++) {
+            h ^= clave.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Tramo {
+
+        private final long capacidad;
+        private final double falsosPositivos;
+        private final long cantidadBits;
+        private final int funciones;
+        private final AtomicLongArray bits;
+        private final AtomicLong elementos = new AtomicLong();
+
+        // m = -n·ln(p) / ln(2)² bits y k = m/n·ln(2) funciones: lo óptimo para n elementos y p
+        private Tramo(long capacidad, double falsosPositivos) {
+            this.capacidad = capacidad;
+            this.falsosPositivos = falsosPositivos;
+            long m = (long) Math.ceil(-capacidad * Math.log(falsosPositivos) / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+            this.cantidadBits = bits.length() * 64L;
+            this.funciones = Math.max(1, (int) Math.round((double) m / capacidad * Math.log(2)));
+        }
+
+        void marcar(long h1, long h2) {
+            for (int i = 0; i < funciones; i++) {
+                long indice = Long.remainderUnsigned(h1 + i * h2, cantidadBits);
+                int palabra = (int) (indice >>> 6);
+                long mascara = 1L << indice;
+                long antes;
+                do {
+                    antes = bits.get(palabra);
+                } while ((antes & mascara) == 0 && !bits.compareAndSet(palabra, antes, antes | mascara));
+            }
+        }
+
+        boolean contiene(long h1, long h2) {
+            for (int i = 0; i < funciones; i++) {
+                long indice = Long.remainderUnsigned(h1 + i * h2, cantidadBits);
+                if ((bits.get((int) (indice >>> 6)) & (1L << indice)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.appvet.usuarios.service;
+
+import com.appvet.usuarios.config.FiltroEmailsProperties;
+import com.appvet.usuarios.repository.UsuarioRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Emails registrados en un FiltroBloom, para que la app pueda preguntar si un email está libre
+// mientras se escribe sin ir a la base: casi todo lo que se escribe no está registrado, y eso el
+// filtro lo responde solo. Un "puede estar" sí se confirma en la base.
+// Se arma al arrancar recorriendo la tabla con un cursor y se le suma cada registro tras su
+// commit. Un Bloom no puede quitar, así que los emails eliminados siguen dando "puede estar"
+// (y se confirman en la base) hasta la recarga periódica, que lo reconstruye desde cero. La
+// recarga también suma lo registrado desde otras instancias; entretanto, para esas altas esta
+// instancia puede contestar "libre", y el índice único de la tabla rechaza el duplicado al
+// registrar. Mientras no termina la primera carga todo es "puede estar"
+@Component
+@Slf4j
+public class FiltroEmails {
+
+    private final UsuarioRepository usuarioRepository;
+    private final FiltroEmailsProperties config;
+    private final TransactionTemplate lectura;
+    private final AtomicLong eliminados = new AtomicLong();
+
+    private volatile FiltroBloom actual;
+    // Durante una recarga los registros van también al filtro nuevo, para no perderlos al cambiar
+    private volatile FiltroBloom enConstruccion;
+
+    public FiltroEmails(UsuarioRepository usuarioRepository, FiltroEmailsProperties config,
+                        PlatformTransactionManager transactionManager) {
+        this.usuarioRepository = usuarioRepository;
+        this.config = config;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+    }
+
+    public boolean puedeExistir(String email) {
+        FiltroBloom filtro = actual;
+        return email == null || filtro == null || filtro.puedeContener(clave(email));
+    }
+
+    // Tras el commit del registro. Se lee enConstruccion antes que actual: si la recarga termina
+    // entremedio, actual ya es el filtro nuevo
+    public void registrado(String email) {
+        if (email == null) {
+            return;
+        }
+        String clave = clave(email);
+        FiltroBloom nuevo = enConstruccion;
+        FiltroBloom filtro = actual;
+        if (nuevo != null) {
+            nuevo.agregar(clave);
+        }
+        if (filtro != null) {
+            filtro.agregar(clave);
+        }
+    }
+
+    public void eliminado() {
+        eliminados.incrementAndGet();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${appvet.usuarios.filtro-emails.recarga:PT1H}",
+               initialDelayString = "${appvet.usuarios.filtro-emails.recarga:PT1H}")
+    public synchronized void recargar() {
+        FiltroBloom nuevo = new FiltroBloom(config.capacidadInicial(), config.falsosPositivos());
+        enConstruccion = nuevo;
+        long descartados = eliminados.getAndSet(0);
+        try {
+            lectura.executeWithoutResult(estado -> {
+                try (Stream<String> emails = usuarioRepository.streamEmails()) {
+                    emails.forEach(email -> nuevo.agregar(clave(email)));
+                }
+            });
+            actual = nuevo;
+        } catch (RuntimeException e) {
+            eliminados.addAndGet(descartados);
+            log.error("No se pudo recargar el filtro de emails; se mantiene el anterior", e);
+            return;
+        } finally {
+            enConstruccion = null;
+        }
+        log.info("Filtro de emails recargado: {} emails en {} KB ({} tramos), {} eliminaciones descartadas",
+            nuevo.elementos(), nuevo.bytes() / 1024, nuevo.cantidadTramos(), descartados);
+    }
+
+    private static String clave(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,110 @@
+package com.appvet.usuarios.service;
+
+import com.appvet.usuarios.config.ContrasenasProperties;
+import com.appvet.usuarios.exception.ContrasenasSaturadasException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// BCrypt en un pool propio y acotado. Cada hash cuesta decenas de milisegundos de CPU a
+// propósito; si se calcularan en los hilos de Tomcat, una ráfaga de logins los ocuparía todos y
+// el resto de los endpoints quedaría esperando. Aquí hay un hilo por núcleo y una cola corta:
+// lo que no cabe se rechaza de inmediato (503) y lo que esperó demasiado en la cola se descarta
+// sin gastar CPU en un cliente que probablemente ya se fue.
+// Las contraseñas guardadas en texto plano (anteriores a BCrypt) todavía se aceptan y se
+// reemplazan por su hash en el primer login correcto, igual que los hash de un costo menor
+@Component
+@Slf4j
+public class HashContrasenas {
+
+    private static final Pattern BCRYPT = Pattern.compile("^\\$2[aby]?\\$\\d\\d\\$[./A-Za-z0-9]{53}$");
+
+    // Resultado de verificar: si nuevoHash no es null hay que guardarlo en lugar del actual
+    public record Verificacion(boolean valida, String nuevoHash) {
+    }
+
+    private final BCryptPasswordEncoder encoder;
+    private final ExecutorService pool;
+    private final long esperaMaximaNanos;
+    // Para que un email inexistente tarde lo mismo que una contraseña incorrecta
+    private final String hashSinUsuario;
+
+    @Autowired
+    public HashContrasenas(ContrasenasProperties config) {
+        this(config, new ThreadPoolExecutor(config.hilosEfectivos(), config.hilosEfectivos(), 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(config.cola()), tarea -> {
+                Thread hilo = new Thread(tarea, "hash-contrasenas");
+                hilo.setDaemon(true);
+                return hilo;
+            }, new ThreadPoolExecutor.AbortPolicy()));
+    }
+
+    HashContrasenas(ContrasenasProperties config, ExecutorService pool) {
+        this.encoder = new BCryptPasswordEncoder(config.costo());
+        this.pool = pool;
+        this.esperaMaximaNanos = config.esperaMaxima().toNanos();
+        this.hashSinUsuario = encoder.encode("sin-usuario");
+    }
+
+    // Para registrar o cambiar la contraseña; espera el resultado en el hilo que llama
+    public String hashear(String contrasena) {
+        try {
+            return enPool(() -> encoder.encode(contrasena)).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : e;
+        }
+    }
+
+    // "almacenado" null significa que el email no existe: se hace el mismo trabajo y no es válida
+    public CompletableFuture<Verificacion> verificar(String contrasena, String almacenado) {
+        return enPool(() -> {
+            if (contrasena == null || almacenado == null) {
+                encoder.matches("", hashSinUsuario);
+                return new Verificacion(false, null);
+            }
+            if (!BCRYPT.matcher(almacenado).matches()) {
+                boolean valida = MessageDigest.isEqual(
+                    contrasena.getBytes(StandardCharsets.UTF_8), almacenado.getBytes(StandardCharsets.UTF_8));
+                return new Verificacion(valida, valida ? encoder.encode(contrasena) : null);
+            }
+            if (!encoder.matches(contrasena, almacenado)) {
+                return new Verificacion(false, null);
+            }
+            return new Verificacion(true, encoder.upgradeEncoding(almacenado) ? encoder.encode(contrasena) : null);
+        });
+    }
+
+    private <T> CompletableFuture<T> enPool(Supplier<T> trabajo) {
+        long encolado = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                if (System.nanoTime() - encolado > esperaMaximaNanos) {
+                    throw new ContrasenasSaturadasException("La verificación esperó demasiado en la cola");
+                }
+                return trabajo.get();
+            }, pool);
+        } catch (RejectedExecutionException e) {
+            log.warn("Pool de contraseñas lleno: se rechaza la petición");
+            throw new ContrasenasSaturadasException("Demasiados logins simultáneos, reintente en un momento");
+        }
+    }
+
+    @PreDestroy
+    void cerrar() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,299 @@
+package com.appvet.usuarios.service;
+
+import com.appvet.usuarios.config.ImportacionProperties;
+import com.appvet.usuarios.dto.ResultadoImportacion;
+import com.appvet.usuarios.model.Usuario;
+import com.appvet.usuarios.model.UuidV7;
+import com.appvet.usuarios.repository.UsuarioRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Alta masiva desde CSV para cuando una clínica nueva trae miles de dueños. El archivo se lee
+// registro a registro y se procesa en lotes de filasPorLote: en memoria solo está el lote actual.
+// Por lote se valida cada fila como en POST /registro, se descartan los emails repetidos dentro
+// del lote, se consultan los ya registrados con un solo IN (solo los que el filtro de emails no
+// descarta) y los nuevos se insertan en un batch JDBC, en una transacción propia por lote. Un
+// email repetido en un lote anterior del archivo ya quedó registrado, así que sale como tal.
+// Como cada lote queda confirmado, si la importación se corta lo importado hasta ahí queda.
+// Las contraseñas se hashean fuera de la transacción, con costoHash y repartidas en un pool
+// propio de "hilos" hilos: aun con el costo mínimo BCrypt es lo que más tarda, y el pool de
+// HashContrasenas queda para los logins
+@Component
+@Slf4j
+public class ImportacionUsuarios {
+
+    private static final String ROL_POR_DEFECTO = "Cliente";
+    private static final int LARGO_MAXIMO_ID = 36;
+
+    private final UsuarioRepository usuarioRepository;
+    private final FiltroEmails filtroEmails;
+    private final Validator validator;
+    private final EntityManager entityManager;
+    private final ImportacionProperties config;
+    private final BCryptPasswordEncoder encoder;
+    private final ExecutorService hashes;
+    private final TransactionTemplate transaccion;
+
+    public ImportacionUsuarios(UsuarioRepository usuarioRepository, FiltroEmails filtroEmails, Validator validator,
+                               EntityManager entityManager, ImportacionProperties config,
+                               PlatformTransactionManager transactionManager) {
+        this.usuarioRepository = usuarioRepository;
+        this.filtroEmails = filtroEmails;
+        this.validator = validator;
+        this.entityManager = entityManager;
+        this.config = config;
+        this.encoder = new BCryptPasswordEncoder(config.costoHash());
+        this.hashes = Executors.newFixedThreadPool(config.hilosEfectivos(), tarea -> {
+            Thread hilo = new Thread(tarea, "importacion-hashes");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // El encabezado debe traer nombre, email y password; rol e id son opcionales y el resto de
+    // las columnas se ignora. Un encabezado inválido se rechaza con IllegalArgumentException
+    // antes de importar nada; un error de formato más abajo detiene la importación y queda en
+    // el informe como rechazo de esa línea
+    public ResultadoImportacion importar(Reader csv) throws IOException {
+        LectorCsv lector = new LectorCsv(csv);
+        Columnas columnas = Columnas.de(lector.siguiente());
+        Informe informe = new Informe(config.maximoRechazos());
+        List<Fila> lote = new ArrayList<>(config.filasPorLote());
+        String error = null;
+        while (true) {
+            List<String> campos;
+            try {
+                campos = lector.siguiente();
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+                break;
+            }
+            if (campos == null) {
+                break;
+            }
+            lote.add(new Fila(lector.linea(), columnas.usuario(campos)));
+            if (lote.size() == config.filasPorLote()) {
+                importarLote(lote, informe);
+                lote.clear();
+            }
+        }
+        importarLote(lote, informe);
+        if (error != null) {
+            informe.rechazar(lector.linea(), null, List.of(error + "; se detuvo la importación"));
+        }
+        ResultadoImportacion resultado = informe.resultado();
+        log.info("Importación terminada: {} filas, {} creadas, {} rechazadas",
+            resultado.leidas(), resultado.creadas(), resultado.rechazadas());
+        return resultado;
+    }
+
+    private void importarLote(List<Fila> lote, Informe informe) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        informe.leidas += lote.size();
+        List<Fila> validas = new ArrayList<>(lote.size());
+        Set<String> emails = new HashSet<>();
+        Set<String> ids = new HashSet<>();
+        for (Fila fila : lote) {
+            List<String> errores = validar(fila.usuario());
+            if (errores.isEmpty() && !emails.add(clave(fila.usuario().getEmail()))) {
+                errores = List.of("El email está repetido en el archivo: " + fila.usuario().getEmail());
+            } else if (errores.isEmpty() && fila.usuario().getId() != null && !ids.add(fila.usuario().getId())) {
+                errores = List.of("El ID está repetido en el archivo: " + fila.usuario().getId());
+            }
+            if (errores.isEmpty()) {
+                validas.add(fila);
+            } else {
+                informe.rechazar(fila, errores);
+            }
+        }
+        Set<String> registrados = registrados(validas);
+        List<Fila> nuevas = new ArrayList<>(validas.size());
+        for (Fila fila : validas) {
+            Usuario usuario = fila.usuario();
+            if (registrados.contains(clave(usuario.getEmail()))) {
+                informe.rechazar(fila, List.of("El email ya está registrado: " + usuario.getEmail()));
+                continue;
+            }
+            if (usuario.getId() == null) {
+                usuario.setId(UuidV7.generar());
+            }
+            nuevas.add(fila);
+        }
+        hashear(nuevas);
+        List<Fila> insertadas = nuevas;
+        if (!insertar(nuevas)) {
+            // Un id o email que entró entretanto hizo fallar el lote completo: se reintenta fila
+            // a fila para rechazar solo las que chocan
+            insertadas = new ArrayList<>(nuevas.size());
+            for (Fila fila : nuevas) {
+                if (insertar(List.of(fila))) {
+                    insertadas.add(fila);
+                } else {
+                    informe.rechazar(fila, List.of("El email o el ID ya existen"));
+                }
+            }
+        }
+        informe.creadas += insertadas.size();
+        insertadas.forEach(fila -> filtroEmails.registrado(fila.usuario().getEmail()));
+    }
+
+    // En tantas partes como hilos; el lote espera a que estén todas
+    private void hashear(List<Fila> filas) {
+        int partes = Math.min(config.hilosEfectivos(), filas.size());
+        CompletableFuture<?>[] tareas = new CompletableFuture<?>[partes];
+        for (int parte = 0; parte < partes; parte++) {
+            List<Fila> tramo = filas.subList(parte * filas.size() / partes, (parte + 1) * filas.size() / partes);
+            tareas[parte] = CompletableFuture.runAsync(() -> tramo.forEach(fila ->
+                fila.usuario().setPassword(encoder.encode(fila.usuario().getPassword()))), hashes);
+        }
+        CompletableFuture.allOf(tareas).join();
+    }
+
+    // Se le pregunta a la base solo por los emails que el filtro no descarta
+    private Set<String> registrados(List<Fila> filas) {
+        List<String> aConsultar = filas.stream()
+            .map(fila -> fila.usuario().getEmail())
+            .filter(filtroEmails::puedeExistir)
+            .toList();
+        Set<String> registrados = new HashSet<>();
+        if (!aConsultar.isEmpty()) {
+            usuarioRepository.findEmailsRegistrados(aConsultar).forEach(email -> registrados.add(clave(email)));
+        }
+        return registrados;
+    }
+
+    // persist y no save: el id ya viene asignado y save() haría merge con un SELECT por fila.
+    // Un solo flush al final sale como un batch JDBC del tamaño del lote
+    private boolean insertar(List<Fila> filas) {
+        if (filas.isEmpty()) {
+            return true;
+        }
+        try {
+            transaccion.executeWithoutResult(estado -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(config.filasPorLote());
+                filas.forEach(fila -> entityManager.persist(fila.usuario()));
+                entityManager.flush();
+                entityManager.clear();
+            });
+            return true;
+        } catch (PersistenceException | DataAccessException e) {
+            log.debug("Lote de importación rechazado por la base: {}", e.getMessage());
+            // persist dejó la versión puesta; sin eso el reintento se tomaría como entidad existente
+            filas.forEach(fila -> fila.usuario().setVersion(null));
+            return false;
+        }
+    }
+
+    @PreDestroy
+    void cerrar() {
+        hashes.shutdownNow();
+    }
+
+    // Mismas reglas que @Valid en POST /registro, más el largo de la columna id
+    private List<String> validar(Usuario usuario) {
+        List<String> errores = new ArrayList<>();
+        for (ConstraintViolation<Usuario> violacion : validator.validate(usuario)) {
+            errores.add(violacion.getMessage());
+        }
+        errores.sort(null);
+        if (usuario.getId() != null && usuario.getId().length() > LARGO_MAXIMO_ID) {
+            errores.add("El ID no puede exceder " + LARGO_MAXIMO_ID + " caracteres");
+        }
+        return errores;
+    }
+
+    // Como compara MySQL los emails del índice único
+    private static String clave(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Fila(long linea, Usuario usuario) {
+    }
+
+    // Posición de cada columna en el encabezado; -1 si no viene
+    private record Columnas(int id, int nombre, int email, int password, int rol) {
+
+        static Columnas de(List<String> encabezado) {
+            if (encabezado == null) {
+                throw new IllegalArgumentException("El archivo está vacío");
+            }
+            List<String> nombres = encabezado.stream().map(nombre -> nombre.trim().toLowerCase(Locale.ROOT)).toList();
+            Columnas columnas = new Columnas(nombres.indexOf("id"), nombres.indexOf("nombre"),
+                nombres.indexOf("email"), nombres.indexOf("password"), nombres.indexOf("rol"));
+            if (columnas.nombre < 0 || columnas.email < 0 || columnas.password < 0) {
+                throw new IllegalArgumentException("El encabezado debe tener las columnas nombre, email y password");
+            }
+            return columnas;
+        }
+
+        Usuario usuario(List<String> campos) {
+            String rol = valor(campos, this.rol);
+            return new Usuario(valor(campos, id), valor(campos, nombre), valor(campos, email),
+                campo(campos, password), rol == null ? ROL_POR_DEFECTO : rol);
+        }
+
+        // Sin espacios de los lados y null si queda vacío. La contraseña va tal cual
+        private static String valor(List<String> campos, int indice) {
+            String valor = campo(campos, indice);
+            return valor == null || valor.isBlank() ? null : valor.trim();
+        }
+
+        private static String campo(List<String> campos, int indice) {
+            return indice < 0 || indice >= campos.size() ? null : campos.get(indice);
+        }
+    }
+
+    private static final class Informe {
+
+        private final int maximoRechazos;
+        private final List<ResultadoImportacion.Rechazo> rechazos = new ArrayList<>();
+        private long leidas;
+        private long creadas;
+        private long rechazadas;
+
+        private Informe(int maximoRechazos) {
+            this.maximoRechazos = maximoRechazos;
+        }
+
+        void rechazar(Fila fila, List<String> errores) {
+            rechazar(fila.linea(), fila.usuario().getEmail(), errores);
+        }
+
+        void rechazar(long linea, String email, List<String> errores) {
+            rechazadas++;
+            if (rechazos.size() < maximoRechazos) {
+                rechazos.add(new ResultadoImportacion.Rechazo(linea, email, errores));
+            }
+        }
+
+        ResultadoImportacion resultado() {
+            return new ResultadoImportacion(leidas, creadas, rechazadas, List.copyOf(rechazos));
+        }
+    }
+}
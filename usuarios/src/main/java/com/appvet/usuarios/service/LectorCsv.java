@@ -0,0 +1,101 @@
+package com.appvet.usuarios.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lee un CSV registro a registro (RFC 4180: campos entre comillas con comas, saltos de línea y
+// comillas dobladas adentro). Solo guarda el registro actual, así que el tamaño del archivo no
+// pesa en memoria. Las líneas en blanco se saltan y un BOM al inicio se descarta.
+// Un campo de más de MAXIMO_CAMPO caracteres o unas comillas sin cerrar cortan la lectura
+final class LectorCsv {
+
+    static final int MAXIMO_CAMPO = 65_536;
+
+    private final Reader entrada;
+    private long linea = 1;
+    private long inicio;
+    private boolean primero = true;
+
+    LectorCsv(Reader entrada) {
+        this.entrada = entrada instanceof BufferedReader ? entrada : new BufferedReader(entrada);
+    }
+
+    // Campos del siguiente registro, o null al terminar el archivo
+    List<String> siguiente() throws IOException {
+        int c = leer();
+        while (c == '\r' || c == '\n') {
+            c = leer();
+        }
+        if (c == -1) {
+            return null;
+        }
+        inicio = linea;
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        while (true) {
+            if (entreComillas) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("Comillas sin cerrar desde la línea " + inicio);
+                }
+                if (c != '"') {
+                    c = agregar(campo, c);
+                    continue;
+                }
+                // Comillas dobladas son una comilla; si no, se cerró el campo
+                c = leer();
+                if (c == '"') {
+                    c = agregar(campo, c);
+                } else {
+                    entreComillas = false;
+                }
+                continue;
+            }
+            if (c == '"' && campo.isEmpty()) {
+                entreComillas = true;
+                c = leer();
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+                c = leer();
+            } else if (c == '\n' || c == -1) {
+                campos.add(campo.toString());
+                return campos;
+            } else if (c == '\r') {
+                c = leer();
+            } else {
+                c = agregar(campo, c);
+            }
+        }
+    }
+
+    // Línea del archivo en la que empezó el último registro leído
+    long linea() {
+        return inicio;
+    }
+
+    private int agregar(StringBuilder campo, int c) throws IOException {
+        if (campo.length() >= MAXIMO_CAMPO) {
+            throw new IllegalArgumentException("Campo de más de " + MAXIMO_CAMPO + " caracteres en la línea " + inicio);
+        }
+        campo.append((char) c);
+        return leer();
+    }
+
+    private int leer() throws IOException {
+        int c = entrada.read();
+        if (primero) {
+            primero = false;
+            if (c == '\uFEFF') {
+                c = entrada.read();
+            }
+        }
+        if (c == '\n') {
+            linea++;
+        }
+        return c;
+    }
+}
@@ -0,0 +1,43 @@
+package com.appvet.usuarios.service;
+
+import com.appvet.usuarios.config.EliminacionesProperties;
+import com.appvet.usuarios.repository.EliminacionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Borra de eliminaciones los eventos que mascotas y horas ya purgaron hace más de la retención;
+// sin esto la tabla crece con cada borrado. Va en lotes chicos, cada DELETE en su propia
+// transacción, para no tomar muchos bloqueos de una vez. Si corre en varias instancias a la vez
+// solo se repiten DELETE que no afectan filas
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RetencionEliminaciones {
+
+    private final EliminacionRepository eliminacionRepository;
+    private final EliminacionesProperties config;
+
+    @Scheduled(fixedDelayString = "${appvet.usuarios.eliminaciones.limpieza:PT1H}",
+               initialDelayString = "${appvet.usuarios.eliminaciones.limpieza:PT1H}")
+    public int limpiar() {
+        LocalDateTime antesDe = LocalDateTime.now().minus(config.retencion());
+        int borrados = 0;
+        List<Long> lote;
+        do {
+            lote = eliminacionRepository.findIdsPurgadosAntesDe(antesDe, Limit.of(config.filasPorLote()));
+            if (!lote.isEmpty()) {
+                borrados += eliminacionRepository.eliminarPorIds(lote);
+            }
+        } while (lote.size() == config.filasPorLote());
+        if (borrados > 0) {
+            log.info("Eliminaciones: {} eventos purgados por todos borrados tras la retención", borrados);
+        }
+        return borrados;
+    }
+}
@@ -1,16 +1,26 @@
 package com.appvet.usuarios.service;
 
+import com.appvet.usuarios.dto.EstadisticasCache;
+import com.appvet.usuarios.dto.PorIds;
+import com.appvet.usuarios.dto.UsuarioResumen;
 import com.appvet.usuarios.model.Usuario;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface UsuarioService {
     List<Usuario> obtenerTodos();
+    List<UsuarioResumen> obtenerResumenes();
     Optional<Usuario> obtenerPorId(String id);
+    PorIds<Usuario> obtenerPorIds(List<String> ids);
     Optional<Usuario> obtenerPorEmail(String email);
     Usuario registrar(Usuario usuario);
     Usuario actualizar(String id, Usuario usuario);
+    long actualizar(String id, Usuario usuario, long versionEsperada);
     void eliminar(String id);
+    void eliminar(String id, long versionEsperada);
     boolean existeEmail(String email);
-    Optional<Usuario> login(String email, String password);
+    Map<String, EstadisticasCache> estadisticasCache();
+    CompletableFuture<Optional<Usuario>> login(String email, String password);
 }
\ No newline at end of file
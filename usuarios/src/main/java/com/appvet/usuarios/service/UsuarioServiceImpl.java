@@ -1,14 +1,30 @@
 package com.appvet.usuarios.service;
 
+import com.appvet.usuarios.dto.EstadisticasCache;
+import com.appvet.usuarios.dto.PorIds;
+import com.appvet.usuarios.dto.UsuarioResumen;
+import com.appvet.usuarios.exception.VersionNoCoincideException;
+import com.appvet.usuarios.model.Eliminacion;
 import com.appvet.usuarios.model.Usuario;
+import com.appvet.usuarios.repository.EliminacionRepository;
 import com.appvet.usuarios.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 @RequiredArgsConstructor
@@ -16,7 +32,18 @@ import java.util.Optional;
 @Transactional
 public class UsuarioServiceImpl implements UsuarioService {
     
+    // Ids por cada IN: listas más largas se parten, para no armar sentencias enormes
+    static final int IDS_POR_CONSULTA = 1000;
+    
     private final UsuarioRepository usuarioRepository;
+    private final HashContrasenas hashContrasenas;
+    private final CacheUsuarios cacheUsuarios;
+    private final FiltroEmails filtroEmails;
+    private final EliminacionRepository eliminacionRepository;
+    // Lo que sigue a la verificación (reemplazar el hash, emitir el token) corre aquí y no en el
+    // pool de contraseñas, que queda solo para BCrypt
+    @Qualifier("applicationTaskExecutor")
+    private final Executor tareas;
     
     @Override
     @Transactional(readOnly = true)
@@ -27,27 +54,62 @@ public class UsuarioServiceImpl implements UsuarioService {
     
     @Override
     @Transactional(readOnly = true)
+    public List<UsuarioResumen> obtenerResumenes() {
+        log.info("Obteniendo el resumen de todos los usuarios");
+        return usuarioRepository.findResumenes();
+    }
+    
+    // Las lecturas por id y email pasan por CacheUsuarios y no abren transacción: un acierto no
+    // toma conexión del pool, y en un fallo el repositorio abre la suya
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Optional<Usuario> obtenerPorId(String id) {
-        log.info("Buscando usuario con ID: {}", id);
-        return usuarioRepository.findById(id);
+        log.debug("Buscando usuario con ID: {}", id);
+        return cacheUsuarios.porId(id, usuarioRepository::findById);
     }
     
+    // Los que no están en memoria se traen con un IN por cada IDS_POR_CONSULTA ids
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PorIds<Usuario> obtenerPorIds(List<String> ids) {
+        List<String> unicos = ids.stream().filter(Objects::nonNull).distinct().toList();
+        log.debug("Buscando {} usuarios por ID", unicos.size());
+        return PorIds.ordenar(unicos, cacheUsuarios.porIds(unicos, this::cargarPorIds));
+    }
+    
+    private List<Usuario> cargarPorIds(List<String> ids) {
+        List<Usuario> usuarios = new ArrayList<>(ids.size());
+        for (int desde = 0; desde < ids.size(); desde += IDS_POR_CONSULTA) {
+            usuarios.addAll(usuarioRepository.findAllById(ids.subList(desde, Math.min(desde + IDS_POR_CONSULTA, ids.size()))));
+        }
+        return usuarios;
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Optional<Usuario> obtenerPorEmail(String email) {
-        log.info("Buscando usuario con email: {}", email);
-        return usuarioRepository.findByEmail(email);
+        log.debug("Buscando usuario con email: {}", email);
+        return cacheUsuarios.porEmail(email, usuarioRepository::findByEmail, usuarioRepository::findById);
     }
     
     @Override
     public Usuario registrar(Usuario usuario) {
         log.info("Registrando usuario: {}", usuario.getEmail());
         
-        if (usuarioRepository.existsByEmail(usuario.getEmail())) {
+        // Si el filtro descarta el email no hace falta consultar; una carrera con otro registro
+        // la resuelve el índice único de la tabla
+        if (filtroEmails.puedeExistir(usuario.getEmail()) && usuarioRepository.existsByEmail(usuario.getEmail())) {
             throw new RuntimeException("El email ya está registrado: " + usuario.getEmail());
         }
         
-        return usuarioRepository.save(usuario);
+        usuario.setPassword(hashContrasenas.hashear(usuario.getPassword()));
+        Usuario guardado = usuarioRepository.save(usuario);
+        String email = guardado.getEmail();
+        trasCommit(() -> {
+            filtroEmails.registrado(email);
+            cacheUsuarios.invalidar(guardado.getId(), email);
+        });
+        return guardado;
     }
     
     @Override
@@ -63,14 +125,32 @@ public class UsuarioServiceImpl implements UsuarioService {
                 // Solo actualizar password si se proporciona uno nuevo
                 if (usuarioActualizado.getPassword() != null && 
                     !usuarioActualizado.getPassword().isEmpty()) {
-                    usuarioExistente.setPassword(usuarioActualizado.getPassword());
+                    usuarioExistente.setPassword(hashContrasenas.hashear(usuarioActualizado.getPassword()));
                 }
                 
+                invalidarTrasCommit(id, usuarioExistente.getEmail());
                 return usuarioRepository.save(usuarioExistente);
             })
             .orElseThrow(() -> new RuntimeException("Usuario no encontrado con ID: " + id));
     }
     
+    // If-Match: un solo UPDATE condicionado a la versión, sin leer antes la fila. Devuelve la
+    // versión nueva, para el ETag de la respuesta
+    @Override
+    public long actualizar(String id, Usuario usuarioActualizado, long versionEsperada) {
+        log.info("Actualizando usuario con ID: {} (versión {})", id, versionEsperada);
+        String password = usuarioActualizado.getPassword() == null || usuarioActualizado.getPassword().isEmpty()
+            ? null
+            : hashContrasenas.hashear(usuarioActualizado.getPassword());
+        int filas = usuarioRepository.actualizarSiVersion(id, versionEsperada, usuarioActualizado.getNombre(),
+            usuarioActualizado.getRol(), usuarioActualizado.getFotoPerfilUri(), password, LocalDateTime.now());
+        if (filas == 0) {
+            throw sinCoincidencia(id);
+        }
+        invalidarTrasCommit(id, null);
+        return versionEsperada + 1;
+    }
+    
     @Override
     public void eliminar(String id) {
         log.info("Eliminando usuario con ID: {}", id);
@@ -80,18 +160,99 @@ public class UsuarioServiceImpl implements UsuarioService {
         }
         
         usuarioRepository.deleteById(id);
+        registrarEliminacion(id);
+        trasCommit(() -> {
+            filtroEmails.eliminado();
+            cacheUsuarios.invalidar(id, null);
+        });
     }
     
     @Override
-    @Transactional(readOnly = true)
+    public void eliminar(String id, long versionEsperada) {
+        log.info("Eliminando usuario con ID: {} (versión {})", id, versionEsperada);
+        if (usuarioRepository.eliminarSiVersion(id, versionEsperada) == 0) {
+            throw sinCoincidencia(id);
+        }
+        registrarEliminacion(id);
+        trasCommit(() -> {
+            filtroEmails.eliminado();
+            cacheUsuarios.invalidar(id, null);
+        });
+    }
+    
+    // La app lo consulta mientras se escribe el email: casi siempre el filtro contesta solo
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean existeEmail(String email) {
-        return usuarioRepository.existsByEmail(email);
+        return filtroEmails.puedeExistir(email) && obtenerPorEmail(email).isPresent();
     }
     
     @Override
-    @Transactional(readOnly = true)
-    public Optional<Usuario> login(String email, String password) {
+    public Map<String, EstadisticasCache> estadisticasCache() {
+        return cacheUsuarios.estadisticas();
+    }
+    
+    // En la misma transacción que el borrado: el evento queda si y solo si el borrado se confirma.
+    // Mascotas y horas lo leen después y purgan lo que quedó del usuario
+    private void registrarEliminacion(String id) {
+        eliminacionRepository.save(Eliminacion.deUsuario(id));
+    }
+    
+    // Recién después del commit: si se invalidara antes, una lectura concurrente podría volver a
+    // cargar la fila vieja. Al eliminar no se toca el email: su entrada apunta a un id que ya no
+    // está y se descarta en la próxima lectura
+    private void invalidarTrasCommit(String id, String email) {
+        trasCommit(() -> cacheUsuarios.invalidar(id, email));
+    }
+    
+    private void trasCommit(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+    
+    // Solo cuando la escritura condicionada no afectó filas se mira si existe: 404 o 412
+    private RuntimeException sinCoincidencia(String id) {
+        if (!usuarioRepository.existsById(id)) {
+            return new RuntimeException("Usuario no encontrado con ID: " + id);
+        }
+        return new VersionNoCoincideException("El usuario " + id + " fue modificado por otra petición");
+    }
+    
+    // Busca por email en el hilo de la petición y verifica el hash en el pool de HashContrasenas.
+    // Si el hash guardado es texto plano o de un costo menor, se reemplaza aprovechando que se
+    // tiene la contraseña correcta, ya fuera del pool. El reemplazo es de mejor esfuerzo: si falla
+    // se registra y el login sigue siendo válido; se reintentará en el próximo
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<Optional<Usuario>> login(String email, String password) {
         log.info("Intento de login para email: {}", email);
-        return usuarioRepository.findByEmailAndPassword(email, password);
+        Optional<Usuario> usuario = email == null ? Optional.empty() : usuarioRepository.findByEmail(email);
+        String almacenado = usuario.map(Usuario::getPassword).orElse(null);
+        return hashContrasenas.verificar(password, almacenado).thenApplyAsync(verificacion -> {
+            if (!verificacion.valida()) {
+                return Optional.empty();
+            }
+            if (verificacion.nuevoHash() != null) {
+                reemplazarHash(usuario.get(), almacenado, verificacion.nuevoHash());
+            }
+            return usuario;
+        }, tareas);
+    }
+    
+    private void reemplazarHash(Usuario usuario, String almacenado, String nuevoHash) {
+        try {
+            usuarioRepository.reemplazarHash(usuario.getId(), almacenado, nuevoHash);
+            usuario.setPassword(nuevoHash);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo reemplazar el hash del usuario {}: {}", usuario.getId(), e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,15 @@
+-- Esquema de usuarios tal como lo creaba ddl-auto=update.
+-- IF NOT EXISTS porque en appvet_db la tabla ya existe: ahí esta versión solo queda registrada.
+-- Las consultas por email (findByEmail, existsByEmail, findByEmailAndPassword) usan el índice único.
+CREATE TABLE IF NOT EXISTS usuarios (
+    id VARCHAR(36) NOT NULL,
+    nombre VARCHAR(100) NOT NULL,
+    email VARCHAR(100) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    rol VARCHAR(50),
+    foto_perfil_uri TEXT,
+    fecha_registro DATETIME(6),
+    fecha_actualizacion DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_usuarios_email UNIQUE (email)
+);
@@ -0,0 +1,3 @@
+-- Versión para control de concurrencia optimista (@Version): cada escritura la incrementa y
+-- se expone como ETag; PUT y DELETE con If-Match solo afectan la fila si la versión coincide
+ALTER TABLE usuarios ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
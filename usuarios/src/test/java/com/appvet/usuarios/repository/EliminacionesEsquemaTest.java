@@ -0,0 +1,38 @@
+package com.appvet.usuarios.repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+// La tabla eliminaciones es común en appvet_db y la crea el primero de los tres microservicios
+// que migra, con su propio script (IF NOT EXISTS). Usuarios es el dueño: si los scripts de
+// mascotas y horas no son idénticos al suyo, la tabla depende del orden de despliegue.
+// Corre desde el módulo (directorio de trabajo de Maven) y lee los otros dos del repositorio
+@DisplayName("Esquema común de eliminaciones")
+class EliminacionesEsquemaTest {
+
+    private static final Path PROPIO = Path.of("src/main/resources/db/migration/V3__eliminaciones.sql");
+
+    private static final List<Path> CONSUMIDORES = List.of(
+        Path.of("../mascotas/src/main/resources/db/migration/V5__eliminaciones.sql"),
+        Path.of("../horas/src/main/resources/db/migration/V6__eliminaciones.sql"));
+
+    @Test
+    @DisplayName("Mascotas y horas declaran la tabla exactamente igual que usuarios")
+    void losScriptsSonIdenticos() throws IOException {
+        // Given
+        byte[] propio = Files.readAllBytes(PROPIO);
+
+        // When & Then
+        for (Path consumidor : CONSUMIDORES) {
+            assumeTrue(Files.exists(consumidor), "Módulo compilado fuera del repositorio: falta " + consumidor);
+            assertArrayEquals(propio, Files.readAllBytes(consumidor), consumidor + " difiere de " + PROPIO);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.appvet.usuarios.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+// Corre cada consulta del repositorio sobre H2 (modo MySQL, con las migraciones de Flyway),
+// captura el SQL que genera Hibernate y revisa su EXPLAIN: ninguna puede recorrer la tabla completa
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+@DisplayName("Planes de ejecución de UsuarioRepository")
+class UsuarioRepositoryPlanesTest {
+
+    @TestConfiguration
+    static class RegistroConfig {
+
+        @Bean
+        RegistroSql registroSql() {
+            return new RegistroSql();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer registrarSql(RegistroSql registroSql) {
+            return propiedades -> propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, registroSql);
+        }
+    }
+
+    static class RegistroSql implements StatementInspector {
+
+        private final List<String> sentencias = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            sentencias.add(sql);
+            return sql;
+        }
+    }
+
+    // Las claves primarias y los únicos de H2 llevan sufijo generado (PRIMARY_KEY_9,
+    // uk_usuarios_email_INDEX_9): se compara por prefijo
+    private static final String CLAVE_PRIMARIA = "PRIMARY_KEY";
+    private static final String EMAIL_UNICO = "uk_usuarios_email";
+
+    private static final Pattern ACCESO = Pattern.compile("/\\* public\\.(\\w+)(:?)");
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private RegistroSql registroSql;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // findResumenes y streamEmails no están: recorren la tabla completa a propósito
+    static Stream<Arguments> consultas() {
+        return Stream.of(
+            consulta("findAllById", r -> r.findAllById(List.of("a", "b")), CLAVE_PRIMARIA),
+            consulta("findByEmail", r -> r.findByEmail("a@appvet.cl"), EMAIL_UNICO),
+            consulta("existsByEmail", r -> r.existsByEmail("a@appvet.cl"), EMAIL_UNICO),
+            consulta("findEmailsRegistrados", r -> r.findEmailsRegistrados(List.of("a@appvet.cl", "b@appvet.cl")),
+                EMAIL_UNICO),
+            consulta("reemplazarHash", r -> r.reemplazarHash("a", "secreta", "hash"), CLAVE_PRIMARIA),
+            consulta("actualizarSiVersion", r -> r.actualizarSiVersion("a", 0L, "Ana", "Cliente", null, null, null),
+                CLAVE_PRIMARIA),
+            consulta("eliminarSiVersion", r -> r.eliminarSiVersion("a", 0L), CLAVE_PRIMARIA)
+        );
+    }
+
+    private static Arguments consulta(String nombre, Consumer<UsuarioRepository> ejecutar, String indice) {
+        return Arguments.of(nombre, ejecutar, indice);
+    }
+
+    // Cada acceso a la tabla tiene que buscar por un índice ("/* public.indice: condiciones */"),
+    // el esperado para la consulta; recorrer un índice entero también falla
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("consultas")
+    @DisplayName("La consulta usa el índice esperado")
+    void laConsultaUsaElIndiceEsperado(String nombre, Consumer<UsuarioRepository> ejecutar, String indice) {
+        // Given
+        registroSql.sentencias.clear();
+
+        // When
+        ejecutar.accept(usuarioRepository);
+
+        // Then
+        assertFalse(registroSql.sentencias.isEmpty(), nombre + " no ejecutó SQL");
+        for (String sql : registroSql.sentencias) {
+            String plan = explicar(sql);
+            assertFalse(plan.contains(".tableScan"), nombre + " recorre la tabla completa:\n" + plan);
+            Matcher acceso = ACCESO.matcher(plan);
+            assertTrue(acceso.find(), nombre + " no usa ningún índice:\n" + plan);
+            do {
+                assertTrue(acceso.group(1).startsWith(indice), nombre + " no usa " + indice + ":\n" + plan);
+                assertFalse(acceso.group(2).isEmpty(), nombre + " recorre entero el índice " + indice + ":\n" + plan);
+            } while (acceso.find());
+        }
+    }
+
+    // Los parámetros van en null: EXPLAIN no ejecuta la sentencia, solo la planifica
+    private String explicar(String sql) {
+        Object[] parametros = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parametros);
+    }
+}
@@ -0,0 +1,111 @@
+package com.appvet.usuarios.seguridad;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import com.appvet.usuarios.config.TokensProperties;
+import com.appvet.usuarios.dto.LoginRespuesta;
+import com.appvet.usuarios.model.Usuario;
+
+@DisplayName("Tests para EmisorTokens")
+class EmisorTokensTest {
+
+    private static final long AHORA = 1_767_225_600L; // 2026-01-01T00:00:00Z, en segundos
+    private static final String SECRETO = Base64.getEncoder().encodeToString(
+        "secreto-de-prueba-k1-de-32-bytes!".getBytes(StandardCharsets.UTF_8));
+
+    private final EmisorTokens emisor = new EmisorTokens(
+        new TokensProperties(Duration.ofHours(1), "k1", Map.of("k1", SECRETO, "k0", SECRETO)),
+        Clock.fixed(Instant.ofEpochSecond(AHORA), ZoneOffset.UTC));
+
+    @Test
+    @DisplayName("Debe firmar con la clave activa el usuario, su rol y la expiración")
+    void debeFirmarUsuarioRolYExpiracion() throws Exception {
+        // Given
+        Usuario usuario = new Usuario("u1", "Juan Pérez", "juan@test.com", "hash", "Admin");
+
+        // When
+        EmisorTokens.TokenEmitido emitido = emisor.emitir(usuario);
+
+        // Then
+        String[] partes = emitido.token().split("\\.");
+        assertEquals(3, partes.length);
+        assertEquals("k1", partes[0]);
+        assertEquals("u1\nAdmin\n" + (AHORA + 3600),
+            new String(Base64.getUrlDecoder().decode(partes[1]), StandardCharsets.UTF_8));
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(Base64.getDecoder().decode(SECRETO), "HmacSHA256"));
+        assertArrayEquals(mac.doFinal((partes[0] + "." + partes[1]).getBytes(StandardCharsets.US_ASCII)),
+            Base64.getUrlDecoder().decode(partes[2]));
+        assertEquals((AHORA + 3600) * 1000, emitido.expira());
+    }
+
+    @Test
+    @DisplayName("Debe fallar al iniciar si la clave activa no está configurada")
+    void debeFallarSiLaClaveActivaNoExiste() {
+        assertThrows(IllegalStateException.class, () -> new EmisorTokens(
+            new TokensProperties(Duration.ofHours(1), "k2", Map.of("k1", SECRETO))));
+    }
+
+    @Test
+    @DisplayName("Debe responder el login con los campos del usuario más el token, sin password")
+    void debeResponderLoginConUsuarioYToken() {
+        // Given
+        Usuario usuario = new Usuario("u1", "Juan Pérez", "juan@test.com", "hash", "Admin");
+        EmisorTokens.TokenEmitido emitido = emisor.emitir(usuario);
+
+        // When
+        JsonNode json = JsonMapper.builder().findAndAddModules().build()
+            .valueToTree(new LoginRespuesta(usuario, emitido.token(), emitido.expira()));
+
+        // Then
+        assertEquals("u1", json.get("id").asText());
+        assertEquals("juan@test.com", json.get("email").asText());
+        assertEquals(emitido.token(), json.get("token").asText());
+        assertTrue(json.has("tokenExpira"));
+        assertFalse(json.has("password"));
+        assertFalse(json.has("usuario"));
+    }
+
+    @Test
+    @DisplayName("Debe fallar al iniciar si no hay claves configuradas o alguna está vacía")
+    void debeFallarAlIniciarSinClaves() {
+        ApplicationContextRunner contexto = new ApplicationContextRunner()
+            .withUserConfiguration(ConfigTokens.class)
+            .withPropertyValues("appvet.tokens.clave-activa=k1");
+
+        // When & Then
+        contexto.run(iniciado -> assertNotNull(iniciado.getStartupFailure()));
+        contexto.withPropertyValues("appvet.tokens.claves.k1=")
+            .run(iniciado -> assertNotNull(iniciado.getStartupFailure()));
+        contexto.withPropertyValues("appvet.tokens.claves.k1=" + SECRETO)
+            .run(iniciado -> assertNull(iniciado.getStartupFailure()));
+    }
+
+    @EnableConfigurationProperties(TokensProperties.class)
+    static class ConfigTokens {
+    }
+}
@@ -0,0 +1,91 @@
+package com.appvet.usuarios.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.appvet.usuarios.dto.EstadisticasCache;
+import com.appvet.usuarios.model.Usuario;
+import com.appvet.usuarios.repository.UsuarioRepository;
+
+// Lecturas por id como las de mascotas y horas: la mayoría se concentra en los usuarios activos.
+// Compara ir siempre a la base (lo que hacía obtenerPorId) con pasar por CacheUsuarios.
+// Con H2 en memoria la base ya es rápida; contra MySQL por red la diferencia es mucho mayor.
+// Ejecutar con: mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=CacheBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("Benchmark de la caché de usuarios")
+class CacheBenchmarkTest {
+
+    private static final int USUARIOS = 20_000;
+    private static final int ACTIVOS = 1_000;
+    private static final int LECTURAS = 200_000;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("La caché atiende las lecturas frecuentes más rápido que la base")
+    void cacheAtiendeMasRapidoQueLaBase() {
+        jdbcTemplate.update("DELETE FROM usuarios");
+        List<Object[]> filas = new ArrayList<>(USUARIOS);
+        for (int i = 0; i < USUARIOS; i++) {
+            filas.add(new Object[] {"u" + i, "Usuario " + i, "u" + i + "@appvet.cl", "hash", "Cliente"});
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO usuarios (id, nombre, email, password, rol, version) VALUES (?, ?, ?, ?, ?, 0)", filas);
+
+        Medicion base = medir(usuarioRepository::findById);
+        Medicion cache = medir(usuarioService::obtenerPorId);
+        EstadisticasCache porId = usuarioService.estadisticasCache().get("porId");
+
+        System.out.printf("base:   %,.0f lecturas/s, p99 %.1f µs%n", base.porSegundo(), base.p99());
+        System.out.printf("caché:  %,.0f lecturas/s, p99 %.1f µs, aciertos %.1f%%, expulsiones %,d%n",
+            cache.porSegundo(), cache.p99(), porId.tasaAciertos() * 100, porId.expulsiones());
+        assertTrue(cache.porSegundo() > base.porSegundo() * 2, "La caché no mejoró las lecturas");
+    }
+
+    private record Medicion(double porSegundo, double p99) {
+    }
+
+    // 90% de las lecturas va a los usuarios activos y el resto a cualquiera
+    private Medicion medir(Function<String, Optional<Usuario>> leer) {
+        Random random = new Random(42);
+        for (int i = 0; i < LECTURAS / 10; i++) {
+            leer.apply(id(random));
+        }
+        long[] tiempos = new long[LECTURAS];
+        long inicio = System.nanoTime();
+        for (int i = 0; i < LECTURAS; i++) {
+            long antes = System.nanoTime();
+            assertTrue(leer.apply(id(random)).isPresent());
+            tiempos[i] = System.nanoTime() - antes;
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        Arrays.sort(tiempos);
+        return new Medicion(LECTURAS / segundos, tiempos[(int) (LECTURAS * 0.99)] / 1000.0);
+    }
+
+    private static String id(Random random) {
+        return "u" + (random.nextInt(10) < 9 ? random.nextInt(ACTIVOS) : random.nextInt(USUARIOS));
+    }
+}
@@ -0,0 +1,130 @@
+package com.appvet.usuarios.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.appvet.usuarios.config.CacheUsuariosProperties;
+import com.appvet.usuarios.dto.EstadisticasCache;
+import com.appvet.usuarios.model.Usuario;
+
+@DisplayName("Tests para CacheUsuarios")
+class CacheUsuariosTest {
+
+    private final CacheUsuarios cache = new CacheUsuarios(new CacheUsuariosProperties(100, Duration.ofMinutes(5)));
+    private final AtomicInteger cargas = new AtomicInteger();
+
+    @Test
+    @DisplayName("Debe ir una sola vez a la base aunque muchos pidan el mismo usuario a la vez")
+    void debeCargarUnaSolaVezConPedidosSimultaneos() throws Exception {
+        // Given: la carga tarda lo suficiente para que todos lleguen mientras corre
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService hilos = Executors.newFixedThreadPool(16);
+        List<CompletableFuture<Optional<Usuario>>> pedidos = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 16; i++) {
+            pedidos.add(CompletableFuture.supplyAsync(() -> {
+                esperar(largada);
+                return cache.porId("1", id -> {
+                    dormir(100);
+                    return cargar(id);
+                });
+            }, hilos));
+        }
+        largada.countDown();
+        CompletableFuture.allOf(pedidos.toArray(CompletableFuture[]::new)).join();
+        hilos.shutdown();
+
+        // Then
+        assertEquals(1, cargas.get());
+        assertTrue(pedidos.stream().allMatch(pedido -> pedido.join().isPresent()));
+    }
+
+    @Test
+    @DisplayName("No debe guardar el password ni dejar que se modifique la copia guardada")
+    void noDebeGuardarPasswordNiCompartirLaCopia() {
+        // Given
+        Usuario leido = cache.porId("1", this::cargar).orElseThrow();
+
+        // When
+        leido.setNombre("Cambiado");
+        Usuario otraVez = cache.porId("1", this::cargar).orElseThrow();
+
+        // Then
+        assertNull(leido.getPassword());
+        assertEquals("Ana", otraVez.getNombre());
+        assertEquals(1, cargas.get());
+    }
+
+    @Test
+    @DisplayName("No debe recordar a los usuarios que no existen")
+    void noDebeRecordarUsuariosInexistentes() {
+        // When
+        cache.porId("9", id -> {
+            cargas.incrementAndGet();
+            return Optional.empty();
+        });
+        Optional<Usuario> despues = cache.porId("9", this::cargar);
+
+        // Then
+        assertTrue(despues.isPresent());
+        assertEquals(2, cargas.get());
+    }
+
+    @Test
+    @DisplayName("Debe buscar por email sin distinguir mayúsculas y olvidar el email de un usuario eliminado")
+    void debeBuscarPorEmailYOlvidarEliminados() {
+        // Given
+        cache.porEmail("Ana@AppVet.cl", email -> cargar("1"), this::cargar);
+
+        // When
+        Optional<Usuario> minusculas = cache.porEmail("ana@appvet.cl", email -> cargar("1"), this::cargar);
+        cache.invalidar("1", null);
+        Optional<Usuario> eliminado = cache.porEmail("ana@appvet.cl", email -> cargar("1"), id -> Optional.empty());
+        cache.porEmail("ana@appvet.cl", email -> cargar("1"), this::cargar);
+
+        // Then
+        assertTrue(minusculas.isPresent());
+        assertFalse(eliminado.isPresent());
+        // La primera y la del email que se volvió a buscar
+        assertEquals(2, cargas.get());
+        EstadisticasCache porEmail = cache.estadisticas().get("porEmail");
+        assertEquals(2, porEmail.aciertos());
+        assertEquals(2, porEmail.fallos());
+    }
+
+    private Optional<Usuario> cargar(String id) {
+        cargas.incrementAndGet();
+        return Optional.of(new Usuario(id, "Ana", "ana@appvet.cl", "hash", "Cliente"));
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void dormir(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.appvet.usuarios.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+// Falsos positivos reales y memoria por millón de usuarios del filtro de emails, con la
+// configuración por defecto (capacidad inicial 100.000, 1%) y con la tabla ya dimensionada.
+// Ejecutar con: mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=FiltroBloomBenchmarkTest
+@Tag("benchmark")
+@DisplayName("Benchmark del filtro de emails")
+class FiltroBloomBenchmarkTest {
+
+    private static final int USUARIOS = 1_000_000;
+    private static final int CONSULTAS = 1_000_000;
+
+    @Test
+    @DisplayName("Un millón de emails con falsos positivos cerca del objetivo")
+    void unMillonDeEmails() {
+        medir("creciendo desde 100.000", new FiltroBloom(100_000, 0.01));
+        medir("dimensionado para 1.000.000", new FiltroBloom(USUARIOS, 0.01));
+    }
+
+    private static void medir(String nombre, FiltroBloom filtro) {
+        long inicio = System.nanoTime();
+        for (int i = 0; i < USUARIOS; i++) {
+            filtro.agregar("usuario" + i + "@correo.cl");
+        }
+        double carga = (System.nanoTime() - inicio) / 1e6;
+        inicio = System.nanoTime();
+        long falsos = 0;
+        for (int i = 0; i < CONSULTAS; i++) {
+            if (filtro.puedeContener("libre" + i + "@correo.cl")) {
+                falsos++;
+            }
+        }
+        double porConsulta = (System.nanoTime() - inicio) / (double) CONSULTAS;
+        double tasa = falsos / (double) CONSULTAS;
+        System.out.printf("%s: %d tramos, %.2f MB por millón, falsos positivos %.3f%%, carga %.0f ms, "
+            + "%.0f ns por consulta%n", nombre, filtro.cantidadTramos(), filtro.bytes() / 1_048_576.0,
+            tasa * 100, carga, porConsulta);
+        assertTrue(tasa < filtro.falsosPositivos() * 1.2, nombre + ": demasiados falsos positivos");
+    }
+}
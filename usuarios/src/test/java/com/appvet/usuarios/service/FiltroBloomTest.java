@@ -0,0 +1,75 @@
+package com.appvet.usuarios.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Tests para FiltroBloom")
+class FiltroBloomTest {
+
+    @Test
+    @DisplayName("Debe encontrar todo lo agregado aunque el filtro haya crecido")
+    void debeEncontrarTodoAunqueHayaCrecido() {
+        // Given: capacidad para 1.000 y se agregan 20.000
+        FiltroBloom filtro = new FiltroBloom(1_000, 0.01);
+
+        // When
+        for (int i = 0; i < 20_000; i++) {
+            filtro.agregar("usuario" + i + "@appvet.cl");
+        }
+
+        // Then
+        assertTrue(filtro.cantidadTramos() > 1);
+        assertTrue(IntStream.range(0, 20_000).allMatch(i -> filtro.puedeContener("usuario" + i + "@appvet.cl")));
+    }
+
+    @Test
+    @DisplayName("Debe mantener los falsos positivos bajo el objetivo al crecer")
+    void debeMantenerFalsosPositivosBajoElObjetivo() {
+        // Given
+        FiltroBloom filtro = new FiltroBloom(1_000, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            filtro.agregar("usuario" + i + "@appvet.cl");
+        }
+
+        // When
+        long falsos = IntStream.range(0, 100_000).filter(i -> filtro.puedeContener("libre" + i + "@appvet.cl")).count();
+
+        // Then: con los tramos llenos se llega justo al 1%; se deja margen para el azar
+        assertTrue(falsos < 1_200, "Falsos positivos: " + falsos);
+    }
+
+    @Test
+    @DisplayName("No debe perder elementos agregados desde varios hilos a la vez")
+    void noDebePerderElementosAgregadosEnParalelo() {
+        // Given
+        FiltroBloom filtro = new FiltroBloom(500, 0.01);
+        List<CompletableFuture<Void>> hilos = new ArrayList<>();
+
+        // When
+        for (int h = 0; h < 8; h++) {
+            int hilo = h;
+            hilos.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    filtro.agregar(hilo + "-" + i);
+                }
+            }));
+        }
+        CompletableFuture.allOf(hilos.toArray(CompletableFuture[]::new)).join();
+
+        // Then
+        for (int h = 0; h < 8; h++) {
+            for (int i = 0; i < 5_000; i++) {
+                assertTrue(filtro.puedeContener(h + "-" + i));
+            }
+        }
+        // Los que al agregarse ya daban "puede estar" (hasta ~1%) no suman
+        assertEquals(40_000, filtro.elementos(), 800);
+    }
+}
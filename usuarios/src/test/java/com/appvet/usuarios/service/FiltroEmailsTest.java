@@ -0,0 +1,61 @@
+package com.appvet.usuarios.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("Tests para FiltroEmails")
+class FiltroEmailsTest {
+
+    @Autowired
+    private FiltroEmails filtroEmails;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM usuarios");
+        jdbcTemplate.update("INSERT INTO usuarios (id, nombre, email, password, rol, version) "
+            + "VALUES ('u1', 'Ana', 'Ana@AppVet.cl', 'hash', 'Cliente', 0)");
+    }
+
+    @Test
+    @DisplayName("Debe cargar los emails de la tabla y descartar los que no están")
+    void debeCargarEmailsDeLaTabla() {
+        // When
+        filtroEmails.recargar();
+
+        // Then
+        assertTrue(filtroEmails.puedeExistir("ana@appvet.cl"));
+        assertFalse(filtroEmails.puedeExistir("nadie@appvet.cl"));
+    }
+
+    @Test
+    @DisplayName("Debe sumar los registros y olvidar los eliminados al recargar")
+    void debeSumarRegistrosYOlvidarEliminadosAlRecargar() {
+        // Given
+        filtroEmails.recargar();
+
+        // When
+        filtroEmails.registrado("Luis@AppVet.cl");
+        boolean registrado = filtroEmails.puedeExistir("luis@appvet.cl");
+        jdbcTemplate.update("DELETE FROM usuarios WHERE id = 'u1'");
+        filtroEmails.eliminado();
+        boolean antesDeRecargar = filtroEmails.puedeExistir("ana@appvet.cl");
+        filtroEmails.recargar();
+
+        // Then
+        assertTrue(registrado);
+        assertTrue(antesDeRecargar);
+        assertFalse(filtroEmails.puedeExistir("ana@appvet.cl"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.appvet.usuarios.service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.appvet.usuarios.config.ContrasenasProperties;
+import com.appvet.usuarios.exception.ContrasenasSaturadasException;
+
+@DisplayName("Tests para HashContrasenas")
+class HashContrasenasTest {
+
+    // Un hilo y cola de uno, para poder llenarlo a mano
+    private final ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+    private final CountDownLatch liberar = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        liberar.countDown();
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Debe validar la contraseña correcta sin pedir rehash si el costo no cambió")
+    void debeValidarSinRehashConMismoCosto() {
+        // Given
+        HashContrasenas hash = hashContrasenas(4, Duration.ofSeconds(5));
+        String almacenado = hash.hashear("secreta");
+
+        // When
+        HashContrasenas.Verificacion correcta = hash.verificar("secreta", almacenado).join();
+        HashContrasenas.Verificacion incorrecta = hash.verificar("otra", almacenado).join();
+
+        // Then
+        assertTrue(correcta.valida());
+        assertNull(correcta.nuevoHash());
+        assertFalse(incorrecta.valida());
+        assertNull(incorrecta.nuevoHash());
+    }
+
+    @Test
+    @DisplayName("Debe pedir rehash cuando el costo configurado subió")
+    void debePedirRehashCuandoSubeElCosto() {
+        // Given
+        String almacenado = hashContrasenas(4, Duration.ofSeconds(5)).hashear("secreta");
+        HashContrasenas hash = hashContrasenas(5, Duration.ofSeconds(5));
+
+        // When
+        HashContrasenas.Verificacion resultado = hash.verificar("secreta", almacenado).join();
+
+        // Then
+        assertTrue(resultado.valida());
+        assertTrue(resultado.nuevoHash().startsWith("$2a$05$"));
+    }
+
+    @Test
+    @DisplayName("Debe tratar un email inexistente como contraseña incorrecta")
+    void debeTratarEmailInexistenteComoIncorrecta() {
+        // Given
+        HashContrasenas hash = hashContrasenas(4, Duration.ofSeconds(5));
+
+        // When
+        HashContrasenas.Verificacion resultado = hash.verificar("secreta", null).join();
+
+        // Then
+        assertFalse(resultado.valida());
+        assertNull(resultado.nuevoHash());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar de inmediato cuando el pool y la cola están llenos")
+    void debeRechazarCuandoElPoolEstaLleno() {
+        // Given: el único hilo ocupado y la cola con una verificación esperando
+        HashContrasenas hash = hashContrasenas(4, Duration.ofSeconds(5));
+        pool.execute(this::esperarLiberacion);
+        CompletableFuture<HashContrasenas.Verificacion> encolada = hash.verificar("secreta", null);
+
+        // When & Then
+        assertThrows(ContrasenasSaturadasException.class, () -> hash.verificar("secreta", null));
+        assertThrows(ContrasenasSaturadasException.class, () -> hash.hashear("secreta"));
+        liberar.countDown();
+        assertFalse(encolada.join().valida());
+    }
+
+    @Test
+    @DisplayName("Debe descartar la verificación que esperó más de lo permitido en la cola")
+    void debeDescartarLoQueEsperoDemasiado() throws Exception {
+        // Given
+        HashContrasenas hash = hashContrasenas(4, Duration.ofMillis(20));
+        pool.execute(this::esperarLiberacion);
+        CompletableFuture<HashContrasenas.Verificacion> encolada = hash.verificar("secreta", null);
+
+        // When
+        Thread.sleep(60);
+        liberar.countDown();
+
+        // Then
+        CompletionException error = assertThrows(CompletionException.class, encolada::join);
+        assertInstanceOf(ContrasenasSaturadasException.class, error.getCause());
+        assertEquals(0, pool.getQueue().size());
+    }
+
+    private HashContrasenas hashContrasenas(int costo, Duration esperaMaxima) {
+        return new HashContrasenas(new ContrasenasProperties(costo, 1, 1, esperaMaxima), pool);
+    }
+
+    private void esperarLiberacion() {
+        try {
+            liberar.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.appvet.usuarios.service;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.appvet.usuarios.dto.ResultadoImportacion;
+
+// Importa un CSV generado a medida que se lee (nunca está completo en memoria), con un 1% de
+// emails repetidos, y mide filas por segundo y el heap usado al terminar.
+// Ejecutar con: mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=ImportacionBenchmarkTest
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("h2")
+@DisplayName("Benchmark de la importación de usuarios")
+class ImportacionBenchmarkTest {
+
+    private static final int FILAS = 50_000;
+
+    @Autowired
+    private ImportacionUsuarios importacionUsuarios;
+
+    @Autowired
+    private FiltroEmails filtroEmails;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Importa el archivo completo con memoria acotada")
+    void importaConMemoriaAcotada() throws IOException {
+        jdbcTemplate.update("DELETE FROM usuarios");
+        filtroEmails.recargar();
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapAntes = runtime.totalMemory() - runtime.freeMemory();
+
+        long inicio = System.nanoTime();
+        ResultadoImportacion resultado = importacionUsuarios.importar(new CsvGenerado(FILAS));
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        System.gc();
+        long heapDespues = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("%,d filas en %.1f s: %,.0f filas/s; %,d creadas, %,d rechazadas; heap %+.1f MB%n",
+            resultado.leidas(), segundos, resultado.leidas() / segundos, resultado.creadas(),
+            resultado.rechazadas(), (heapDespues - heapAntes) / 1e6);
+        assertEquals(FILAS, resultado.leidas());
+        assertEquals(FILAS - FILAS / 100, resultado.creadas());
+    }
+
+    // Cada fila 100 repite el email de la anterior
+    private static final class CsvGenerado extends Reader {
+
+        private final int filas;
+        private int fila = -1;
+        private String actual = "nombre,email,password\n";
+        private int posicion;
+
+        private CsvGenerado(int filas) {
+            this.filas = filas;
+        }
+
+        @Override
+        public int read(char[] destino, int desde, int largo) {
+            if (posicion == actual.length()) {
+                if (++fila >= filas) {
+                    return -1;
+                }
+                int numero = fila % 100 == 99 ? fila - 1 : fila;
+                actual = "Usuario " + fila + ",u" + numero + "@appvet.cl,secreta" + fila + "\n";
+                posicion = 0;
+            }
+            int copiados = Math.min(largo, actual.length() - posicion);
+            actual.getChars(posicion, posicion + copiados, destino, desde);
+            posicion += copiados;
+            return copiados;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
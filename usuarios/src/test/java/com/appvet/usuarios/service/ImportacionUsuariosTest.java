@@ -0,0 +1,123 @@
+package com.appvet.usuarios.service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.appvet.usuarios.dto.ResultadoImportacion;
+
+// Lotes de 2 filas, para que el archivo cruce varios lotes
+@SpringBootTest(properties = "appvet.usuarios.importacion.filas-por-lote=2")
+@ActiveProfiles("h2")
+@DisplayName("Tests para ImportacionUsuarios")
+class ImportacionUsuariosTest {
+
+    @Autowired
+    private ImportacionUsuarios importacionUsuarios;
+
+    @Autowired
+    private FiltroEmails filtroEmails;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM usuarios");
+        jdbcTemplate.update("INSERT INTO usuarios (id, nombre, email, password, rol, version) "
+            + "VALUES ('u1', 'Ana', 'ana@appvet.cl', 'hash', 'Cliente', 0)");
+        filtroEmails.recargar();
+    }
+
+    @Test
+    @DisplayName("Debe importar las filas válidas y rechazar repetidas, registradas e inválidas")
+    void debeImportarFilasValidasYRechazarElResto() throws IOException {
+        // Given
+        String csv = """
+            nombre,email,password,rol,telefono
+            Luis,luis@appvet.cl,secreta1,,555
+            Ana Dos,ana@appvet.cl,secreta2,Cliente,
+            Marta,marta@appvet.cl,secreta3,Veterinario,
+            Luis Otra Vez,luis@appvet.cl,secreta4,,
+            Sin Email,,secreta5,,
+            Pedro,pedro@appvet.cl,123,,
+            "Soto, Carla",carla@appvet.cl,secreta6,,
+            """;
+
+        // When
+        ResultadoImportacion resultado = importacionUsuarios.importar(new StringReader(csv));
+
+        // Then
+        assertEquals(7, resultado.leidas());
+        assertEquals(3, resultado.creadas());
+        assertEquals(4, resultado.rechazadas());
+        Map<Long, String> rechazos = resultado.rechazos().stream()
+            .collect(Collectors.toMap(ResultadoImportacion.Rechazo::linea, rechazo -> rechazo.errores().get(0)));
+        assertEquals(Map.of(
+            3L, "El email ya está registrado: ana@appvet.cl",
+            5L, "El email ya está registrado: luis@appvet.cl",
+            6L, "El email es obligatorio",
+            7L, "La contraseña debe tener al menos 6 caracteres"), rechazos);
+        List<Map<String, Object>> filas = jdbcTemplate.queryForList(
+            "SELECT nombre, rol, password FROM usuarios WHERE id <> 'u1' ORDER BY id");
+        assertEquals(List.of("Luis", "Marta", "Soto, Carla"), filas.stream().map(fila -> fila.get("nombre")).toList());
+        assertEquals("Cliente", filas.get(0).get("rol"));
+        assertEquals("Veterinario", filas.get(1).get("rol"));
+        assertTrue(filas.stream().allMatch(fila -> ((String) fila.get("password")).startsWith("$2a$04$")));
+        assertTrue(filtroEmails.puedeExistir("marta@appvet.cl"));
+    }
+
+    @Test
+    @DisplayName("Debe rechazar solo las filas que chocan con la base cuando falla el lote")
+    void debeRechazarSoloFilasQueChocan() throws IOException {
+        // Given: el id ya existe, cosa que solo se nota al insertar
+        String csv = """
+            id,nombre,email,password
+            u1,Repetido,repetido@appvet.cl,secreta1
+            ,Nuevo,nuevo@appvet.cl,secreta2
+            """;
+
+        // When
+        ResultadoImportacion resultado = importacionUsuarios.importar(new StringReader(csv));
+
+        // Then
+        assertEquals(1, resultado.creadas());
+        assertEquals(List.of("El email o el ID ya existen"), resultado.rechazos().get(0).errores());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM usuarios", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Debe conservar lo importado y detenerse al encontrar un error de formato")
+    void debeDetenerseAnteErrorDeFormato() throws IOException {
+        // Given
+        String csv = "nombre,email,password\nLuis,luis@appvet.cl,secreta1\n\"Sin cerrar,x@appvet.cl,secreta2\n";
+
+        // When
+        ResultadoImportacion resultado = importacionUsuarios.importar(new StringReader(csv));
+
+        // Then
+        assertEquals(1, resultado.creadas());
+        assertEquals(3, resultado.rechazos().get(0).linea());
+        assertTrue(resultado.rechazos().get(0).errores().get(0).contains("se detuvo la importación"));
+    }
+
+    @Test
+    @DisplayName("Debe rechazar un encabezado sin las columnas obligatorias")
+    void debeRechazarEncabezadoIncompleto() {
+        assertThrows(IllegalArgumentException.class,
+            () -> importacionUsuarios.importar(new StringReader("nombre,correo\nLuis,luis@appvet.cl\n")));
+    }
+}
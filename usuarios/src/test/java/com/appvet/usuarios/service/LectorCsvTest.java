@@ -0,0 +1,68 @@
+package com.appvet.usuarios.service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Tests para LectorCsv")
+class LectorCsvTest {
+
+    @Test
+    @DisplayName("Debe leer campos entre comillas con comas, comillas y saltos de línea")
+    void debeLeerCamposEntreComillas() throws IOException {
+        // Given
+        LectorCsv lector = lector("\uFEFFnombre,email\r\n\"Pérez, Juan\",juan@appvet.cl\r\n"
+            + "\"Ana \"\"la vet\"\"\nSegunda línea\",\r\n");
+
+        // When
+        List<String> encabezado = lector.siguiente();
+        List<String> primero = lector.siguiente();
+        List<String> segundo = lector.siguiente();
+
+        // Then
+        assertEquals(List.of("nombre", "email"), encabezado);
+        assertEquals(List.of("Pérez, Juan", "juan@appvet.cl"), primero);
+        assertEquals(List.of("Ana \"la vet\"\nSegunda línea", ""), segundo);
+        assertNull(lector.siguiente());
+    }
+
+    @Test
+    @DisplayName("Debe saltar líneas en blanco e informar la línea donde empieza cada registro")
+    void debeInformarLineaDeCadaRegistro() throws IOException {
+        // Given
+        LectorCsv lector = lector("a\n\n\"b\nb\"\nc");
+
+        // When / Then
+        lector.siguiente();
+        assertEquals(1, lector.linea());
+        lector.siguiente();
+        assertEquals(3, lector.linea());
+        assertEquals(List.of("c"), lector.siguiente());
+        assertEquals(5, lector.linea());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar comillas sin cerrar indicando la línea")
+    void debeRechazarComillasSinCerrar() throws IOException {
+        // Given
+        LectorCsv lector = lector("a,b\n\"sin cerrar,b\n");
+        lector.siguiente();
+
+        // When
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, lector::siguiente);
+
+        // Then
+        assertTrue(error.getMessage().contains("línea 2"));
+    }
+
+    private static LectorCsv lector(String csv) {
+        return new LectorCsv(new StringReader(csv));
+    }
+}
@@ -0,0 +1,91 @@
+package com.appvet.usuarios.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.appvet.usuarios.config.ContrasenasProperties;
+import com.appvet.usuarios.exception.ContrasenasSaturadasException;
+
+// Logins por segundo por núcleo con el costo de producción, y qué pasa en una ráfaga: muchos
+// más clientes que hilos del pool, reintentando apenas se les rechaza. Mientras tanto un hilo
+// aparte, que hace de "otro endpoint" de Tomcat, mide cuánto tarda en atender algo trivial.
+// Ejecutar con: mvn test -Dgroups=benchmark -DexcludedGroups= -Dbenchmark.costo=10
+@Tag("benchmark")
+@DisplayName("Benchmark de login con BCrypt")
+class LoginBenchmarkTest {
+
+    private static final Duration DURACION = Duration.ofSeconds(10);
+
+    @Test
+    @DisplayName("El pool sostiene la ráfaga sin frenar al resto de los hilos")
+    void poolSostieneRafaga() throws Exception {
+        int costo = Integer.parseInt(System.getProperty("benchmark.costo", "10"));
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        int clientes = nucleos * 8;
+        HashContrasenas hash = new HashContrasenas(new ContrasenasProperties(costo, 0, 64, Duration.ofSeconds(2)));
+        String almacenado = hash.hashear("secreta");
+
+        AtomicLong logins = new AtomicLong();
+        AtomicLong rechazos = new AtomicLong();
+        long fin = System.nanoTime() + DURACION.toNanos();
+        ExecutorService tomcat = Executors.newFixedThreadPool(clientes + 1);
+        List<CompletableFuture<Void>> rafaga = new ArrayList<>();
+        for (int i = 0; i < clientes; i++) {
+            rafaga.add(CompletableFuture.runAsync(() -> {
+                while (System.nanoTime() < fin) {
+                    try {
+                        if (hash.verificar("secreta", almacenado).join().valida()) {
+                            logins.incrementAndGet();
+                        }
+                    } catch (ContrasenasSaturadasException | CompletionException e) {
+                        rechazos.incrementAndGet();
+                    }
+                }
+            }, tomcat));
+        }
+        List<Long> otroEndpoint = CompletableFuture.supplyAsync(() -> {
+            List<Long> tiempos = new ArrayList<>();
+            while (System.nanoTime() < fin) {
+                long inicio = System.nanoTime();
+                Integer.toString(tiempos.size()).hashCode();
+                tiempos.add(System.nanoTime() - inicio);
+                dormir();
+            }
+            return tiempos;
+        }, tomcat).get();
+        CompletableFuture.allOf(rafaga.toArray(CompletableFuture[]::new)).get();
+        tomcat.shutdown();
+        tomcat.awaitTermination(5, TimeUnit.SECONDS);
+        hash.cerrar();
+
+        double porSegundo = logins.get() / (double) DURACION.toSeconds();
+        otroEndpoint.sort(null);
+        double p99 = otroEndpoint.get((int) (otroEndpoint.size() * 0.99)) / 1_000_000.0;
+        System.out.printf("costo %d, %d núcleos, %d clientes%n", costo, nucleos, clientes);
+        System.out.printf("logins: %.1f/s en total, %.1f/s por núcleo; rechazados: %,d%n",
+            porSegundo, porSegundo / nucleos, rechazos.get());
+        System.out.printf("otro endpoint durante la ráfaga: p99 %.3f ms%n", p99);
+        assertTrue(logins.get() > 0, "No entró ningún login");
+        assertTrue(p99 < 50, "La ráfaga de logins frenó al resto de los hilos");
+    }
+
+    private static void dormir() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.appvet.usuarios.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+// Contra H2, con lotes de 1 evento para que la limpieza pase por varios DELETE
+@SpringBootTest(properties = {
+    "appvet.usuarios.eliminaciones.retencion=30d",
+    "appvet.usuarios.eliminaciones.filas-por-lote=1"
+})
+@ActiveProfiles("h2")
+@DisplayName("Tests para RetencionEliminaciones")
+class RetencionEliminacionesTest {
+
+    private static final LocalDateTime ANTIGUA = LocalDateTime.now().minusDays(60);
+
+    @Autowired
+    private RetencionEliminaciones retencionEliminaciones;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void limpiar() {
+        jdbcTemplate.update("DELETE FROM eliminaciones");
+    }
+
+    @Test
+    @DisplayName("Debe borrar solo los eventos que ambos consumidores purgaron antes de la retención")
+    void debeBorrarEventosPurgadosPorAmbosTrasLaRetencion() {
+        // Given
+        insertar("purgado-1", ANTIGUA, ANTIGUA);
+        insertar("purgado-2", ANTIGUA, ANTIGUA);
+        insertar("sin-horas", ANTIGUA, null);
+        insertar("sin-mascotas", null, ANTIGUA);
+        insertar("reciente", ANTIGUA, LocalDateTime.now());
+
+        // When
+        int borrados = retencionEliminaciones.limpiar();
+
+        // Then
+        assertEquals(2, borrados);
+        assertEquals(List.of("reciente", "sin-horas", "sin-mascotas"),
+            jdbcTemplate.queryForList("SELECT entidad_id FROM eliminaciones ORDER BY entidad_id", String.class));
+        assertEquals(0, retencionEliminaciones.limpiar());
+    }
+
+    private void insertar(String entidadId, LocalDateTime purgadaMascotas, LocalDateTime purgadaHoras) {
+        jdbcTemplate.update("INSERT INTO eliminaciones (tipo, entidad_id, fecha, purgada_mascotas, purgada_horas) "
+            + "VALUES ('usuario', ?, ?, ?, ?)", entidadId, Timestamp.valueOf(ANTIGUA),
+            purgadaMascotas == null ? null : Timestamp.valueOf(purgadaMascotas),
+            purgadaHoras == null ? null : Timestamp.valueOf(purgadaHoras));
+    }
+}
@@ -1,13 +1,22 @@
 package com.appvet.usuarios.service;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,16 +24,29 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.appvet.usuarios.config.CacheUsuariosProperties;
+import com.appvet.usuarios.config.ContrasenasProperties;
+import com.appvet.usuarios.dto.PorIds;
+import com.appvet.usuarios.dto.UsuarioResumen;
+import com.appvet.usuarios.exception.VersionNoCoincideException;
+import com.appvet.usuarios.model.Eliminacion;
 import com.appvet.usuarios.model.Usuario;
+import com.appvet.usuarios.repository.EliminacionRepository;
 import com.appvet.usuarios.repository.UsuarioRepository;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +56,29 @@ class UsuarioServiceImplTest {
     @Mock
     private UsuarioRepository usuarioRepository;
 
+    // Costo 4 y un solo hilo: lo justo para que los tests no se noten
+    @Spy
+    private HashContrasenas hashContrasenas =
+        new HashContrasenas(new ContrasenasProperties(4, 1, 8, Duration.ofSeconds(5)));
+
+    @Spy
+    private CacheUsuarios cacheUsuarios = new CacheUsuarios(new CacheUsuariosProperties(100, Duration.ofMinutes(5)));
+
+    @Mock
+    private FiltroEmails filtroEmails;
+
+    @Mock
+    private EliminacionRepository eliminacionRepository;
+
+    // Hace de applicationTaskExecutor: lo que sigue a la verificación corre en este hilo
+    @Spy
+    private ExecutorService tareas = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+        tarea -> {
+            Thread hilo = new Thread(tarea, "tareas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+
     @InjectMocks
     private UsuarioServiceImpl usuarioService;
 
@@ -41,6 +86,8 @@ class UsuarioServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        // Como antes de la primera carga: todo email "puede existir" y se consulta
+        lenient().when(filtroEmails.puedeExistir(any())).thenReturn(true);
         usuarioTest = new Usuario(
             "1", 
             "Juan Pérez", 
@@ -70,6 +117,22 @@ class UsuarioServiceImplTest {
         verify(usuarioRepository, times(1)).findAll();
     }
 
+    @Test
+    @DisplayName("Debe listar el resumen de los usuarios sin leer las entidades")
+    void debeListarResumenDeUsuarios() {
+        // Given
+        List<UsuarioResumen> resumenes = List.of(
+            new UsuarioResumen("1", "Juan Pérez", "juan@test.com", "Cliente", null, null));
+        when(usuarioRepository.findResumenes()).thenReturn(resumenes);
+
+        // When
+        List<UsuarioResumen> resultado = usuarioService.obtenerResumenes();
+
+        // Then
+        assertEquals(resumenes, resultado);
+        verify(usuarioRepository, never()).findAll();
+    }
+
     @Test
     @DisplayName("Debe obtener usuario por ID cuando existe")
     void debeObtenerUsuarioPorIdCuandoExiste() {
@@ -176,6 +239,47 @@ class UsuarioServiceImplTest {
         verify(usuarioRepository, never()).save(any());
     }
 
+    @Test
+    @DisplayName("Debe actualizar con una sola escritura condicionada a la versión")
+    void debeActualizarConEscrituraCondicionada() {
+        // Given
+        usuarioTest.setPassword("");
+        when(usuarioRepository.actualizarSiVersion(eq("1"), eq(3L), eq("Juan Pérez"), eq("Cliente"),
+            isNull(), isNull(), any())).thenReturn(1);
+
+        // When
+        long version = usuarioService.actualizar("1", usuarioTest, 3L);
+
+        // Then
+        assertEquals(4L, version);
+        verify(usuarioRepository, never()).findById(any());
+        verify(usuarioRepository, never()).existsById(any());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar la actualización si la versión ya cambió")
+    void debeRechazarActualizacionConVersionDistinta() {
+        // Given
+        when(usuarioRepository.actualizarSiVersion(eq("1"), eq(3L), any(), any(), any(), any(), any())).thenReturn(0);
+        when(usuarioRepository.existsById("1")).thenReturn(true);
+
+        // When & Then
+        assertThrows(VersionNoCoincideException.class, () -> usuarioService.actualizar("1", usuarioTest, 3L));
+    }
+
+    @Test
+    @DisplayName("Debe informar no encontrado al eliminar con versión un usuario inexistente")
+    void debeInformarNoEncontradoAlEliminarConVersion() {
+        // Given
+        when(usuarioRepository.eliminarSiVersion("999", 0L)).thenReturn(0);
+        when(usuarioRepository.existsById("999")).thenReturn(false);
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> usuarioService.eliminar("999", 0L));
+        assertFalse(exception instanceof VersionNoCoincideException);
+        assertTrue(exception.getMessage().contains("Usuario no encontrado"));
+    }
+
     @Test
     @DisplayName("Debe eliminar usuario cuando existe")
     void debeEliminarUsuarioCuandoExiste() {
@@ -189,6 +293,8 @@ class UsuarioServiceImplTest {
         // Then
         verify(usuarioRepository, times(1)).existsById("1");
         verify(usuarioRepository, times(1)).deleteById("1");
+        verify(eliminacionRepository).save(argThat(eliminacion ->
+            Eliminacion.USUARIO.equals(eliminacion.getTipo()) && "1".equals(eliminacion.getEntidadId())));
     }
 
     @Test
@@ -205,38 +311,223 @@ class UsuarioServiceImplTest {
         assertTrue(exception.getMessage().contains("Usuario no encontrado"));
         verify(usuarioRepository, times(1)).existsById("999");
         verify(usuarioRepository, never()).deleteById(any());
+        verify(eliminacionRepository, never()).save(any());
     }
 
     @Test
     @DisplayName("Debe realizar login exitoso con credenciales correctas")
     void debeRealizarLoginExitosoConCredencialesCorrectas() {
         // Given
-        when(usuarioRepository.findByEmailAndPassword("juan@test.com", "123456"))
-            .thenReturn(Optional.of(usuarioTest));
+        usuarioTest.setPassword(hashContrasenas.hashear("123456"));
+        when(usuarioRepository.findByEmail("juan@test.com")).thenReturn(Optional.of(usuarioTest));
 
         // When
-        Optional<Usuario> resultado = usuarioService.login("juan@test.com", "123456");
+        Optional<Usuario> resultado = usuarioService.login("juan@test.com", "123456").join();
 
         // Then
         assertTrue(resultado.isPresent());
         assertEquals("Juan Pérez", resultado.get().getNombre());
-        verify(usuarioRepository, times(1))
-            .findByEmailAndPassword("juan@test.com", "123456");
+        verify(usuarioRepository, times(1)).findByEmail("juan@test.com");
+        verify(usuarioRepository, never()).reemplazarHash(any(), any(), any());
     }
 
     @Test
     @DisplayName("Debe fallar login con credenciales incorrectas")
     void debeFallarLoginConCredencialesIncorrectas() {
         // Given
-        when(usuarioRepository.findByEmailAndPassword("juan@test.com", "wrong"))
-            .thenReturn(Optional.empty());
+        usuarioTest.setPassword(hashContrasenas.hashear("123456"));
+        when(usuarioRepository.findByEmail("juan@test.com")).thenReturn(Optional.of(usuarioTest));
+
+        // When
+        Optional<Usuario> resultado = usuarioService.login("juan@test.com", "wrong").join();
+
+        // Then
+        assertFalse(resultado.isPresent());
+        verify(usuarioRepository, times(1)).findByEmail("juan@test.com");
+        verify(usuarioRepository, never()).reemplazarHash(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Debe fallar login sin error cuando el email no existe")
+    void debeFallarLoginCuandoEmailNoExiste() {
+        // Given
+        when(usuarioRepository.findByEmail("nadie@test.com")).thenReturn(Optional.empty());
 
         // When
-        Optional<Usuario> resultado = usuarioService.login("juan@test.com", "wrong");
+        Optional<Usuario> resultado = usuarioService.login("nadie@test.com", "123456").join();
 
         // Then
         assertFalse(resultado.isPresent());
-        verify(usuarioRepository, times(1))
-            .findByEmailAndPassword("juan@test.com", "wrong");
+        verify(usuarioRepository, never()).reemplazarHash(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Debe reemplazar la contraseña en texto plano por su hash al hacer login")
+    void debeReemplazarContrasenaEnTextoPlanoAlHacerLogin() {
+        // Given: usuarioTest trae "123456" tal cual, como las filas anteriores a BCrypt
+        when(usuarioRepository.findByEmail("juan@test.com")).thenReturn(Optional.of(usuarioTest));
+
+        // When
+        Optional<Usuario> resultado = usuarioService.login("juan@test.com", "123456").join();
+
+        // Then
+        assertTrue(resultado.isPresent());
+        ArgumentCaptor<String> nuevo = ArgumentCaptor.forClass(String.class);
+        verify(usuarioRepository, times(1)).reemplazarHash(eq("1"), eq("123456"), nuevo.capture());
+        assertTrue(nuevo.getValue().startsWith("$2a$04$"));
+        assertEquals(nuevo.getValue(), resultado.get().getPassword());
+    }
+
+    @Test
+    @DisplayName("Debe reemplazar el hash fuera del pool de contraseñas y mantener el login si falla")
+    void debeMantenerLoginSiFallaReemplazarHash() {
+        // Given
+        AtomicReference<String> hilo = new AtomicReference<>();
+        when(usuarioRepository.findByEmail("juan@test.com")).thenReturn(Optional.of(usuarioTest));
+        when(usuarioRepository.reemplazarHash(eq("1"), eq("123456"), any())).thenAnswer(invocacion -> {
+            hilo.set(Thread.currentThread().getName());
+            throw new IllegalStateException("sin conexión");
+        });
+
+        // When
+        Optional<Usuario> resultado = usuarioService.login("juan@test.com", "123456").join();
+
+        // Then
+        assertTrue(resultado.isPresent());
+        assertEquals("tareas", hilo.get());
+        assertEquals("123456", resultado.get().getPassword());
+    }
+
+    @Test
+    @DisplayName("Debe guardar el hash y no la contraseña al registrar")
+    void debeGuardarHashAlRegistrar() {
+        // Given
+        when(usuarioRepository.existsByEmail("juan@test.com")).thenReturn(false);
+        when(usuarioRepository.save(any(Usuario.class))).thenAnswer(invocacion -> invocacion.getArgument(0));
+
+        // When
+        Usuario resultado = usuarioService.registrar(usuarioTest);
+
+        // Then
+        assertNotEquals("123456", resultado.getPassword());
+        assertTrue(resultado.getPassword().startsWith("$2a$04$"));
+    }
+
+    @Test
+    @DisplayName("Debe responder la segunda lectura por id desde la caché y sin password")
+    void debeResponderSegundaLecturaDesdeCache() {
+        // Given
+        when(usuarioRepository.findById("1")).thenReturn(Optional.of(usuarioTest));
+        usuarioService.obtenerPorId("1");
+
+        // When
+        Optional<Usuario> resultado = usuarioService.obtenerPorId("1");
+
+        // Then
+        assertTrue(resultado.isPresent());
+        assertEquals("Juan Pérez", resultado.get().getNombre());
+        assertNull(resultado.get().getPassword());
+        verify(usuarioRepository, times(1)).findById("1");
+    }
+
+    @Test
+    @DisplayName("Debe buscar por ids en una sola consulta solo los que no están en la caché")
+    void debeObtenerPorIdsCargandoSoloLosQueFaltan() {
+        // Given
+        Usuario maria = new Usuario("2", "María López", "maria@test.com", "123456", "Cliente");
+        when(usuarioRepository.findById("1")).thenReturn(Optional.of(usuarioTest));
+        when(usuarioRepository.findAllById(List.of("2", "9"))).thenReturn(List.of(maria));
+        usuarioService.obtenerPorId("1");
+
+        // When
+        PorIds<Usuario> resultado = usuarioService.obtenerPorIds(List.of("2", "1", "9", "2"));
+
+        // Then
+        assertEquals(List.of("2", "1"), resultado.encontrados().stream().map(Usuario::getId).toList());
+        assertEquals(List.of("9"), resultado.faltantes());
+        assertTrue(resultado.encontrados().stream().allMatch(usuario -> usuario.getPassword() == null));
+        verify(usuarioRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    @DisplayName("Debe partir una lista larga de ids en una consulta cada mil")
+    void debePartirListaLargaDeIds() {
+        // Given
+        List<String> ids = IntStream.range(0, 2500).mapToObj(i -> "u" + i).toList();
+        when(usuarioRepository.findAllById(any())).thenReturn(List.of());
+
+        // When
+        PorIds<Usuario> resultado = usuarioService.obtenerPorIds(ids);
+
+        // Then
+        verify(usuarioRepository, times(3)).findAllById(any());
+        assertEquals(ids, resultado.faltantes());
+    }
+
+    @Test
+    @DisplayName("Debe compartir la caché entre la lectura por email y la lectura por id")
+    void debeCompartirCacheEntreEmailEId() {
+        // Given
+        when(usuarioRepository.findByEmail("Juan@Test.com")).thenReturn(Optional.of(usuarioTest));
+        usuarioService.obtenerPorEmail("Juan@Test.com");
+
+        // When
+        boolean existe = usuarioService.existeEmail("juan@test.com");
+        Optional<Usuario> porId = usuarioService.obtenerPorId("1");
+
+        // Then
+        assertTrue(existe);
+        assertTrue(porId.isPresent());
+        verify(usuarioRepository, times(1)).findByEmail(any());
+        verify(usuarioRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Debe volver a la base después de actualizar o eliminar el usuario")
+    void debeVolverALaBaseTrasActualizarOEliminar() {
+        // Given
+        when(usuarioRepository.findById("1")).thenReturn(Optional.of(usuarioTest));
+        when(usuarioRepository.actualizarSiVersion(eq("1"), eq(3L), any(), any(), any(), any(), any())).thenReturn(1);
+        when(usuarioRepository.existsById("1")).thenReturn(true);
+        usuarioService.obtenerPorId("1");
+
+        // When
+        usuarioService.actualizar("1", new Usuario("1", "Juan", "juan@test.com", "", "Cliente"), 3L);
+        usuarioService.obtenerPorId("1");
+        usuarioService.eliminar("1");
+        usuarioService.obtenerPorId("1");
+
+        // Then
+        verify(usuarioRepository, times(3)).findById("1");
+    }
+
+    @Test
+    @DisplayName("No debe consultar la base cuando el filtro descarta el email")
+    void noDebeConsultarBaseCuandoFiltroDescartaEmail() {
+        // Given
+        when(filtroEmails.puedeExistir("nuevo@test.com")).thenReturn(false);
+
+        // When
+        boolean existe = usuarioService.existeEmail("nuevo@test.com");
+
+        // Then
+        assertFalse(existe);
+        verify(usuarioRepository, never()).findByEmail(any());
+        verify(usuarioRepository, never()).existsByEmail(any());
+    }
+
+    @Test
+    @DisplayName("Debe registrar sin consultar el email si el filtro lo descarta y luego sumarlo al filtro")
+    void debeRegistrarSinConsultarEmailDescartado() {
+        // Given
+        when(filtroEmails.puedeExistir("juan@test.com")).thenReturn(false);
+        when(usuarioRepository.save(any(Usuario.class))).thenReturn(usuarioTest);
+
+        // When
+        usuarioService.registrar(usuarioTest);
+
+        // Then
+        verify(usuarioRepository, never()).existsByEmail(any());
+        verify(filtroEmails, times(1)).registrado("juan@test.com");
     }
-}
\ No newline at end of file
+}